@@ -0,0 +1,73 @@
+package org.qortal.benchmark;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.qortal.block.Block;
+import org.qortal.block.BlockChain;
+import org.qortal.controller.Controller;
+import org.qortal.data.block.BlockData;
+import org.qortal.data.transaction.BaseTransactionData;
+import org.qortal.data.transaction.PaymentTransactionData;
+import org.qortal.group.Group;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.test.common.Common;
+import org.qortal.test.common.TestAccount;
+import org.qortal.transaction.Transaction;
+import org.qortal.utils.Amounts;
+
+/**
+ * Helpers for benchmarks that need a seeded repository.
+ * <p>
+ * Repository is seeded by {@link Common#useDefaultSettings()}, i.e. from test-settings-v2.json / test-chain-v2.json,
+ * so benchmarks run offline and start from the same state each time.
+ */
+public class BenchmarkUtils {
+
+	/** Seed for any randomness used by benchmarks, so inputs are identical between runs. */
+	public static final long RANDOM_SEED = 0x51_0a7a1L;
+
+	public static final long PAYMENT_AMOUNT = 1L * Amounts.MULTIPLIER;
+
+	/**
+	 * Returns new, signed, but unprocessed block on top of current chain tip.
+	 * <p>
+	 * Block contains one PAYMENT from each (non-reward-share) test account to the next.
+	 */
+	public static Block buildBlock(Repository repository) throws DataException {
+		TestAccount mintingAccount = Common.getTestAccount(repository, "alice-reward-share");
+		Controller.getInstance().ensureTestingAccountsOnline(mintingAccount);
+
+		BlockData parentBlockData = repository.getBlockRepository().getLastBlock();
+		Block block = Block.mint(repository, parentBlockData, mintingAccount);
+		if (block == null)
+			throw new IllegalStateException("Unable to mint benchmark block");
+
+		// Transactions need to be older than block
+		long timestamp = block.getBlockData().getTimestamp() - 1;
+
+		List<TestAccount> accounts = Common.getTestAccounts(repository).stream()
+				.filter(account -> !account.isRewardShare)
+				.collect(Collectors.toList());
+
+		for (int i = 0; i < accounts.size(); ++i) {
+			TestAccount sender = accounts.get(i);
+			TestAccount recipient = accounts.get((i + 1) % accounts.size());
+
+			BaseTransactionData baseTransactionData = new BaseTransactionData(timestamp, Group.NO_GROUP, sender.getLastReference(),
+					sender.getPublicKey(), BlockChain.getInstance().getUnitFee(), null);
+			PaymentTransactionData paymentTransactionData = new PaymentTransactionData(baseTransactionData, recipient.getAddress(), PAYMENT_AMOUNT);
+
+			Transaction.fromData(repository, paymentTransactionData).sign(sender);
+
+			if (!block.addTransaction(paymentTransactionData))
+				throw new IllegalStateException("Unable to add transaction to benchmark block");
+		}
+
+		block.sign();
+
+		return block;
+	}
+
+}
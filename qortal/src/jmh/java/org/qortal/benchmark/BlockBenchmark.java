@@ -0,0 +1,85 @@
+package org.qortal.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.qortal.block.Block;
+import org.qortal.block.Block.ValidationResult;
+import org.qortal.data.at.ATStateData;
+import org.qortal.data.block.BlockData;
+import org.qortal.data.transaction.TransactionData;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryManager;
+import org.qortal.test.common.Common;
+import org.qortal.transform.TransformationException;
+import org.qortal.transform.block.BlockTransformer;
+import org.qortal.utils.Triple;
+
+/**
+ * Block validation and processing, using a freshly deserialized block for each invocation
+ * so no cached state carries over. Repository changes are discarded after each invocation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BlockBenchmark {
+
+	private Repository repository;
+	private byte[] blockBytes;
+
+	private Block block;
+
+	@Setup(Level.Trial)
+	public void setupTrial() throws DataException, TransformationException {
+		Common.useDefaultSettings();
+		this.repository = RepositoryManager.getRepository();
+
+		Block block = BenchmarkUtils.buildBlock(this.repository);
+
+		ValidationResult validationResult = block.isValid();
+		if (validationResult != ValidationResult.OK)
+			throw new IllegalStateException(String.format("Benchmark block invalid: %s", validationResult.name()));
+
+		this.blockBytes = BlockTransformer.toBytes(block);
+		this.repository.discardChanges();
+	}
+
+	@TearDown(Level.Trial)
+	public void teardownTrial() throws DataException {
+		this.repository.close();
+		Common.closeRepository();
+	}
+
+	@Setup(Level.Invocation)
+	public void setupInvocation() throws TransformationException {
+		Triple<BlockData, List<TransactionData>, List<ATStateData>> blockInfo = BlockTransformer.fromBytes(this.blockBytes);
+
+		this.block = new Block(this.repository, blockInfo.getA(), blockInfo.getB(), blockInfo.getC());
+	}
+
+	@TearDown(Level.Invocation)
+	public void teardownInvocation() throws DataException {
+		this.repository.discardChanges();
+	}
+
+	@Benchmark
+	public ValidationResult isValid() throws DataException {
+		return this.block.isValid();
+	}
+
+	@Benchmark
+	public void process() throws DataException {
+		this.block.process();
+	}
+
+}
@@ -0,0 +1,53 @@
+package org.qortal.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.qortal.crypto.Crypto;
+import org.qortal.utils.Base58;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CryptoBenchmark {
+
+	private byte[] publicKey;
+	private byte[] signature;
+	private String encodedSignature;
+
+	@Setup
+	public void setup() {
+		Random random = new Random(BenchmarkUtils.RANDOM_SEED);
+
+		this.publicKey = new byte[32];
+		random.nextBytes(this.publicKey);
+
+		this.signature = new byte[64];
+		random.nextBytes(this.signature);
+
+		this.encodedSignature = Base58.encode(this.signature);
+	}
+
+	@Benchmark
+	public String base58Encode() {
+		return Base58.encode(this.signature);
+	}
+
+	@Benchmark
+	public byte[] base58Decode() {
+		return Base58.decode(this.encodedSignature);
+	}
+
+	@Benchmark
+	public String toAddress() {
+		return Crypto.toAddress(this.publicKey);
+	}
+
+}
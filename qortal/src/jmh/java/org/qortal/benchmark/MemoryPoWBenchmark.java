@@ -0,0 +1,46 @@
+package org.qortal.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.qortal.crypto.MemoryPoW;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MemoryPoWBenchmark {
+
+	// Same as MemoryPoWTests, so expected nonce is known
+	private static final byte[] DATA = new byte[] { (byte) 0xaa, (byte) 0xbb, (byte) 0xcc };
+	private static final int WORK_BUFFER_LENGTH = 8 * 1024 * 1024;
+	private static final int DIFFICULTY = 8;
+	private static final int EXPECTED_NONCE = 326;
+
+	/** Separate state so only nonce computation is parameterized by thread count. */
+	@State(Scope.Thread)
+	public static class ComputeState {
+		@Param({ "1", "4" })
+		public int threadCount;
+	}
+
+	@Benchmark
+	public Integer compute2(ComputeState computeState) {
+		Integer nonce = MemoryPoW.compute2(DATA, WORK_BUFFER_LENGTH, DIFFICULTY, computeState.threadCount);
+
+		if (nonce == null || nonce != EXPECTED_NONCE)
+			throw new IllegalStateException("Unexpected nonce: " + nonce);
+
+		return nonce;
+	}
+
+	@Benchmark
+	public boolean verify2() {
+		return MemoryPoW.verify2(DATA, WORK_BUFFER_LENGTH, DIFFICULTY, EXPECTED_NONCE);
+	}
+
+}
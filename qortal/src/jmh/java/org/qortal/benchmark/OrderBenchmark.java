@@ -0,0 +1,92 @@
+package org.qortal.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.qortal.asset.Order;
+import org.qortal.data.asset.OrderData;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryManager;
+import org.qortal.test.common.AssetUtils;
+import org.qortal.test.common.Common;
+import org.qortal.test.common.TestAccount;
+import org.qortal.utils.Amounts;
+
+/**
+ * Order matching: Bob's order fully matches against all of Alice's resting orders.
+ * <p>
+ * Alice's orders are confirmed in blocks during setup. Bob's order is only processed, never committed,
+ * as repository changes are discarded after each invocation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class OrderBenchmark {
+
+	// As per TradingTests.testSimple(): amounts are in GOLD, prices are in OTHER/GOLD
+	private static final long ORDER_AMOUNT = 1L * Amounts.MULTIPLIER;
+	private static final long BASE_PRICE = 2L * Amounts.MULTIPLIER;
+	private static final long PRICE_STEP = Amounts.MULTIPLIER / 100;
+
+	@Param({ "1", "10" })
+	public int restingOrderCount;
+
+	private Repository repository;
+	private TestAccount bob;
+	private long highestPrice;
+
+	private Order order;
+
+	@Setup(Level.Trial)
+	public void setupTrial() throws DataException {
+		Common.useDefaultSettings();
+		this.repository = RepositoryManager.getRepository();
+
+		// Alice has GOLD, wants OTHER, at increasing prices
+		for (int i = 0; i < this.restingOrderCount; ++i) {
+			this.highestPrice = BASE_PRICE + i * PRICE_STEP;
+			AssetUtils.createOrder(this.repository, "alice", AssetUtils.goldAssetId, AssetUtils.otherAssetId, ORDER_AMOUNT, this.highestPrice);
+		}
+
+		this.bob = Common.getTestAccount(this.repository, "bob");
+	}
+
+	@TearDown(Level.Trial)
+	public void teardownTrial() throws DataException {
+		this.repository.close();
+		Common.closeRepository();
+	}
+
+	@Setup(Level.Invocation)
+	public void setupInvocation() {
+		// Bob has OTHER, wants all of Alice's GOLD, at a price that matches all of Alice's orders
+		byte[] orderId = new byte[64];
+		long amount = this.restingOrderCount * ORDER_AMOUNT;
+		long timestamp = System.currentTimeMillis();
+
+		OrderData orderData = new OrderData(orderId, this.bob.getPublicKey(), AssetUtils.otherAssetId, AssetUtils.goldAssetId, amount, this.highestPrice, timestamp);
+
+		this.order = new Order(this.repository, orderData);
+	}
+
+	@TearDown(Level.Invocation)
+	public void teardownInvocation() throws DataException {
+		this.repository.discardChanges();
+	}
+
+	@Benchmark
+	public void process() throws DataException {
+		this.order.process();
+	}
+
+}
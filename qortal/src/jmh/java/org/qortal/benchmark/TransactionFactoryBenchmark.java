@@ -0,0 +1,80 @@
+package org.qortal.benchmark;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.qortal.account.PrivateKeyAccount;
+import org.qortal.data.transaction.TransactionData;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryManager;
+import org.qortal.test.common.Common;
+import org.qortal.test.common.TransactionUtils;
+import org.qortal.transaction.PaymentTransaction;
+import org.qortal.transaction.Transaction;
+import org.qortal.transaction.Transaction.TransactionType;
+
+/**
+ * Per-transaction overhead of building <tt>Transaction</tt> subclasses and fetching transactions from repository.
+ * <p>
+ * <tt>reflectiveFromData</tt> uses the constructor lookup that <tt>Transaction.fromData()</tt> used previously,
+ * for comparison with the registered factory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TransactionFactoryBenchmark {
+
+	private Repository repository;
+	private TransactionData transactionData;
+	private Constructor<?> reflectiveConstructor;
+
+	@Setup(Level.Trial)
+	public void setupTrial() throws DataException, NoSuchMethodException {
+		Common.useDefaultSettings();
+		this.repository = RepositoryManager.getRepository();
+
+		PrivateKeyAccount signingAccount = Common.getTestAccount(this.repository, "alice");
+
+		this.transactionData = TransactionUtils.randomTransaction(this.repository, signingAccount, TransactionType.PAYMENT, true);
+		Transaction.fromData(this.repository, this.transactionData).sign(signingAccount);
+
+		// Saved, but never committed
+		this.repository.getTransactionRepository().save(this.transactionData);
+
+		this.reflectiveConstructor = PaymentTransaction.class.getConstructor(Repository.class, TransactionData.class);
+	}
+
+	@TearDown(Level.Trial)
+	public void teardownTrial() throws DataException {
+		this.repository.discardChanges();
+		this.repository.close();
+		Common.closeRepository();
+	}
+
+	@Benchmark
+	public Transaction fromData() {
+		return Transaction.fromData(this.repository, this.transactionData);
+	}
+
+	@Benchmark
+	public Transaction reflectiveFromData() throws InstantiationException, IllegalAccessException, InvocationTargetException {
+		return (Transaction) this.reflectiveConstructor.newInstance(this.repository, this.transactionData);
+	}
+
+	@Benchmark
+	public TransactionData fromSignature() throws DataException {
+		return this.repository.getTransactionRepository().fromSignature(this.transactionData.getSignature());
+	}
+
+}
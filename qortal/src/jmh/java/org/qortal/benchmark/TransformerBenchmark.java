@@ -0,0 +1,79 @@
+package org.qortal.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.qortal.block.Block;
+import org.qortal.data.at.ATStateData;
+import org.qortal.data.block.BlockData;
+import org.qortal.data.transaction.TransactionData;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryManager;
+import org.qortal.test.common.Common;
+import org.qortal.transform.TransformationException;
+import org.qortal.transform.block.BlockTransformer;
+import org.qortal.transform.transaction.TransactionTransformer;
+import org.qortal.utils.Triple;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TransformerBenchmark {
+
+	private Repository repository;
+
+	private Block block;
+	private byte[] blockBytes;
+
+	private TransactionData transactionData;
+	private byte[] transactionBytes;
+
+	@Setup
+	public void setup() throws DataException, TransformationException {
+		Common.useDefaultSettings();
+		this.repository = RepositoryManager.getRepository();
+
+		this.block = BenchmarkUtils.buildBlock(this.repository);
+		this.blockBytes = BlockTransformer.toBytes(this.block);
+
+		this.transactionData = this.block.getTransactions().get(0).getTransactionData();
+		this.transactionBytes = TransactionTransformer.toBytes(this.transactionData);
+	}
+
+	@TearDown
+	public void teardown() throws DataException {
+		this.repository.discardChanges();
+		this.repository.close();
+		Common.closeRepository();
+	}
+
+	@Benchmark
+	public byte[] blockToBytes() throws TransformationException {
+		return BlockTransformer.toBytes(this.block);
+	}
+
+	@Benchmark
+	public Triple<BlockData, List<TransactionData>, List<ATStateData>> blockFromBytes() throws TransformationException {
+		return BlockTransformer.fromBytes(this.blockBytes);
+	}
+
+	@Benchmark
+	public byte[] transactionToBytes() throws TransformationException {
+		return TransactionTransformer.toBytes(this.transactionData);
+	}
+
+	@Benchmark
+	public TransactionData transactionFromBytes() throws TransformationException {
+		return TransactionTransformer.fromBytes(this.transactionBytes);
+	}
+
+}
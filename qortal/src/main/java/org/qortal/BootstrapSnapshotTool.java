@@ -0,0 +1,106 @@
+package org.qortal;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.Security;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.jsse.provider.BouncyCastleJsseProvider;
+import org.qortal.block.BlockChain;
+import org.qortal.block.BlockChain.Checkpoint;
+import org.qortal.controller.Controller;
+import org.qortal.repository.BootstrapSnapshot;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryFactory;
+import org.qortal.repository.RepositoryManager;
+import org.qortal.repository.hsqldb.HSQLDBRepositoryFactory;
+import org.qortal.settings.Settings;
+
+/**
+ * Exports bootstrap snapshot at latest checkpoint below our chain tip, or imports bootstrap snapshot into new repository.
+ * <p>
+ * Usage: <tt>BootstrapSnapshotTool export|import &lt;snapshot-file&gt; [&lt;settings-file&gt;]</tt>
+ * <p>
+ * Node must not be running.
+ */
+public class BootstrapSnapshotTool {
+
+	static {
+		// This must go before any calls to LogManager/Logger
+		System.setProperty("java.util.logging.manager", "org.apache.logging.log4j.jul.LogManager");
+	}
+
+	private static final Logger LOGGER = LogManager.getLogger(BootstrapSnapshotTool.class);
+
+	private static void usage() {
+		System.err.println("usage: BootstrapSnapshotTool export|import <snapshot-file> [<settings-file>]");
+		System.exit(3);
+	}
+
+	public static void main(String[] args) {
+		if (args.length < 2 || args.length > 3)
+			usage();
+
+		final boolean isExport = args[0].equals("export");
+		if (!isExport && !args[0].equals("import"))
+			usage();
+
+		Path snapshotPath = Paths.get(args[1]);
+
+		Security.insertProviderAt(new BouncyCastleProvider(), 0);
+		Security.insertProviderAt(new BouncyCastleJsseProvider(), 1);
+
+		// Load/check settings, which potentially sets up blockchain config, etc.
+		try {
+			if (args.length > 2)
+				Settings.fileInstance(args[2]);
+			else
+				Settings.getInstance();
+		} catch (Throwable t) {
+			LOGGER.error("Settings file error: " + t.getMessage());
+			System.exit(2);
+		}
+
+		LOGGER.info("Opening repository");
+		try {
+			RepositoryFactory repositoryFactory = new HSQLDBRepositoryFactory(Controller.getRepositoryUrl());
+			RepositoryManager.setRepositoryFactory(repositoryFactory);
+		} catch (DataException e) {
+			// If exception has no cause then repository is in use by some other process.
+			if (e.getCause() == null) {
+				LOGGER.info("Repository in use by another process?");
+			} else {
+				LOGGER.error("Unable to start repository", e);
+			}
+
+			System.exit(1);
+		}
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			if (isExport) {
+				int height = repository.getBlockRepository().getBlockchainHeight();
+
+				Checkpoint checkpoint = BlockChain.getInstance().getLatestCheckpoint(height);
+				if (checkpoint == null)
+					throw new DataException(String.format("No checkpoint at, or below, our height %d", height));
+
+				BootstrapSnapshot.exportSnapshot(repository, snapshotPath, checkpoint);
+			} else {
+				BootstrapSnapshot.importSnapshot(repository, snapshotPath);
+			}
+		} catch (DataException e) {
+			LOGGER.error(String.format("Bootstrap snapshot %s failed", args[0]), e);
+		}
+
+		try {
+			LOGGER.info("Shutting down repository");
+			RepositoryManager.closeRepositoryFactory();
+		} catch (DataException e) {
+			LOGGER.error("Error occurred while shutting down repository", e);
+		}
+	}
+
+}
@@ -0,0 +1,90 @@
+package org.qortal;
+
+import java.nio.file.Paths;
+import java.security.Security;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.jsse.provider.BouncyCastleJsseProvider;
+import org.qortal.controller.Controller;
+import org.qortal.repository.DataException;
+import org.qortal.repository.RawBlockStore;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryFactory;
+import org.qortal.repository.RepositoryManager;
+import org.qortal.repository.hsqldb.HSQLDBRepositoryFactory;
+import org.qortal.settings.Settings;
+
+/**
+ * Checks raw block store against repository, then rebuilds store from first inconsistent block.
+ * <p>
+ * Stored blocks are fully compared with blocks freshly serialized from repository, so this can take a while.
+ */
+public class RawBlockStoreRebuild {
+
+	static {
+		// This must go before any calls to LogManager/Logger
+		System.setProperty("java.util.logging.manager", "org.apache.logging.log4j.jul.LogManager");
+	}
+
+	private static final Logger LOGGER = LogManager.getLogger(RawBlockStoreRebuild.class);
+
+	public static void main(String[] args) {
+		LOGGER.info("Raw block store rebuild starting up...");
+
+		Security.insertProviderAt(new BouncyCastleProvider(), 0);
+		Security.insertProviderAt(new BouncyCastleJsseProvider(), 1);
+
+		// Load/check settings, which potentially sets up blockchain config, etc.
+		try {
+			if (args.length > 0)
+				Settings.fileInstance(args[0]);
+			else
+				Settings.getInstance();
+		} catch (Throwable t) {
+			LOGGER.error("Settings file error: " + t.getMessage());
+			System.exit(2);
+		}
+
+		LOGGER.info("Opening repository");
+		try {
+			RepositoryFactory repositoryFactory = new HSQLDBRepositoryFactory(Controller.getRepositoryUrl());
+			RepositoryManager.setRepositoryFactory(repositoryFactory);
+		} catch (DataException e) {
+			// If exception has no cause then repository is in use by some other process.
+			if (e.getCause() == null) {
+				LOGGER.info("Repository in use by another process?");
+			} else {
+				LOGGER.error("Unable to start repository", e);
+			}
+
+			System.exit(1);
+		}
+
+		LOGGER.info("Checking raw block store. This can take a while...");
+		try (final Repository repository = RepositoryManager.getRepository();
+				final RawBlockStore rawBlockStore = new RawBlockStore(Paths.get(Settings.getInstance().getRawBlockStorePath()))) {
+			Integer inconsistentHeight = rawBlockStore.check(repository, true);
+
+			int fromHeight = inconsistentHeight != null ? inconsistentHeight : rawBlockStore.getHeight() + 1;
+			if (inconsistentHeight != null)
+				LOGGER.info(String.format("Raw block store inconsistent with repository from height %d", inconsistentHeight));
+
+			int count = rawBlockStore.rebuild(repository, fromHeight);
+
+			LOGGER.info(String.format("Raw block store rebuild completed: %d block%s added, height now %d",
+					count, (count != 1 ? "s" : ""), rawBlockStore.getHeight()));
+		} catch (DataException e) {
+			LOGGER.error("Raw block store rebuild failed", e);
+		}
+
+		try {
+			LOGGER.info("Shutting down repository");
+			RepositoryManager.closeRepositoryFactory();
+		} catch (DataException e) {
+			LOGGER.error("Error occurred while shutting down repository", e);
+		}
+	}
+
+}
@@ -0,0 +1,34 @@
+package org.qortal.api.model;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+
+import org.qortal.repository.BackupProgress;
+
+@XmlAccessorType(XmlAccessType.FIELD)
+public class BackupStatus {
+
+	/** Whether a backup is queued or in progress */
+	public boolean isRunning;
+	/** Phase of in-progress backup, or null if not running yet */
+	public BackupProgress.Phase phase;
+	/** Timestamp when current/latest backup started */
+	public Long startedTimestamp;
+	/** Bytes copied so far by current backup, if known */
+	public Long bytesCopied;
+	/** Estimate of bytes to be copied by current backup */
+	public Long bytesExpected;
+
+	/** Timestamp of latest successful backup */
+	public Long lastSuccessTimestamp;
+	/** Duration, in milliseconds, of latest finished backup, whether successful or not */
+	public Long lastDuration;
+	public String lastError;
+
+	/** Timestamp of next periodic backup, or null if periodic backups are disabled */
+	public Long nextScheduledTimestamp;
+
+	public BackupStatus() {
+	}
+
+}
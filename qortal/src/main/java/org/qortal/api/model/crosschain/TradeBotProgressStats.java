@@ -0,0 +1,51 @@
+package org.qortal.api.model.crosschain;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+
+@XmlAccessorType(XmlAccessType.FIELD)
+public class TradeBotProgressStats {
+
+	public String atAddress;
+	/** Trade-bot state at the start of latest progression */
+	public String lastState;
+	public long runs;
+	/** Timestamp when latest progression started */
+	public long lastRun;
+	/** Durations in milliseconds */
+	public long lastDuration;
+	public long maxDuration;
+	public long totalDuration;
+
+	protected TradeBotProgressStats() {
+		/* For JAXB */
+	}
+
+	public TradeBotProgressStats(String atAddress) {
+		this.atAddress = atAddress;
+	}
+
+	public synchronized void record(String state, long startTime, long endTime) {
+		long duration = endTime - startTime;
+
+		this.lastState = state;
+		this.runs++;
+		this.lastRun = startTime;
+		this.lastDuration = duration;
+		this.maxDuration = Math.max(this.maxDuration, duration);
+		this.totalDuration += duration;
+	}
+
+	/** Returns consistent snapshot, as stats might be updated by trade-bot threads while being serialized. */
+	public synchronized TradeBotProgressStats copy() {
+		TradeBotProgressStats copy = new TradeBotProgressStats(this.atAddress);
+		copy.lastState = this.lastState;
+		copy.runs = this.runs;
+		copy.lastRun = this.lastRun;
+		copy.lastDuration = this.lastDuration;
+		copy.maxDuration = this.maxDuration;
+		copy.totalDuration = this.totalDuration;
+		return copy;
+	}
+
+}
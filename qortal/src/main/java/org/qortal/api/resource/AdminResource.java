@@ -44,10 +44,13 @@ import org.qortal.api.ApiErrors;
 import org.qortal.api.ApiExceptionFactory;
 import org.qortal.api.Security;
 import org.qortal.api.model.ActivitySummary;
+import org.qortal.api.model.BackupStatus;
 import org.qortal.api.model.NodeInfo;
 import org.qortal.api.model.NodeStatus;
 import org.qortal.block.BlockChain;
 import org.qortal.controller.Controller;
+import org.qortal.controller.ProcessingStats;
+import org.qortal.controller.RepositoryBackup;
 import org.qortal.controller.Synchronizer.SynchronizationResult;
 import org.qortal.data.account.MintingAccountData;
 import org.qortal.data.account.RewardShareData;
@@ -237,6 +240,49 @@ public class AdminResource {
 		return Controller.getInstance().getStatsSnapshot();
 	}
 
+	@GET
+	@Path("/processingstats")
+	@Operation(
+		summary = "Fetch timings of block validation/processing phases and slow repository queries",
+		description = "Slow queries are only recorded if node's slowQueryThreshold setting is set.",
+		responses = {
+			@ApiResponse(
+				content = @Content(
+					mediaType = MediaType.APPLICATION_JSON,
+					schema = @Schema(
+						implementation = ProcessingStats.StatsSnapshot.class
+					)
+				)
+			)
+		}
+	)
+	@SecurityRequirement(name = "apiKey")
+	public ProcessingStats.StatsSnapshot getProcessingStats() {
+		Security.checkApiCallAllowed(request);
+
+		return ProcessingStats.getInstance().getStatsSnapshot();
+	}
+
+	@DELETE
+	@Path("/processingstats")
+	@Operation(
+		summary = "Reset timings of block validation/processing phases and slow repository queries",
+		responses = {
+			@ApiResponse(
+				description = "\"true\"",
+				content = @Content(mediaType = MediaType.TEXT_PLAIN, schema = @Schema(type = "string"))
+			)
+		}
+	)
+	@SecurityRequirement(name = "apiKey")
+	public String resetProcessingStats() {
+		Security.checkApiCallAllowed(request);
+
+		ProcessingStats.getInstance().reset();
+
+		return "true";
+	}
+
 	@GET
 	@Path("/mintingaccounts")
 	@Operation(
@@ -653,37 +699,37 @@ public class AdminResource {
 	@Path("/repository/backup")
 	@Operation(
 		summary = "Perform online backup of repository.",
+		description = "Backup runs in the background, without blocking repository writes. Progress is available via GET /admin/repository/backup.",
 		responses = {
 			@ApiResponse(
-				description = "\"true\"",
+				description = "\"true\" if backup started, or \"false\" if a backup is already in progress",
 				content = @Content(mediaType = MediaType.TEXT_PLAIN, schema = @Schema(type = "string"))
 			)
 		}
 	)
-	@ApiErrors({ApiError.REPOSITORY_ISSUE})
 	@SecurityRequirement(name = "apiKey")
 	public String backupRepository() {
 		Security.checkApiCallAllowed(request);
 
-		try (final Repository repository = RepositoryManager.getRepository()) {
-			ReentrantLock blockchainLock = Controller.getInstance().getBlockchainLock();
-
-			blockchainLock.lockInterruptibly();
-
-			try {
-				repository.backup(true);
-				repository.saveChanges();
+		return Boolean.toString(RepositoryBackup.getInstance().requestBackup(true));
+	}
 
-				return "true";
-			} finally {
-				blockchainLock.unlock();
-			}
-		} catch (InterruptedException e) {
-			// We couldn't lock blockchain to perform backup
-			return "false";
-		} catch (DataException e) {
-			throw ApiExceptionFactory.INSTANCE.createException(request, ApiError.REPOSITORY_ISSUE, e);
+	@GET
+	@Path("/repository/backup")
+	@Operation(
+		summary = "Fetch repository backup status.",
+		description = "Returns progress of any in-flight backup, and duration/outcome of latest backup.",
+		responses = {
+			@ApiResponse(
+				content = @Content(mediaType = MediaType.APPLICATION_JSON, schema = @Schema(implementation = BackupStatus.class))
+			)
 		}
+	)
+	@SecurityRequirement(name = "apiKey")
+	public BackupStatus getRepositoryBackupStatus() {
+		Security.checkApiCallAllowed(request);
+
+		return RepositoryBackup.getInstance().getStatus();
 	}
 
 	@DELETE
@@ -17,6 +17,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.DELETE;
@@ -40,6 +41,7 @@ import org.qortal.crypto.Crypto;
 import org.qortal.data.at.ATData;
 import org.qortal.data.at.ATStateData;
 import org.qortal.data.crosschain.CrossChainTradeData;
+import org.qortal.data.crosschain.IndexedTradeData;
 import org.qortal.data.transaction.BaseTransactionData;
 import org.qortal.data.transaction.MessageTransactionData;
 import org.qortal.data.transaction.TransactionData;
@@ -94,25 +96,13 @@ public class CrossChainResource {
 		if (limit != null && limit > 100)
 			throw ApiExceptionFactory.INSTANCE.createException(request, ApiError.INVALID_CRITERIA);
 
-		final boolean isExecutable = true;
-		List<CrossChainTradeData> crossChainTradesData = new ArrayList<>();
+		String foreignBlockchainName = foreignBlockchain == null ? null : foreignBlockchain.name();
 
 		try (final Repository repository = RepositoryManager.getRepository()) {
-			Map<ByteArray, Supplier<ACCT>> acctsByCodeHash = SupportedBlockchain.getFilteredAcctMap(foreignBlockchain);
-
-			for (Map.Entry<ByteArray, Supplier<ACCT>> acctInfo : acctsByCodeHash.entrySet()) {
-				byte[] codeHash = acctInfo.getKey().value;
-				ACCT acct = acctInfo.getValue().get();
-
-				List<ATData> atsData = repository.getATRepository().getATsByFunctionality(codeHash, isExecutable, limit, offset, reverse);
+			// Trade data is pre-decoded from AT states during block processing
+			List<IndexedTradeData> indexedTrades = repository.getCrossChainRepository().getIndexedTradeOffers(foreignBlockchainName, limit, offset, reverse);
 
-				for (ATData atData : atsData) {
-					CrossChainTradeData crossChainTradeData = acct.populateTradeData(repository, atData);
-					crossChainTradesData.add(crossChainTradeData);
-				}
-			}
-
-			return crossChainTradesData;
+			return indexedTrades.stream().map(IndexedTradeData::getTradeData).collect(Collectors.toList());
 		} catch (DataException e) {
 			throw ApiExceptionFactory.INSTANCE.createException(request, ApiError.REPOSITORY_ISSUE, e);
 		}
@@ -174,27 +164,19 @@ public class CrossChainResource {
 				minimumFinalHeight++;
 			}
 
-			List<CrossChainTradeSummary> crossChainTrades = new ArrayList<>();
+			String foreignBlockchainName = foreignBlockchain == null ? null : foreignBlockchain.name();
 
-			Map<ByteArray, Supplier<ACCT>> acctsByCodeHash = SupportedBlockchain.getFilteredAcctMap(foreignBlockchain);
+			// Trade data is pre-decoded from AT states during block processing
+			List<IndexedTradeData> indexedTrades = repository.getCrossChainRepository().getIndexedTrades(foreignBlockchainName,
+					Collections.singletonList(AcctMode.REDEEMED), isFinished, minimumFinalHeight,
+					limit, offset, reverse);
 
-			for (Map.Entry<ByteArray, Supplier<ACCT>> acctInfo : acctsByCodeHash.entrySet()) {
-				byte[] codeHash = acctInfo.getKey().value;
-				ACCT acct = acctInfo.getValue().get();
-
-				List<ATStateData> atStates = repository.getATRepository().getMatchingFinalATStates(codeHash,
-						isFinished, acct.getModeByteOffset(), (long) AcctMode.REDEEMED.value, minimumFinalHeight,
-						limit, offset, reverse);
-
-				for (ATStateData atState : atStates) {
-					CrossChainTradeData crossChainTradeData = acct.populateTradeData(repository, atState);
-
-					// We also need block timestamp for use as trade timestamp
-					long timestamp = repository.getBlockRepository().getTimestampFromHeight(atState.getHeight());
+			List<CrossChainTradeSummary> crossChainTrades = new ArrayList<>();
 
-					CrossChainTradeSummary crossChainTradeSummary = new CrossChainTradeSummary(crossChainTradeData, timestamp);
-					crossChainTrades.add(crossChainTradeSummary);
-				}
+			for (IndexedTradeData indexedTrade : indexedTrades) {
+				// Timestamp of block containing final AT state is used as trade timestamp
+				CrossChainTradeSummary crossChainTradeSummary = new CrossChainTradeSummary(indexedTrade.getTradeData(), indexedTrade.getUpdatedTimestamp());
+				crossChainTrades.add(crossChainTradeSummary);
 			}
 
 			return crossChainTrades;
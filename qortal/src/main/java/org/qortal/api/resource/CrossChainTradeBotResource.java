@@ -7,6 +7,7 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.parameters.RequestBody;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
 import java.util.List;
@@ -28,6 +29,7 @@ import org.qortal.api.ApiErrors;
 import org.qortal.api.ApiExceptionFactory;
 import org.qortal.api.Security;
 import org.qortal.api.model.crosschain.TradeBotCreateRequest;
+import org.qortal.api.model.crosschain.TradeBotProgressStats;
 import org.qortal.api.model.crosschain.TradeBotRespondRequest;
 import org.qortal.asset.Asset;
 import org.qortal.controller.tradebot.AcctTradeBot;
@@ -88,6 +90,29 @@ public class CrossChainTradeBotResource {
 		}
 	}
 
+	@GET
+	@Path("/stats")
+	@Operation(
+		summary = "Fetch per-trade progression timings for current trade-bot entries",
+		responses = {
+			@ApiResponse(
+				content = @Content(
+					array = @ArraySchema(
+						schema = @Schema(
+							implementation = TradeBotProgressStats.class
+						)
+					)
+				)
+			)
+		}
+	)
+	@SecurityRequirement(name = "apiKey")
+	public List<TradeBotProgressStats> getTradeBotProgressStats() {
+		Security.checkApiCallAllowed(request);
+
+		return TradeBot.getInstance().getProgressStats();
+	}
+
 	@POST
 	@Path("/create")
 	@Operation(
@@ -34,9 +34,11 @@ import org.qortal.controller.Synchronizer;
 import org.qortal.controller.Synchronizer.SynchronizationResult;
 import org.qortal.data.block.BlockSummaryData;
 import org.qortal.data.network.PeerData;
+import org.qortal.network.HandshakePoWExecutor;
 import org.qortal.network.Network;
 import org.qortal.network.Peer;
 import org.qortal.network.PeerAddress;
+import org.qortal.network.PeerMessageQueue;
 import org.qortal.repository.DataException;
 import org.qortal.repository.Repository;
 import org.qortal.repository.RepositoryManager;
@@ -139,6 +141,54 @@ public class PeersResource {
 		return Network.getInstance().getStatsSnapshot();
 	}
 
+	@GET
+	@Path("/handshakestats")
+	@Operation(
+		summary = "Fetch statistics snapshot for handshake proof-of-work executor",
+		description = "Waiting and running times are recorded in processing stats under Handshake.PoW phases",
+		responses = {
+			@ApiResponse(
+				content = @Content(
+					mediaType = MediaType.APPLICATION_JSON,
+					schema = @Schema(
+						implementation = HandshakePoWExecutor.StatsSnapshot.class
+					)
+				)
+			)
+		}
+	)
+	@SecurityRequirement(name = "apiKey")
+	public HandshakePoWExecutor.StatsSnapshot getHandshakeStats() {
+		Security.checkApiCallAllowed(request);
+
+		return Network.getInstance().getHandshakePoWStatsSnapshot();
+	}
+
+	@GET
+	@Path("/messagestats")
+	@Operation(
+		summary = "Fetch counts of peers' messages dropped or deferred by prioritisation and rate-limiting",
+		description = "Only message types with non-zero counts are included",
+		responses = {
+			@ApiResponse(
+				content = @Content(
+					mediaType = MediaType.APPLICATION_JSON,
+					array = @ArraySchema(
+						schema = @Schema(
+							implementation = PeerMessageQueue.StatsSnapshot.class
+						)
+					)
+				)
+			)
+		}
+	)
+	@SecurityRequirement(name = "apiKey")
+	public List<PeerMessageQueue.StatsSnapshot> getMessageStats() {
+		Security.checkApiCallAllowed(request);
+
+		return Network.getInstance().getMessageQueueStatsSnapshot();
+	}
+
 	@POST
 	@Operation(
 		summary = "Add new peer address",
@@ -309,7 +309,8 @@ public class TransactionsResource {
 	@Path("/search")
 	@Operation(
 		summary = "Find matching transactions",
-		description = "Returns transactions that match criteria. At least either txType or address or limit <= 20 must be provided. Block height ranges allowed when searching CONFIRMED transactions ONLY.",
+		description = "Returns transactions that match criteria. At least either txType or address or limit <= 20 must be provided. Block height ranges allowed when searching CONFIRMED transactions ONLY. "
+			+ "For deep paging, pass signature of last transaction from previous page as \"after\", instead of increasing offset.",
 		responses = {
 			@ApiResponse(
 				description = "transactions",
@@ -324,7 +325,7 @@ public class TransactionsResource {
 		}
 	)
 	@ApiErrors({
-		ApiError.INVALID_CRITERIA, ApiError.REPOSITORY_ISSUE
+		ApiError.INVALID_CRITERIA, ApiError.INVALID_SIGNATURE, ApiError.TRANSACTION_UNKNOWN, ApiError.REPOSITORY_ISSUE
 	})
 	public List<TransactionData> searchTransactions(@QueryParam("startBlock") Integer startBlock, @QueryParam("blockLimit") Integer blockLimit,
 			@QueryParam("txGroupId") Integer txGroupId,
@@ -332,6 +333,8 @@ public class TransactionsResource {
 				description = "whether to include confirmed, unconfirmed or both",
 				required = true
 			) @QueryParam("confirmationStatus") ConfirmationStatus confirmationStatus, @Parameter(
+				description = "signature of last transaction from previous page, to return transactions that follow it"
+			) @QueryParam("after") String afterSignature58, @Parameter(
 				ref = "limit"
 			) @QueryParam("limit") Integer limit, @Parameter(
 				ref = "offset"
@@ -346,9 +349,21 @@ public class TransactionsResource {
 		if (confirmationStatus != ConfirmationStatus.CONFIRMED && (startBlock != null || blockLimit != null))
 			throw ApiExceptionFactory.INSTANCE.createException(request, ApiError.INVALID_CRITERIA);
 
+		byte[] afterSignature = null;
+		if (afterSignature58 != null) {
+			try {
+				afterSignature = Base58.decode(afterSignature58);
+			} catch (NumberFormatException e) {
+				throw ApiExceptionFactory.INSTANCE.createException(request, ApiError.INVALID_SIGNATURE, e);
+			}
+		}
+
 		try (final Repository repository = RepositoryManager.getRepository()) {
+			if (afterSignature != null && !repository.getTransactionRepository().exists(afterSignature))
+				throw ApiExceptionFactory.INSTANCE.createException(request, ApiError.TRANSACTION_UNKNOWN);
+
 			List<byte[]> signatures = repository.getTransactionRepository().getSignaturesMatchingCriteria(startBlock, blockLimit, txGroupId,
-					txTypes, null, address, confirmationStatus, limit, offset, reverse);
+					txTypes, null, address, confirmationStatus, afterSignature, limit, offset, reverse);
 
 			// Expand signatures to transactions
 			List<TransactionData> transactions = new ArrayList<>(signatures.size());
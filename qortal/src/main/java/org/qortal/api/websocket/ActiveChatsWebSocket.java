@@ -44,7 +44,7 @@ public class ActiveChatsWebSocket extends ApiWebSocket {
 		AtomicReference<String> previousOutput = new AtomicReference<>(null);
 
 		ChatNotifier.Listener listener = chatTransactionData -> onNotify(session, chatTransactionData, address, previousOutput);
-		ChatNotifier.getInstance().register(session, listener);
+		ChatNotifier.getInstance().registerAddress(session, address, listener);
 
 		this.onNotify(session, null, address, previousOutput);
 	}
@@ -56,7 +56,7 @@ public class ChatMessagesWebSocket extends ApiWebSocket {
 			}
 
 			ChatNotifier.Listener listener = chatTransactionData -> onNotify(session, chatTransactionData, txGroupId);
-			ChatNotifier.getInstance().register(session, listener);
+			ChatNotifier.getInstance().registerGroup(session, txGroupId, listener);
 
 			return;
 		}
@@ -83,7 +83,7 @@ public class ChatMessagesWebSocket extends ApiWebSocket {
 		}
 
 		ChatNotifier.Listener listener = chatTransactionData -> onNotify(session, chatTransactionData, involvingAddresses);
-		ChatNotifier.getInstance().register(session, listener);
+		ChatNotifier.getInstance().registerAddressPair(session, involvingAddresses.get(0), involvingAddresses.get(1), listener);
 	}
 
 	@OnWebSocketClose
@@ -107,7 +107,7 @@ public class ChatMessagesWebSocket extends ApiWebSocket {
 			// There has been a group-membership change, but we're not interested
 			return;
 
-		// We only want group-based messages with our txGroupId
+		// ChatNotifier should only route group-based messages with our txGroupId, but double-check
 		if (chatTransactionData.getRecipient() != null || chatTransactionData.getTxGroupId() != txGroupId)
 			return;
 
@@ -115,7 +115,11 @@ public class ChatMessagesWebSocket extends ApiWebSocket {
 	}
 
 	private void onNotify(Session session, ChatTransactionData chatTransactionData, List<String> involvingAddresses) {
-		// We only want direct/non-group messages where sender/recipient match our addresses
+		if (chatTransactionData == null)
+			// There has been a group-membership change, but we're not interested
+			return;
+
+		// ChatNotifier should only route direct/non-group messages where sender/recipient match our addresses, but double-check
 		String recipient = chatTransactionData.getRecipient();
 		if (recipient == null)
 			return;
@@ -3,13 +3,13 @@ package org.qortal.api.websocket;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Predicate;
-import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.LogManager;
@@ -24,18 +24,16 @@ import org.eclipse.jetty.websocket.servlet.WebSocketServletFactory;
 import org.qortal.api.model.CrossChainOfferSummary;
 import org.qortal.controller.Controller;
 import org.qortal.crosschain.SupportedBlockchain;
-import org.qortal.crosschain.ACCT;
 import org.qortal.crosschain.AcctMode;
-import org.qortal.data.at.ATStateData;
 import org.qortal.data.block.BlockData;
 import org.qortal.data.crosschain.CrossChainTradeData;
+import org.qortal.data.crosschain.IndexedTradeData;
 import org.qortal.event.Event;
 import org.qortal.event.EventBus;
 import org.qortal.event.Listener;
 import org.qortal.repository.DataException;
 import org.qortal.repository.Repository;
 import org.qortal.repository.RepositoryManager;
-import org.qortal.utils.ByteArray;
 import org.qortal.utils.NTP;
 
 @WebSocket
@@ -89,29 +87,20 @@ public class TradeOffersWebSocket extends ApiWebSocket implements Listener {
 
 		try (final Repository repository = RepositoryManager.getRepository()) {
 			// Find any new/changed trade ATs since this block
+			final List<AcctMode> modes = null;
 			final Boolean isFinished = null;
-			final Integer dataByteOffset = null;
-			final Long expectedValue = null;
-			final Integer minimumFinalHeight = blockData.getHeight();
+			final Integer minimumHeight = blockData.getHeight();
 
 			for (SupportedBlockchain blockchain : SupportedBlockchain.values()) {
-				Map<ByteArray, Supplier<ACCT>> acctsByCodeHash = SupportedBlockchain.getFilteredAcctMap(blockchain);
-
 				List<CrossChainOfferSummary> crossChainOfferSummaries = new ArrayList<>();
 
 				synchronized (cachedInfoByBlockchain) {
 					CachedOfferInfo cachedInfo = cachedInfoByBlockchain.computeIfAbsent(blockchain.name(), k -> new CachedOfferInfo());
 
-					for (Map.Entry<ByteArray, Supplier<ACCT>> acctInfo : acctsByCodeHash.entrySet()) {
-						byte[] codeHash = acctInfo.getKey().value;
-						ACCT acct = acctInfo.getValue().get();
-
-						List<ATStateData> atStates = repository.getATRepository().getMatchingFinalATStates(codeHash,
-								isFinished, dataByteOffset, expectedValue, minimumFinalHeight,
-								null, null, null);
+					List<IndexedTradeData> indexedTrades = repository.getCrossChainRepository().getIndexedTrades(blockchain.name(),
+							modes, isFinished, minimumHeight, null, null, null);
 
-						crossChainOfferSummaries.addAll(produceSummaries(repository, acct, atStates, blockData.getTimestamp()));
-					}
+					crossChainOfferSummaries.addAll(produceSummaries(indexedTrades));
 
 					// Remove any entries unchanged from last time
 					crossChainOfferSummaries.removeIf(offerSummary -> cachedInfo.previousAtModes.get(offerSummary.getQortalAtAddress()) == offerSummary.getMode());
@@ -249,34 +238,22 @@ public class TradeOffersWebSocket extends ApiWebSocket implements Listener {
 
 	private static void populateCurrentSummaries(Repository repository) throws DataException {
 		// We want ALL OFFERING trades
+		List<AcctMode> modes = Collections.singletonList(AcctMode.OFFERING);
 		Boolean isFinished = Boolean.FALSE;
-		Long expectedValue = (long) AcctMode.OFFERING.value;
-		Integer minimumFinalHeight = null;
+		Integer minimumHeight = null;
 
 		for (SupportedBlockchain blockchain : SupportedBlockchain.values()) {
-			Map<ByteArray, Supplier<ACCT>> acctsByCodeHash = SupportedBlockchain.getFilteredAcctMap(blockchain);
-
 			CachedOfferInfo cachedInfo = cachedInfoByBlockchain.computeIfAbsent(blockchain.name(), k -> new CachedOfferInfo());
 
-			for (Map.Entry<ByteArray, Supplier<ACCT>> acctInfo : acctsByCodeHash.entrySet()) {
-				byte[] codeHash = acctInfo.getKey().value;
-				ACCT acct = acctInfo.getValue().get();
-
-				Integer dataByteOffset = acct.getModeByteOffset();
-				List<ATStateData> initialAtStates = repository.getATRepository().getMatchingFinalATStates(codeHash,
-					isFinished, dataByteOffset, expectedValue, minimumFinalHeight,
-					null, null, null);
-
-				if (initialAtStates == null)
-					throw new DataException("Couldn't fetch current trades from repository");
+			List<IndexedTradeData> initialTrades = repository.getCrossChainRepository().getIndexedTrades(blockchain.name(),
+					modes, isFinished, minimumHeight, null, null, null);
 
-				// Save initial AT modes
-				cachedInfo.previousAtModes.putAll(initialAtStates.stream().collect(Collectors.toMap(ATStateData::getATAddress, atState -> AcctMode.OFFERING)));
+			// Save initial AT modes
+			cachedInfo.previousAtModes.putAll(initialTrades.stream().collect(Collectors.toMap(indexedTrade -> indexedTrade.getTradeData().qortalAtAddress, indexedTrade -> AcctMode.OFFERING)));
 
-				// Convert to offer summaries
-				cachedInfo.currentSummaries.putAll(produceSummaries(repository, acct, initialAtStates, null).stream()
-										.collect(Collectors.toMap(CrossChainOfferSummary::getQortalAtAddress, offerSummary -> offerSummary)));
-			}
+			// Convert to offer summaries
+			cachedInfo.currentSummaries.putAll(produceSummaries(initialTrades).stream()
+									.collect(Collectors.toMap(CrossChainOfferSummary::getQortalAtAddress, offerSummary -> offerSummary)));
 		}
 	}
 
@@ -288,45 +265,33 @@ public class TradeOffersWebSocket extends ApiWebSocket implements Listener {
 		if (minimumFinalHeight == 0)
 			throw new DataException("Couldn't fetch block timestamp from repository");
 
+		List<AcctMode> modes = Arrays.asList(AcctMode.REDEEMED, AcctMode.REFUNDED, AcctMode.CANCELLED);
 		Boolean isFinished = Boolean.TRUE;
-		Integer dataByteOffset = null;
-		Long expectedValue = null;
 		++minimumFinalHeight; // because height is just *before* timestamp
 
 		for (SupportedBlockchain blockchain : SupportedBlockchain.values()) {
-			Map<ByteArray, Supplier<ACCT>> acctsByCodeHash = SupportedBlockchain.getFilteredAcctMap(blockchain);
-
 			CachedOfferInfo cachedInfo = cachedInfoByBlockchain.computeIfAbsent(blockchain.name(), k -> new CachedOfferInfo());
 
-			for (Map.Entry<ByteArray, Supplier<ACCT>> acctInfo : acctsByCodeHash.entrySet()) {
-				byte[] codeHash = acctInfo.getKey().value;
-				ACCT acct = acctInfo.getValue().get();
-
-				List<ATStateData> historicAtStates = repository.getATRepository().getMatchingFinalATStates(codeHash,
-					isFinished, dataByteOffset, expectedValue, minimumFinalHeight,
-					null, null, null);
+			List<IndexedTradeData> historicTrades = repository.getCrossChainRepository().getIndexedTrades(blockchain.name(),
+					modes, isFinished, minimumFinalHeight, null, null, null);
 
-				if (historicAtStates == null)
-					throw new DataException("Couldn't fetch historic trades from repository");
+			for (IndexedTradeData historicTrade : historicTrades) {
+				CrossChainOfferSummary historicOfferSummary = produceSummary(historicTrade);
 
-				for (ATStateData historicAtState : historicAtStates) {
-					CrossChainOfferSummary historicOfferSummary = produceSummary(repository, acct, historicAtState, null);
+				if (!isHistoric.test(historicOfferSummary))
+					continue;
 
-					if (!isHistoric.test(historicOfferSummary))
-						continue;
-
-					// Add summary to initial burst
-					cachedInfo.historicSummaries.put(historicOfferSummary.getQortalAtAddress(), historicOfferSummary);
+				// Add summary to initial burst
+				cachedInfo.historicSummaries.put(historicOfferSummary.getQortalAtAddress(), historicOfferSummary);
 
-					// Save initial AT mode
-					cachedInfo.previousAtModes.put(historicOfferSummary.getQortalAtAddress(), historicOfferSummary.getMode());
-				}
+				// Save initial AT mode
+				cachedInfo.previousAtModes.put(historicOfferSummary.getQortalAtAddress(), historicOfferSummary.getMode());
 			}
 		}
 	}
 
-	private static CrossChainOfferSummary produceSummary(Repository repository, ACCT acct, ATStateData atState, Long timestamp) throws DataException {
-		CrossChainTradeData crossChainTradeData = acct.populateTradeData(repository, atState);
+	private static CrossChainOfferSummary produceSummary(IndexedTradeData indexedTrade) {
+		CrossChainTradeData crossChainTradeData = indexedTrade.getTradeData();
 
 		long atStateTimestamp;
 
@@ -334,16 +299,16 @@ public class TradeOffersWebSocket extends ApiWebSocket implements Listener {
 			// We want when trade was created, not when it was last updated
 			atStateTimestamp = crossChainTradeData.creationTimestamp;
 		else
-			atStateTimestamp = timestamp != null ? timestamp : repository.getBlockRepository().getTimestampFromHeight(atState.getHeight());
+			atStateTimestamp = indexedTrade.getUpdatedTimestamp();
 
 		return new CrossChainOfferSummary(crossChainTradeData, atStateTimestamp);
 	}
 
-	private static List<CrossChainOfferSummary> produceSummaries(Repository repository, ACCT acct, List<ATStateData> atStates, Long timestamp) throws DataException {
+	private static List<CrossChainOfferSummary> produceSummaries(List<IndexedTradeData> indexedTrades) {
 		List<CrossChainOfferSummary> offerSummaries = new ArrayList<>();
 
-		for (ATStateData atState : atStates)
-			offerSummaries.add(produceSummary(repository, acct, atState, timestamp));
+		for (IndexedTradeData indexedTrade : indexedTrades)
+			offerSummaries.add(produceSummary(indexedTrade));
 
 		return offerSummaries;
 	}
@@ -10,8 +10,10 @@ import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -29,6 +31,8 @@ import org.qortal.at.AT;
 import org.qortal.block.BlockChain.BlockTimingByHeight;
 import org.qortal.block.BlockChain.AccountLevelShareBin;
 import org.qortal.controller.Controller;
+import org.qortal.controller.ProcessingStats;
+import org.qortal.crosschain.CrossChainTradeIndex;
 import org.qortal.crypto.Crypto;
 import org.qortal.data.account.AccountBalanceData;
 import org.qortal.data.account.AccountData;
@@ -56,9 +60,11 @@ import org.qortal.transform.block.BlockTransformer;
 import org.qortal.transform.transaction.TransactionTransformer;
 import org.qortal.utils.Amounts;
 import org.qortal.utils.Base58;
+import org.qortal.utils.ByteArray;
 import org.qortal.utils.NTP;
 
 import com.google.common.primitives.Bytes;
+import com.google.common.primitives.Ints;
 import com.google.common.primitives.Longs;
 
 import io.druid.extendedset.intset.ConciseSet;
@@ -222,6 +228,8 @@ public class Block {
 	private List<OnlineAccountData> cachedValidOnlineAccounts = null;
 	/** Opportunistic cache of this block's valid online reward-shares. Only created by call to isValid(). */
 	private List<RewardShareData> cachedOnlineRewardShares = null;
+	/** Whether minter and transactions signatures have been found valid by isSignatureValid(). Reset by re-signing. */
+	private volatile boolean isSignatureVerified = false;
 
 	// Other useful constants
 
@@ -234,6 +242,21 @@ public class Block {
 
 	public static final ConciseSet EMPTY_ONLINE_ACCOUNTS = new ConciseSet();
 
+	private static final int MAX_KEY_DISTANCE_CACHE_ENTRIES = 10000;
+	/**
+	 * Key distances, before dividing by minter's level, indexed by parent height, parent signature and minter public key.
+	 * <p>
+	 * These don't depend on chain state, so are reused when comparing our chain with many peers on the same fork.
+	 */
+	@SuppressWarnings("serial")
+	private static final Map<ByteArray, BigInteger> KEY_DISTANCE_CACHE = new LinkedHashMap<>(MAX_KEY_DISTANCE_CACHE_ENTRIES + 1, 0.75F, true) {
+		// This method is called just after a new entry has been added
+		@Override
+		public boolean removeEldestEntry(Map.Entry<ByteArray, BigInteger> eldest) {
+			return size() > MAX_KEY_DISTANCE_CACHE_ENTRIES;
+		}
+	};
+
 	// Constructors
 
 	/**
@@ -740,6 +763,7 @@ public class Block {
 
 		try {
 			this.blockData.setMinterSignature(((PrivateKeyAccount) this.minter).sign(BlockTransformer.getBytesForMinterSignature(this.blockData)));
+			this.isSignatureVerified = false;
 		} catch (TransformationException e) {
 			throw new RuntimeException("Unable to calculate block's minter signature", e);
 		}
@@ -761,6 +785,7 @@ public class Block {
 
 		try {
 			this.blockData.setTransactionsSignature(((PrivateKeyAccount) this.minter).sign(BlockTransformer.getBytesForTransactionsSignature(this)));
+			this.isSignatureVerified = false;
 		} catch (TransformationException e) {
 			throw new RuntimeException("Unable to calculate block's transactions signature", e);
 		}
@@ -775,10 +800,25 @@ public class Block {
 	}
 
 	public static BigInteger calcKeyDistance(int parentHeight, byte[] parentBlockSignature, byte[] publicKey, int accountLevel) {
-		byte[] idealKey = calcIdealMinterPublicKey(parentHeight, parentBlockSignature);
-		byte[] perturbedKey = calcHeightPerturbedPublicKey(parentHeight + 1, publicKey);
+		ByteArray cacheKey = new ByteArray(Bytes.concat(Ints.toByteArray(parentHeight), parentBlockSignature, publicKey));
+
+		BigInteger distance;
+		synchronized (KEY_DISTANCE_CACHE) {
+			distance = KEY_DISTANCE_CACHE.get(cacheKey);
+		}
+
+		if (distance == null) {
+			byte[] idealKey = calcIdealMinterPublicKey(parentHeight, parentBlockSignature);
+			byte[] perturbedKey = calcHeightPerturbedPublicKey(parentHeight + 1, publicKey);
 
-		return MAX_DISTANCE.subtract(new BigInteger(idealKey).subtract(new BigInteger(perturbedKey)).abs()).divide(BigInteger.valueOf(accountLevel));
+			distance = MAX_DISTANCE.subtract(new BigInteger(idealKey).subtract(new BigInteger(perturbedKey)).abs());
+
+			synchronized (KEY_DISTANCE_CACHE) {
+				KEY_DISTANCE_CACHE.put(cacheKey, distance);
+			}
+		}
+
+		return distance.divide(BigInteger.valueOf(accountLevel));
 	}
 
 	public static BigInteger calcBlockWeight(int parentHeight, byte[] parentBlockSignature, BlockSummaryData blockSummaryData) {
@@ -886,6 +926,10 @@ public class Block {
 	 * @return true if both minter and transaction signatures are valid, false otherwise
 	 */
 	public boolean isSignatureValid() {
+		// Already verified, e.g. ahead of time by Synchronizer?
+		if (this.isSignatureVerified)
+			return true;
+
 		try {
 			// Check minter's signature first
 			if (!this.minter.verify(this.blockData.getMinterSignature(), BlockTransformer.getBytesForMinterSignature(this.blockData)))
@@ -898,6 +942,27 @@ public class Block {
 			return false;
 		}
 
+		this.isSignatureVerified = true;
+		return true;
+	}
+
+	/**
+	 * Returns whether transactions' signature checks that depend on repository state are valid,
+	 * e.g. CHAT proof-of-work difficulty based on sender's balance.
+	 * <p>
+	 * Unlike {@link #isSignatureValid()}, which only uses block's data and can be called ahead of time,
+	 * this must be called once all preceding blocks have been processed, but before this block is validated.
+	 */
+	public boolean areStateDependentSignaturesValid() throws DataException {
+		for (Transaction transaction : this.getTransactions()) {
+			// AT transactions aren't signed
+			if (transaction.getTransactionData().getType() == TransactionType.AT)
+				continue;
+
+			if (!transaction.isSignatureStateDependentValid())
+				return false;
+		}
+
 		return true;
 	}
 
@@ -1024,6 +1089,8 @@ public class Block {
 	 * @throws DataException
 	 */
 	public ValidationResult isValid() throws DataException {
+		final long beforeValidation = System.nanoTime();
+
 		// Check parent block exists
 		if (this.blockData.getReference() == null)
 			return ValidationResult.REFERENCE_MISSING;
@@ -1060,22 +1127,32 @@ public class Block {
 		if (!isMinterValid(parentBlock))
 			return ValidationResult.MINTER_NOT_ACCEPTED;
 
+		ProcessingStats.recordPhase("Block.isValid.header", beforeValidation);
+
 		// Online Accounts
+		long beforePhase = System.nanoTime();
 		ValidationResult onlineAccountsResult = this.areOnlineAccountsValid();
 		if (onlineAccountsResult != ValidationResult.OK)
 			return onlineAccountsResult;
+		ProcessingStats.recordPhase("Block.isValid.onlineAccounts", beforePhase);
 
 		// CIYAM ATs
+		beforePhase = System.nanoTime();
 		ValidationResult ciyamAtResult = this.areAtsValid();
 		if (ciyamAtResult != ValidationResult.OK)
 			return ciyamAtResult;
+		ProcessingStats.recordPhase("Block.isValid.ats", beforePhase);
 
 		// Check transactions
+		beforePhase = System.nanoTime();
 		ValidationResult transactionsResult = this.areTransactionsValid();
 		if (transactionsResult != ValidationResult.OK)
 			return transactionsResult;
+		ProcessingStats.recordPhase("Block.isValid.transactions", beforePhase);
 
 		// Block is valid
+		// (Only valid blocks are timed overall, as invalid blocks usually bail out early)
+		ProcessingStats.recordPhase("Block.isValid", beforeValidation);
 		return ValidationResult.OK;
 	}
 
@@ -1282,18 +1359,26 @@ public class Block {
 	 * @throws DataException
 	 */
 	public void process() throws DataException {
+		final long beforeProcessing = System.nanoTime();
+
 		// Set our block's height
 		int blockchainHeight = this.repository.getBlockRepository().getBlockchainHeight();
 		this.blockData.setHeight(blockchainHeight + 1);
 
 		LOGGER.trace(() -> String.format("Processing block %d", this.blockData.getHeight()));
 
+		long beforePhase;
+
 		if (this.blockData.getHeight() > 1) {
 			// Increase account levels
+			beforePhase = System.nanoTime();
 			increaseAccountLevels();
+			ProcessingStats.recordPhase("Block.process.accountLevels", beforePhase);
 
 			// Distribute block rewards, including transaction fees, before transactions processed
+			beforePhase = System.nanoTime();
 			processBlockRewards();
+			ProcessingStats.recordPhase("Block.process.rewards", beforePhase);
 
 			if (this.blockData.getHeight() == 212937)
 				// Apply fix for block 212937
@@ -1304,13 +1389,19 @@ public class Block {
 		// so create an account reference cache so get/set correct last-references.
 		try (AccountRefCache accountRefCache = new AccountRefCache(this.repository)) {
 			// Process transactions (we'll link them to this block after saving the block itself)
+			beforePhase = System.nanoTime();
 			processTransactions();
+			ProcessingStats.recordPhase("Block.process.transactions", beforePhase);
 
 			// Group-approval transactions
+			beforePhase = System.nanoTime();
 			processGroupApprovalTransactions();
+			ProcessingStats.recordPhase("Block.process.groupApprovals", beforePhase);
 
 			// Process AT fees and save AT states into repository
+			beforePhase = System.nanoTime();
 			processAtFeesAndStates();
+			ProcessingStats.recordPhase("Block.process.atFeesAndStates", beforePhase);
 
 			// Commit new accounts' last-reference changes
 			accountRefCache.commit();
@@ -1322,16 +1413,22 @@ public class Block {
 			this.blockData.setReference(latestBlockData.getSignature());
 
 		// Save block
+		beforePhase = System.nanoTime();
 		this.repository.getBlockRepository().save(this.blockData);
 
 		// Link transactions to this block, thus removing them from unconfirmed transactions list.
 		// Also update "transaction participants" in repository for "transactions involving X" support in API
 		linkTransactionsToBlock();
+		ProcessingStats.recordPhase("Block.process.save", beforePhase);
 
+		beforePhase = System.nanoTime();
 		postBlockTidy();
+		ProcessingStats.recordPhase("Block.process.tidy", beforePhase);
 
 		// Give Controller our cached, valid online accounts data (if any) to help reduce CPU load for next block
 		Controller.getInstance().pushLatestBlocksOnlineAccounts(this.cachedValidOnlineAccounts);
+
+		ProcessingStats.recordPhase("Block.process", beforeProcessing);
 	}
 
 	protected void increaseAccountLevels() throws DataException {
@@ -1403,9 +1500,13 @@ public class Block {
 
 			// Only process transactions that don't require group-approval.
 			// Group-approval transactions are dealt with later.
-			if (transactionData.getApprovalStatus() == ApprovalStatus.NOT_REQUIRED)
+			if (transactionData.getApprovalStatus() == ApprovalStatus.NOT_REQUIRED) {
 				transaction.process();
 
+				// Index new cross-chain trade offer, if applicable
+				CrossChainTradeIndex.onTransactionProcessed(this.repository, transactionData, this.blockData.getTimestamp());
+			}
+
 			// Regardless of group-approval, update relevant info for creator (e.g. lastReference)
 			transaction.processReferencesAndFees();
 		}
@@ -1423,6 +1524,7 @@ public class Block {
 
 			// Update group-approval decision height for transaction in repository
 			transactionRepository.updateApprovalHeight(transactionData.getSignature(), this.blockData.getHeight());
+			transactionRepository.unscheduleApproval(transactionData.getSignature());
 		}
 
 		// Search for pending transactions within min/max block delay range
@@ -1439,6 +1541,7 @@ public class Block {
 
 			// Update group-approval decision height for transaction in repository
 			transactionRepository.updateApprovalHeight(transactionData.getSignature(), this.blockData.getHeight());
+			transactionRepository.unscheduleApproval(transactionData.getSignature());
 
 			if (!isApproved) {
 				// REJECT
@@ -1459,6 +1562,9 @@ public class Block {
 			transactionRepository.save(transactionData);
 
 			transaction.process();
+
+			// Index new cross-chain trade offer, if applicable
+			CrossChainTradeIndex.onTransactionProcessed(this.repository, transactionData, this.blockData.getTimestamp());
 		}
 	}
 
@@ -1476,6 +1582,9 @@ public class Block {
 
 			AT at = new AT(repository, atData, atStateData);
 			at.update(this.blockData.getHeight(), this.blockData.getTimestamp());
+
+			// Update pre-decoded cross-chain trade info, if applicable
+			CrossChainTradeIndex.onAtStateChange(this.repository, atData, atStateData, this.blockData.getTimestamp());
 		}
 	}
 
@@ -1497,6 +1606,10 @@ public class Block {
 			// Update local transactionData's height too
 			transaction.getTransactionData().setBlockHeight(this.blockData.getHeight());
 
+			// Schedule group-approval decision/expiry
+			if (transactionData.getApprovalStatus() == ApprovalStatus.PENDING)
+				transactionRepository.scheduleApproval(transactionData);
+
 			// No longer unconfirmed
 			transactionRepository.confirmTransaction(transactionData.getSignature());
 
@@ -1511,16 +1624,61 @@ public class Block {
 	 * @throws DataException
 	 */
 	public void orphan() throws DataException {
+		this.orphan(true);
+	}
+
+	/**
+	 * Orphans our blocks above <tt>targetHeight</tt>, highest first, within the current repository transaction.
+	 * <p>
+	 * Equivalent to calling {@link #orphan()} on each block in turn, but blocks are fetched using one query
+	 * and zero account balances are tidied once, after all blocks have been orphaned.
+	 * <p>
+	 * Caller is responsible for saving, or discarding, repository changes.
+	 * 
+	 * @return number of blocks orphaned
+	 * @throws DataException
+	 */
+	public static int orphanBlocks(Repository repository, int targetHeight) throws DataException {
+		final long beforeOrphaning = System.nanoTime();
+
+		int height = repository.getBlockRepository().getBlockchainHeight();
+		if (height <= targetHeight)
+			return 0;
+
+		List<BlockData> orphanBlockDataList = repository.getBlockRepository().getBlocks(targetHeight + 1, height);
+		orphanBlockDataList.sort(Comparator.comparing(BlockData::getHeight).reversed());
+
+		for (BlockData orphanBlockData : orphanBlockDataList)
+			new Block(repository, orphanBlockData).orphan(false);
+
+		long beforePhase = System.nanoTime();
+		repository.getAccountRepository().tidy();
+		ProcessingStats.recordPhase("Block.orphan.tidy", beforePhase);
+
+		ProcessingStats.recordPhase("Block.orphanBlocks", beforeOrphaning);
+
+		return orphanBlockDataList.size();
+	}
+
+	private void orphan(boolean isTidyNeeded) throws DataException {
+		final long beforeOrphaning = System.nanoTime();
+
 		LOGGER.trace(() -> String.format("Orphaning block %d", this.blockData.getHeight()));
 
 		// Return AT fees and delete AT states from repository
+		long beforePhase = System.nanoTime();
 		orphanAtFeesAndStates();
+		ProcessingStats.recordPhase("Block.orphan.atFeesAndStates", beforePhase);
 
 		// Orphan, and unlink, transactions from this block
+		beforePhase = System.nanoTime();
 		orphanTransactionsFromBlock();
+		ProcessingStats.recordPhase("Block.orphan.transactions", beforePhase);
 
 		// Undo any group-approval decisions that happen at this block
+		beforePhase = System.nanoTime();
 		orphanGroupApprovalTransactions();
+		ProcessingStats.recordPhase("Block.orphan.groupApprovals", beforePhase);
 
 		if (this.blockData.getHeight() > 1) {
 			// Invalidate expandedAccounts as they may have changed due to orphaning TRANSFER_PRIVS transactions, etc.
@@ -1531,20 +1689,32 @@ public class Block {
 				Block212937.orphanFix(this);
 
 			// Block rewards, including transaction fees, removed after transactions undone
+			beforePhase = System.nanoTime();
 			orphanBlockRewards();
+			ProcessingStats.recordPhase("Block.orphan.rewards", beforePhase);
 
 			// Decrease account levels
+			beforePhase = System.nanoTime();
 			decreaseAccountLevels();
+			ProcessingStats.recordPhase("Block.orphan.accountLevels", beforePhase);
 		}
 
 		// Delete block from blockchain
+		beforePhase = System.nanoTime();
 		this.repository.getBlockRepository().delete(this.blockData);
 		this.blockData.setHeight(null);
+		ProcessingStats.recordPhase("Block.orphan.delete", beforePhase);
 
-		postBlockTidy();
+		if (isTidyNeeded) {
+			beforePhase = System.nanoTime();
+			postBlockTidy();
+			ProcessingStats.recordPhase("Block.orphan.tidy", beforePhase);
+		}
 
 		// Remove any cached, valid online accounts data from Controller
 		Controller.getInstance().popLatestBlocksOnlineAccounts();
+
+		ProcessingStats.recordPhase("Block.orphan", beforeOrphaning);
 	}
 
 	protected void orphanTransactionsFromBlock() throws DataException {
@@ -1580,6 +1750,10 @@ public class Block {
 
 				// Unset height
 				transactionRepository.updateBlockHeight(transactionData.getSignature(), null);
+
+				// Unconfirmed transactions can't be decided
+				if (transactionData.getApprovalStatus() == ApprovalStatus.PENDING)
+					transactionRepository.unscheduleApproval(transactionData.getSignature());
 			}
 
 			transactionRepository.deleteParticipants(transactionData);
@@ -1604,6 +1778,9 @@ public class Block {
 
 			// Remove group-approval decision height
 			transactionRepository.updateApprovalHeight(transactionData.getSignature(), null);
+
+			// Pending again, so back onto group-approval schedule
+			transactionRepository.scheduleApproval(transactionData);
 		}
 	}
 
@@ -1633,6 +1810,9 @@ public class Block {
 
 			AT at = new AT(repository, atData, atStateData);
 			at.revert(this.blockData.getHeight(), this.blockData.getTimestamp());
+
+			// Revert pre-decoded cross-chain trade info, if applicable
+			CrossChainTradeIndex.onAtStateRevert(this.repository, atData);
 		}
 	}
 
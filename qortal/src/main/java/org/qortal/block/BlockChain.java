@@ -44,6 +44,9 @@ public class BlockChain {
 
 	private static final Logger LOGGER = LogManager.getLogger(BlockChain.class);
 
+	/** Maximum number of blocks orphaned by {@link #orphan(int)} before committing to repository */
+	private static final int MAX_ORPHAN_BLOCKS_PER_COMMIT = 100;
+
 	private static BlockChain instance = null;
 
 	// Properties
@@ -166,6 +169,27 @@ public class BlockChain {
 	}
 	private CiyamAtSettings ciyamAtSettings;
 
+	/** Blocks known to be on main chain, e.g. for bootstrap snapshots, by ascending height */
+	public static class Checkpoint {
+		public int height;
+		@XmlJavaTypeAdapter(value = org.qortal.api.Base58TypeAdapter.class)
+		public byte[] signature;
+		/** Chain state hash at this block, as given by <tt>Repository.getChainStateHash()</tt>. Needed to import bootstrap snapshots. */
+		@XmlJavaTypeAdapter(value = org.qortal.api.Base58TypeAdapter.class)
+		public byte[] stateHash;
+
+		protected Checkpoint() {
+			// For JAXB
+		}
+
+		public Checkpoint(int height, byte[] signature, byte[] stateHash) {
+			this.height = height;
+			this.signature = signature;
+			this.stateHash = stateHash;
+		}
+	}
+	private List<Checkpoint> checkpoints;
+
 	// Constructors, etc.
 
 	private BlockChain() {
@@ -369,6 +393,10 @@ public class BlockChain {
 		return this.ciyamAtSettings;
 	}
 
+	public List<Checkpoint> getCheckpoints() {
+		return this.checkpoints;
+	}
+
 	// Convenience methods for specific blockchain feature triggers
 
 	// More complex getters for aspects that change by height or timestamp
@@ -390,6 +418,24 @@ public class BlockChain {
 		throw new IllegalStateException(String.format("No block timing info available for height %d", ourHeight));
 	}
 
+	/** Returns checkpoint at <tt>height</tt>, or null if no checkpoint at that height. */
+	public Checkpoint getCheckpoint(int height) {
+		for (Checkpoint checkpoint : this.checkpoints)
+			if (checkpoint.height == height)
+				return checkpoint;
+
+		return null;
+	}
+
+	/** Returns highest checkpoint at, or below, <tt>height</tt>, or null if there isn't one. */
+	public Checkpoint getLatestCheckpoint(int height) {
+		for (int i = this.checkpoints.size() - 1; i >= 0; --i)
+			if (this.checkpoints.get(i).height <= height)
+				return this.checkpoints.get(i);
+
+		return null;
+	}
+
 	/** Validate blockchain config read from JSON */
 	private void validateConfig() {
 		if (this.genesisInfo == null)
@@ -447,6 +493,17 @@ public class BlockChain {
 
 		if (totalShare < 0 || totalShare > 1_00000000L)
 			Settings.throwValidationError("Total non-founder share out of bounds (0<x<1e8)");
+
+		// Checkpoints are optional, but must be in ascending height order
+		if (this.checkpoints != null)
+			for (int i = 0; i < this.checkpoints.size(); ++i) {
+				Checkpoint checkpoint = this.checkpoints.get(i);
+
+				if (checkpoint.height < 1 || checkpoint.signature == null
+						|| (checkpoint.stateHash != null && checkpoint.stateHash.length != 32)
+						|| (i > 0 && checkpoint.height <= this.checkpoints.get(i - 1).height))
+					Settings.throwValidationError(String.format("Invalid checkpoint at index %d in blockchain config", i));
+			}
 	}
 
 	/** Minor normalization, cached value generation, etc. */
@@ -478,6 +535,7 @@ public class BlockChain {
 		this.blocksNeededByLevel = Collections.unmodifiableList(this.blocksNeededByLevel);
 		this.cumulativeBlocksByLevel = Collections.unmodifiableList(this.cumulativeBlocksByLevel);
 		this.blockTimingsByHeight = Collections.unmodifiableList(this.blockTimingsByHeight);
+		this.checkpoints = this.checkpoints != null ? Collections.unmodifiableList(this.checkpoints) : Collections.emptyList();
 	}
 
 	/**
@@ -557,21 +615,35 @@ public class BlockChain {
 		try {
 			try (final Repository repository = RepositoryManager.getRepository()) {
 				int height = repository.getBlockRepository().getBlockchainHeight();
-				BlockData orphanBlockData = repository.getBlockRepository().fromHeight(height);
+				if (height <= targetHeight)
+					return true;
 
-				while (height > targetHeight) {
-					LOGGER.info(String.format("Forcably orphaning block %d", height));
+				LOGGER.info(String.format("Forcably orphaning blocks %d to %d", height, targetHeight + 1));
 
-					Block block = new Block(repository, orphanBlockData);
-					block.orphan();
+				final int initialHeight = height;
 
-					repository.saveChanges();
+				try {
+					// Commit in chunks so orphaning a long way back doesn't build one huge uncommitted transaction
+					while (height > targetHeight) {
+						int chunkTargetHeight = Math.max(targetHeight, height - MAX_ORPHAN_BLOCKS_PER_COMMIT);
+
+						Block.orphanBlocks(repository, chunkTargetHeight);
+
+						repository.saveChanges();
+
+						LOGGER.debug(String.format("Orphaned blocks %d to %d", height, chunkTargetHeight + 1));
+						height = chunkTargetHeight;
+					}
+				} finally {
+					// Even if a later chunk failed, earlier chunks have been committed so chain tip has still changed
+					if (height < initialHeight) {
+						repository.discardChanges(); // roll back any partially orphaned chunk
 
-					--height;
-					orphanBlockData = repository.getBlockRepository().fromHeight(height);
+						BlockData orphanBlockData = repository.getBlockRepository().fromHeight(height);
 
-					repository.discardChanges(); // clear transaction status to prevent deadlocks
-					Controller.getInstance().onOrphanedBlock(orphanBlockData);
+						repository.discardChanges(); // clear transaction status to prevent deadlocks
+						Controller.getInstance().onOrphanedBlocks(orphanBlockData);
+					}
 				}
 
 				return true;
@@ -216,7 +216,14 @@ public class AutoUpdate extends Thread {
 
 		// Give repository a chance to backup in case things go badly wrong (if enabled)
 		if (Settings.getInstance().getRepositoryBackupInterval() > 0)
-			RepositoryManager.backup(true);
+			try {
+				// Via RepositoryBackup so we don't clash with any periodic/requested backup
+				RepositoryBackup.getInstance().backupAndWait(true);
+			} catch (InterruptedException e) {
+				// We've been asked to stop, so don't apply update
+				Thread.currentThread().interrupt();
+				return false;
+			}
 
 		// Call ApplyUpdate to end this process (unlocking current JAR so it can be replaced)
 		String javaHome = System.getProperty("java.home");
@@ -25,6 +25,7 @@ import org.qortal.network.Network;
 import org.qortal.network.Peer;
 import org.qortal.repository.BlockRepository;
 import org.qortal.repository.DataException;
+import org.qortal.repository.RawBlockStore;
 import org.qortal.repository.Repository;
 import org.qortal.repository.RepositoryManager;
 import org.qortal.settings.Settings;
@@ -166,6 +167,8 @@ public class BlockMinter extends Thread {
 				List<PrivateKeyAccount> newBlocksMintingAccounts = mintingAccountsData.stream().map(accountData -> new PrivateKeyAccount(repository, accountData.getPrivateKey())).collect(Collectors.toList());
 
 				for (PrivateKeyAccount mintingAccount : newBlocksMintingAccounts) {
+					long beforeMint = System.nanoTime();
+
 					// First block does the AT heavy-lifting
 					if (newBlocks.isEmpty()) {
 						Block newBlock = Block.mint(repository, previousBlockData, mintingAccount);
@@ -176,6 +179,7 @@ public class BlockMinter extends Thread {
 						}
 
 						newBlocks.add(newBlock);
+						ProcessingStats.recordPhase("BlockMinter.mint", beforeMint);
 					} else {
 						// The blocks for other minters require less effort...
 						Block newBlock = newBlocks.get(0).remint(mintingAccount);
@@ -186,6 +190,7 @@ public class BlockMinter extends Thread {
 						}
 
 						newBlocks.add(newBlock);
+						ProcessingStats.recordPhase("BlockMinter.remint", beforeMint);
 					}
 				}
 
@@ -255,12 +260,15 @@ public class BlockMinter extends Thread {
 					}
 
 					// Add unconfirmed transactions
+					long beforePhase = System.nanoTime();
 					addUnconfirmedTransactions(repository, newBlock);
+					ProcessingStats.recordPhase("BlockMinter.addTransactions", beforePhase);
 
 					// Sign to create block's signature
 					newBlock.sign();
 
 					// Is newBlock still valid?
+					beforePhase = System.nanoTime();
 					ValidationResult validationResult = newBlock.isValid();
 					if (validationResult != ValidationResult.OK) {
 						// No longer valid? Report and discard
@@ -270,12 +278,17 @@ public class BlockMinter extends Thread {
 						newBlocks.clear();
 						continue;
 					}
+					ProcessingStats.recordPhase("BlockMinter.validate", beforePhase);
 
 					// Add to blockchain - something else will notice and broadcast new block to network
 					try {
+						beforePhase = System.nanoTime();
 						newBlock.process();
+						ProcessingStats.recordPhase("BlockMinter.process", beforePhase);
 
+						beforePhase = System.nanoTime();
 						repository.saveChanges();
+						ProcessingStats.recordPhase("BlockMinter.saveChanges", beforePhase);
 
 						LOGGER.info(String.format("Minted new block: %d", newBlock.getBlockData().getHeight()));
 
@@ -297,6 +310,8 @@ public class BlockMinter extends Thread {
 						// Notify network after we're released blockchain lock
 						newBlockMinted = true;
 
+						RawBlockStore.onBlockProcessed(newBlock);
+
 						// Notify Controller
 						repository.discardChanges(); // clear transaction status to prevent deadlocks
 						Controller.getInstance().onNewBlock(newBlock.getBlockData());
@@ -3,21 +3,56 @@ package org.qortal.controller;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.eclipse.jetty.websocket.api.Session;
 import org.qortal.data.transaction.ChatTransactionData;
 
+/**
+ * Routes new CHAT transactions, and group-membership changes, to interested websocket sessions.
+ * <p>
+ * Subscriptions are indexed by topic so that delivering a message only touches sessions
+ * that could possibly be interested in it, instead of every open session:
+ * <ul>
+ * <li>by <tt>txGroupId</tt>, for group-based chat (no recipient)</li>
+ * <li>by normalised address-pair, for direct chat between two addresses</li>
+ * <li>by single address, for "active chats" style listeners that want direct chat
+ * involving that address, all group-based chat and group-membership changes
+ * affecting that address</li>
+ * </ul>
+ */
 public class ChatNotifier {
 
 	private static ChatNotifier instance;
 
 	@FunctionalInterface
 	public interface Listener {
+		/** Called with new CHAT transaction, or <tt>null</tt> if there has been a group-membership change. */
 		void notify(ChatTransactionData chatTransactionData);
 	}
 
-	private Map<Session, Listener> listenersBySession = new HashMap<>();
+	private static class Subscription {
+		private final Listener listener;
+		private final Integer txGroupId;
+		private final String addressPairKey;
+		private final String address;
+
+		private Subscription(Listener listener, Integer txGroupId, String addressPairKey, String address) {
+			this.listener = listener;
+			this.txGroupId = txGroupId;
+			this.addressPairKey = addressPairKey;
+			this.address = address;
+		}
+	}
+
+	/** All subscriptions, used for deregistration. Also acts as lock for all indexes below. */
+	private final Map<Session, Subscription> subscriptionsBySession = new HashMap<>();
+
+	private final Map<Integer, Map<Session, Listener>> listenersByGroupId = new HashMap<>();
+	private final Map<String, Map<Session, Listener>> listenersByAddressPair = new HashMap<>();
+	private final Map<String, Map<Session, Listener>> listenersByAddress = new HashMap<>();
 
 	private ChatNotifier() {
 	}
@@ -29,33 +64,146 @@ public class ChatNotifier {
 		return instance;
 	}
 
-	public void register(Session session, Listener listener) {
-		synchronized (this.listenersBySession) {
-			this.listenersBySession.put(session, listener);
+	/** Returns order-independent key for a pair of addresses. */
+	public static String addressPairKey(String address1, String address2) {
+		if (address1.compareTo(address2) <= 0)
+			return address1 + "/" + address2;
+
+		return address2 + "/" + address1;
+	}
+
+	// Registration
+
+	/** Registers listener for group-based CHAT transactions with matching <tt>txGroupId</tt>. */
+	public void registerGroup(Session session, int txGroupId, Listener listener) {
+		this.register(session, new Subscription(listener, txGroupId, null, null));
+	}
+
+	/** Registers listener for direct CHAT transactions between the two given addresses, in either direction. */
+	public void registerAddressPair(Session session, String address1, String address2, Listener listener) {
+		this.register(session, new Subscription(listener, null, addressPairKey(address1, address2), null));
+	}
+
+	/**
+	 * Registers listener for direct CHAT transactions involving <tt>address</tt>,
+	 * all group-based CHAT transactions and group-membership changes involving <tt>address</tt>.
+	 */
+	public void registerAddress(Session session, String address, Listener listener) {
+		this.register(session, new Subscription(listener, null, null, address));
+	}
+
+	private void register(Session session, Subscription subscription) {
+		synchronized (this.subscriptionsBySession) {
+			// Replace any previous subscription for this session
+			this.removeSubscription(session);
+
+			this.subscriptionsBySession.put(session, subscription);
+
+			if (subscription.txGroupId != null)
+				this.listenersByGroupId.computeIfAbsent(subscription.txGroupId, k -> new LinkedHashMap<>()).put(session, subscription.listener);
+
+			if (subscription.addressPairKey != null)
+				this.listenersByAddressPair.computeIfAbsent(subscription.addressPairKey, k -> new LinkedHashMap<>()).put(session, subscription.listener);
+
+			if (subscription.address != null)
+				this.listenersByAddress.computeIfAbsent(subscription.address, k -> new LinkedHashMap<>()).put(session, subscription.listener);
 		}
 	}
 
 	public void deregister(Session session) {
-		synchronized (this.listenersBySession) {
-			this.listenersBySession.remove(session);
+		synchronized (this.subscriptionsBySession) {
+			this.removeSubscription(session);
 		}
 	}
 
+	private void removeSubscription(Session session) {
+		Subscription subscription = this.subscriptionsBySession.remove(session);
+		if (subscription == null)
+			return;
+
+		if (subscription.txGroupId != null)
+			removeFromIndex(this.listenersByGroupId, subscription.txGroupId, session);
+
+		if (subscription.addressPairKey != null)
+			removeFromIndex(this.listenersByAddressPair, subscription.addressPairKey, session);
+
+		if (subscription.address != null)
+			removeFromIndex(this.listenersByAddress, subscription.address, session);
+	}
+
+	private static <K> void removeFromIndex(Map<K, Map<Session, Listener>> index, K key, Session session) {
+		Map<Session, Listener> listeners = index.get(key);
+		if (listeners == null)
+			return;
+
+		listeners.remove(session);
+
+		// Don't leave empty topics lying around
+		if (listeners.isEmpty())
+			index.remove(key);
+	}
+
+	// Notification
+
 	public void onNewChatTransaction(ChatTransactionData chatTransactionData) {
-		for (Listener listener : getAllListeners())
+		for (Listener listener : getListeners(chatTransactionData))
 			listener.notify(chatTransactionData);
 	}
 
-	public void onGroupMembershipChange() {
-		for (Listener listener : getAllListeners())
+	/** Notifies "address" listeners that group-membership has changed for the given addresses. */
+	public void onGroupMembershipChange(Collection<String> addresses) {
+		List<Listener> listeners = new ArrayList<>();
+
+		synchronized (this.subscriptionsBySession) {
+			for (String address : addresses)
+				addListeners(listeners, this.listenersByAddress.get(address));
+		}
+
+		for (Listener listener : listeners)
 			listener.notify(null);
 	}
 
-	private Collection<Listener> getAllListeners() {
-		// Make a copy of listeners to both avoid concurrent modification
+	private List<Listener> getListeners(ChatTransactionData chatTransactionData) {
+		// Make a copy of interested listeners to both avoid concurrent modification
 		// and reduce synchronization time
-		synchronized (this.listenersBySession) {
-			return new ArrayList<>(this.listenersBySession.values());
+		List<Listener> listeners = new ArrayList<>();
+
+		String sender = chatTransactionData.getSender();
+		String recipient = chatTransactionData.getRecipient();
+
+		synchronized (this.subscriptionsBySession) {
+			if (recipient == null) {
+				// Group-based chat
+				addListeners(listeners, this.listenersByGroupId.get(chatTransactionData.getTxGroupId()));
+
+				// "Address" listeners might be group members, but we can't tell without a repository lookup
+				for (Map<Session, Listener> addressListeners : this.listenersByAddress.values())
+					addListeners(listeners, addressListeners);
+			} else {
+				// Direct chat
+				addListeners(listeners, this.listenersByAddressPair.get(addressPairKey(sender, recipient)));
+
+				addListeners(listeners, this.listenersByAddress.get(sender));
+
+				if (!recipient.equals(sender))
+					addListeners(listeners, this.listenersByAddress.get(recipient));
+			}
+		}
+
+		return listeners;
+	}
+
+	private static void addListeners(List<Listener> listeners, Map<Session, Listener> topicListeners) {
+		if (topicListeners != null)
+			listeners.addAll(topicListeners.values());
+	}
+
+	// Stats
+
+	/** Returns number of sessions currently subscribed, for diagnostics. */
+	public int getSubscriptionCount() {
+		synchronized (this.subscriptionsBySession) {
+			return this.subscriptionsBySession.size();
 		}
 	}
 
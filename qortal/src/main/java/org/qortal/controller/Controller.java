@@ -4,6 +4,7 @@ import java.awt.TrayIcon.MessageType;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Paths;
 import java.security.SecureRandom;
 import java.security.Security;
 import java.time.LocalDateTime;
@@ -15,6 +16,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
@@ -22,6 +24,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -47,11 +50,13 @@ import org.qortal.block.BlockChain;
 import org.qortal.block.BlockChain.BlockTimingByHeight;
 import org.qortal.controller.Synchronizer.SynchronizationResult;
 import org.qortal.controller.tradebot.TradeBot;
+import org.qortal.crosschain.CrossChainTradeIndex;
 import org.qortal.crypto.Crypto;
 import org.qortal.data.account.MintingAccountData;
 import org.qortal.data.account.RewardShareData;
 import org.qortal.data.block.BlockData;
 import org.qortal.data.block.BlockSummaryData;
+import org.qortal.data.network.IndexedOnlineAccountData;
 import org.qortal.data.network.OnlineAccountData;
 import org.qortal.data.network.PeerChainTipData;
 import org.qortal.data.network.PeerData;
@@ -67,11 +72,15 @@ import org.qortal.gui.SysTray;
 import org.qortal.network.Network;
 import org.qortal.network.Peer;
 import org.qortal.network.message.ArbitraryDataMessage;
+import org.qortal.network.message.BlockHeadersMessage;
+import org.qortal.network.message.BlockLocatorMessage;
 import org.qortal.network.message.BlockMessage;
 import org.qortal.network.message.BlockSummariesMessage;
 import org.qortal.network.message.GetArbitraryDataMessage;
+import org.qortal.network.message.GetBlockHeadersMessage;
 import org.qortal.network.message.GetBlockMessage;
 import org.qortal.network.message.GetBlockSummariesMessage;
+import org.qortal.network.message.GetOnlineAccountSignaturesMessage;
 import org.qortal.network.message.GetOnlineAccountsMessage;
 import org.qortal.network.message.GetPeersMessage;
 import org.qortal.network.message.GetSignaturesV2Message;
@@ -79,11 +88,14 @@ import org.qortal.network.message.GetTransactionMessage;
 import org.qortal.network.message.GetUnconfirmedTransactionsMessage;
 import org.qortal.network.message.HeightV2Message;
 import org.qortal.network.message.Message;
+import org.qortal.network.message.OnlineAccountIndexesMessage;
+import org.qortal.network.message.OnlineAccountSignaturesMessage;
 import org.qortal.network.message.OnlineAccountsMessage;
 import org.qortal.network.message.SignaturesMessage;
 import org.qortal.network.message.TransactionMessage;
 import org.qortal.network.message.TransactionSignaturesMessage;
 import org.qortal.repository.DataException;
+import org.qortal.repository.RawBlockStore;
 import org.qortal.repository.Repository;
 import org.qortal.repository.RepositoryFactory;
 import org.qortal.repository.RepositoryManager;
@@ -129,6 +141,8 @@ public class Controller extends Thread {
 	private static final long LAST_SEEN_EXPIRY_PERIOD = (ONLINE_TIMESTAMP_MODULUS * 2) + (1 * 60 * 1000L);
 	/** How many (latest) blocks' worth of online accounts we cache */
 	private static final int MAX_BLOCKS_CACHED_ONLINE_ACCOUNTS = 2;
+	/** Peers from this version onwards can exchange online accounts by reward-share index */
+	private static final long PEER_VERSION_ONLINE_ACCOUNT_INDEXES = 0x0100040001L;
 
 	private static volatile boolean isStopping = false;
 	private static BlockMinter blockMinter = null;
@@ -141,7 +155,8 @@ public class Controller extends Thread {
 	private final String[] savedArgs;
 
 	private ExecutorService callbackExecutor = Executors.newFixedThreadPool(3);
-	private volatile boolean notifyGroupMembershipChange = false;
+	/** Addresses whose group membership has changed since last notification to ChatNotifier */
+	private final Set<String> groupMembershipChangedAddresses = new HashSet<>();
 
 	private static final int BLOCK_CACHE_SIZE = 10; // To cover typical Synchronizer request + a few spare
 	/** Latest blocks on our chain. Note: tail/last is the latest block. */
@@ -156,7 +171,6 @@ public class Controller extends Thread {
 		}
 	};
 
-	private long repositoryBackupTimestamp = startTime; // ms
 	private long repositoryCheckpointTimestamp = startTime; // ms
 	private long ntpCheckTimestamp = startTime; // ms
 	private long deleteExpiredTimestamp = startTime + DELETE_EXPIRED_INTERVAL; // ms
@@ -202,6 +216,8 @@ public class Controller extends Thread {
 	List<OnlineAccountData> onlineAccounts = new ArrayList<>();
 	/** Cache of latest blocks' online accounts */
 	Deque<List<OnlineAccountData>> latestBlocksOnlineAccounts = new ArrayDeque<>(MAX_BLOCKS_CACHED_ONLINE_ACCOUNTS);
+	/** Reward-share indexes as of chain tip, for compact online accounts exchange with peers */
+	private volatile RewardShareIndex rewardShareIndex;
 
 	// Stats
 	@XmlAccessorType(XmlAccessType.FIELD)
@@ -211,6 +227,7 @@ public class Controller extends Thread {
 			public AtomicLong cacheHits = new AtomicLong();
 			public AtomicLong unknownBlocks = new AtomicLong();
 			public AtomicLong cacheFills = new AtomicLong();
+			public AtomicLong rawBlockStoreHits = new AtomicLong();
 
 			public GetBlockMessageStats() {
 			}
@@ -227,6 +244,16 @@ public class Controller extends Thread {
 		}
 		public GetBlockSummariesStats getBlockSummariesStats = new GetBlockSummariesStats();
 
+		public static class GetBlockHeadersStats {
+			public AtomicLong requests = new AtomicLong();
+			public AtomicLong cacheHits = new AtomicLong();
+			public AtomicLong fullyFromCache = new AtomicLong();
+
+			public GetBlockHeadersStats() {
+			}
+		}
+		public GetBlockHeadersStats getBlockHeadersStats = new GetBlockHeadersStats();
+
 		public static class GetBlockSignaturesV2Stats {
 			public AtomicLong requests = new AtomicLong();
 			public AtomicLong cacheHits = new AtomicLong();
@@ -412,12 +439,26 @@ public class Controller extends Thread {
 
 			Controller.getInstance().refillLatestBlocksCache();
 			LOGGER.info(String.format("Our chain height at start-up: %d", Controller.getInstance().getChainHeight()));
+
+			try (final Repository repository = RepositoryManager.getRepository()) {
+				CrossChainTradeIndex.rebuildIfNeeded(repository);
+			}
 		} catch (DataException e) {
 			LOGGER.error("Couldn't validate blockchain", e);
 			Gui.getInstance().fatalError("Blockchain validation issue", e);
 			return; // Not System.exit() so that GUI can display error
 		}
 
+		if (Settings.getInstance().isRawBlockStoreEnabled()) {
+			LOGGER.info("Opening raw block store");
+			try (final Repository repository = RepositoryManager.getRepository()) {
+				RawBlockStore.startUp(Paths.get(Settings.getInstance().getRawBlockStorePath()), repository);
+			} catch (DataException e) {
+				// Blocks will be served from repository instead
+				LOGGER.warn("Unable to open raw block store", e);
+			}
+		}
+
 		LOGGER.info("Starting controller");
 		Controller.getInstance().start();
 
@@ -448,6 +489,10 @@ public class Controller extends Thread {
 		LOGGER.info("Starting trade-bot");
 		TradeBot.getInstance();
 
+		// Periodic repository backups (if enabled)
+		LOGGER.info("Starting repository backups");
+		RepositoryBackup.getInstance().start();
+
 		// Arbitrary transaction data manager
 		// LOGGER.info("Starting arbitrary-transaction data manager");
 		// ArbitraryDataManager.getInstance().start();
@@ -485,7 +530,6 @@ public class Controller extends Thread {
 	public void run() {
 		Thread.currentThread().setName("Controller");
 
-		final long repositoryBackupInterval = Settings.getInstance().getRepositoryBackupInterval();
 		final long repositoryCheckpointInterval = Settings.getInstance().getRepositoryCheckpointInterval();
 
 		ExecutorService trimExecutor = Executors.newCachedThreadPool(new DaemonThreadFactory());
@@ -544,18 +588,6 @@ public class Controller extends Thread {
 					RepositoryManager.checkpoint(true);
 				}
 
-				// Give repository a chance to backup (if enabled)
-				if (repositoryBackupInterval > 0 && now >= repositoryBackupTimestamp + repositoryBackupInterval) {
-					repositoryBackupTimestamp = now + repositoryBackupInterval;
-
-					if (Settings.getInstance().getShowBackupNotification())
-						SysTray.getInstance().showMessage(Translator.INSTANCE.translate("SysTray", "DB_BACKUP"),
-								Translator.INSTANCE.translate("SysTray", "CREATING_BACKUP_OF_DB_FILES"),
-								MessageType.INFO);
-
-					RepositoryManager.backup(true);
-				}
-
 				// Prune stuck/slow/old peers
 				try {
 					Network.getInstance().prunePeers();
@@ -844,9 +876,18 @@ public class Controller extends Thread {
 					}
 				}
 
+				LOGGER.info("Shutting down trade-bot");
+				TradeBot.getInstance().shutdown();
+
+				LOGGER.info("Shutting down repository backups");
+				RepositoryBackup.getInstance().shutdown();
+
 				LOGGER.info("Shutting down networking");
 				Network.getInstance().shutdown();
 
+				LOGGER.info("Shutting down raw block store");
+				RawBlockStore.shutDown();
+
 				LOGGER.info("Shutting down controller");
 				this.interrupt();
 				try {
@@ -877,18 +918,20 @@ public class Controller extends Thread {
 
 	// Callbacks
 
-	public void onGroupMembershipChange(int groupId) {
+	public void onGroupMembershipChange(int groupId, String member) {
 		/*
 		 * We've likely been called in the middle of block processing,
-		 * so set a flag for now as other repository sessions won't 'see'
+		 * so record the affected address for now as other repository sessions won't 'see'
 		 * the group membership change until a call to repository.saveChanges().
 		 * 
 		 * Eventually, onNewBlock() will be executed and queue a callback task.
-		 * This callback task will check the flag and notify websocket listeners, etc.
+		 * This callback task will check for recorded addresses and notify websocket listeners, etc.
 		 * and those listeners will be post-saveChanges() and hence see the new
 		 * group membership state.
 		 */
-		this.notifyGroupMembershipChange = true;
+		synchronized (this.groupMembershipChangedAddresses) {
+			this.groupMembershipChangedAddresses.add(member);
+		}
 	}
 
 	// Callbacks for/from network
@@ -990,6 +1033,9 @@ public class Controller extends Thread {
 		// Protective copy
 		BlockData blockDataCopy = new BlockData(latestBlockData);
 
+		RawBlockStore.onBlockOrphaned(blockDataCopy.getHeight());
+		Synchronizer.getInstance().onBlocksOrphaned(blockDataCopy.getHeight());
+
 		synchronized (this.latestBlocks) {
 			BlockData cachedChainTip = this.latestBlocks.pollLast();
 			boolean refillNeeded = false;
@@ -1024,16 +1070,51 @@ public class Controller extends Thread {
 		this.onNewOrOrphanedBlock(blockDataCopy, OrphanedBlockEvent::new);
 	}
 
+	/**
+	 * Called after orphaning several blocks at once, e.g. using {@link Block#orphanBlocks(Repository, int)}.
+	 * <p>
+	 * Unlike calling {@link #onOrphanedBlock(BlockData)} for each block, listeners are only notified once, about new chain tip.
+	 */
+	public void onOrphanedBlocks(BlockData latestBlockData) {
+		// Protective copy
+		BlockData blockDataCopy = new BlockData(latestBlockData);
+
+		RawBlockStore.onBlockOrphaned(blockDataCopy.getHeight());
+		Synchronizer.getInstance().onBlocksOrphaned(blockDataCopy.getHeight());
+
+		synchronized (this.latestBlocks) {
+			// Drop orphaned blocks from cache
+			while (!this.latestBlocks.isEmpty() && this.latestBlocks.peekLast().getHeight() > blockDataCopy.getHeight())
+				this.latestBlocks.pollLast();
+
+			BlockData cachedChainTip = this.latestBlocks.peekLast();
+			if (cachedChainTip == null || !Arrays.equals(cachedChainTip.getSignature(), blockDataCopy.getSignature()))
+				try {
+					this.stats.latestBlocksCacheRefills.incrementAndGet();
+
+					this.refillLatestBlocksCache();
+				} catch (DataException e) {
+					LOGGER.warn(() -> "Couldn't refill latest blocks cache?", e);
+				}
+		}
+
+		this.onNewOrOrphanedBlock(blockDataCopy, OrphanedBlockEvent::new);
+	}
+
 	private void onNewOrOrphanedBlock(BlockData blockDataCopy, Function<BlockData, Event> eventConstructor) {
 		requestSysTrayUpdate = true;
 
 		// Notify listeners, trade-bot, etc.
 		EventBus.INSTANCE.notify(eventConstructor.apply(blockDataCopy));
 
-		if (this.notifyGroupMembershipChange) {
-			this.notifyGroupMembershipChange = false;
-			ChatNotifier.getInstance().onGroupMembershipChange();
+		List<String> changedAddresses;
+		synchronized (this.groupMembershipChangedAddresses) {
+			changedAddresses = new ArrayList<>(this.groupMembershipChangedAddresses);
+			this.groupMembershipChangedAddresses.clear();
 		}
+
+		if (!changedAddresses.isEmpty())
+			ChatNotifier.getInstance().onGroupMembershipChange(changedAddresses);
 	}
 
 	public static class NewTransactionEvent implements Event {
@@ -1103,6 +1184,14 @@ public class Controller extends Thread {
 				onNetworkGetBlockSummariesMessage(peer, message);
 				break;
 
+			case GET_BLOCK_HEADERS:
+				onNetworkGetBlockHeadersMessage(peer, message);
+				break;
+
+			case BLOCK_LOCATOR:
+				onNetworkBlockLocatorMessage(peer, message);
+				break;
+
 			case GET_SIGNATURES_V2:
 				onNetworkGetSignaturesV2Message(peer, message);
 				break;
@@ -1139,6 +1228,18 @@ public class Controller extends Thread {
 				onNetworkOnlineAccountsMessage(peer, message);
 				break;
 
+			case ONLINE_ACCOUNT_INDEXES:
+				onNetworkOnlineAccountIndexesMessage(peer, message);
+				break;
+
+			case GET_ONLINE_ACCOUNT_SIGNATURES:
+				onNetworkGetOnlineAccountSignaturesMessage(peer, message);
+				break;
+
+			case ONLINE_ACCOUNT_SIGNATURES:
+				onNetworkOnlineAccountSignaturesMessage(peer, message);
+				break;
+
 			default:
 				LOGGER.debug(() -> String.format("Unhandled %s message [ID %d] from peer %s", message.getType().name(), message.getId(), peer));
 				break;
@@ -1168,6 +1269,32 @@ public class Controller extends Thread {
 		}
 
 		try (final Repository repository = RepositoryManager.getRepository()) {
+			// Try raw block store, which saves us rebuilding block from repository
+			RawBlockStore rawBlockStore = RawBlockStore.getInstance();
+			if (rawBlockStore != null) {
+				int height = repository.getBlockRepository().getHeightFromSignature(signature);
+				byte[] blockBytes = height != 0 ? rawBlockStore.fetch(height, signature) : null;
+
+				if (blockBytes != null) {
+					this.stats.getBlockMessageStats.rawBlockStoreHits.incrementAndGet();
+
+					BlockMessage blockMessage = new BlockMessage(height, blockBytes);
+					blockMessage.setId(message.getId());
+
+					if (!peer.sendMessage(blockMessage))
+						peer.disconnect("failed to send block");
+
+					// If request is for a recent block, cache it
+					if (getChainHeight() - height <= BLOCK_CACHE_SIZE) {
+						this.stats.getBlockMessageStats.cacheFills.incrementAndGet();
+
+						this.blockMessageCache.put(signatureAsByteArray, blockMessage);
+					}
+
+					return;
+				}
+			}
+
 			BlockData blockData = repository.getBlockRepository().fromSignature(signature);
 
 			if (blockData == null) {
@@ -1296,6 +1423,66 @@ public class Controller extends Thread {
 			peer.disconnect("failed to send block summaries");
 	}
 
+	private void onNetworkGetBlockHeadersMessage(Peer peer, Message message) {
+		GetBlockHeadersMessage getBlockHeadersMessage = (GetBlockHeadersMessage) message;
+		final byte[] parentSignature = getBlockHeadersMessage.getParentSignature();
+		final int numberRequested = Math.min(Network.MAX_BLOCK_HEADERS_PER_REPLY, getBlockHeadersMessage.getNumberRequested());
+		this.stats.getBlockHeadersStats.requests.incrementAndGet();
+
+		List<BlockData> blockHeaders = new ArrayList<>();
+
+		// Attempt to serve from our cache of latest blocks
+		synchronized (this.latestBlocks) {
+			blockHeaders = this.latestBlocks.stream()
+					.dropWhile(cachedBlockData -> !Arrays.equals(cachedBlockData.getReference(), parentSignature))
+					.limit(numberRequested)
+					.collect(Collectors.toList());
+		}
+
+		if (blockHeaders.isEmpty()) {
+			try (final Repository repository = RepositoryManager.getRepository()) {
+				BlockData blockData = repository.getBlockRepository().fromReference(parentSignature);
+
+				while (blockData != null && blockHeaders.size() < numberRequested) {
+					blockHeaders.add(blockData);
+
+					blockData = repository.getBlockRepository().fromReference(blockData.getSignature());
+				}
+			} catch (DataException e) {
+				LOGGER.error(String.format("Repository issue while sending block headers after %s to peer %s", Base58.encode(parentSignature), peer), e);
+			}
+		} else {
+			this.stats.getBlockHeadersStats.cacheHits.incrementAndGet();
+
+			if (blockHeaders.size() >= numberRequested)
+				this.stats.getBlockHeadersStats.fullyFromCache.incrementAndGet();
+		}
+
+		Message blockHeadersMessage = new BlockHeadersMessage(blockHeaders);
+		blockHeadersMessage.setId(message.getId());
+		if (!peer.sendMessage(blockHeadersMessage))
+			peer.disconnect("failed to send block headers");
+	}
+
+	private void onNetworkBlockLocatorMessage(Peer peer, Message message) {
+		BlockLocatorMessage blockLocatorMessage = (BlockLocatorMessage) message;
+		final int numberRequested = Math.min(Network.MAX_BLOCK_SUMMARIES_PER_REPLY, blockLocatorMessage.getNumberRequested());
+		this.stats.getBlockSummariesStats.requests.incrementAndGet();
+
+		List<BlockSummaryData> blockSummaries = new ArrayList<>();
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			blockSummaries = Synchronizer.getInstance().getBlockSummariesFromLocator(repository, blockLocatorMessage.getLocatorSignatures(), numberRequested);
+		} catch (DataException e) {
+			LOGGER.error(String.format("Repository issue while sending block summaries from locator to peer %s", peer), e);
+		}
+
+		Message blockSummariesMessage = new BlockSummariesMessage(blockSummaries);
+		blockSummariesMessage.setId(message.getId());
+		if (!peer.sendMessage(blockSummariesMessage))
+			peer.disconnect("failed to send block summaries");
+	}
+
 	private void onNetworkGetSignaturesV2Message(Peer peer, Message message) {
 		GetSignaturesV2Message getSignaturesMessage = (GetSignaturesV2Message) message;
 		final byte[] parentSignature = getSignaturesMessage.getParentSignature();
@@ -1534,27 +1721,20 @@ public class Controller extends Thread {
 
 		List<OnlineAccountData> excludeAccounts = getOnlineAccountsMessage.getOnlineAccounts();
 
+		Map<ByteArray, Long> excludeTimestamps = new HashMap<>(excludeAccounts.size() * 2);
+		for (OnlineAccountData excludeAccountData : excludeAccounts)
+			excludeTimestamps.put(ByteArray.of(excludeAccountData.getPublicKey()), excludeAccountData.getTimestamp());
+
 		// Send online accounts info, excluding entries with matching timestamp & public key from excludeAccounts
 		List<OnlineAccountData> accountsToSend;
 		synchronized (this.onlineAccounts) {
 			accountsToSend = new ArrayList<>(this.onlineAccounts);
 		}
 
-		Iterator<OnlineAccountData> iterator = accountsToSend.iterator();
-
-		SEND_ITERATOR:
-		while (iterator.hasNext()) {
-			OnlineAccountData onlineAccountData = iterator.next();
-
-			for (int i = 0; i < excludeAccounts.size(); ++i) {
-				OnlineAccountData excludeAccountData = excludeAccounts.get(i);
-
-				if (onlineAccountData.getTimestamp() == excludeAccountData.getTimestamp() && Arrays.equals(onlineAccountData.getPublicKey(), excludeAccountData.getPublicKey())) {
-					iterator.remove();
-					continue SEND_ITERATOR;
-				}
-			}
-		}
+		accountsToSend.removeIf(onlineAccountData -> {
+			Long excludeTimestamp = excludeTimestamps.get(ByteArray.of(onlineAccountData.getPublicKey()));
+			return excludeTimestamp != null && excludeTimestamp == onlineAccountData.getTimestamp();
+		});
 
 		Message onlineAccountsMessage = new OnlineAccountsMessage(accountsToSend);
 		peer.sendMessage(onlineAccountsMessage);
@@ -1576,8 +1756,103 @@ public class Controller extends Thread {
 		}
 	}
 
+	private void onNetworkOnlineAccountIndexesMessage(Peer peer, Message message) {
+		OnlineAccountIndexesMessage onlineAccountIndexesMessage = (OnlineAccountIndexesMessage) message;
+
+		RewardShareIndex rewardShareIndex = this.getRewardShareIndex();
+		if (rewardShareIndex == null)
+			return;
+
+		List<OnlineAccountData> ourOnlineAccounts;
+		synchronized (this.onlineAccounts) {
+			ourOnlineAccounts = new ArrayList<>(this.onlineAccounts);
+		}
+
+		if (!Arrays.equals(onlineAccountIndexesMessage.getRewardSharesHash(), rewardShareIndex.getHash())) {
+			// Peer's reward-shares differ from ours so fall back to exchanging public keys
+			LOGGER.trace(() -> String.format("Reward-shares mismatch with %s - requesting online accounts by public key", peer));
+			peer.sendMessage(new GetOnlineAccountsMessage(ourOnlineAccounts));
+			return;
+		}
+
+		List<IndexedOnlineAccountData> missingOnlineAccounts = rewardShareIndex.getMissing(ourOnlineAccounts, onlineAccountIndexesMessage.getOnlineAccounts());
+		LOGGER.trace(() -> String.format("Requesting %d of %d online accounts from %s", missingOnlineAccounts.size(), onlineAccountIndexesMessage.getOnlineAccounts().size(), peer));
+
+		if (missingOnlineAccounts.isEmpty())
+			return;
+
+		peer.sendMessage(new GetOnlineAccountSignaturesMessage(rewardShareIndex.getHash(), missingOnlineAccounts));
+	}
+
+	private void onNetworkGetOnlineAccountSignaturesMessage(Peer peer, Message message) {
+		GetOnlineAccountSignaturesMessage getOnlineAccountSignaturesMessage = (GetOnlineAccountSignaturesMessage) message;
+
+		RewardShareIndex rewardShareIndex = this.getRewardShareIndex();
+		if (rewardShareIndex == null || !Arrays.equals(getOnlineAccountSignaturesMessage.getRewardSharesHash(), rewardShareIndex.getHash()))
+			return;
+
+		List<OnlineAccountData> ourOnlineAccounts;
+		synchronized (this.onlineAccounts) {
+			ourOnlineAccounts = new ArrayList<>(this.onlineAccounts);
+		}
+
+		List<IndexedOnlineAccountData> accountsToSend = rewardShareIndex.getRequested(ourOnlineAccounts, getOnlineAccountSignaturesMessage.getOnlineAccounts());
+
+		for (int i = 0; i < accountsToSend.size(); i += OnlineAccountSignaturesMessage.MAX_ACCOUNT_COUNT) {
+			List<IndexedOnlineAccountData> batch = accountsToSend.subList(i, Math.min(accountsToSend.size(), i + OnlineAccountSignaturesMessage.MAX_ACCOUNT_COUNT));
+
+			if (!peer.sendMessage(new OnlineAccountSignaturesMessage(rewardShareIndex.getHash(), batch)))
+				return;
+		}
+
+		LOGGER.trace(() -> String.format("Sent %d of %d requested online accounts to %s", accountsToSend.size(), getOnlineAccountSignaturesMessage.getOnlineAccounts().size(), peer));
+	}
+
+	private void onNetworkOnlineAccountSignaturesMessage(Peer peer, Message message) {
+		OnlineAccountSignaturesMessage onlineAccountSignaturesMessage = (OnlineAccountSignaturesMessage) message;
+
+		List<IndexedOnlineAccountData> peersOnlineAccounts = onlineAccountSignaturesMessage.getOnlineAccounts();
+		LOGGER.trace(() -> String.format("Received %d indexed online accounts from %s", peersOnlineAccounts.size(), peer));
+
+		RewardShareIndex rewardShareIndex = this.getRewardShareIndex();
+		if (rewardShareIndex == null || !Arrays.equals(onlineAccountSignaturesMessage.getRewardSharesHash(), rewardShareIndex.getHash()))
+			return;
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			for (IndexedOnlineAccountData indexedOnlineAccountData : peersOnlineAccounts) {
+				OnlineAccountData onlineAccountData = rewardShareIndex.fromIndexed(indexedOnlineAccountData);
+
+				if (onlineAccountData != null)
+					this.verifyAndAddAccount(repository, onlineAccountData);
+			}
+		} catch (DataException e) {
+			LOGGER.error(String.format("Repository issue while verifying online accounts from peer %s", peer), e);
+		}
+	}
+
 	// Utilities
 
+	/** Returns reward-share indexes as of current chain tip, rebuilding if chain tip has changed, or null if unavailable. */
+	private RewardShareIndex getRewardShareIndex() {
+		BlockData chainTip = this.getChainTip();
+		if (chainTip == null)
+			return null;
+
+		RewardShareIndex rewardShareIndex = this.rewardShareIndex;
+		if (rewardShareIndex != null && Arrays.equals(rewardShareIndex.getBlockSignature(), chainTip.getSignature()))
+			return rewardShareIndex;
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			rewardShareIndex = RewardShareIndex.fromRepository(repository, chainTip.getSignature());
+		} catch (DataException e) {
+			LOGGER.warn(String.format("Repository issue trying to fetch reward-share indexes: %s", e.getMessage()));
+			return null;
+		}
+
+		this.rewardShareIndex = rewardShareIndex;
+		return rewardShareIndex;
+	}
+
 	private void verifyAndAddAccount(Repository repository, OnlineAccountData onlineAccountData) throws DataException {
 		final Long now = NTP.getTime();
 		if (now == null)
@@ -1687,11 +1962,28 @@ public class Controller extends Thread {
 
 		// Request data from other peers?
 		if ((this.onlineAccountsTasksTimestamp % ONLINE_ACCOUNTS_BROADCAST_INTERVAL) < ONLINE_ACCOUNTS_TASKS_INTERVAL) {
-			Message message;
+			List<OnlineAccountData> ourOnlineAccounts;
 			synchronized (this.onlineAccounts) {
-				message = new GetOnlineAccountsMessage(this.onlineAccounts);
+				ourOnlineAccounts = new ArrayList<>(this.onlineAccounts);
+			}
+
+			Message message = new GetOnlineAccountsMessage(ourOnlineAccounts);
+
+			// Newer peers are sent just reward-share indexes and timestamps, and request signatures they lack
+			RewardShareIndex rewardShareIndex = this.getRewardShareIndex();
+			if (rewardShareIndex == null) {
+				Network.getInstance().broadcast(peer -> message);
+			} else {
+				List<IndexedOnlineAccountData> indexedOnlineAccounts = rewardShareIndex.toIndexed(ourOnlineAccounts, false);
+				if (indexedOnlineAccounts.size() > OnlineAccountIndexesMessage.MAX_ACCOUNT_COUNT)
+					indexedOnlineAccounts = indexedOnlineAccounts.subList(0, OnlineAccountIndexesMessage.MAX_ACCOUNT_COUNT);
+
+				Message indexesMessage = new OnlineAccountIndexesMessage(rewardShareIndex.getHash(), indexedOnlineAccounts);
+
+				Network.getInstance().broadcast(peer -> peer.getPeersVersion() != null && peer.getPeersVersion() >= PEER_VERSION_ONLINE_ACCOUNT_INDEXES
+						? indexesMessage
+						: message);
 			}
-			Network.getInstance().broadcast(peer -> message);
 		}
 
 		// Refresh our online accounts signatures?
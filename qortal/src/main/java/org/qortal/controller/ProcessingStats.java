@@ -0,0 +1,91 @@
+package org.qortal.controller;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+
+import org.qortal.utils.TimingHistogram;
+
+/**
+ * Timings of block validation/processing/orphaning phases, and of slow repository queries,
+ * so operators can see where time goes without attaching a profiler.
+ * <p>
+ * Phases are named by class and method, e.g. <tt>Block.process.transactions</tt>.
+ * Slow queries are only recorded if <tt>slowQueryThreshold</tt> is set, and are keyed by SQL.
+ */
+public class ProcessingStats {
+
+	/** Maximum number of distinct slow SQL statements tracked, in case SQL contains literal values */
+	private static final int MAX_SLOW_QUERIES = 500;
+	/** Slow queries beyond the above limit are recorded under this key */
+	private static final String OTHER_SLOW_QUERIES = "(other)";
+
+	@XmlAccessorType(XmlAccessType.FIELD)
+	public static class StatsSnapshot {
+		/** Sorted by phase name */
+		public List<TimingHistogram.StatsSnapshot> phases;
+		/** Sorted by total time, longest first */
+		public List<TimingHistogram.StatsSnapshot> slowQueries;
+
+		public StatsSnapshot() {
+		}
+	}
+
+	private static final ProcessingStats instance = new ProcessingStats();
+
+	private final Map<String, TimingHistogram> phaseTimings = new ConcurrentHashMap<>();
+	private final Map<String, TimingHistogram> slowQueryTimings = new ConcurrentHashMap<>();
+
+	private ProcessingStats() {
+	}
+
+	public static ProcessingStats getInstance() {
+		return instance;
+	}
+
+	/** Records time since <tt>startNanos</tt>, as returned by {@link System#nanoTime()}, against <tt>phase</tt>. */
+	public static void recordPhase(String phase, long startNanos) {
+		long durationNanos = System.nanoTime() - startNanos;
+
+		instance.phaseTimings.computeIfAbsent(phase, key -> new TimingHistogram()).record(durationNanos);
+	}
+
+	public static void recordSlowQuery(String sql, long queryMillis) {
+		TimingHistogram histogram = instance.slowQueryTimings.get(sql);
+
+		if (histogram == null) {
+			String key = instance.slowQueryTimings.size() < MAX_SLOW_QUERIES ? sql : OTHER_SLOW_QUERIES;
+			histogram = instance.slowQueryTimings.computeIfAbsent(key, k -> new TimingHistogram());
+		}
+
+		histogram.recordMillis(queryMillis);
+	}
+
+	public StatsSnapshot getStatsSnapshot() {
+		StatsSnapshot snapshot = new StatsSnapshot();
+
+		snapshot.phases = this.phaseTimings.entrySet().stream()
+				.map(entry -> entry.getValue().getStatsSnapshot(entry.getKey()))
+				.sorted(Comparator.comparing(phase -> phase.name))
+				.collect(Collectors.toList());
+
+		snapshot.slowQueries = this.slowQueryTimings.entrySet().stream()
+				.map(entry -> entry.getValue().getStatsSnapshot(entry.getKey()))
+				.sorted(Comparator.comparingLong((TimingHistogram.StatsSnapshot query) -> query.totalMillis).reversed())
+				.collect(Collectors.toList());
+
+		return snapshot;
+	}
+
+	/** Discards all timings, e.g. to measure afresh after a configuration change. */
+	public void reset() {
+		this.phaseTimings.clear();
+		this.slowQueryTimings.clear();
+	}
+
+}
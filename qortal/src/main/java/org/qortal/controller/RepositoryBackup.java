@@ -0,0 +1,205 @@
+package org.qortal.controller;
+
+import java.awt.TrayIcon.MessageType;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.qortal.api.model.BackupStatus;
+import org.qortal.globalization.Translator;
+import org.qortal.gui.SysTray;
+import org.qortal.repository.BackupProgress;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryManager;
+import org.qortal.settings.Settings;
+import org.qortal.utils.DaemonThreadFactory;
+
+/**
+ * Performs repository backups on its own thread, either periodically or on request.
+ * <p>
+ * Backups don't block repository writes, so synchronization, minting, etc. can continue while backup is in progress.
+ * At most one backup runs at a time.
+ */
+public class RepositoryBackup {
+
+	private static final Logger LOGGER = LogManager.getLogger(RepositoryBackup.class);
+
+	private static RepositoryBackup instance;
+
+	private final ScheduledExecutorService backupExecutor = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("Repository backup"));
+	private ScheduledFuture<?> scheduledBackup;
+
+	/** Whether a backup is queued or in progress. Backups share a staging directory so must not overlap. */
+	private final AtomicBoolean isRunning = new AtomicBoolean(false);
+	/** Notified when <tt>isRunning</tt> is cleared */
+	private final Object finishedLock = new Object();
+	private volatile BackupProgress backupProgress;
+	private volatile Long startedTimestamp;
+	private volatile Long lastSuccessTimestamp;
+	private volatile Long lastDuration;
+	private volatile String lastError;
+
+	private RepositoryBackup() {
+	}
+
+	public static synchronized RepositoryBackup getInstance() {
+		if (instance == null)
+			instance = new RepositoryBackup();
+
+		return instance;
+	}
+
+	/** Starts periodic backups, if enabled by settings. */
+	public synchronized void start() {
+		final long interval = Settings.getInstance().getRepositoryBackupInterval();
+		if (interval <= 0)
+			return;
+
+		this.scheduledBackup = this.backupExecutor.scheduleWithFixedDelay(() -> {
+			// Skip if requested backup is already queued or running
+			if (this.isRunning.compareAndSet(false, true))
+				this.backup(true);
+		}, interval, interval, TimeUnit.MILLISECONDS);
+	}
+
+	public void shutdown() {
+		// Wake anyone waiting for a backup that will now never run
+		this.backupExecutor.shutdownNow().forEach(task -> ((Future<?>) task).cancel(false));
+		this.setFinished();
+
+		try {
+			this.backupExecutor.awaitTermination(5L, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			// We were interrupted while waiting for backup to stop
+		}
+	}
+
+	/**
+	 * Requests backup as soon as possible, without waiting for it to complete.
+	 *
+	 * @return false if a backup is already in progress, or backups are shutting down
+	 */
+	public boolean requestBackup(boolean quick) {
+		if (!this.isRunning.compareAndSet(false, true))
+			return false;
+
+		try {
+			this.backupExecutor.execute(() -> this.backup(quick));
+		} catch (RejectedExecutionException e) {
+			this.setFinished();
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Performs backup and waits for it to complete.
+	 * <p>
+	 * If a backup is already queued or in progress, waits for that to finish first, then performs a new backup.
+	 *
+	 * @return true if backup succeeded
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public boolean backupAndWait(boolean quick) throws InterruptedException {
+		synchronized (this.finishedLock) {
+			while (!this.isRunning.compareAndSet(false, true))
+				this.finishedLock.wait();
+		}
+
+		Future<Boolean> backupFuture;
+		try {
+			backupFuture = this.backupExecutor.submit(() -> this.backup(quick));
+		} catch (RejectedExecutionException e) {
+			this.setFinished();
+			return false;
+		}
+
+		try {
+			return backupFuture.get();
+		} catch (ExecutionException | CancellationException e) {
+			return false;
+		}
+	}
+
+	public BackupStatus getStatus() {
+		BackupStatus status = new BackupStatus();
+
+		status.isRunning = this.isRunning.get();
+		status.startedTimestamp = this.startedTimestamp;
+		status.lastSuccessTimestamp = this.lastSuccessTimestamp;
+		status.lastDuration = this.lastDuration;
+		status.lastError = this.lastError;
+
+		BackupProgress backupProgress = this.backupProgress;
+		if (status.isRunning && backupProgress != null) {
+			status.phase = backupProgress.getPhase();
+
+			if (status.phase == BackupProgress.Phase.COPYING) {
+				status.bytesCopied = backupProgress.getBytesCopied();
+				status.bytesExpected = backupProgress.getBytesExpected();
+			}
+		}
+
+		ScheduledFuture<?> scheduledBackup;
+		synchronized (this) {
+			scheduledBackup = this.scheduledBackup;
+		}
+
+		if (scheduledBackup != null && !scheduledBackup.isDone())
+			status.nextScheduledTimestamp = System.currentTimeMillis() + Math.max(0L, scheduledBackup.getDelay(TimeUnit.MILLISECONDS));
+
+		return status;
+	}
+
+	/** Performs backup, returning whether it succeeded. Caller must have set <tt>isRunning</tt>. */
+	private boolean backup(boolean quick) {
+		final long startTime = System.currentTimeMillis();
+		this.startedTimestamp = startTime;
+		this.backupProgress = new BackupProgress();
+
+		if (Settings.getInstance().getShowBackupNotification())
+			SysTray.getInstance().showMessage(Translator.INSTANCE.translate("SysTray", "DB_BACKUP"),
+					Translator.INSTANCE.translate("SysTray", "CREATING_BACKUP_OF_DB_FILES"),
+					MessageType.INFO);
+
+		LOGGER.info("Starting repository backup");
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			repository.backup(quick, this.backupProgress);
+
+			this.lastSuccessTimestamp = startTime;
+			this.lastError = null;
+
+			LOGGER.info(() -> String.format("Repository backup took %dms", System.currentTimeMillis() - startTime));
+			return true;
+		} catch (DataException e) {
+			this.lastError = e.getMessage();
+
+			// Backup is best-effort so don't complain too much
+			LOGGER.warn(String.format("Repository backup failed: %s", e.getMessage()));
+			return false;
+		} finally {
+			this.lastDuration = System.currentTimeMillis() - startTime;
+			this.backupProgress = null;
+			this.setFinished();
+		}
+	}
+
+	private void setFinished() {
+		synchronized (this.finishedLock) {
+			this.isRunning.set(false);
+			this.finishedLock.notifyAll();
+		}
+	}
+
+}
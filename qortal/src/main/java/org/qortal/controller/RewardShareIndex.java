@@ -0,0 +1,149 @@
+package org.qortal.controller;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.qortal.crypto.Crypto;
+import org.qortal.data.network.IndexedOnlineAccountData;
+import org.qortal.data.network.OnlineAccountData;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.utils.ByteArray;
+
+/**
+ * Mapping between reward-share public keys and reward-share indexes, as used by blocks' online accounts,
+ * for exchanging online accounts with peers without sending public keys.
+ * <p>
+ * Peers can only use each other's indexes if they have the same reward-shares,
+ * which is checked by comparing {@link #getHash()}.
+ */
+public class RewardShareIndex {
+
+	/** Signature of block that was chain tip when index was built, or null */
+	private final byte[] blockSignature;
+	/** Reward-share public keys, in index order */
+	private final List<byte[]> publicKeys;
+	private final Map<ByteArray, Integer> indexesByPublicKey;
+	private final byte[] hash;
+
+	public RewardShareIndex(byte[] blockSignature, List<byte[]> publicKeys) {
+		this.blockSignature = blockSignature;
+		this.publicKeys = publicKeys;
+
+		this.indexesByPublicKey = new HashMap<>(publicKeys.size() * 2);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(publicKeys.size() * 32);
+
+		try {
+			for (int i = 0; i < publicKeys.size(); ++i) {
+				this.indexesByPublicKey.put(ByteArray.of(publicKeys.get(i)), i);
+				bytes.write(publicKeys.get(i));
+			}
+		} catch (IOException e) {
+			// Not possible with ByteArrayOutputStream
+			throw new IllegalStateException(e);
+		}
+
+		this.hash = Crypto.digest(bytes.toByteArray());
+	}
+
+	public static RewardShareIndex fromRepository(Repository repository, byte[] blockSignature) throws DataException {
+		return new RewardShareIndex(blockSignature, repository.getAccountRepository().getRewardSharePublicKeys());
+	}
+
+	public byte[] getBlockSignature() {
+		return this.blockSignature;
+	}
+
+	public int size() {
+		return this.publicKeys.size();
+	}
+
+	/** Returns digest of all reward-share public keys, in index order. */
+	public byte[] getHash() {
+		return this.hash;
+	}
+
+	/** Returns reward-share index for public key, or null if not a reward-share. */
+	public Integer getIndex(byte[] publicKey) {
+		return this.indexesByPublicKey.get(ByteArray.of(publicKey));
+	}
+
+	/** Returns reward-share public key for index, or null if index out of range. */
+	public byte[] getPublicKey(int index) {
+		if (index < 0 || index >= this.publicKeys.size())
+			return null;
+
+		return this.publicKeys.get(index);
+	}
+
+	/** Converts online accounts to indexed form, skipping any that aren't known reward-shares. */
+	public List<IndexedOnlineAccountData> toIndexed(List<OnlineAccountData> onlineAccounts, boolean includeSignatures) {
+		List<IndexedOnlineAccountData> indexedOnlineAccounts = new ArrayList<>(onlineAccounts.size());
+
+		for (OnlineAccountData onlineAccountData : onlineAccounts) {
+			Integer index = this.getIndex(onlineAccountData.getPublicKey());
+			if (index == null)
+				continue;
+
+			byte[] signature = includeSignatures ? onlineAccountData.getSignature() : null;
+			indexedOnlineAccounts.add(new IndexedOnlineAccountData(onlineAccountData.getTimestamp(), index, signature));
+		}
+
+		return indexedOnlineAccounts;
+	}
+
+	/** Converts indexed online account back to full form, or returns null if index out of range. */
+	public OnlineAccountData fromIndexed(IndexedOnlineAccountData indexedOnlineAccountData) {
+		byte[] publicKey = this.getPublicKey(indexedOnlineAccountData.getIndex());
+		if (publicKey == null)
+			return null;
+
+		return new OnlineAccountData(indexedOnlineAccountData.getTimestamp(), indexedOnlineAccountData.getSignature(), publicKey);
+	}
+
+	/** Returns peer's online accounts that are newer than ours, i.e. the entries we should request. */
+	public List<IndexedOnlineAccountData> getMissing(List<OnlineAccountData> ourOnlineAccounts, List<IndexedOnlineAccountData> peersOnlineAccounts) {
+		Map<Integer, Long> ourTimestamps = new HashMap<>(ourOnlineAccounts.size() * 2);
+		for (IndexedOnlineAccountData onlineAccountData : this.toIndexed(ourOnlineAccounts, false))
+			ourTimestamps.merge(onlineAccountData.getIndex(), onlineAccountData.getTimestamp(), Math::max);
+
+		List<IndexedOnlineAccountData> missingOnlineAccounts = new ArrayList<>();
+
+		for (IndexedOnlineAccountData onlineAccountData : peersOnlineAccounts) {
+			if (this.getPublicKey(onlineAccountData.getIndex()) == null)
+				continue;
+
+			Long ourTimestamp = ourTimestamps.get(onlineAccountData.getIndex());
+			if (ourTimestamp == null || ourTimestamp < onlineAccountData.getTimestamp())
+				missingOnlineAccounts.add(new IndexedOnlineAccountData(onlineAccountData.getTimestamp(), onlineAccountData.getIndex()));
+		}
+
+		return missingOnlineAccounts;
+	}
+
+	/** Returns our online accounts, with signatures, that match peer's requested index and timestamp. */
+	public List<IndexedOnlineAccountData> getRequested(List<OnlineAccountData> ourOnlineAccounts, List<IndexedOnlineAccountData> requestedOnlineAccounts) {
+		Map<Integer, List<IndexedOnlineAccountData>> ourOnlineAccountsByIndex = new HashMap<>(ourOnlineAccounts.size() * 2);
+		for (IndexedOnlineAccountData onlineAccountData : this.toIndexed(ourOnlineAccounts, true))
+			ourOnlineAccountsByIndex.computeIfAbsent(onlineAccountData.getIndex(), index -> new ArrayList<>(1)).add(onlineAccountData);
+
+		List<IndexedOnlineAccountData> requestedSignatures = new ArrayList<>();
+
+		for (IndexedOnlineAccountData requestedOnlineAccountData : requestedOnlineAccounts) {
+			List<IndexedOnlineAccountData> candidates = ourOnlineAccountsByIndex.get(requestedOnlineAccountData.getIndex());
+			if (candidates == null)
+				continue;
+
+			for (IndexedOnlineAccountData onlineAccountData : candidates)
+				if (onlineAccountData.getTimestamp() == requestedOnlineAccountData.getTimestamp())
+					requestedSignatures.add(onlineAccountData);
+		}
+
+		return requestedSignatures;
+	}
+
+}
@@ -3,9 +3,20 @@ package org.qortal.controller;
 import java.math.BigInteger;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
@@ -15,14 +26,18 @@ import org.qortal.account.Account;
 import org.qortal.account.PublicKeyAccount;
 import org.qortal.block.Block;
 import org.qortal.block.Block.ValidationResult;
+import org.qortal.crypto.Crypto;
 import org.qortal.data.block.BlockData;
 import org.qortal.data.block.BlockSummaryData;
 import org.qortal.data.network.PeerChainTipData;
 import org.qortal.data.transaction.RewardShareTransactionData;
 import org.qortal.data.transaction.TransactionData;
 import org.qortal.network.Peer;
+import org.qortal.network.message.BlockHeadersMessage;
+import org.qortal.network.message.BlockLocatorMessage;
 import org.qortal.network.message.BlockMessage;
 import org.qortal.network.message.BlockSummariesMessage;
+import org.qortal.network.message.GetBlockHeadersMessage;
 import org.qortal.network.message.GetBlockMessage;
 import org.qortal.network.message.GetBlockSummariesMessage;
 import org.qortal.network.message.GetSignaturesV2Message;
@@ -30,10 +45,16 @@ import org.qortal.network.message.Message;
 import org.qortal.network.message.SignaturesMessage;
 import org.qortal.network.message.Message.MessageType;
 import org.qortal.repository.DataException;
+import org.qortal.repository.RawBlockStore;
 import org.qortal.repository.Repository;
 import org.qortal.repository.RepositoryManager;
 import org.qortal.transaction.Transaction;
+import org.qortal.transaction.Transaction.TransactionType;
+import org.qortal.transform.block.BlockTransformer;
 import org.qortal.utils.Base58;
+import org.qortal.utils.ByteArray;
+import org.qortal.utils.DaemonThreadFactory;
+import org.qortal.utils.Pair;
 
 public class Synchronizer {
 
@@ -43,9 +64,30 @@ public class Synchronizer {
 	private static final int MAXIMUM_BLOCK_STEP = 500;
 	private static final int MAXIMUM_COMMON_DELTA = 240; // XXX move to Settings?
 	private static final int SYNC_BATCH_SIZE = 200;
+	/** Maximum number of fetched blocks waiting to be applied, while their signatures are verified in background */
+	private static final int MAXIMUM_BLOCKS_AHEAD = 16;
+	private static final int SIGNATURE_VERIFIER_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
+	/** Peers from this version onwards can send minter-signed block headers */
+	private static final long PEER_VERSION_BLOCK_HEADERS = 0x0100040001L;
+	/** Peers from this version onwards can find common block from a block locator */
+	private static final long PEER_VERSION_BLOCK_LOCATOR = 0x0100040001L;
+	/** Number of consecutive block signatures, back from our chain tip, before block locator's steps start doubling */
+	private static final int BLOCK_LOCATOR_DENSE_COUNT = 10;
+	/** Number of our block summaries, back from our chain tip, to keep for comparing chain weights */
+	private static final int MAXIMUM_CACHED_BLOCK_SUMMARIES = 1000;
 
 	private static Synchronizer instance;
 
+	/** Verifies fetched blocks' signatures, which don't depend on chain state, ahead of (single-threaded) block validation */
+	private final ExecutorService signatureVerifier = Executors.newFixedThreadPool(SIGNATURE_VERIFIER_THREADS, new DaemonThreadFactory("Signature verifier"));
+
+	/** Our block summaries, by height, for comparing chain weights with peers. Trimmed when blocks are orphaned. */
+	private final NavigableMap<Integer, BlockSummaryData> ourBlockSummaries = new TreeMap<>();
+
+	/** Minters' effective levels, by reward-share public key, only valid while our chain tip is <tt>minterLevelsChainTip</tt> */
+	private final Map<ByteArray, Integer> minterLevels = new HashMap<>();
+	private byte[] minterLevelsChainTip = null;
+
 	public enum SynchronizationResult {
 		OK, NOTHING_TO_DO, GENESIS_ONLY, NO_COMMON_BLOCK, TOO_DIVERGENT, NO_REPLY, INFERIOR_CHAIN, INVALID_DATA, NO_BLOCKCHAIN_LOCK, REPOSITORY_ISSUE, SHUTTING_DOWN;
 	}
@@ -127,6 +169,18 @@ public class Synchronizer {
 						return SynchronizationResult.NOTHING_TO_DO;
 					}
 
+					// If peer can send minter-signed block headers then check those before we compare chains or fetch any blocks
+					if (peer.getPeersVersion() != null && peer.getPeersVersion() >= PEER_VERSION_BLOCK_HEADERS) {
+						// Blocks on peer's fork are all needed, but when simply extending our chain we only fetch one batch
+						int numberOfHeaders = peerHeight - commonBlockHeight;
+						if (commonBlockHeight == ourInitialHeight)
+							numberOfHeaders = Math.min(numberOfHeaders, SYNC_BATCH_SIZE);
+
+						SynchronizationResult headersResult = fetchBlockHeaders(repository, peer, commonBlockData, numberOfHeaders, peerBlockSummaries);
+						if (headersResult != SynchronizationResult.OK)
+							return headersResult;
+					}
+
 					// Unless we're doing a forced sync, we might need to compare blocks after common block
 					if (!force && ourInitialHeight > commonBlockHeight) {
 						SynchronizationResult chainCompareResult = compareChains(repository, commonBlockData, ourLatestBlockData, peer, peerHeight, peerBlockSummaries);
@@ -176,6 +230,19 @@ public class Synchronizer {
 	 * @throws InterruptedException
 	 */
 	public SynchronizationResult fetchSummariesFromCommonBlock(Repository repository, Peer peer, int ourHeight, boolean force, List<BlockSummaryData> blockSummariesFromCommon) throws DataException, InterruptedException {
+		// Peer can find common block in one round-trip
+		if (peer.getPeersVersion() != null && peer.getPeersVersion() >= PEER_VERSION_BLOCK_LOCATOR)
+			return fetchSummariesFromBlockLocator(repository, peer, ourHeight, force, blockSummariesFromCommon);
+
+		return fetchSummariesBySteppedSearch(repository, peer, ourHeight, force, blockSummariesFromCommon);
+	}
+
+	/**
+	 * Fills <tt>blockSummariesFromCommon</tt> with peer's block summaries, starting with common block,
+	 * by asking for summaries after our blocks at exponentially increasing steps back from our chain tip.
+	 */
+	private SynchronizationResult fetchSummariesBySteppedSearch(Repository repository, Peer peer, int ourHeight, boolean force,
+			List<BlockSummaryData> blockSummariesFromCommon) throws DataException, InterruptedException {
 		// Start by asking for a few recent block hashes as this will cover a majority of reorgs
 		// Failing that, back off exponentially
 		int step = INITIAL_BLOCK_STEP;
@@ -240,7 +307,92 @@ public class Synchronizer {
 		blockSummariesFromCommon.add(0, testBlockSummary);
 		blockSummariesFromCommon.addAll(blockSummariesBatch);
 
-		// Trim summaries so that first summary is common block.
+		trimToCommonBlock(repository, blockSummariesFromCommon);
+
+		return SynchronizationResult.OK;
+	}
+
+	/**
+	 * Fills <tt>blockSummariesFromCommon</tt> with peer's block summaries, starting with common block, using block locator.
+	 * <p>
+	 * As block locator is sparse, peer might also have some of our blocks after the one it finds,
+	 * so we carry on fetching summaries until we reach a block we don't have.
+	 */
+	private SynchronizationResult fetchSummariesFromBlockLocator(Repository repository, Peer peer, int ourHeight, boolean force,
+			List<BlockSummaryData> blockSummariesFromCommon) throws DataException, InterruptedException {
+		List<byte[]> locatorSignatures = this.buildBlockLocator(repository, ourHeight);
+
+		LOGGER.trace(String.format("Requesting common block using locator of %d signatures", locatorSignatures.size()));
+		List<BlockSummaryData> blockSummariesBatch = this.getBlockSummaries(peer, locatorSignatures, INITIAL_BLOCK_STEP);
+
+		if (blockSummariesBatch == null) {
+			// Peer might not understand block locator after all, so fall back to stepped search
+			LOGGER.debug(String.format("Peer %s didn't respond to block locator - falling back to stepped search", peer));
+			return fetchSummariesBySteppedSearch(repository, peer, ourHeight, force, blockSummariesFromCommon);
+		}
+
+		// Our locator always includes genesis block
+		if (blockSummariesBatch.isEmpty()) {
+			LOGGER.info(String.format("Failure to find common block with peer %s", peer));
+			return SynchronizationResult.NO_COMMON_BLOCK;
+		}
+
+		// Peer's common block must be one of ours, at the same height
+		BlockSummaryData commonBlockSummary = blockSummariesBatch.get(0);
+		if (locatorSignatures.stream().noneMatch(signature -> Arrays.equals(signature, commonBlockSummary.getSignature()))
+				|| repository.getBlockRepository().getHeightFromSignature(commonBlockSummary.getSignature()) != commonBlockSummary.getHeight()) {
+			LOGGER.info(String.format("Peer %s responded with invalid common block", peer));
+			return SynchronizationResult.INVALID_DATA;
+		}
+
+		int step = INITIAL_BLOCK_STEP;
+		while (true) {
+			if (Controller.isStopping())
+				return SynchronizationResult.SHUTTING_DOWN;
+
+			// Check peer sent consecutive heights
+			int expectedHeight = blockSummariesFromCommon.isEmpty() ? commonBlockSummary.getHeight() : blockSummariesFromCommon.get(blockSummariesFromCommon.size() - 1).getHeight() + 1;
+			for (BlockSummaryData blockSummary : blockSummariesBatch)
+				if (blockSummary.getHeight() != expectedHeight++) {
+					LOGGER.info(String.format("Peer %s responded with invalid block summary for height %d, sig %.8s", peer,
+							expectedHeight - 1, Base58.encode(blockSummary.getSignature())));
+					return SynchronizationResult.INVALID_DATA;
+				}
+
+			blockSummariesFromCommon.addAll(blockSummariesBatch);
+
+			BlockSummaryData lastBlockSummary = blockSummariesFromCommon.get(blockSummariesFromCommon.size() - 1);
+
+			// Stop if peer has no more blocks, or we've reached a block we don't have
+			if (blockSummariesBatch.isEmpty() || lastBlockSummary.getHeight() >= ourHeight
+					|| !repository.getBlockRepository().exists(lastBlockSummary.getSignature()))
+				break;
+
+			step <<= 1;
+			step = Math.min(step, MAXIMUM_BLOCK_STEP);
+
+			LOGGER.trace(String.format("Requesting %d summar%s after height %d", step, (step != 1 ? "ies": "y"), lastBlockSummary.getHeight()));
+			blockSummariesBatch = this.getBlockSummaries(peer, lastBlockSummary.getSignature(), step);
+
+			if (blockSummariesBatch == null) {
+				LOGGER.info(String.format("Error while trying to find common block with peer %s", peer));
+				return SynchronizationResult.NO_REPLY;
+			}
+		}
+
+		trimToCommonBlock(repository, blockSummariesFromCommon);
+
+		// If common block is too far behind us then we're on massively different forks so give up.
+		if (!force && blockSummariesFromCommon.get(0).getHeight() < ourHeight - MAXIMUM_COMMON_DELTA) {
+			LOGGER.info(String.format("Blockchain too divergent with peer %s", peer));
+			return SynchronizationResult.TOO_DIVERGENT;
+		}
+
+		return SynchronizationResult.OK;
+	}
+
+	/** Trims block summaries so that first summary is the last one we also have, i.e. common block. */
+	private static void trimToCommonBlock(Repository repository, List<BlockSummaryData> blockSummariesFromCommon) throws DataException {
 		// Currently we work forward from common block until we hit a block we don't have
 		// TODO: rewrite as modified binary search!
 		int i;
@@ -250,10 +402,137 @@ public class Synchronizer {
 
 		// Note: index i - 1 isn't cleared: List.subList is fromIndex inclusive to toIndex exclusive
 		blockSummariesFromCommon.subList(0, i - 1).clear();
+	}
+
+	/**
+	 * Returns block locator: our block signatures, back from <tt>height</tt>, dense near <tt>height</tt>
+	 * then exponentially sparser, finishing with genesis block.
+	 */
+	public List<byte[]> buildBlockLocator(Repository repository, int height) throws DataException {
+		List<byte[]> locatorSignatures = new ArrayList<>();
+
+		int step = 1;
+		while (height > 1) {
+			locatorSignatures.add(repository.getBlockRepository().fromHeight(height).getSignature());
+
+			if (locatorSignatures.size() >= BLOCK_LOCATOR_DENSE_COUNT)
+				step <<= 1;
+
+			height -= step;
+		}
+
+		locatorSignatures.add(repository.getBlockRepository().fromHeight(1).getSignature());
+
+		return locatorSignatures;
+	}
+
+	/**
+	 * Returns our block summaries, for responding to peer's block locator.
+	 * <p>
+	 * First summary is the highest block, from <tt>locatorSignatures</tt>, that we also have,
+	 * followed by up to <tt>numberRequested</tt> of our blocks after that.
+	 *
+	 * @return block summaries, or empty list if we have none of locator's blocks
+	 */
+	public List<BlockSummaryData> getBlockSummariesFromLocator(Repository repository, List<byte[]> locatorSignatures, int numberRequested) throws DataException {
+		int commonBlockHeight = 0;
+
+		for (byte[] locatorSignature : locatorSignatures)
+			commonBlockHeight = Math.max(commonBlockHeight, repository.getBlockRepository().getHeightFromSignature(locatorSignature));
+
+		if (commonBlockHeight == 0)
+			return new ArrayList<>();
+
+		return repository.getBlockRepository().getBlockSummaries(commonBlockHeight, commonBlockHeight + numberRequested);
+	}
+
+	/**
+	 * Fetches peer's block headers after common block, replacing <tt>peerBlockSummaries</tt> with summaries of validated headers.
+	 * <p>
+	 * Headers carry minter signatures and encoded online accounts, so block summaries used for chain weight can't be forged,
+	 * and bodies are only downloaded for blocks whose headers link back to common block.
+	 * <p>
+	 * If peer doesn't reply to a request for headers, <tt>peerBlockSummaries</tt> are left as they are,
+	 * so synchronization falls back to using block summaries and fetching blocks.
+	 */
+	private SynchronizationResult fetchBlockHeaders(Repository repository, Peer peer, BlockData commonBlockData, int numberOfHeaders,
+			List<BlockSummaryData> peerBlockSummaries) throws DataException, InterruptedException {
+		List<BlockData> peerBlockHeaders = new ArrayList<>();
+		byte[] previousSignature = commonBlockData.getSignature();
+
+		long beforeFetch = System.nanoTime();
+		while (peerBlockHeaders.size() < numberOfHeaders) {
+			if (Controller.isStopping())
+				return SynchronizationResult.SHUTTING_DOWN;
+
+			List<BlockData> moreBlockHeaders = this.getBlockHeaders(peer, previousSignature, numberOfHeaders - peerBlockHeaders.size());
+
+			if (moreBlockHeaders == null) {
+				LOGGER.debug(String.format("Peer %s didn't respond with block headers after height %d - falling back to block summaries", peer,
+						commonBlockData.getHeight() + peerBlockHeaders.size()));
+				return SynchronizationResult.OK;
+			}
+
+			if (moreBlockHeaders.isEmpty()) {
+				LOGGER.info(String.format("Peer %s failed to respond with block headers after height %d, sig %.8s", peer,
+						commonBlockData.getHeight() + peerBlockHeaders.size(), Base58.encode(previousSignature)));
+				return SynchronizationResult.NO_REPLY;
+			}
+
+			peerBlockHeaders.addAll(moreBlockHeaders);
+			previousSignature = peerBlockHeaders.get(peerBlockHeaders.size() - 1).getSignature();
+		}
+		ProcessingStats.recordPhase("Synchronizer.fetchHeaders", beforeFetch);
+
+		long beforeValidate = System.nanoTime();
+		if (!this.areBlockHeadersValid(commonBlockData, peerBlockHeaders)) {
+			LOGGER.info(String.format("Peer %s sent invalid block headers after height %d", peer, commonBlockData.getHeight()));
+			return SynchronizationResult.INVALID_DATA;
+		}
+		ProcessingStats.recordPhase("Synchronizer.validateHeaders", beforeValidate);
+
+		peerBlockSummaries.clear();
+		peerBlockHeaders.stream().map(BlockSummaryData::new).forEach(peerBlockSummaries::add);
 
 		return SynchronizationResult.OK;
 	}
 
+	/**
+	 * Returns whether block headers follow on from <tt>parentBlockData</tt>, and each other, and are signed by their minters.
+	 * <p>
+	 * Minter signatures cover parent's minter signature, minter's public key and encoded online accounts,
+	 * so these are checked without needing block bodies. Minter signatures are verified in parallel.
+	 */
+	public boolean areBlockHeadersValid(BlockData parentBlockData, List<BlockData> blockHeaders) throws InterruptedException {
+		List<Future<Boolean>> minterSignatureVerifications = new ArrayList<>();
+
+		for (BlockData blockHeader : blockHeaders) {
+			if (blockHeader.getHeight() != parentBlockData.getHeight() + 1
+					|| !Arrays.equals(blockHeader.getReference(), parentBlockData.getSignature())
+					|| blockHeader.getTimestamp() <= parentBlockData.getTimestamp())
+				return false;
+
+			byte[] encodedOnlineAccounts = blockHeader.getEncodedOnlineAccounts();
+			if (encodedOnlineAccounts == null || encodedOnlineAccounts.length % 4 != 0
+					|| BlockTransformer.decodeOnlineAccounts(encodedOnlineAccounts).size() != blockHeader.getOnlineAccountsCount())
+				return false;
+
+			byte[] bytesForMinterSignature = BlockTransformer.getBytesForMinterSignature(parentBlockData.getMinterSignature(),
+					blockHeader.getMinterPublicKey(), encodedOnlineAccounts);
+
+			minterSignatureVerifications.add(CompletableFuture.supplyAsync(() ->
+					Crypto.verify(blockHeader.getMinterPublicKey(), blockHeader.getMinterSignature(), bytesForMinterSignature), this.signatureVerifier));
+
+			parentBlockData = blockHeader;
+		}
+
+		for (Future<Boolean> minterSignatureVerification : minterSignatureVerifications)
+			if (!this.awaitSignatureVerification(minterSignatureVerification))
+				return false;
+
+		return true;
+	}
+
 	private SynchronizationResult compareChains(Repository repository, BlockData commonBlockData, BlockData ourLatestBlockData,
 			Peer peer, int peerHeight, List<BlockSummaryData> peerBlockSummaries) throws DataException, InterruptedException {
 		final int commonBlockHeight = commonBlockData.getHeight();
@@ -310,11 +589,19 @@ public class Synchronizer {
 			}
 
 			// Fetch our corresponding block summaries
-			List<BlockSummaryData> ourBlockSummaries = repository.getBlockRepository().getBlockSummaries(commonBlockHeight + 1, ourLatestBlockData.getHeight());
+			List<BlockSummaryData> ourBlockSummaries = getOurBlockSummaries(repository, commonBlockHeight + 1, ourLatestBlockData);
+
+			// Minter levels can change with any block, so cached levels are only reused while our chain tip is the same
+			synchronized (this.minterLevels) {
+				if (!Arrays.equals(this.minterLevelsChainTip, ourLatestBlockData.getSignature())) {
+					this.minterLevels.clear();
+					this.minterLevelsChainTip = ourLatestBlockData.getSignature();
+				}
 
-			// Populate minter account levels for both lists of block summaries
-			populateBlockSummariesMinterLevels(repository, ourBlockSummaries);
-			populateBlockSummariesMinterLevels(repository, peerBlockSummaries);
+				// Populate minter account levels for both lists of block summaries
+				populateBlockSummariesMinterLevels(repository, ourBlockSummaries);
+				populateBlockSummariesMinterLevels(repository, peerBlockSummaries);
+			}
 
 			final int mutualHeight = commonBlockHeight - 1 + Math.min(ourBlockSummaries.size(), peerBlockSummaries.size());
 
@@ -374,9 +661,12 @@ public class Synchronizer {
 		// Fetch blocks using signatures
 		LOGGER.debug(String.format("Fetching new blocks from peer %s", peer));
 		List<Block> peerBlocks = new ArrayList<>();
+		List<Future<Boolean>> signatureVerifications = new ArrayList<>();
 
 		for (byte[] blockSignature : peerBlockSignatures) {
+			long beforeFetch = System.nanoTime();
 			Block newBlock = this.fetchBlock(repository, peer, blockSignature);
+			ProcessingStats.recordPhase("Synchronizer.fetchBlock", beforeFetch);
 
 			if (newBlock == null) {
 				LOGGER.info(String.format("Peer %s failed to respond with block for height %d, sig %.8s", peer,
@@ -384,64 +674,90 @@ public class Synchronizer {
 				return SynchronizationResult.NO_REPLY;
 			}
 
-			if (!newBlock.isSignatureValid()) {
-				LOGGER.info(String.format("Peer %s sent block with invalid signature for height %d, sig %.8s", peer,
-						ourHeight, Base58.encode(blockSignature)));
-				return SynchronizationResult.INVALID_DATA;
-			}
-
 			// Transactions are transmitted without approval status so determine that now
 			for (Transaction transaction : newBlock.getTransactions())
 				transaction.setInitialApprovalStatus();
 
+			// Verify signatures in background while we fetch more blocks
+			signatureVerifications.add(this.verifySignatures(newBlock));
+
 			peerBlocks.add(newBlock);
 		}
 
+		// Check all signatures before we orphan any of our blocks
+		for (int i = 0; i < peerBlocks.size(); ++i) {
+			if (!this.awaitSignatureVerification(signatureVerifications.get(i))) {
+				LOGGER.info(String.format("Peer %s sent block with invalid signature for height %d, sig %.8s", peer,
+						commonBlockHeight + 1 + i, Base58.encode(peerBlocks.get(i).getSignature())));
+				return SynchronizationResult.INVALID_DATA;
+			}
+		}
+
 		// Unwind to common block (unless common block is our latest block)
 		LOGGER.debug(String.format("Orphaning blocks back to common block height %d, sig %.8s", commonBlockHeight, commonBlockSig58));
 
-		BlockData orphanBlockData = repository.getBlockRepository().fromHeight(ourHeight);
-		while (ourHeight > commonBlockHeight) {
-			if (Controller.isStopping())
-				return SynchronizationResult.SHUTTING_DOWN;
+		if (Controller.isStopping())
+			return SynchronizationResult.SHUTTING_DOWN;
 
-			Block block = new Block(repository, orphanBlockData);
-			block.orphan();
-
-			LOGGER.trace(String.format("Orphaned block height %d, sig %.8s", ourHeight, Base58.encode(orphanBlockData.getSignature())));
+		if (ourHeight > commonBlockHeight) {
+			// All blocks are orphaned in one repository transaction
+			long beforeOrphan = System.nanoTime();
+			int orphanedCount = Block.orphanBlocks(repository, commonBlockHeight);
 
 			repository.saveChanges();
+			ProcessingStats.recordPhase("Synchronizer.orphan", beforeOrphan);
+
+			LOGGER.trace(String.format("Orphaned %d block%s above height %d", orphanedCount, (orphanedCount != 1 ? "s" : ""), commonBlockHeight));
 
-			--ourHeight;
-			orphanBlockData = repository.getBlockRepository().fromHeight(ourHeight);
+			ourHeight = commonBlockHeight;
+			BlockData orphanBlockData = repository.getBlockRepository().fromHeight(ourHeight);
 
 			repository.discardChanges(); // clear transaction status to prevent deadlocks
-			Controller.getInstance().onOrphanedBlock(orphanBlockData);
+			Controller.getInstance().onOrphanedBlocks(orphanBlockData);
 		}
 
 		LOGGER.debug(String.format("Orphaned blocks back to height %d, sig %.8s - applying new blocks from peer %s", commonBlockHeight, commonBlockSig58, peer));
 
 		for (Block newBlock : peerBlocks) {
+			long beforePhase = System.nanoTime();
+			// Some transactions' signature checks depend on state left by preceding blocks
+			if (!newBlock.areStateDependentSignaturesValid()) {
+				LOGGER.info(String.format("Peer %s sent block with invalid transaction signature for height %d, sig %.8s", peer,
+						ourHeight + 1, Base58.encode(newBlock.getSignature())));
+				return SynchronizationResult.INVALID_DATA;
+			}
+
 			ValidationResult blockResult = newBlock.isValid();
 			if (blockResult != ValidationResult.OK) {
 				LOGGER.info(String.format("Peer %s sent invalid block for height %d, sig %.8s: %s", peer,
 						ourHeight, Base58.encode(newBlock.getSignature()), blockResult.name()));
 				return SynchronizationResult.INVALID_DATA;
 			}
+			ProcessingStats.recordPhase("Synchronizer.validate", beforePhase);
 
 			// Save transactions attached to this block
+			beforePhase = System.nanoTime();
 			for (Transaction transaction : newBlock.getTransactions()) {
 				TransactionData transactionData = transaction.getTransactionData();
 				repository.getTransactionRepository().save(transactionData);
 			}
+			ProcessingStats.recordPhase("Synchronizer.saveTransactions", beforePhase);
 
+			beforePhase = System.nanoTime();
 			newBlock.process();
+			ProcessingStats.recordPhase("Synchronizer.process", beforePhase);
 
 			LOGGER.trace(String.format("Processed block height %d, sig %.8s", newBlock.getBlockData().getHeight(), Base58.encode(newBlock.getBlockData().getSignature())));
 
+			beforePhase = System.nanoTime();
 			repository.saveChanges();
+			ProcessingStats.recordPhase("Synchronizer.saveChanges", beforePhase);
+
+			beforePhase = System.nanoTime();
+			RawBlockStore.onBlockProcessed(newBlock);
 
 			Controller.getInstance().onNewBlock(newBlock.getBlockData());
+			ProcessingStats.recordPhase("Synchronizer.onNewBlock", beforePhase);
 		}
 
 		return SynchronizationResult.OK;
@@ -463,74 +779,142 @@ public class Synchronizer {
 		// Convert any block summaries from above into signatures to request from peer
 		List<byte[]> peerBlockSignatures = peerBlockSummaries.stream().map(BlockSummaryData::getSignature).collect(Collectors.toList());
 
+		// Fetched blocks waiting to be applied, with their background signature verifications
+		Deque<Pair<Block, Future<Boolean>>> pendingBlocks = new ArrayDeque<>();
+		int fetchedHeight = ourHeight;
+
 		while (ourHeight < peerHeight && ourHeight < maxBatchHeight) {
 			if (Controller.isStopping())
 				return SynchronizationResult.SHUTTING_DOWN;
 
-			// Do we need more signatures?
-			if (peerBlockSignatures.isEmpty()) {
-				int numberRequested = maxBatchHeight - ourHeight;
-				LOGGER.trace(String.format("Requesting %d signature%s after height %d, sig %.8s",
-						numberRequested, (numberRequested != 1 ? "s": ""), ourHeight, Base58.encode(latestPeerSignature)));
+			// Fetch blocks ahead of applying them, so their signatures can be verified in background
+			while (fetchedHeight < peerHeight && fetchedHeight < maxBatchHeight && pendingBlocks.size() < MAXIMUM_BLOCKS_AHEAD) {
+				// Do we need more signatures?
+				if (peerBlockSignatures.isEmpty()) {
+					int numberRequested = maxBatchHeight - fetchedHeight;
+					LOGGER.trace(String.format("Requesting %d signature%s after height %d, sig %.8s",
+							numberRequested, (numberRequested != 1 ? "s": ""), fetchedHeight, Base58.encode(latestPeerSignature)));
 
-				peerBlockSignatures = this.getBlockSignatures(peer, latestPeerSignature, numberRequested);
+					peerBlockSignatures = this.getBlockSignatures(peer, latestPeerSignature, numberRequested);
 
-				if (peerBlockSignatures == null || peerBlockSignatures.isEmpty()) {
-					LOGGER.info(String.format("Peer %s failed to respond with more block signatures after height %d, sig %.8s", peer,
-							ourHeight, Base58.encode(latestPeerSignature)));
-					return SynchronizationResult.NO_REPLY;
+					if (peerBlockSignatures == null || peerBlockSignatures.isEmpty()) {
+						LOGGER.info(String.format("Peer %s failed to respond with more block signatures after height %d, sig %.8s", peer,
+								fetchedHeight, Base58.encode(latestPeerSignature)));
+						return SynchronizationResult.NO_REPLY;
+					}
+
+					LOGGER.trace(String.format("Received %s signature%s", peerBlockSignatures.size(), (peerBlockSignatures.size() != 1 ? "s" : "")));
 				}
 
-				LOGGER.trace(String.format("Received %s signature%s", peerBlockSignatures.size(), (peerBlockSignatures.size() != 1 ? "s" : "")));
-			}
+				latestPeerSignature = peerBlockSignatures.get(0);
+				peerBlockSignatures.remove(0);
+				++fetchedHeight;
 
-			latestPeerSignature = peerBlockSignatures.get(0);
-			peerBlockSignatures.remove(0);
-			++ourHeight;
+				long beforeFetch = System.nanoTime();
+				Block newBlock = this.fetchBlock(repository, peer, latestPeerSignature);
+				ProcessingStats.recordPhase("Synchronizer.fetchBlock", beforeFetch);
 
-			Block newBlock = this.fetchBlock(repository, peer, latestPeerSignature);
+				if (newBlock == null) {
+					LOGGER.info(String.format("Peer %s failed to respond with block for height %d, sig %.8s", peer,
+							fetchedHeight, Base58.encode(latestPeerSignature)));
+					return SynchronizationResult.NO_REPLY;
+				}
 
-			if (newBlock == null) {
-				LOGGER.info(String.format("Peer %s failed to respond with block for height %d, sig %.8s", peer,
-						ourHeight, Base58.encode(latestPeerSignature)));
-				return SynchronizationResult.NO_REPLY;
+				pendingBlocks.add(new Pair<>(newBlock, this.verifySignatures(newBlock)));
 			}
 
-			if (!newBlock.isSignatureValid()) {
+			Pair<Block, Future<Boolean>> pendingBlock = pendingBlocks.poll();
+			Block newBlock = pendingBlock.getA();
+			++ourHeight;
+
+			long beforePhase = System.nanoTime();
+			if (!this.awaitSignatureVerification(pendingBlock.getB())) {
 				LOGGER.info(String.format("Peer %s sent block with invalid signature for height %d, sig %.8s", peer,
-						ourHeight, Base58.encode(latestPeerSignature)));
+						ourHeight, Base58.encode(newBlock.getSignature())));
 				return SynchronizationResult.INVALID_DATA;
 			}
+			ProcessingStats.recordPhase("Synchronizer.awaitSignatures", beforePhase);
 
 			// Transactions are transmitted without approval status so determine that now
+			// (once previous blocks have been applied)
 			for (Transaction transaction : newBlock.getTransactions())
 				transaction.setInitialApprovalStatus();
 
+			beforePhase = System.nanoTime();
+			// Some transactions' signature checks depend on state left by preceding blocks
+			if (!newBlock.areStateDependentSignaturesValid()) {
+				LOGGER.info(String.format("Peer %s sent block with invalid transaction signature for height %d, sig %.8s", peer,
+						ourHeight, Base58.encode(newBlock.getSignature())));
+				return SynchronizationResult.INVALID_DATA;
+			}
+
 			ValidationResult blockResult = newBlock.isValid();
 			if (blockResult != ValidationResult.OK) {
 				LOGGER.info(String.format("Peer %s sent invalid block for height %d, sig %.8s: %s", peer,
-						ourHeight, Base58.encode(latestPeerSignature), blockResult.name()));
+						ourHeight, Base58.encode(newBlock.getSignature()), blockResult.name()));
 				return SynchronizationResult.INVALID_DATA;
 			}
+			ProcessingStats.recordPhase("Synchronizer.validate", beforePhase);
 
 			// Save transactions attached to this block
+			beforePhase = System.nanoTime();
 			for (Transaction transaction : newBlock.getTransactions()) {
 				TransactionData transactionData = transaction.getTransactionData();
 				repository.getTransactionRepository().save(transactionData);
 			}
+			ProcessingStats.recordPhase("Synchronizer.saveTransactions", beforePhase);
 
+			beforePhase = System.nanoTime();
 			newBlock.process();
+			ProcessingStats.recordPhase("Synchronizer.process", beforePhase);
 
 			LOGGER.trace(String.format("Processed block height %d, sig %.8s", newBlock.getBlockData().getHeight(), Base58.encode(newBlock.getBlockData().getSignature())));
 
+			beforePhase = System.nanoTime();
 			repository.saveChanges();
+			ProcessingStats.recordPhase("Synchronizer.saveChanges", beforePhase);
+
+			beforePhase = System.nanoTime();
+			RawBlockStore.onBlockProcessed(newBlock);
 
 			Controller.getInstance().onNewBlock(newBlock.getBlockData());
+			ProcessingStats.recordPhase("Synchronizer.onNewBlock", beforePhase);
 		}
 
 		return SynchronizationResult.OK;
 	}
 
+	/**
+	 * Starts verifying block's minter, transactions and individual transaction signatures in background.
+	 * <p>
+	 * Only checks that don't depend on repository state are performed, as the sync thread's repository session
+	 * isn't thread-safe and preceding blocks might not have been processed yet.
+	 * See {@link Block#areStateDependentSignaturesValid()} for the remaining checks.
+	 * <p>
+	 * Transactions' signatures are verified in parallel, with results remembered by each transaction,
+	 * so block's transactions signature, and later block validation, don't need to verify them again.
+	 */
+	private Future<Boolean> verifySignatures(Block block) throws DataException {
+		CompletableFuture<?>[] transactionVerifications = block.getTransactions().stream()
+				// AT transactions aren't signed, and aren't covered by block's transactions signature
+				.filter(transaction -> transaction.getTransactionData().getType() != TransactionType.AT)
+				.map(transaction -> CompletableFuture.supplyAsync(transaction::verifySignature, this.signatureVerifier))
+				.toArray(CompletableFuture<?>[]::new);
+
+		// Any transaction verification failures are picked up again by block's signature check
+		return CompletableFuture.allOf(transactionVerifications)
+				.handleAsync((result, e) -> block.isSignatureValid(), this.signatureVerifier);
+	}
+
+	private boolean awaitSignatureVerification(Future<Boolean> signatureVerification) throws InterruptedException {
+		try {
+			return signatureVerification.get();
+		} catch (ExecutionException e) {
+			LOGGER.debug(() -> String.format("Signature verification failed: %s", e.getCause().getMessage()));
+			return false;
+		}
+	}
+
 	private List<BlockSummaryData> getBlockSummaries(Peer peer, byte[] parentSignature, int numberRequested) throws InterruptedException {
 		Message getBlockSummariesMessage = new GetBlockSummariesMessage(parentSignature, numberRequested);
 
@@ -543,6 +927,30 @@ public class Synchronizer {
 		return blockSummariesMessage.getBlockSummaries();
 	}
 
+	private List<BlockSummaryData> getBlockSummaries(Peer peer, List<byte[]> locatorSignatures, int numberRequested) throws InterruptedException {
+		Message blockLocatorMessage = new BlockLocatorMessage(locatorSignatures, numberRequested);
+
+		Message message = peer.getResponse(blockLocatorMessage);
+		if (message == null || message.getType() != MessageType.BLOCK_SUMMARIES)
+			return null;
+
+		BlockSummariesMessage blockSummariesMessage = (BlockSummariesMessage) message;
+
+		return blockSummariesMessage.getBlockSummaries();
+	}
+
+	private List<BlockData> getBlockHeaders(Peer peer, byte[] parentSignature, int numberRequested) throws InterruptedException {
+		Message getBlockHeadersMessage = new GetBlockHeadersMessage(parentSignature, numberRequested);
+
+		Message message = peer.getResponse(getBlockHeadersMessage);
+		if (message == null || message.getType() != MessageType.BLOCK_HEADERS)
+			return null;
+
+		BlockHeadersMessage blockHeadersMessage = (BlockHeadersMessage) message;
+
+		return blockHeadersMessage.getBlockHeaders();
+	}
+
 	private List<byte[]> getBlockSignatures(Peer peer, byte[] parentSignature, int numberRequested) throws InterruptedException {
 		Message getSignaturesMessage = new GetSignaturesV2Message(parentSignature, numberRequested);
 
@@ -564,9 +972,46 @@ public class Synchronizer {
 
 		BlockMessage blockMessage = (BlockMessage) message;
 
+		// Peer must send the block we asked for, which might be one whose header we've already validated
+		if (!Arrays.equals(blockMessage.getBlockData().getSignature(), signature))
+			return null;
+
 		return new Block(repository, blockMessage.getBlockData(), blockMessage.getTransactions(), blockMessage.getAtStates());
 	}
 
+	/**
+	 * Returns our block summaries from <tt>firstHeight</tt> to our chain tip, using cached summaries where possible.
+	 * <p>
+	 * Returned summaries are copies, so callers can populate minter levels.
+	 */
+	private List<BlockSummaryData> getOurBlockSummaries(Repository repository, int firstHeight, BlockData ourLatestBlockData) throws DataException {
+		final int lastHeight = ourLatestBlockData.getHeight();
+
+		synchronized (this.ourBlockSummaries) {
+			// Cache must be for our current chain, in case blocks were orphaned without telling us
+			BlockSummaryData cachedChainTip = this.ourBlockSummaries.get(lastHeight);
+			if (cachedChainTip != null && !Arrays.equals(cachedChainTip.getSignature(), ourLatestBlockData.getSignature()))
+				this.ourBlockSummaries.clear();
+
+			this.ourBlockSummaries.tailMap(lastHeight, false).clear();
+			this.ourBlockSummaries.headMap(lastHeight - MAXIMUM_CACHED_BLOCK_SUMMARIES, true).clear();
+
+			NavigableMap<Integer, BlockSummaryData> cachedSummaries = this.ourBlockSummaries.subMap(firstHeight, true, lastHeight, true);
+			if (cachedSummaries.size() != lastHeight - firstHeight + 1)
+				for (BlockSummaryData blockSummary : repository.getBlockRepository().getBlockSummaries(firstHeight, lastHeight))
+					this.ourBlockSummaries.put(blockSummary.getHeight(), blockSummary);
+
+			return cachedSummaries.values().stream().map(BlockSummaryData::new).collect(Collectors.toList());
+		}
+	}
+
+	/** Called after our blocks above <tt>height</tt> have been orphaned. */
+	public void onBlocksOrphaned(int height) {
+		synchronized (this.ourBlockSummaries) {
+			this.ourBlockSummaries.tailMap(height, false).clear();
+		}
+	}
+
 	private void populateBlockSummariesMinterLevels(Repository repository, List<BlockSummaryData> blockSummaries) throws DataException {
 		final int firstBlockHeight = blockSummaries.get(0).getHeight();
 
@@ -574,7 +1019,17 @@ public class Synchronizer {
 			BlockSummaryData blockSummary = blockSummaries.get(i);
 
 			// Qortal: minter is always a reward-share, so find actual minter and get their effective minting level
+			ByteArray minterPublicKey = new ByteArray(blockSummary.getMinterPublicKey());
+			Integer cachedMinterLevel = this.minterLevels.get(minterPublicKey);
+			if (cachedMinterLevel != null) {
+				blockSummary.setMinterLevel(cachedMinterLevel);
+				continue;
+			}
+
 			int minterLevel = Account.getRewardShareEffectiveMintingLevel(repository, blockSummary.getMinterPublicKey());
+			if (minterLevel != 0)
+				this.minterLevels.put(minterPublicKey, minterLevel);
+
 			if (minterLevel == 0) {
 				// It looks like this block's minter's reward-share has been cancelled.
 				// So search for REWARD_SHARE transactions since common block to find missing minter info
@@ -1,6 +1,7 @@
 package org.qortal.controller.tradebot;
 
 import java.util.List;
+import java.util.Set;
 
 import org.qortal.api.model.crosschain.TradeBotCreateRequest;
 import org.qortal.crosschain.ACCT;
@@ -15,6 +16,14 @@ public interface AcctTradeBot {
 
 	public enum ResponseResult { OK, BALANCE_ISSUE, NETWORK_ISSUE, TRADE_ALREADY_EXISTS }
 
+	/**
+	 * Names of states that trade-bot entries never leave, i.e. redeemed or fully refunded.
+	 * <p>
+	 * Unlike {@link #getEndStates()}, this excludes refunding states, which still wait on foreign blockchain confirmations.
+	 * All ACCT trade-bots use these state names.
+	 */
+	public static final Set<String> FINAL_STATES = Set.of("ALICE_DONE", "BOB_DONE", "ALICE_REFUNDED", "BOB_REFUNDED");
+
 	/** Returns list of state names for trade-bot entries that have ended, e.g. redeemed, refunded or cancelled. */
 	public List<String> getEndStates();
 
@@ -25,6 +34,11 @@ public interface AcctTradeBot {
 
 	public boolean canDelete(Repository repository, TradeBotData tradeBotData);
 
+	/** Returns whether trade-bot entry could still change state, i.e. <tt>progress()</tt> isn't a no-op. */
+	public default boolean canProgress(TradeBotData tradeBotData) {
+		return !FINAL_STATES.contains(tradeBotData.getState());
+	}
+
 	public void progress(Repository repository, TradeBotData tradeBotData) throws DataException, ForeignBlockchainException;
 
 }
@@ -7,6 +7,14 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -14,6 +22,7 @@ import org.apache.logging.log4j.util.Supplier;
 import org.bitcoinj.core.ECKey;
 import org.qortal.account.PrivateKeyAccount;
 import org.qortal.api.model.crosschain.TradeBotCreateRequest;
+import org.qortal.api.model.crosschain.TradeBotProgressStats;
 import org.qortal.controller.Controller;
 import org.qortal.controller.tradebot.AcctTradeBot.ResponseResult;
 import org.qortal.crosschain.ACCT;
@@ -39,6 +48,7 @@ import org.qortal.transaction.PresenceTransaction;
 import org.qortal.transaction.PresenceTransaction.PresenceType;
 import org.qortal.transaction.Transaction.ValidationResult;
 import org.qortal.transform.transaction.TransactionTransformer;
+import org.qortal.utils.DaemonThreadFactory;
 import org.qortal.utils.NTP;
 
 import com.google.common.primitives.Longs;
@@ -85,6 +95,14 @@ public class TradeBot implements Listener {
 
 	private final Map<String, Long> presenceTimestampsByAtAddress = Collections.synchronizedMap(new HashMap<>());
 
+	/** Trades are progressed in parallel, but each individual trade is progressed by at most one thread at a time. */
+	private final ExecutorService progressExecutor = Executors.newFixedThreadPool(Settings.getInstance().getTradeBotProgressPoolSize(), new DaemonThreadFactory("TradeBot"));
+	/** AT addresses of trades currently queued or being progressed. */
+	private final Set<String> progressingAtAddresses = ConcurrentHashMap.newKeySet();
+	/** Per-trade locks, keyed by AT address, so a trade-bot entry isn't deleted while it's being progressed. */
+	private final Map<String, ReentrantLock> tradeLocksByAtAddress = new ConcurrentHashMap<>();
+	private final Map<String, TradeBotProgressStats> progressStatsByAtAddress = new ConcurrentHashMap<>();
+
 	private TradeBot() {
 		EventBus.INSTANCE.addListener(event -> TradeBot.getInstance().listen(event));
 	}
@@ -189,23 +207,42 @@ public class TradeBot implements Listener {
 			// Can't delete what we don't have!
 			return false;
 
-		boolean canDelete = false;
+		String atAddress = tradeBotData.getAtAddress();
 
-		ACCT acct = SupportedBlockchain.getAcctByName(tradeBotData.getAcctName());
-		if (acct == null)
-			// We can't/no longer support this ACCT
-			canDelete = true;
-		else {
-			AcctTradeBot acctTradeBot = findTradeBotForAcct(acct);
-			canDelete = acctTradeBot == null || acctTradeBot.canDelete(repository, tradeBotData);
-		}
+		// Wait for any in-progress progression of this trade, which might change its state
+		ReentrantLock tradeLock = this.tradeLocksByAtAddress.computeIfAbsent(atAddress, k -> new ReentrantLock());
+		tradeLock.lock();
+
+		try {
+			// Re-fetch in case state changed while we were waiting
+			repository.discardChanges();
+			tradeBotData = repository.getCrossChainRepository().getTradeBotData(tradePrivateKey);
+			if (tradeBotData == null)
+				return false;
+
+			boolean canDelete = false;
+
+			ACCT acct = SupportedBlockchain.getAcctByName(tradeBotData.getAcctName());
+			if (acct == null)
+				// We can't/no longer support this ACCT
+				canDelete = true;
+			else {
+				AcctTradeBot acctTradeBot = findTradeBotForAcct(acct);
+				canDelete = acctTradeBot == null || acctTradeBot.canDelete(repository, tradeBotData);
+			}
 
-		if (canDelete) {
-			repository.getCrossChainRepository().delete(tradePrivateKey);
-			repository.saveChanges();
-		}
+			if (canDelete) {
+				repository.getCrossChainRepository().delete(tradePrivateKey);
+				repository.saveChanges();
 
-		return canDelete;
+				// Any progression still waiting for old lock will find entry gone
+				this.tradeLocksByAtAddress.remove(atAddress);
+			}
+
+			return canDelete;
+		} finally {
+			tradeLock.unlock();
+		}
 	}
 
 	@Override
@@ -213,37 +250,105 @@ public class TradeBot implements Listener {
 		if (!(event instanceof Controller.NewBlockEvent))
 			return;
 
-		synchronized (this) {
-			List<TradeBotData> allTradeBotData;
+		List<TradeBotData> allTradeBotData;
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			allTradeBotData = repository.getCrossChainRepository().getAllTradeBotData();
+		} catch (DataException e) {
+			LOGGER.error("Couldn't run trade bot due to repository issue", e);
+			return;
+		}
+
+		for (TradeBotData tradeBotData : allTradeBotData) {
+			// Find ACCT-specific trade-bot for this entry
+			ACCT acct = SupportedBlockchain.getAcctByName(tradeBotData.getAcctName());
+			if (acct == null) {
+				LOGGER.debug(() -> String.format("Couldn't find ACCT matching name %s", tradeBotData.getAcctName()));
+				continue;
+			}
+
+			AcctTradeBot acctTradeBot = findTradeBotForAcct(acct);
+			if (acctTradeBot == null) {
+				LOGGER.debug(() -> String.format("Couldn't find ACCT trade-bot matching name %s", tradeBotData.getAcctName()));
+				continue;
+			}
+
+			// No point queuing entries that have finished, e.g. redeemed or refunded
+			if (!acctTradeBot.canProgress(tradeBotData))
+				continue;
 
-			try (final Repository repository = RepositoryManager.getRepository()) {
-				allTradeBotData = repository.getCrossChainRepository().getAllTradeBotData();
-			} catch (DataException e) {
-				LOGGER.error("Couldn't run trade bot due to repository issue", e);
+			// Each trade is progressed serially: if it's still being progressed from a previous block then it'll catch up next time
+			String atAddress = tradeBotData.getAtAddress();
+			if (!this.progressingAtAddresses.add(atAddress))
+				continue;
+
+			try {
+				this.progressExecutor.execute(() -> progressTrade(acctTradeBot, tradeBotData));
+			} catch (RejectedExecutionException e) {
+				// Probably shutting down
+				this.progressingAtAddresses.remove(atAddress);
 				return;
 			}
+		}
+	}
+
+	private void progressTrade(AcctTradeBot acctTradeBot, TradeBotData tradeBotData) {
+		String atAddress = tradeBotData.getAtAddress();
+		// Progression might change trade-bot entry's state
+		String initialState = tradeBotData.getState();
+		long startTime = System.currentTimeMillis();
+
+		ReentrantLock tradeLock = this.tradeLocksByAtAddress.computeIfAbsent(atAddress, k -> new ReentrantLock());
+		tradeLock.lock();
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			// Entry might have been deleted while queued, and we don't want progression to resurrect it
+			TradeBotData latestTradeBotData = repository.getCrossChainRepository().getTradeBotData(tradeBotData.getTradePrivateKey());
+			if (latestTradeBotData == null)
+				return;
+
+			acctTradeBot.progress(repository, latestTradeBotData);
+		} catch (DataException e) {
+			LOGGER.error("Couldn't run trade bot due to repository issue", e);
+		} catch (ForeignBlockchainException e) {
+			LOGGER.warn(() -> String.format("Foreign blockchain issue processing trade-bot entry for AT %s: %s", atAddress, e.getMessage()));
+		} finally {
+			tradeLock.unlock();
+
+			long endTime = System.currentTimeMillis();
+			this.progressStatsByAtAddress.computeIfAbsent(atAddress, k -> new TradeBotProgressStats(atAddress)).record(initialState, startTime, endTime);
+
+			this.progressingAtAddresses.remove(atAddress);
+		}
+	}
+
+	/** Returns per-trade progression timings, for trades that are still present as trade-bot entries. */
+	public List<TradeBotProgressStats> getProgressStats() {
+		Set<String> currentAtAddresses;
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			currentAtAddresses = repository.getCrossChainRepository().getAllTradeBotData().stream()
+					.map(TradeBotData::getAtAddress)
+					.collect(Collectors.toSet());
+		} catch (DataException e) {
+			LOGGER.warn("Couldn't fetch trade-bot entries for progress stats", e);
+			currentAtAddresses = null;
+		}
+
+		// Forget about deleted trade-bot entries
+		if (currentAtAddresses != null)
+			this.progressStatsByAtAddress.keySet().retainAll(currentAtAddresses);
+
+		return this.progressStatsByAtAddress.values().stream().map(TradeBotProgressStats::copy).collect(Collectors.toList());
+	}
+
+	public void shutdown() {
+		this.progressExecutor.shutdownNow();
 
-			for (TradeBotData tradeBotData : allTradeBotData)
-				try (final Repository repository = RepositoryManager.getRepository()) {
-					// Find ACCT-specific trade-bot for this entry
-					ACCT acct = SupportedBlockchain.getAcctByName(tradeBotData.getAcctName());
-					if (acct == null) {
-						LOGGER.debug(() -> String.format("Couldn't find ACCT matching name %s", tradeBotData.getAcctName()));
-						continue;
-					}
-
-					AcctTradeBot acctTradeBot = findTradeBotForAcct(acct);
-					if (acctTradeBot == null) {
-						LOGGER.debug(() -> String.format("Couldn't find ACCT trade-bot matching name %s", tradeBotData.getAcctName()));
-						continue;
-					}
-
-					acctTradeBot.progress(repository, tradeBotData);
-				} catch (DataException e) {
-					LOGGER.error("Couldn't run trade bot due to repository issue", e);
-				} catch (ForeignBlockchainException e) {
-					LOGGER.warn(() -> String.format("Foreign blockchain issue processing trade-bot entry for AT %s: %s", tradeBotData.getAtAddress(), e.getMessage()));
-				}
+		try {
+			this.progressExecutor.awaitTermination(5L, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			// We were interrupted while waiting for trade progression to finish
 		}
 	}
 
@@ -18,6 +18,8 @@ public interface ACCT {
 
 	public CrossChainTradeData populateTradeData(Repository repository, ATStateData atStateData) throws DataException;
 
+	public CrossChainTradeData populateTradeData(Repository repository, byte[] creatorPublicKey, long creationTimestamp, ATStateData atStateData) throws DataException;
+
 	public byte[] buildCancelMessage(String creatorQortalAddress);
 
 }
@@ -629,6 +629,7 @@ public class BitcoinACCTv1 implements ACCT {
 	/**
 	 * Returns CrossChainTradeData with useful info extracted from AT.
 	 */
+	@Override
 	public CrossChainTradeData populateTradeData(Repository repository, byte[] creatorPublicKey, long creationTimestamp, ATStateData atStateData) throws DataException {
 		byte[] addressBytes = new byte[25]; // for general use
 		String atAddress = atStateData.getATAddress();
@@ -1,7 +1,6 @@
 package org.qortal.crosschain;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
@@ -53,9 +52,9 @@ public abstract class Bitcoiny implements ForeignBlockchain {
 
 	protected final NetworkParameters params;
 
-	/** Keys that have been previously marked as fully spent,<br>
+	/** Disk-backed cache, including keys that have been previously marked as fully spent,<br>
 	 * i.e. keys with transactions but with no unspent outputs. */
-	protected final Set<ECKey> spentKeys = Collections.synchronizedSet(new HashSet<>());
+	protected final ForeignChainCache foreignChainCache;
 
 	/** How many bitcoinj wallet keys to generate in each batch. */
 	private static final int WALLET_KEY_LOOKAHEAD_INCREMENT = 3;
@@ -71,6 +70,8 @@ public abstract class Bitcoiny implements ForeignBlockchain {
 		this.currencyCode = currencyCode;
 
 		this.params = this.bitcoinjContext.getParams();
+
+		this.foreignChainCache = ForeignChainCache.getInstance(blockchain.getNetId());
 	}
 
 	// Getters & setters
@@ -349,16 +350,11 @@ public abstract class Bitcoiny implements ForeignBlockchain {
 		do {
 			boolean areAllKeysUnused = true;
 
-			for (; ki < keys.size(); ++ki) {
-				DeterministicKey dKey = keys.get(ki);
-
-				// Check for transactions
-				Address address = Address.fromKey(this.params, dKey, ScriptType.P2PKH);
-				byte[] script = ScriptBuilder.createOutputScript(address).getProgram();
-
-				// Ask for transaction history - if it's empty then key has never been used
-				List<TransactionHash> historicTransactionHashes = this.blockchain.getAddressTransactions(script, false);
+			// Ask for transaction history of all new keys in one go - if it's empty then key has never been used
+			List<List<TransactionHash>> historicTransactionHashesList = this.blockchain.getAddressTransactions(keysToScripts(keys.subList(ki, keys.size())), false);
+			ki = keys.size();
 
+			for (List<TransactionHash> historicTransactionHashes : historicTransactionHashesList) {
 				if (!historicTransactionHashes.isEmpty()) {
 					areAllKeysUnused = false;
 
@@ -403,6 +399,8 @@ public abstract class Bitcoiny implements ForeignBlockchain {
 
 		int ki = 0;
 		do {
+			// Only interested in 'receive' addresses from new keys
+			List<DeterministicKey> receiveKeys = new ArrayList<>();
 			for (; ki < keys.size(); ++ki) {
 				DeterministicKey dKey = keys.get(ki);
 				List<ChildNumber> dKeyPath = dKey.getPath();
@@ -411,43 +409,57 @@ public abstract class Bitcoiny implements ForeignBlockchain {
 				if (dKeyPath.size() != keyChainPathSize + 2 || dKeyPath.get(dKeyPath.size() - 2) != ChildNumber.ZERO)
 					continue;
 
-				// Check unspent
-				Address address = Address.fromKey(this.params, dKey, ScriptType.P2PKH);
-				byte[] script = ScriptBuilder.createOutputScript(address).getProgram();
-
-				List<UnspentOutput> unspentOutputs = this.blockchain.getUnspentOutputs(script, false);
-
-				/*
-				 * If there are no unspent outputs then either:
-				 * a) all the outputs have been spent
-				 * b) address has never been used
-				 * 
-				 * For case (a) we want to remember not to check this address (key) again.
-				 */
-
-				if (unspentOutputs.isEmpty()) {
-					// If this is a known key that has been spent before, then we can skip asking for transaction history
-					if (this.spentKeys.contains(dKey)) {
-						wallet.getActiveKeyChain().markKeyAsUsed(dKey);
-						continue;
-					}
+				receiveKeys.add(dKey);
+			}
 
-					// Ask for transaction history - if it's empty then key has never been used
-					List<TransactionHash> historicTransactionHashes = this.blockchain.getAddressTransactions(script, false);
+			// Check unspent, for all receive keys in one go
+			List<List<UnspentOutput>> unspentOutputsList = this.blockchain.getUnspentOutputs(keysToScripts(receiveKeys), false);
+
+			/*
+			 * If there are no unspent outputs then either:
+			 * a) all the outputs have been spent
+			 * b) address has never been used
+			 * 
+			 * For case (a) we want to remember not to check this address (key) again.
+			 */
+
+			// If a key is known to have been spent before, then we can skip asking for its transaction history
+			List<DeterministicKey> keysNeedingHistory = new ArrayList<>();
+			for (int i = 0; i < receiveKeys.size(); ++i)
+				if (unspentOutputsList.get(i).isEmpty() && !this.foreignChainCache.isKeySpent(receiveKeys.get(i)))
+					keysNeedingHistory.add(receiveKeys.get(i));
+
+			// Ask for transaction history, again in one go - if it's empty then key has never been used
+			List<List<TransactionHash>> historicTransactionHashesList = this.blockchain.getAddressTransactions(keysToScripts(keysNeedingHistory), false);
+
+			int hi = 0;
+			for (int i = 0; i < receiveKeys.size(); ++i) {
+				DeterministicKey dKey = receiveKeys.get(i);
+
+				if (!unspentOutputsList.get(i).isEmpty()) {
+					// Key has unspent outputs, hence used, so no good to us
+					this.foreignChainCache.markKeyUnspent(dKey);
+					continue;
+				}
 
-					if (!historicTransactionHashes.isEmpty()) {
-						// Fully spent key - case (a)
-						this.spentKeys.add(dKey);
-						wallet.getActiveKeyChain().markKeyAsUsed(dKey);
-						continue;
-					}
+				if (hi >= keysNeedingHistory.size() || dKey != keysNeedingHistory.get(hi)) {
+					// Known spent key
+					wallet.getActiveKeyChain().markKeyAsUsed(dKey);
+					continue;
+				}
 
-					// Key never been used - case (b)
-					return address.toString();
+				List<TransactionHash> historicTransactionHashes = historicTransactionHashesList.get(hi++);
+
+				if (!historicTransactionHashes.isEmpty()) {
+					// Fully spent key - case (a)
+					this.foreignChainCache.markKeySpent(dKey);
+					wallet.getActiveKeyChain().markKeyAsUsed(dKey);
+					continue;
 				}
 
-				// Key has unspent outputs, hence used, so no good to us
-				this.spentKeys.remove(dKey);
+				// Key never been used - case (b)
+				Address address = Address.fromKey(this.params, dKey, ScriptType.P2PKH);
+				return address.toString();
 			}
 
 			// Generate some more keys
@@ -457,6 +469,18 @@ public abstract class Bitcoiny implements ForeignBlockchain {
 		} while (true);
 	}
 
+	/** Returns P2PKH output scripts for passed keys, in same order. */
+	private List<byte[]> keysToScripts(List<? extends ECKey> keys) {
+		List<byte[]> scripts = new ArrayList<>(keys.size());
+
+		for (ECKey key : keys) {
+			Address address = Address.fromKey(this.params, key, ScriptType.P2PKH);
+			scripts.add(ScriptBuilder.createOutputScript(address).getProgram());
+		}
+
+		return scripts;
+	}
+
 	// UTXOProvider support
 
 	static class WalletAwareUTXOProvider implements UTXOProvider {
@@ -507,7 +531,7 @@ public abstract class Bitcoiny implements ForeignBlockchain {
 
 					if (unspentOutputs.isEmpty()) {
 						// If this is a known key that has been spent before, then we can skip asking for transaction history
-						if (this.bitcoiny.spentKeys.contains(key)) {
+						if (this.bitcoiny.foreignChainCache.isKeySpent(key)) {
 							this.wallet.getActiveKeyChain().markKeyAsUsed((DeterministicKey) key);
 							areAllKeysUnspent = false;
 							continue;
@@ -523,7 +547,7 @@ public abstract class Bitcoiny implements ForeignBlockchain {
 
 						if (!historicTransactionHashes.isEmpty()) {
 							// Fully spent key - case (a)
-							this.bitcoiny.spentKeys.add(key);
+							this.bitcoiny.foreignChainCache.markKeySpent(key);
 							this.wallet.getActiveKeyChain().markKeyAsUsed((DeterministicKey) key);
 							areAllKeysUnspent = false;
 						} else {
@@ -534,7 +558,7 @@ public abstract class Bitcoiny implements ForeignBlockchain {
 					}
 
 					// If we reach here, then there's definitely at least one unspent key
-					this.bitcoiny.spentKeys.remove(key);
+					this.bitcoiny.foreignChainCache.markKeyUnspent(key);
 
 					for (UnspentOutput unspentOutput : unspentOutputs) {
 						List<TransactionOutput> transactionOutputs;
@@ -31,9 +31,15 @@ public abstract class BitcoinyBlockchainProvider {
 	/** Returns list of transaction hashes (and heights) for address represented by <tt>scriptPubKey</tt>, optionally including unconfirmed transactions. */
 	public abstract List<TransactionHash> getAddressTransactions(byte[] scriptPubKey, boolean includeUnconfirmed) throws ForeignBlockchainException;
 
+	/** Returns lists of transaction hashes (and heights) for each address represented by <tt>scriptPubKeys</tt>, in same order, optionally including unconfirmed transactions. */
+	public abstract List<List<TransactionHash>> getAddressTransactions(List<byte[]> scriptPubKeys, boolean includeUnconfirmed) throws ForeignBlockchainException;
+
 	/** Returns list of unspent transaction outputs for address represented by <tt>scriptPubKey</tt>, optionally including unconfirmed transactions. */
 	public abstract List<UnspentOutput> getUnspentOutputs(byte[] scriptPubKey, boolean includeUnconfirmed) throws ForeignBlockchainException;
 
+	/** Returns lists of unspent transaction outputs for each address represented by <tt>scriptPubKeys</tt>, in same order, optionally including unconfirmed transactions. */
+	public abstract List<List<UnspentOutput>> getUnspentOutputs(List<byte[]> scriptPubKeys, boolean includeUnconfirmed) throws ForeignBlockchainException;
+
 	/** Broadcasts raw, serialized, transaction bytes to network, returning success/failure. */
 	public abstract void broadcastTransaction(byte[] rawTransaction) throws ForeignBlockchainException;
 
@@ -0,0 +1,119 @@
+package org.qortal.crosschain;
+
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.qortal.data.at.ATData;
+import org.qortal.data.at.ATStateData;
+import org.qortal.data.crosschain.CrossChainTradeData;
+import org.qortal.data.crosschain.IndexedTradeData;
+import org.qortal.data.transaction.DeployAtTransactionData;
+import org.qortal.data.transaction.TransactionData;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.transaction.Transaction.TransactionType;
+
+/**
+ * Maintains repository's materialised view of cross-chain trades.
+ * <p>
+ * Trade data is decoded from AT state once, when the AT state changes during block processing/orphaning,
+ * so that API calls and websockets can read pre-decoded {@link CrossChainTradeData} rows
+ * instead of deserializing AT memory for every AT on every request.
+ * <p>
+ * As updates happen within the same repository transaction as the block processing/orphaning,
+ * the view is rolled back along with everything else if the block is discarded.
+ */
+public abstract class CrossChainTradeIndex {
+
+	private static final Logger LOGGER = LogManager.getLogger(CrossChainTradeIndex.class);
+
+	/**
+	 * Updates indexed trade info for AT, if AT is a supported ACCT.
+	 * <p>
+	 * Typically called by <tt>Block.processAtFeesAndStates()</tt> and {@link #onTransactionProcessed(Repository, TransactionData, long)}.
+	 *
+	 * @param timestamp timestamp of block containing AT state
+	 */
+	public static void onAtStateChange(Repository repository, ATData atData, ATStateData atStateData, long timestamp) throws DataException {
+		ACCT acct = SupportedBlockchain.getAcctByCodeHash(atData.getCodeHash());
+		if (acct == null)
+			return;
+
+		CrossChainTradeData tradeData = acct.populateTradeData(repository, atData.getCreatorPublicKey(), atData.getCreation(), atStateData);
+
+		repository.getCrossChainRepository().save(new IndexedTradeData(tradeData, atData.getIsFinished(), atStateData.getHeight(), timestamp));
+	}
+
+	/**
+	 * Indexes newly deployed AT, if transaction is DEPLOY_AT and AT is a supported ACCT.
+	 * <p>
+	 * Called by block processing after each transaction is processed, including group-approved transactions,
+	 * so that newly deployed ATs are indexed using block's timestamp, the same as later AT state changes.
+	 */
+	public static void onTransactionProcessed(Repository repository, TransactionData transactionData, long blockTimestamp) throws DataException {
+		if (transactionData.getType() != TransactionType.DEPLOY_AT)
+			return;
+
+		String atAddress = ((DeployAtTransactionData) transactionData).getAtAddress();
+
+		ATData atData = repository.getATRepository().fromATAddress(atAddress);
+		ATStateData atStateData = repository.getATRepository().getLatestATState(atAddress);
+		if (atData == null || atStateData == null)
+			throw new DataException(String.format("Missing deployed AT %s", atAddress));
+
+		onAtStateChange(repository, atData, atStateData, blockTimestamp);
+	}
+
+	/**
+	 * Reverts indexed trade info for AT to match AT's (new) latest state, if AT is a supported ACCT.
+	 * <p>
+	 * Typically called by <tt>Block.orphanAtFeesAndStates()</tt> <b>after</b> AT state has been reverted.
+	 */
+	public static void onAtStateRevert(Repository repository, ATData atData) throws DataException {
+		ACCT acct = SupportedBlockchain.getAcctByCodeHash(atData.getCodeHash());
+		if (acct == null)
+			return;
+
+		ATStateData latestAtStateData = repository.getATRepository().getLatestATState(atData.getATAddress());
+		if (latestAtStateData == null) {
+			// No AT state left, e.g. AT's deployment is about to be orphaned too
+			repository.getCrossChainRepository().deleteIndexedTrade(atData.getATAddress());
+			return;
+		}
+
+		long timestamp = repository.getBlockRepository().getTimestampFromHeight(latestAtStateData.getHeight());
+		if (timestamp == 0)
+			throw new DataException(String.format("Missing block at height %d for AT %s state", latestAtStateData.getHeight(), atData.getATAddress()));
+
+		onAtStateChange(repository, atData, latestAtStateData, timestamp);
+	}
+
+	/**
+	 * Populates indexed trades from existing ATs, unless already done,
+	 * e.g. after repository update that introduced the index.
+	 * <p>
+	 * Completion is recorded in the repository, along with the indexed trades, so this only happens once,
+	 * even if there are no trades to index.
+	 * <p>
+	 * Performs <tt>repository.saveChanges()</tt> if indexing was needed.
+	 */
+	public static void rebuildIfNeeded(Repository repository) throws DataException {
+		if (repository.getCrossChainRepository().isTradeIndexBuilt())
+			return;
+
+		List<ATData> atsData = repository.getATRepository().getAllATsByFunctionality(SupportedBlockchain.getAcctMap().keySet(), null);
+
+		LOGGER.info(() -> String.format("Indexing %d cross-chain trade%s...", atsData.size(), (atsData.size() != 1 ? "s" : "")));
+
+		for (ATData atData : atsData)
+			onAtStateRevert(repository, atData);
+
+		repository.getCrossChainRepository().setTradeIndexBuilt();
+
+		repository.saveChanges();
+
+		LOGGER.info("Finished indexing cross-chain trades");
+	}
+
+}
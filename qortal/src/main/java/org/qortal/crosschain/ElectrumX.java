@@ -1,10 +1,14 @@
 package org.qortal.crosschain;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -14,12 +18,17 @@ import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.NoSuchElementException;
 import java.util.Random;
-import java.util.Scanner;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import javax.net.ssl.SSLSocketFactory;
 
@@ -96,22 +105,52 @@ public class ElectrumX extends BitcoinyBlockchainProvider {
 	private final String expectedGenesisHash;
 	private final Map<Server.ConnectionType, Integer> defaultPorts = new EnumMap<>(Server.ConnectionType.class);
 
+	/** Maximum number of simultaneous connections, each to a different server. */
+	private static final int MAX_CONNECTIONS = 3;
+	/** How long to wait when connecting to a server. (milliseconds) */
+	private static final int CONNECT_TIMEOUT = 5000;
+	/** How long to wait for response(s) before trying a different server. (milliseconds) */
+	private static final long RESPONSE_TIMEOUT = 30 * 1000L;
+
+	/** Lock for <tt>servers</tt>, <tt>remainingServers</tt> and <tt>connections</tt>. */
 	private final Object serverLock = new Object();
-	private Server currentServer;
-	private Socket socket;
-	private Scanner scanner;
-	private int nextId = 1;
+	private final List<ServerConnection> connections = new ArrayList<>();
+	/** Number of connections being opened, without holding <tt>serverLock</tt>, that might join <tt>connections</tt>. */
+	private int pendingConnectionCount = 0;
+	private int nextConnectionIndex = 0;
+	private final AtomicInteger nextId = new AtomicInteger(1);
 
 	private static final int TX_CACHE_SIZE = 200;
+	/** How long to keep unconfirmed transactions in memory cache, as they'll change once confirmed. (milliseconds) */
+	private static final long UNCONFIRMED_TX_CACHE_TIMEOUT = 30 * 1000L;
+
+	private static class CachedTransaction {
+		private final BitcoinyTransaction transaction;
+		private final long cachedTimestamp;
+
+		private CachedTransaction(BitcoinyTransaction transaction) {
+			this.transaction = transaction;
+			this.cachedTimestamp = System.currentTimeMillis();
+		}
+
+		private boolean isStale() {
+			// Unconfirmed transactions don't have a timestamp
+			return this.transaction.timestamp == null && System.currentTimeMillis() - this.cachedTimestamp > UNCONFIRMED_TX_CACHE_TIMEOUT;
+		}
+	}
+
 	@SuppressWarnings("serial")
-	private final Map<String, BitcoinyTransaction> transactionCache = Collections.synchronizedMap(new LinkedHashMap<>(TX_CACHE_SIZE + 1, 0.75F, true) {
+	private final Map<String, CachedTransaction> transactionCache = Collections.synchronizedMap(new LinkedHashMap<>(TX_CACHE_SIZE + 1, 0.75F, true) {
 		// This method is called just after a new entry has been added
 		@Override
-		public boolean removeEldestEntry(Map.Entry<String, BitcoinyTransaction> eldest) {
+		public boolean removeEldestEntry(Map.Entry<String, CachedTransaction> eldest) {
 			return size() > TX_CACHE_SIZE;
 		}
 	});
 
+	/** Disk-backed cache of confirmed transactions */
+	private final ForeignChainCache foreignChainCache;
+
 	// Constructors
 
 	public ElectrumX(String netId, String genesisHash, Collection<Server> initialServerList, Map<Server.ConnectionType, Integer> defaultPorts) {
@@ -119,6 +158,8 @@ public class ElectrumX extends BitcoinyBlockchainProvider {
 		this.expectedGenesisHash = genesisHash;
 		this.servers.addAll(initialServerList);
 		this.defaultPorts.putAll(defaultPorts);
+
+		this.foreignChainCache = ForeignChainCache.getInstance(netId);
 	}
 
 	// Methods for use by other classes
@@ -215,30 +256,44 @@ public class ElectrumX extends BitcoinyBlockchainProvider {
 	 */
 	@Override
 	public List<UnspentOutput> getUnspentOutputs(byte[] script, boolean includeUnconfirmed) throws ForeignBlockchainException {
-		byte[] scriptHash = Crypto.digest(script);
-		Bytes.reverse(scriptHash);
+		return this.getUnspentOutputs(Collections.singletonList(script), includeUnconfirmed).get(0);
+	}
 
-		Object unspentJson = this.rpc("blockchain.scripthash.listunspent", HashCode.fromBytes(scriptHash).toString());
-		if (!(unspentJson instanceof JSONArray))
-			throw new ForeignBlockchainException("Expected array output from ElectrumX blockchain.scripthash.listunspent RPC");
+	/**
+	 * Returns lists of unspent outputs pertaining to each passed payment script, using a single batched request.
+	 * <p>
+	 * @return lists of unspent outputs, in same order as <tt>scripts</tt>
+	 * @throws ForeignBlockchainException if there was an error.
+	 */
+	@Override
+	public List<List<UnspentOutput>> getUnspentOutputs(List<byte[]> scripts, boolean includeUnconfirmed) throws ForeignBlockchainException {
+		List<Object> unspentJsons = this.batchRpc("blockchain.scripthash.listunspent", toScriptHashParams(scripts));
 
-		List<UnspentOutput> unspentOutputs = new ArrayList<>();
-		for (Object rawUnspent : (JSONArray) unspentJson) {
-			JSONObject unspent = (JSONObject) rawUnspent;
+		List<List<UnspentOutput>> unspentOutputsList = new ArrayList<>(unspentJsons.size());
+		for (Object unspentJson : unspentJsons) {
+			if (!(unspentJson instanceof JSONArray))
+				throw new ForeignBlockchainException("Expected array output from ElectrumX blockchain.scripthash.listunspent RPC");
 
-			int height = ((Long) unspent.get("height")).intValue();
-			// We only want unspent outputs from confirmed transactions (and definitely not mempool duplicates with height 0)
-			if (!includeUnconfirmed && height <= 0)
-				continue;
+			List<UnspentOutput> unspentOutputs = new ArrayList<>();
+			for (Object rawUnspent : (JSONArray) unspentJson) {
+				JSONObject unspent = (JSONObject) rawUnspent;
 
-			byte[] txHash = HashCode.fromString((String) unspent.get("tx_hash")).asBytes();
-			int outputIndex = ((Long) unspent.get("tx_pos")).intValue();
-			long value = (Long) unspent.get("value");
+				int height = ((Long) unspent.get("height")).intValue();
+				// We only want unspent outputs from confirmed transactions (and definitely not mempool duplicates with height 0)
+				if (!includeUnconfirmed && height <= 0)
+					continue;
 
-			unspentOutputs.add(new UnspentOutput(txHash, outputIndex, height, value));
+				byte[] txHash = HashCode.fromString((String) unspent.get("tx_hash")).asBytes();
+				int outputIndex = ((Long) unspent.get("tx_pos")).intValue();
+				long value = (Long) unspent.get("value");
+
+				unspentOutputs.add(new UnspentOutput(txHash, outputIndex, height, value));
+			}
+
+			unspentOutputsList.add(unspentOutputs);
 		}
 
-		return unspentOutputs;
+		return unspentOutputsList;
 	}
 
 	/**
@@ -289,10 +344,17 @@ public class ElectrumX extends BitcoinyBlockchainProvider {
 	 */
 	@Override
 	public BitcoinyTransaction getTransaction(String txHash) throws ForeignBlockchainException {
-		// Check cache first
-		BitcoinyTransaction transaction = transactionCache.get(txHash);
-		if (transaction != null)
+		// Check memory cache first
+		CachedTransaction cachedTransaction = this.transactionCache.get(txHash);
+		if (cachedTransaction != null && !cachedTransaction.isStale())
+			return cachedTransaction.transaction;
+
+		// Then disk cache, which only contains confirmed transactions
+		BitcoinyTransaction transaction = this.foreignChainCache.getTransaction(txHash);
+		if (transaction != null) {
+			this.transactionCache.put(txHash, new CachedTransaction(transaction));
 			return transaction;
+		}
 
 		Object transactionObj = null;
 
@@ -375,8 +437,9 @@ public class ElectrumX extends BitcoinyBlockchainProvider {
 
 			transaction = new BitcoinyTransaction(txHash, size, locktime, timestamp, inputs, outputs);
 
-			// Save into cache
-			transactionCache.put(txHash, transaction);
+			// Save into caches
+			this.transactionCache.put(txHash, new CachedTransaction(transaction));
+			this.foreignChainCache.saveTransaction(transaction);
 
 			return transaction;
 		} catch (NullPointerException | ClassCastException e) {
@@ -394,29 +457,43 @@ public class ElectrumX extends BitcoinyBlockchainProvider {
 	 */
 	@Override
 	public List<TransactionHash> getAddressTransactions(byte[] script, boolean includeUnconfirmed) throws ForeignBlockchainException {
-		byte[] scriptHash = Crypto.digest(script);
-		Bytes.reverse(scriptHash);
+		return this.getAddressTransactions(Collections.singletonList(script), includeUnconfirmed).get(0);
+	}
 
-		Object transactionsJson = this.rpc("blockchain.scripthash.get_history", HashCode.fromBytes(scriptHash).toString());
-		if (!(transactionsJson instanceof JSONArray))
-			throw new ForeignBlockchainException.NetworkException("Expected array output from ElectrumX blockchain.scripthash.get_history RPC");
+	/**
+	 * Returns lists of transactions, relating to each passed payment script, using a single batched request.
+	 * <p>
+	 * @return lists of related transactions, in same order as <tt>scripts</tt>
+	 * @throws ForeignBlockchainException if error occurs
+	 */
+	@Override
+	public List<List<TransactionHash>> getAddressTransactions(List<byte[]> scripts, boolean includeUnconfirmed) throws ForeignBlockchainException {
+		List<Object> transactionsJsons = this.batchRpc("blockchain.scripthash.get_history", toScriptHashParams(scripts));
 
-		List<TransactionHash> transactionHashes = new ArrayList<>();
+		List<List<TransactionHash>> transactionHashesList = new ArrayList<>(transactionsJsons.size());
+		for (Object transactionsJson : transactionsJsons) {
+			if (!(transactionsJson instanceof JSONArray))
+				throw new ForeignBlockchainException.NetworkException("Expected array output from ElectrumX blockchain.scripthash.get_history RPC");
 
-		for (Object rawTransactionInfo : (JSONArray) transactionsJson) {
-			JSONObject transactionInfo = (JSONObject) rawTransactionInfo;
+			List<TransactionHash> transactionHashes = new ArrayList<>();
 
-			Long height = (Long) transactionInfo.get("height");
-			if (!includeUnconfirmed && (height == null || height == 0))
-				// We only want confirmed transactions
-				continue;
+			for (Object rawTransactionInfo : (JSONArray) transactionsJson) {
+				JSONObject transactionInfo = (JSONObject) rawTransactionInfo;
 
-			String txHash = (String) transactionInfo.get("tx_hash");
+				Long height = (Long) transactionInfo.get("height");
+				if (!includeUnconfirmed && (height == null || height == 0))
+					// We only want confirmed transactions
+					continue;
+
+				String txHash = (String) transactionInfo.get("tx_hash");
 
-			transactionHashes.add(new TransactionHash(height.intValue(), txHash));
+				transactionHashes.add(new TransactionHash(height.intValue(), txHash));
+			}
+
+			transactionHashesList.add(transactionHashes);
 		}
 
-		return transactionHashes;
+		return transactionHashesList;
 	}
 
 	/**
@@ -435,16 +512,30 @@ public class ElectrumX extends BitcoinyBlockchainProvider {
 
 	// Class-private utility methods
 
+	/** Converts payment scripts into ElectrumX "scripthash" RPC params, i.e. reversed SHA256 digest as hex. */
+	private static List<Object[]> toScriptHashParams(List<byte[]> scripts) {
+		List<Object[]> paramsList = new ArrayList<>(scripts.size());
+
+		for (byte[] script : scripts) {
+			byte[] scriptHash = Crypto.digest(script);
+			Bytes.reverse(scriptHash);
+
+			paramsList.add(new Object[] { HashCode.fromBytes(scriptHash).toString() });
+		}
+
+		return paramsList;
+	}
+
 	/**
-	 * Query current server for its list of peer servers, and return those we can parse.
+	 * Query server for its list of peer servers, and return those we can parse.
 	 * <p>
 	 * @throws ForeignBlockchainException
 	 * @throws ClassCastException to be handled by caller
 	 */
-	private Set<Server> serverPeersSubscribe() throws ForeignBlockchainException {
+	private Set<Server> serverPeersSubscribe(ServerConnection connection) throws ForeignBlockchainException, InterruptedException {
 		Set<Server> newServers = new HashSet<>();
 
-		Object peers = this.connectedRpc("server.peers.subscribe");
+		Object peers = connection.rpc("server.peers.subscribe");
 
 		for (Object rawPeer : (JSONArray) peers) {
 			JSONArray peer = (JSONArray) rawPeer;
@@ -504,137 +595,193 @@ public class ElectrumX extends BitcoinyBlockchainProvider {
 	 * @throws ForeignBlockchainException if server returns error or something goes wrong
 	 */
 	private Object rpc(String method, Object...params) throws ForeignBlockchainException {
+		return this.batchRpc(method, Collections.singletonList(params)).get(0);
+	}
+
+	/**
+	 * Performs same RPC method for each entry in <tt>paramsList</tt>, as a single JSON-RPC batch,
+	 * with automatic reconnection to different server if needed.
+	 * <p>
+	 * @return "result" objects from within JSON output, in same order as <tt>paramsList</tt>
+	 * @throws ForeignBlockchainException if server returns error for any entry, or something goes wrong
+	 */
+	private List<Object> batchRpc(String method, List<Object[]> paramsList) throws ForeignBlockchainException {
+		if (paramsList.isEmpty())
+			return Collections.emptyList();
+
 		synchronized (this.serverLock) {
-			if (this.remainingServers.isEmpty())
+			if (this.connections.isEmpty() && this.pendingConnectionCount == 0 && this.remainingServers.isEmpty())
 				this.remainingServers.addAll(this.servers);
+		}
+
+		try {
+			ServerConnection connection;
+			while ((connection = this.getConnection()) != null) {
+				List<JSONObject> responses = connection.send(method, paramsList);
+				if (responses != null) {
+					List<Object> results = new ArrayList<>(responses.size());
 
-			while (haveConnection()) {
-				Object response = connectedRpc(method, params);
-				if (response != null)
-					return response;
+					for (JSONObject responseJson : responses)
+						results.add(extractResult(method, responseJson, connection.server));
+
+					return results;
+				}
 
 				// Didn't work, try another server...
-				this.closeServer();
+				connection.close();
 			}
-
-			// Failed to perform RPC - maybe lack of servers?
-			throw new ForeignBlockchainException.NetworkException(String.format("Failed to perform ElectrumX RPC %s", method));
+		} catch (InterruptedException e) {
+			// Not the server's fault, so leave connection open for other callers
+			Thread.currentThread().interrupt();
+			throw new ForeignBlockchainException.NetworkException(String.format("Interrupted during ElectrumX RPC %s", method));
 		}
+
+		// Failed to perform RPC - maybe lack of servers?
+		throw new ForeignBlockchainException.NetworkException(String.format("Failed to perform ElectrumX RPC %s", method));
 	}
 
-	/** Returns true if we have, or create, a connection to an ElectrumX server. */
-	private boolean haveConnection() throws ForeignBlockchainException {
-		if (this.currentServer != null)
-			return true;
+	/**
+	 * Returns a connection to an ElectrumX server, opening new connections as needed, up to {@link #MAX_CONNECTIONS}.
+	 * <p>
+	 * Requests are spread across open connections in round-robin fashion.
+	 * <p>
+	 * New connections are opened without holding <tt>serverLock</tt>, as that can take a while,
+	 * so other callers can carry on using already open connections.
+	 * 
+	 * @return connection, or null if no servers could be reached
+	 * @throws InterruptedException if interrupted while connecting, or waiting for other callers to connect
+	 */
+	private ServerConnection getConnection() throws InterruptedException {
+		boolean hasConnected = false;
 
-		while (!this.remainingServers.isEmpty()) {
-			Server server = this.remainingServers.remove(RANDOM.nextInt(this.remainingServers.size()));
-			LOGGER.trace(() -> String.format("Connecting to %s", server));
+		while (true) {
+			Server server = null;
 
-			try {
-				SocketAddress endpoint = new InetSocketAddress(server.hostname, server.port);
-				int timeout = 5000; // ms
+			synchronized (this.serverLock) {
+				this.connections.removeIf(ServerConnection::isClosed);
 
-				this.socket = new Socket();
-				this.socket.connect(endpoint, timeout);
-				this.socket.setTcpNoDelay(true);
+				// At most one new connection per request, to gradually fill the pool without delaying this request too much
+				if (!hasConnected && this.connections.size() + this.pendingConnectionCount < MAX_CONNECTIONS)
+					server = this.takeRemainingServer();
 
-				if (server.connectionType == Server.ConnectionType.SSL) {
-					SSLSocketFactory factory = TrustlessSSLSocketFactory.getSocketFactory();
-					this.socket = factory.createSocket(this.socket, server.hostname, server.port, true);
-				}
-
-				this.scanner = new Scanner(this.socket.getInputStream());
-				this.scanner.useDelimiter("\n");
+				if (server == null) {
+					if (!this.connections.isEmpty()) {
+						this.nextConnectionIndex = (this.nextConnectionIndex + 1) % this.connections.size();
+						return this.connections.get(this.nextConnectionIndex);
+					}
 
-				// Check connection is suitable by asking for server features, including genesis block hash
-				JSONObject featuresJson = (JSONObject) this.connectedRpc("server.features");
+					if (this.pendingConnectionCount == 0)
+						return null;
 
-				if (featuresJson == null || Double.valueOf((String) featuresJson.get("protocol_min")) < MIN_PROTOCOL_VERSION)
+					// Nothing open yet, but other callers are connecting, so wait for them
+					this.serverLock.wait();
 					continue;
+				}
 
-				if (this.expectedGenesisHash != null && !((String) featuresJson.get("genesis_hash")).equals(this.expectedGenesisHash))
-					continue;
+				++this.pendingConnectionCount;
+			}
 
-				// Ask for more servers
-				Set<Server> moreServers = serverPeersSubscribe();
-				// Discard duplicate servers we already know
-				moreServers.removeAll(this.servers);
-				// Add to both lists
-				this.remainingServers.addAll(moreServers);
-				this.servers.addAll(moreServers);
+			ServerConnection newConnection = null;
+			try {
+				newConnection = this.connectToServer(server);
+			} finally {
+				synchronized (this.serverLock) {
+					--this.pendingConnectionCount;
 
-				LOGGER.debug(() -> String.format("Connected to %s", server));
-				this.currentServer = server;
-				return true;
-			} catch (IOException | ForeignBlockchainException | ClassCastException | NullPointerException e) {
-				// Didn't work, try another server...
-				closeServer();
+					if (newConnection != null)
+						this.connections.add(newConnection);
+
+					this.serverLock.notifyAll();
+				}
 			}
-		}
 
-		return false;
+			hasConnected = newConnection != null;
+		}
 	}
 
-	/**
-	 * Perform RPC using currently connected server.
-	 * <p>
-	 * @param method
-	 * @param params
-	 * @return response Object, or null if server fails to respond
-	 * @throws ForeignBlockchainException if server returns error
-	 */
-	@SuppressWarnings("unchecked")
-	private Object connectedRpc(String method, Object...params) throws ForeignBlockchainException {
-		JSONObject requestJson = new JSONObject();
-		requestJson.put("id", this.nextId++);
-		requestJson.put("method", method);
-		requestJson.put("jsonrpc", "2.0");
+	/** Returns one of remaining, not-yet-connected servers, or null if none left. Caller must hold <tt>serverLock</tt>. */
+	private Server takeRemainingServer() {
+		while (!this.remainingServers.isEmpty()) {
+			Server server = this.remainingServers.remove(RANDOM.nextInt(this.remainingServers.size()));
+
+			if (this.uselessServers.contains(server) || this.connections.stream().anyMatch(connection -> connection.server.equals(server)))
+				continue;
 
-		JSONArray requestParams = new JSONArray();
-		requestParams.addAll(Arrays.asList(params));
-		requestJson.put("params", requestParams);
+			return server;
+		}
 
-		String request = requestJson.toJSONString() + "\n";
-		LOGGER.trace(() -> String.format("Request: %s", request));
+		return null;
+	}
 
-		final String response;
+	/** Returns new connection to <tt>server</tt>, or null if server couldn't be reached or is unsuitable. Caller must not hold <tt>serverLock</tt>. */
+	private ServerConnection connectToServer(Server server) throws InterruptedException {
+		LOGGER.trace(() -> String.format("Connecting to %s", server));
 
+		ServerConnection connection = null;
 		try {
-			this.socket.getOutputStream().write(request.getBytes());
-			response = scanner.next();
-		} catch (IOException | NoSuchElementException e) {
-			// Unable to send, or receive -- try another server?
-			return null;
-		}
+			connection = new ServerConnection(server);
 
-		LOGGER.trace(() -> String.format("Response: %s", response));
+			// Check connection is suitable by asking for server features, including genesis block hash
+			JSONObject featuresJson = (JSONObject) connection.rpc("server.features");
 
-		if (response.isEmpty())
-			// Empty response - try another server?
-			return null;
+			if (featuresJson == null || Double.valueOf((String) featuresJson.get("protocol_min")) < MIN_PROTOCOL_VERSION) {
+				connection.close();
+				return null;
+			}
+
+			if (this.expectedGenesisHash != null && !((String) featuresJson.get("genesis_hash")).equals(this.expectedGenesisHash)) {
+				connection.close();
+				return null;
+			}
+
+			// Ask for more servers
+			Set<Server> moreServers = serverPeersSubscribe(connection);
+
+			synchronized (this.serverLock) {
+				// Discard duplicate servers we already know
+				moreServers.removeAll(this.servers);
+				// Add to both lists
+				this.remainingServers.addAll(moreServers);
+				this.servers.addAll(moreServers);
+			}
+
+			LOGGER.debug(() -> String.format("Connected to %s", server));
+			return connection;
+		} catch (IOException | ForeignBlockchainException | ClassCastException | NullPointerException e) {
+			// Didn't work, try another server...
+			if (connection != null)
+				connection.close();
 
-		Object responseObj = JSONValue.parse(response);
-		if (!(responseObj instanceof JSONObject))
-			// Unexpected response - try another server?
 			return null;
+		} catch (InterruptedException e) {
+			// Connection isn't pooled yet, so nobody else will close it
+			if (connection != null)
+				connection.close();
 
-		JSONObject responseJson = (JSONObject) responseObj;
+			throw e;
+		}
+	}
 
+	/**
+	 * Returns "result" from JSON-RPC response.
+	 * <p>
+	 * @throws ForeignBlockchainException if server returned error
+	 */
+	private static Object extractResult(String method, JSONObject responseJson, Server server) throws ForeignBlockchainException {
 		Object errorObj = responseJson.get("error");
 		if (errorObj != null) {
 			if (errorObj instanceof String)
-				throw new ForeignBlockchainException.NetworkException(String.format("Unexpected error message from ElectrumX RPC %s: %s", method, (String) errorObj), this.currentServer);
+				throw new ForeignBlockchainException.NetworkException(String.format("Unexpected error message from ElectrumX RPC %s: %s", method, (String) errorObj), server);
 
 			if (!(errorObj instanceof JSONObject))
-				throw new ForeignBlockchainException.NetworkException(String.format("Unexpected error response from ElectrumX RPC %s", method), this.currentServer);
+				throw new ForeignBlockchainException.NetworkException(String.format("Unexpected error response from ElectrumX RPC %s", method), server);
 
 			JSONObject errorJson = (JSONObject) errorObj;
 
 			Object messageObj = errorJson.get("message");
 
 			if (!(messageObj instanceof String))
-				throw new ForeignBlockchainException.NetworkException(String.format("Missing/invalid message in error response from ElectrumX RPC %s", method), this.currentServer);
+				throw new ForeignBlockchainException.NetworkException(String.format("Missing/invalid message in error response from ElectrumX RPC %s", method), server);
 
 			String message = (String) messageObj;
 
@@ -645,43 +792,218 @@ public class ElectrumX extends BitcoinyBlockchainProvider {
 			if (messageMatcher.find())
 				try {
 					int daemonErrorCode = Integer.parseInt(messageMatcher.group(1));
-					throw new ForeignBlockchainException.NetworkException(daemonErrorCode, message, this.currentServer);
+					throw new ForeignBlockchainException.NetworkException(daemonErrorCode, message, server);
 				} catch (NumberFormatException e) {
 					// We couldn't parse the error code integer? Fall-through to generic exception...
 				}
 
-			throw new ForeignBlockchainException.NetworkException(message, this.currentServer);
+			throw new ForeignBlockchainException.NetworkException(message, server);
 		}
 
 		return responseJson.get("result");
 	}
 
-	/**
-	 * Closes connection to <tt>server</tt> if it is currently connected server.
-	 * @param server
-	 */
+	/** Closes any connection to <tt>server</tt>. */
 	private void closeServer(Server server) {
+		List<ServerConnection> serverConnections;
+
 		synchronized (this.serverLock) {
-			if (this.currentServer == null || !this.currentServer.equals(server))
-				return;
+			serverConnections = this.connections.stream().filter(connection -> connection.server.equals(server)).collect(Collectors.toList());
+			this.connections.removeAll(serverConnections);
+		}
 
-			if (this.socket != null && !this.socket.isClosed())
-				try {
-					this.socket.close();
-				} catch (IOException e) {
-					// We did try...
+		serverConnections.forEach(ServerConnection::close);
+	}
+
+	/**
+	 * Connection to a single ElectrumX server.
+	 * <p>
+	 * Many requests, from many threads, can be in flight at the same time.
+	 * A dedicated thread reads responses and hands them to the waiting requester, matched by JSON-RPC <tt>id</tt>.
+	 */
+	private class ServerConnection {
+		private final Server server;
+		private final Socket socket;
+		private final OutputStream outputStream;
+		private final BufferedReader reader;
+
+		private final Map<Integer, CompletableFuture<JSONObject>> pendingResponses = new ConcurrentHashMap<>();
+		private volatile boolean isClosed = false;
+
+		public ServerConnection(Server server) throws IOException {
+			this.server = server;
+
+			SocketAddress endpoint = new InetSocketAddress(server.hostname, server.port);
+
+			Socket socket = new Socket();
+			socket.connect(endpoint, CONNECT_TIMEOUT);
+			socket.setTcpNoDelay(true);
+
+			if (server.connectionType == Server.ConnectionType.SSL) {
+				SSLSocketFactory factory = TrustlessSSLSocketFactory.getSocketFactory();
+				socket = factory.createSocket(socket, server.hostname, server.port, true);
+			}
+
+			this.socket = socket;
+			this.outputStream = socket.getOutputStream();
+			this.reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+
+			Thread readerThread = new Thread(this::readResponses, String.format("ElectrumX %s", server));
+			readerThread.setDaemon(true);
+			readerThread.start();
+		}
+
+		public boolean isClosed() {
+			return this.isClosed;
+		}
+
+		/**
+		 * Performs single RPC using this connection.
+		 * <p>
+		 * @return "result" object from within JSON output, or null if server fails to respond
+		 * @throws ForeignBlockchainException if server returns error
+		 * @throws InterruptedException if interrupted while waiting for response
+		 */
+		public Object rpc(String method, Object...params) throws ForeignBlockchainException, InterruptedException {
+			List<JSONObject> responses = this.send(method, Collections.singletonList(params));
+			if (responses == null)
+				return null;
+
+			return extractResult(method, responses.get(0), this.server);
+		}
+
+		/**
+		 * Sends request(s) and waits for response(s).
+		 * <p>
+		 * More than one request is sent as a JSON-RPC batch.
+		 * 
+		 * @return responses, in same order as <tt>paramsList</tt>, or null if server fails to respond
+		 * @throws InterruptedException if interrupted while waiting for response, which doesn't mean server has failed
+		 */
+		@SuppressWarnings("unchecked")
+		public List<JSONObject> send(String method, List<Object[]> paramsList) throws InterruptedException {
+			List<Integer> ids = new ArrayList<>(paramsList.size());
+			JSONArray batchJson = new JSONArray();
+
+			for (Object[] params : paramsList) {
+				int id = nextId.getAndIncrement();
+				ids.add(id);
+
+				JSONObject requestJson = new JSONObject();
+				requestJson.put("id", id);
+				requestJson.put("method", method);
+				requestJson.put("jsonrpc", "2.0");
+
+				JSONArray requestParams = new JSONArray();
+				requestParams.addAll(Arrays.asList(params));
+				requestJson.put("params", requestParams);
+
+				batchJson.add(requestJson);
+			}
+
+			List<CompletableFuture<JSONObject>> futures = new ArrayList<>(ids.size());
+			for (Integer id : ids) {
+				CompletableFuture<JSONObject> future = new CompletableFuture<>();
+				this.pendingResponses.put(id, future);
+				futures.add(future);
+			}
+
+			String request = (batchJson.size() == 1 ? ((JSONObject) batchJson.get(0)).toJSONString() : batchJson.toJSONString()) + "\n";
+			LOGGER.trace(() -> String.format("Request to %s: %s", this.server, request));
+
+			try {
+				synchronized (this.outputStream) {
+					if (this.isClosed)
+						return null;
+
+					this.outputStream.write(request.getBytes(StandardCharsets.UTF_8));
+					this.outputStream.flush();
 				}
 
-			this.socket = null;
-			this.scanner = null;
-			this.currentServer = null;
+				// Overall deadline, rather than per-response timeout
+				long deadline = System.currentTimeMillis() + RESPONSE_TIMEOUT;
+
+				List<JSONObject> responses = new ArrayList<>(futures.size());
+				for (CompletableFuture<JSONObject> future : futures) {
+					long remaining = Math.max(0L, deadline - System.currentTimeMillis());
+
+					JSONObject responseJson = future.get(remaining, TimeUnit.MILLISECONDS);
+					if (responseJson == null)
+						// Connection closed
+						return null;
+
+					responses.add(responseJson);
+				}
+
+				return responses;
+			} catch (IOException | ExecutionException | TimeoutException e) {
+				// Unable to send, or receive -- try another server?
+				return null;
+			} finally {
+				ids.forEach(this.pendingResponses::remove);
+			}
 		}
-	}
 
-	/** Closes connection to currently connected server (if any). */
-	private void closeServer() {
-		synchronized (this.serverLock) {
-			this.closeServer(this.currentServer);
+		private void readResponses() {
+			try {
+				String response;
+				while ((response = this.reader.readLine()) != null) {
+					final String finalResponse = response;
+					LOGGER.trace(() -> String.format("Response from %s: %s", this.server, finalResponse));
+
+					if (response.isEmpty())
+						// Empty response - try another server?
+						break;
+
+					Object responseObj = JSONValue.parse(response);
+
+					if (responseObj instanceof JSONObject) {
+						this.onResponse((JSONObject) responseObj);
+					} else if (responseObj instanceof JSONArray) {
+						// Batch response
+						for (Object batchResponseObj : (JSONArray) responseObj)
+							if (batchResponseObj instanceof JSONObject)
+								this.onResponse((JSONObject) batchResponseObj);
+					} else {
+						// Unexpected response - try another server?
+						break;
+					}
+				}
+			} catch (IOException e) {
+				// Connection lost
+			} finally {
+				this.close();
+			}
+		}
+
+		private void onResponse(JSONObject responseJson) {
+			Object idObj = responseJson.get("id");
+			if (!(idObj instanceof Long))
+				// Probably a subscription notification, which we don't use
+				return;
+
+			CompletableFuture<JSONObject> future = this.pendingResponses.remove(((Long) idObj).intValue());
+			if (future != null)
+				future.complete(responseJson);
+		}
+
+		public void close() {
+			synchronized (this.outputStream) {
+				if (this.isClosed)
+					return;
+
+				this.isClosed = true;
+			}
+
+			try {
+				this.socket.close();
+			} catch (IOException e) {
+				// We did try...
+			}
+
+			// Wake up anyone still waiting for a response
+			this.pendingResponses.values().forEach(future -> future.complete(null));
+			this.pendingResponses.clear();
 		}
 	}
 
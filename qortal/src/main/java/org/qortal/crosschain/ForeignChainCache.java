@@ -0,0 +1,134 @@
+package org.qortal.crosschain;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bitcoinj.core.ECKey;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryManager;
+import org.qortal.utils.ByteArray;
+
+/**
+ * Disk-backed cache of foreign blockchain data, keyed by network ID (e.g. "Litecoin-TEST3").
+ * <p>
+ * Only confirmed transactions are persisted, as they won't change.
+ * Unconfirmed transactions are left to short-lived, in-memory caching by callers.
+ * <p>
+ * Also persists which wallet keys have been found to be fully spent,
+ * so wallet scans can skip asking for those keys' transaction history, even after a restart.
+ * <p>
+ * Caching is best-effort: if there's no repository (e.g. some tests), or there's a repository issue,
+ * then lookups simply miss and saves are skipped.
+ */
+public class ForeignChainCache {
+
+	private static final Logger LOGGER = LogManager.getLogger(ForeignChainCache.class);
+
+	private static final Map<String, ForeignChainCache> instances = new HashMap<>();
+
+	private final String netId;
+
+	/** Public key hashes of spent keys, loaded from repository on first use. Also acts as lock. */
+	private Set<ByteArray> spentKeyHashes;
+
+	private ForeignChainCache(String netId) {
+		this.netId = netId;
+	}
+
+	public static synchronized ForeignChainCache getInstance(String netId) {
+		return instances.computeIfAbsent(netId, ForeignChainCache::new);
+	}
+
+	// Transactions
+
+	/** Returns cached, confirmed transaction, or null if not cached. */
+	public BitcoinyTransaction getTransaction(String txHash) {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			return repository.getCrossChainRepository().getForeignTransaction(this.netId, txHash);
+		} catch (DataException e) {
+			LOGGER.trace(() -> String.format("Unable to fetch cached %s transaction %s: %s", this.netId, txHash, e.getMessage()));
+			return null;
+		}
+	}
+
+	/** Saves transaction into cache, but only if confirmed. */
+	public void saveTransaction(BitcoinyTransaction transaction) {
+		// Unconfirmed transactions don't have a timestamp
+		if (transaction.timestamp == null)
+			return;
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			repository.getCrossChainRepository().saveForeignTransaction(this.netId, transaction);
+			repository.saveChanges();
+		} catch (DataException e) {
+			LOGGER.trace(() -> String.format("Unable to cache %s transaction %s: %s", this.netId, transaction.txHash, e.getMessage()));
+		}
+	}
+
+	// Key usage
+
+	public boolean isKeySpent(ECKey key) {
+		ByteArray publicKeyHash = ByteArray.of(key.getPubKeyHash());
+
+		synchronized (this) {
+			return this.getSpentKeyHashes().contains(publicKeyHash);
+		}
+	}
+
+	public void markKeySpent(ECKey key) {
+		this.updateSpentKey(key, true);
+	}
+
+	public void markKeyUnspent(ECKey key) {
+		this.updateSpentKey(key, false);
+	}
+
+	private void updateSpentKey(ECKey key, boolean isSpent) {
+		ByteArray publicKeyHash = ByteArray.of(key.getPubKeyHash());
+
+		synchronized (this) {
+			Set<ByteArray> spentKeyHashes = this.getSpentKeyHashes();
+
+			boolean hasChanged = isSpent ? spentKeyHashes.add(publicKeyHash) : spentKeyHashes.remove(publicKeyHash);
+			if (!hasChanged)
+				return;
+		}
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			if (isSpent)
+				repository.getCrossChainRepository().saveSpentForeignKey(this.netId, publicKeyHash.value);
+			else
+				repository.getCrossChainRepository().deleteSpentForeignKey(this.netId, publicKeyHash.value);
+
+			repository.saveChanges();
+		} catch (DataException e) {
+			LOGGER.trace(() -> String.format("Unable to update cached %s key usage: %s", this.netId, e.getMessage()));
+		}
+	}
+
+	/** Returns spent key hashes, loading from repository if needed. Caller must synchronize on <tt>this</tt>. */
+	private Set<ByteArray> getSpentKeyHashes() {
+		if (this.spentKeyHashes != null)
+			return this.spentKeyHashes;
+
+		this.spentKeyHashes = new HashSet<>();
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			List<byte[]> publicKeyHashes = repository.getCrossChainRepository().getSpentForeignKeys(this.netId);
+
+			for (byte[] publicKeyHash : publicKeyHashes)
+				this.spentKeyHashes.add(ByteArray.of(publicKeyHash));
+		} catch (DataException e) {
+			LOGGER.trace(() -> String.format("Unable to load cached %s key usage: %s", this.netId, e.getMessage()));
+		}
+
+		return this.spentKeyHashes;
+	}
+
+}
@@ -580,6 +580,7 @@ public class LitecoinACCTv1 implements ACCT {
 	/**
 	 * Returns CrossChainTradeData with useful info extracted from AT.
 	 */
+	@Override
 	public CrossChainTradeData populateTradeData(Repository repository, byte[] creatorPublicKey, long creationTimestamp, ATStateData atStateData) throws DataException {
 		byte[] addressBytes = new byte[25]; // for general use
 		String atAddress = atStateData.getATAddress();
@@ -1,63 +1,161 @@
 package org.qortal.crypto;
 
 import java.nio.ByteBuffer;
-
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.qortal.utils.DaemonThreadFactory;
+
+/**
+ * Memory-hard proof-of-work.
+ * <p>
+ * For each nonce, a work buffer is filled using xoshiro256+ seeded from SHA256 of data and a per-nonce seed,
+ * then randomly "bounced" through. A nonce is valid if the resulting value has enough leading zero bits.
+ * <p>
+ * Work buffers are reused between calls, as they can be up to 8MB each.
+ * Per-nonce seeds are computed directly, so verification doesn't need to step through all preceding nonces,
+ * and nonce search can be split across multiple threads while still returning the same (lowest) nonce.
+ */
 public class MemoryPoW {
 
-	public static Integer compute2(byte[] data, int workBufferLength, long difficulty) {
-		// Hash data with SHA256
-		byte[] hash = Crypto.digest(data);
+	private static final long INITIAL_SEED = 8682522807148012L;
+	private static final long SEED_MULTIPLIER = 1181783497276652981L;
+	private static final int BOUNCE_COUNT = 1024;
 
-		long[] longHash = new long[4];
-		ByteBuffer byteBuffer = ByteBuffer.wrap(hash);
-		longHash[0] = byteBuffer.getLong();
-		longHash[1] = byteBuffer.getLong();
-		longHash[2] = byteBuffer.getLong();
-		longHash[3] = byteBuffer.getLong();
-		byteBuffer = null;
+	/** Suggested number of threads for user-initiated nonce computation, e.g. when building a transaction. */
+	public static final int DEFAULT_COMPUTE_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
 
-		int longBufferLength = workBufferLength / 8;
-		long[] workBuffer = new long[longBufferLength];
-		long[] state = new long[4];
+	/** Maximum number of idle work buffers to keep for reuse, so we don't hang on to lots of memory. */
+	private static final int MAX_IDLE_BUFFERS = 4;
+	private static final Deque<long[]> idleBuffers = new ArrayDeque<>();
 
-		long seed = 8682522807148012L;
-		long seedMultiplier = 1181783497276652981L;
+	private static final ExecutorService computeExecutor = Executors.newCachedThreadPool(new DaemonThreadFactory("MemoryPoW"));
 
-		// For each nonce...
-		int nonce = -1;
-		long result = 0;
-		do {
-			++nonce;
+	/**
+	 * Returns lowest valid nonce for <tt>data</tt>, or -1 if interrupted.
+	 */
+	public static Integer compute2(byte[] data, int workBufferLength, long difficulty) {
+		return compute2(data, workBufferLength, difficulty, 1);
+	}
 
-			// If we've been interrupted, exit fast with invalid value
-			if (Thread.currentThread().isInterrupted())
+	/**
+	 * Returns lowest valid nonce for <tt>data</tt>, searching using <tt>threadCount</tt> threads, or -1 if interrupted.
+	 * <p>
+	 * Calling thread takes part in the search. Returned nonce is the same regardless of <tt>threadCount</tt>.
+	 */
+	public static Integer compute2(byte[] data, int workBufferLength, long difficulty, int threadCount) {
+		final long[] longHash = hashToLongs(data);
+
+		AtomicInteger lowestNonce = new AtomicInteger(Integer.MAX_VALUE);
+		AtomicBoolean isCancelled = new AtomicBoolean(false);
+
+		// Thread 't' tries nonces t, t + threadCount, t + 2 * threadCount, ...
+		List<Future<?>> futures = new ArrayList<>(threadCount);
+		for (int t = 1; t < threadCount; ++t) {
+			final int firstNonce = t;
+
+			try {
+				futures.add(computeExecutor.submit(() -> search(longHash, workBufferLength, difficulty, firstNonce, threadCount, lowestNonce, isCancelled)));
+			} catch (RejectedExecutionException e) {
+				isCancelled.set(true);
 				return -1;
+			}
+		}
 
-			seed *= seedMultiplier; // per nonce
+		search(longHash, workBufferLength, difficulty, 0, threadCount, lowestNonce, isCancelled);
+
+		try {
+			for (Future<?> future : futures)
+				future.get();
+		} catch (InterruptedException e) {
+			// Let other threads know to give up too
+			isCancelled.set(true);
+			Thread.currentThread().interrupt();
+			return -1;
+		} catch (ExecutionException e) {
+			isCancelled.set(true);
+			return -1;
+		}
 
-			state[0] = longHash[0] ^ seed;
-			state[1] = longHash[1] ^ seed;
-			state[2] = longHash[2] ^ seed;
-			state[3] = longHash[3] ^ seed;
+		if (isCancelled.get() || lowestNonce.get() == Integer.MAX_VALUE)
+			return -1;
 
-			// Fill work buffer with random
-			for (int i = 0; i < workBuffer.length; ++i)
-				workBuffer[i] = xoshiro256p(state);
+		return lowestNonce.get();
+	}
 
-			// Random bounce through whole buffer
-			result = workBuffer[0];
-			for (int i = 0; i < 1024; ++i) {
-				int index = (int) (xoshiro256p(state) & Integer.MAX_VALUE) % workBuffer.length;
-				result ^= workBuffer[index];
+	public static boolean verify2(byte[] data, int workBufferLength, long difficulty, int nonce) {
+		long[] longHash = hashToLongs(data);
+
+		long[] workBuffer = acquireWorkBuffer(workBufferLength / 8);
+		try {
+			long result = computeResult(longHash, seedForNonce(nonce), workBuffer, new long[4]);
+
+			return Long.numberOfLeadingZeros(result) >= difficulty;
+		} finally {
+			releaseWorkBuffer(workBuffer);
+		}
+	}
+
+	/** Searches every <tt>nonceStride</tt>-th nonce, starting from <tt>firstNonce</tt>, until a valid nonce is found or a lower valid nonce is known. */
+	private static void search(long[] longHash, int workBufferLength, long difficulty, int firstNonce, int nonceStride,
+			AtomicInteger lowestNonce, AtomicBoolean isCancelled) {
+		long[] workBuffer = acquireWorkBuffer(workBufferLength / 8);
+		try {
+			long[] state = new long[4];
+			long seed = seedForNonce(firstNonce);
+			final long strideMultiplier = power(SEED_MULTIPLIER, nonceStride);
+
+			// Stop if nonce overflows, or if another thread has found a lower valid nonce
+			for (int nonce = firstNonce; nonce >= 0 && nonce < lowestNonce.get(); nonce += nonceStride, seed *= strideMultiplier) {
+				// If we've been interrupted, or another thread has, exit fast
+				if (isCancelled.get() || Thread.currentThread().isInterrupted()) {
+					isCancelled.set(true);
+					return;
+				}
+
+				long result = computeResult(longHash, seed, workBuffer, state);
+
+				if (Long.numberOfLeadingZeros(result) >= difficulty) {
+					final int validNonce = nonce;
+					lowestNonce.accumulateAndGet(validNonce, Math::min);
+					return;
+				}
 			}
+		} finally {
+			releaseWorkBuffer(workBuffer);
+		}
+	}
+
+	private static long computeResult(long[] longHash, long seed, long[] workBuffer, long[] state) {
+		state[0] = longHash[0] ^ seed;
+		state[1] = longHash[1] ^ seed;
+		state[2] = longHash[2] ^ seed;
+		state[3] = longHash[3] ^ seed;
+
+		// Fill work buffer with random
+		for (int i = 0; i < workBuffer.length; ++i)
+			workBuffer[i] = xoshiro256p(state);
 
-			// Return if final value > difficulty
-		} while (Long.numberOfLeadingZeros(result) < difficulty);
+		// Random bounce through whole buffer
+		long result = workBuffer[0];
+		for (int i = 0; i < BOUNCE_COUNT; ++i) {
+			int index = (int) (xoshiro256p(state) & Integer.MAX_VALUE) % workBuffer.length;
+			result ^= workBuffer[index];
+		}
 
-		return nonce;
+		return result;
 	}
 
-	public static boolean verify2(byte[] data, int workBufferLength, long difficulty, int nonce) {
+	private static long[] hashToLongs(byte[] data) {
 		// Hash data with SHA256
 		byte[] hash = Crypto.digest(data);
 
@@ -67,35 +165,54 @@ public class MemoryPoW {
 		longHash[1] = byteBuffer.getLong();
 		longHash[2] = byteBuffer.getLong();
 		longHash[3] = byteBuffer.getLong();
-		byteBuffer = null;
 
-		int longBufferLength = workBufferLength / 8;
-		long[] workBuffer = new long[longBufferLength];
-		long[] state = new long[4];
+		return longHash;
+	}
 
-		long seed = 8682522807148012L;
-		long seedMultiplier = 1181783497276652981L;
+	/** Returns seed used for <tt>nonce</tt>, i.e. initial seed multiplied by seed multiplier (nonce + 1) times. */
+	private static long seedForNonce(int nonce) {
+		// Negative nonces use initial seed, as original step-by-step loop would perform no multiplications
+		long exponent = Math.max(0L, nonce + 1L);
 
-		for (int i = 0; i <= nonce; ++i)
-			seed *= seedMultiplier;
+		return INITIAL_SEED * power(SEED_MULTIPLIER, exponent);
+	}
 
-		state[0] = longHash[0] ^ seed;
-		state[1] = longHash[1] ^ seed;
-		state[2] = longHash[2] ^ seed;
-		state[3] = longHash[3] ^ seed;
+	/** Returns <tt>base</tt> raised to <tt>exponent</tt>, modulo 2^64, as per repeated long multiplication. */
+	private static long power(long base, long exponent) {
+		long result = 1L;
 
-		// Fill work buffer with random
-		for (int i = 0; i < workBuffer.length; ++i)
-			workBuffer[i] = xoshiro256p(state);
+		while (exponent > 0) {
+			if ((exponent & 1L) != 0)
+				result *= base;
 
-		// Random bounce through whole buffer
-		long result = workBuffer[0];
-		for (int i = 0; i < 1024; ++i) {
-			int index = (int) (xoshiro256p(state) & Integer.MAX_VALUE) % workBuffer.length;
-			result ^= workBuffer[index];
+			base *= base;
+			exponent >>>= 1;
 		}
 
-		return Long.numberOfLeadingZeros(result) >= difficulty;
+		return result;
+	}
+
+	private static long[] acquireWorkBuffer(int length) {
+		synchronized (idleBuffers) {
+			for (long[] buffer : idleBuffers)
+				if (buffer.length == length) {
+					idleBuffers.remove(buffer);
+					return buffer;
+				}
+		}
+
+		// Contents don't need clearing as every element is overwritten before use
+		return new long[length];
+	}
+
+	private static void releaseWorkBuffer(long[] buffer) {
+		synchronized (idleBuffers) {
+			if (idleBuffers.size() >= MAX_IDLE_BUFFERS)
+				// Discard oldest, as it's least likely to be the size we need
+				idleBuffers.removeLast();
+
+			idleBuffers.addFirst(buffer);
+		}
 	}
 
 	private static final long xoshiro256p(long[] state) {
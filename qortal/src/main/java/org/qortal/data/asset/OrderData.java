@@ -3,6 +3,7 @@ package org.qortal.data.asset;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlTransient;
 import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
 
 import org.qortal.crypto.Crypto;
@@ -64,6 +65,13 @@ public class OrderData implements Comparable<OrderData> {
 	@Schema(accessMode = AccessMode.READ_ONLY)
 	private String pricePair;
 
+	// Used by order book - not always present
+
+	/** Height of block containing order's creating transaction, or null if not yet known */
+	@XmlTransient
+	@Schema(hidden = true)
+	private Integer creationHeight;
+
 	// Constructors
 
 	// Necessary for JAXB serialization
@@ -172,6 +180,14 @@ public class OrderData implements Comparable<OrderData> {
 		this.isFulfilled = isFulfilled;
 	}
 
+	public Integer getCreationHeight() {
+		return this.creationHeight;
+	}
+
+	public void setCreationHeight(Integer creationHeight) {
+		this.creationHeight = creationHeight;
+	}
+
 	// Some JAXB/API-related getters
 
 	public String getHaveAssetName() {
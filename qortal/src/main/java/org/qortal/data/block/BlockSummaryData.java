@@ -50,6 +50,17 @@ public class BlockSummaryData {
 		this.transactionCount = blockData.getTransactionCount();
 	}
 
+	public BlockSummaryData(BlockSummaryData other) {
+		this.height = other.height;
+		this.signature = other.signature;
+		this.minterPublicKey = other.minterPublicKey;
+		this.onlineAccountsCount = other.onlineAccountsCount;
+
+		this.timestamp = other.timestamp;
+		this.transactionCount = other.transactionCount;
+		this.minterLevel = other.minterLevel;
+	}
+
 	// Getters / setters
 
 	public int getHeight() {
@@ -0,0 +1,43 @@
+package org.qortal.data.crosschain;
+
+/**
+ * Pre-decoded cross-chain trade info, as maintained in repository by block processing/orphaning.
+ */
+public class IndexedTradeData {
+
+	// Properties
+	private final CrossChainTradeData tradeData;
+	private final boolean isFinished;
+	/** Height of AT state that <tt>tradeData</tt> was decoded from */
+	private final int height;
+	/** Timestamp of block at <tt>height</tt> */
+	private final long updatedTimestamp;
+
+	// Constructors
+
+	public IndexedTradeData(CrossChainTradeData tradeData, boolean isFinished, int height, long updatedTimestamp) {
+		this.tradeData = tradeData;
+		this.isFinished = isFinished;
+		this.height = height;
+		this.updatedTimestamp = updatedTimestamp;
+	}
+
+	// Getters / setters
+
+	public CrossChainTradeData getTradeData() {
+		return this.tradeData;
+	}
+
+	public boolean isFinished() {
+		return this.isFinished;
+	}
+
+	public int getHeight() {
+		return this.height;
+	}
+
+	public long getUpdatedTimestamp() {
+		return this.updatedTimestamp;
+	}
+
+}
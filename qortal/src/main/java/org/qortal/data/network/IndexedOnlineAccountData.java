@@ -0,0 +1,38 @@
+package org.qortal.data.network;
+
+/**
+ * Online account identified by reward-share index, instead of reward-share public key, for compact gossip between peers.
+ * <p>
+ * Signature is null when only announcing, or requesting, which accounts are online.
+ */
+public class IndexedOnlineAccountData {
+
+	protected long timestamp;
+	protected int index;
+	protected byte[] signature;
+
+	// Constructors
+
+	public IndexedOnlineAccountData(long timestamp, int index, byte[] signature) {
+		this.timestamp = timestamp;
+		this.index = index;
+		this.signature = signature;
+	}
+
+	public IndexedOnlineAccountData(long timestamp, int index) {
+		this(timestamp, index, null);
+	}
+
+	public long getTimestamp() {
+		return this.timestamp;
+	}
+
+	public int getIndex() {
+		return this.index;
+	}
+
+	public byte[] getSignature() {
+		return this.signature;
+	}
+
+}
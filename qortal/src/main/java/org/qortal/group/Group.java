@@ -142,7 +142,7 @@ public class Group {
 		GroupMemberData groupMemberData = new GroupMemberData(this.groupData.getGroupId(), member, joined, reference);
 		groupRepository.save(groupMemberData);
 
-		Controller.getInstance().onGroupMembershipChange(this.groupData.getGroupId());
+		Controller.getInstance().onGroupMembershipChange(this.groupData.getGroupId(), member);
 	}
 
 	private void addMember(String member, TransactionData transactionData) throws DataException {
@@ -157,7 +157,7 @@ public class Group {
 	private void deleteMember(String member) throws DataException {
 		groupRepository.deleteMember(this.groupData.getGroupId(), member);
 
-		Controller.getInstance().onGroupMembershipChange(this.groupData.getGroupId());
+		Controller.getInstance().onGroupMembershipChange(this.groupData.getGroupId(), member);
 	}
 
 	// Adminship
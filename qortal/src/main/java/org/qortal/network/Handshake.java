@@ -1,8 +1,6 @@
 package org.qortal.network;
 
 import java.util.Arrays;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -17,7 +15,6 @@ import org.qortal.network.message.Message;
 import org.qortal.network.message.Message.MessageType;
 import org.qortal.settings.Settings;
 import org.qortal.network.message.ResponseMessage;
-import org.qortal.utils.DaemonThreadFactory;
 import org.qortal.utils.NTP;
 
 import com.google.common.primitives.Bytes;
@@ -164,19 +161,33 @@ public enum Handshake {
 			int nonce = responseMessage.getNonce();
 			int powBufferSize = peer.getPeersVersion() < PEER_VERSION_131 ? POW_BUFFER_SIZE_PRE_131 : POW_BUFFER_SIZE_POST_131;
 			int powDifficulty = peer.getPeersVersion() < PEER_VERSION_131 ? POW_DIFFICULTY_PRE_131 : POW_DIFFICULTY_POST_131;
-			if (!MemoryPoW.verify2(data, powBufferSize, powDifficulty, nonce)) {
-				LOGGER.debug(() -> String.format("Peer %s sent incorrect RESPONSE nonce", peer));
-				return null;
-			}
 
-			peer.setPeersNodeId(Crypto.toNodeAddress(peersPublicKey));
+			// Verifying can take a while too, so we wait in VERIFYING state and carry on via Network.onHandshakeVerified()
+			peer.setHandshakeStatus(VERIFYING);
+
+			boolean isAccepted = powExecutor.submit(getPoWHost(peer), "verify", () -> {
+				// Are we still connected?
+				if (peer.isStopping())
+					return;
 
-			// For inbound peers, we need to go into interim holding state while we compute RESPONSE
-			if (!peer.isOutbound())
-				return RESPONDING;
+				if (!MemoryPoW.verify2(data, powBufferSize, powDifficulty, nonce)) {
+					LOGGER.debug(() -> String.format("Peer %s sent incorrect RESPONSE nonce", peer));
+					Network.getInstance().onHandshakeVerified(peer, null);
+					return;
+				}
 
-			// Handshake completed!
-			return COMPLETED;
+				peer.setPeersNodeId(Crypto.toNodeAddress(peersPublicKey));
+
+				// For inbound peers, we need to go into interim holding state while we compute RESPONSE
+				Network.getInstance().onHandshakeVerified(peer, peer.isOutbound() ? COMPLETED : RESPONDING);
+			});
+
+			if (!isAccepted) {
+				LOGGER.debug(() -> String.format("Too busy to verify RESPONSE from peer %s", peer));
+				return null;
+			}
+
+			return VERIFYING;
 		}
 
 		@Override
@@ -190,7 +201,7 @@ public enum Handshake {
 			final byte[] data = Crypto.digest(Bytes.concat(sharedSecret, peersChallenge));
 
 			// We do this in a new thread as it can take a while...
-			responseExecutor.execute(() -> {
+			boolean isAccepted = powExecutor.submit(getPoWHost(peer), "compute", () -> {
 				// Are we still connected?
 				if (peer.isStopping())
 					// No point computing for dead peer
@@ -198,6 +209,7 @@ public enum Handshake {
 
 				int powBufferSize = peer.getPeersVersion() < PEER_VERSION_131 ? POW_BUFFER_SIZE_PRE_131 : POW_BUFFER_SIZE_POST_131;
 				int powDifficulty = peer.getPeersVersion() < PEER_VERSION_131 ? POW_DIFFICULTY_PRE_131 : POW_DIFFICULTY_POST_131;
+				// Single-threaded, as responseExecutor already computes for multiple peers in parallel
 				Integer nonce = MemoryPoW.compute2(data, powBufferSize, powDifficulty);
 
 				Message responseMessage = new ResponseMessage(nonce, data);
@@ -211,6 +223,22 @@ public enum Handshake {
 					Network.getInstance().onHandshakeCompleted(peer);
 				}
 			});
+
+			if (!isAccepted)
+				peer.disconnect("too busy to compute RESPONSE");
+		}
+	},
+	// Interim holding state while we verify peer's RESPONSE
+	VERIFYING(null) {
+		@Override
+		public Handshake onMessage(Peer peer, Message message) {
+			// Should never be called, as further messages are held back until verification completes
+			return null;
+		}
+
+		@Override
+		public void action(Peer peer) {
+			// Should never be called
 		}
 	},
 	// Interim holding state while we compute RESPONSE to send to inbound peer
@@ -255,7 +283,8 @@ public enum Handshake {
 	private static final int POW_DIFFICULTY_POST_131 = 2; // leading zero bits
 
 
-	private static final ExecutorService responseExecutor = Executors.newFixedThreadPool(Settings.getInstance().getNetworkPoWComputePoolSize(), new DaemonThreadFactory("Network-PoW"));
+	private static final HandshakePoWExecutor powExecutor = new HandshakePoWExecutor(Settings.getInstance().getNetworkPoWComputePoolSize(),
+			Settings.getInstance().getNetworkPoWMaxQueueSize(), Settings.getInstance().getNetworkPoWMaxPendingPerHost());
 
 	private static final byte[] ZERO_CHALLENGE = new byte[ChallengeMessage.CHALLENGE_LENGTH];
 
@@ -269,4 +298,13 @@ public enum Handshake {
 
 	public abstract void action(Peer peer);
 
+	public static HandshakePoWExecutor.StatsSnapshot getPoWStatsSnapshot() {
+		return powExecutor.getStatsSnapshot();
+	}
+
+	/** Returns host used to limit pending PoW tasks, which is remote IP address for inbound peers. */
+	private static String getPoWHost(Peer peer) {
+		return peer.getPeerData().getAddress().getHost().toLowerCase();
+	}
+
 }
@@ -0,0 +1,130 @@
+package org.qortal.network;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+
+import org.qortal.controller.ProcessingStats;
+import org.qortal.utils.DaemonThreadFactory;
+
+/**
+ * Runs handshake proof-of-work computation and verification away from network threads.
+ * <p>
+ * Admission is limited by number of waiting tasks, and by number of pending (waiting or running) tasks per host,
+ * so a burst of connections, especially from one host, can't build up an unbounded backlog.
+ * Tasks that aren't admitted are refused immediately, leaving caller to drop the connection.
+ */
+public class HandshakePoWExecutor {
+
+	@XmlAccessorType(XmlAccessType.FIELD)
+	public static class StatsSnapshot {
+		public long accepted;
+		public long rejectedQueueFull;
+		public long rejectedHostLimit;
+		public long completed;
+		public int waiting;
+		public int running;
+
+		public StatsSnapshot() {
+		}
+	}
+
+	private final ThreadPoolExecutor executor;
+	private final int maxPendingPerHost;
+
+	/** Number of waiting or running tasks, by host */
+	private final Map<String, Integer> pendingByHost = new HashMap<>();
+
+	private final AtomicLong accepted = new AtomicLong();
+	private final AtomicLong rejectedQueueFull = new AtomicLong();
+	private final AtomicLong rejectedHostLimit = new AtomicLong();
+	private final AtomicLong completed = new AtomicLong();
+
+	public HandshakePoWExecutor(int poolSize, int maxQueueSize, int maxPendingPerHost) {
+		this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(maxQueueSize), new DaemonThreadFactory("Network-PoW"));
+		this.maxPendingPerHost = maxPendingPerHost;
+	}
+
+	/**
+	 * Submits PoW <tt>task</tt> on behalf of <tt>host</tt>, if admitted.
+	 * <p>
+	 * Time spent waiting, and running, is recorded in {@link ProcessingStats}
+	 * under <tt>Handshake.PoW.waiting</tt> and <tt>Handshake.PoW.</tt><i>phase</i>.
+	 *
+	 * @return true if task was accepted, false if refused
+	 */
+	public boolean submit(String host, String phase, Runnable task) {
+		synchronized (this.pendingByHost) {
+			int hostPending = this.pendingByHost.getOrDefault(host, 0);
+			if (hostPending >= this.maxPendingPerHost) {
+				this.rejectedHostLimit.incrementAndGet();
+				return false;
+			}
+
+			this.pendingByHost.put(host, hostPending + 1);
+		}
+
+		final long submittedNanos = System.nanoTime();
+
+		try {
+			this.executor.execute(() -> {
+				final long startNanos = System.nanoTime();
+				ProcessingStats.recordPhase("Handshake.PoW.waiting", submittedNanos);
+
+				try {
+					task.run();
+				} finally {
+					ProcessingStats.recordPhase("Handshake.PoW." + phase, startNanos);
+
+					this.release(host);
+					this.completed.incrementAndGet();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// Queue full, or shutting down
+			this.release(host);
+			this.rejectedQueueFull.incrementAndGet();
+			return false;
+		}
+
+		this.accepted.incrementAndGet();
+		return true;
+	}
+
+	public StatsSnapshot getStatsSnapshot() {
+		StatsSnapshot snapshot = new StatsSnapshot();
+
+		snapshot.accepted = this.accepted.get();
+		snapshot.rejectedQueueFull = this.rejectedQueueFull.get();
+		snapshot.rejectedHostLimit = this.rejectedHostLimit.get();
+		snapshot.completed = this.completed.get();
+		snapshot.waiting = this.executor.getQueue().size();
+		snapshot.running = this.executor.getActiveCount();
+
+		return snapshot;
+	}
+
+	public void shutdown() {
+		this.executor.shutdownNow();
+	}
+
+	private void release(String host) {
+		synchronized (this.pendingByHost) {
+			int hostPending = this.pendingByHost.getOrDefault(host, 0) - 1;
+
+			if (hostPending > 0)
+				this.pendingByHost.put(host, hostPending);
+			else
+				this.pendingByHost.remove(host);
+		}
+	}
+
+}
@@ -0,0 +1,75 @@
+package org.qortal.network;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.qortal.network.message.Message.MessageType;
+
+/**
+ * Priority classes for dispatching unsolicited messages from peers, highest first.
+ * <p>
+ * Replies to our own requests bypass these, as they are passed straight to the waiting thread.
+ */
+public enum MessagePriority {
+	/** Handshaking, pings and chain tip announcements, needed to stay in consensus */
+	CONSENSUS(100),
+	/** Unsolicited data, e.g. new transactions, online accounts, peer lists */
+	NORMAL(500),
+	/** Requests for data, which can be costly to serve */
+	BULK(200);
+
+	/** Token-bucket rate limit for a message type, per peer. */
+	public static class RateLimit {
+		/** Maximum number of messages allowed in a burst */
+		public final int burst;
+		/** Number of messages allowed per second, after burst */
+		public final double perSecond;
+
+		public RateLimit(int burst, double perSecond) {
+			this.burst = burst;
+			this.perSecond = perSecond;
+		}
+	}
+
+	private static final Map<MessageType, MessagePriority> PRIORITIES = new EnumMap<>(MessageType.class);
+	private static final Map<MessageType, RateLimit> RATE_LIMITS = new EnumMap<>(MessageType.class);
+
+	static {
+		for (MessageType messageType : new MessageType[] { MessageType.HELLO, MessageType.GOODBYE, MessageType.CHALLENGE, MessageType.RESPONSE,
+				MessageType.HEIGHT_V2, MessageType.PING, MessageType.PONG })
+			PRIORITIES.put(messageType, CONSENSUS);
+
+		RATE_LIMITS.put(MessageType.GET_PEERS, new RateLimit(5, 1.0));
+		RATE_LIMITS.put(MessageType.GET_TRANSACTION, new RateLimit(200, 50.0));
+		RATE_LIMITS.put(MessageType.GET_UNCONFIRMED_TRANSACTIONS, new RateLimit(5, 1.0));
+		RATE_LIMITS.put(MessageType.GET_BLOCK, new RateLimit(100, 50.0));
+		RATE_LIMITS.put(MessageType.GET_SIGNATURES_V2, new RateLimit(20, 5.0));
+		RATE_LIMITS.put(MessageType.GET_BLOCK_SUMMARIES, new RateLimit(20, 5.0));
+		RATE_LIMITS.put(MessageType.GET_BLOCK_HEADERS, new RateLimit(20, 5.0));
+		RATE_LIMITS.put(MessageType.BLOCK_LOCATOR, new RateLimit(20, 5.0));
+		RATE_LIMITS.put(MessageType.GET_ONLINE_ACCOUNTS, new RateLimit(5, 1.0));
+		RATE_LIMITS.put(MessageType.GET_ONLINE_ACCOUNT_SIGNATURES, new RateLimit(5, 1.0));
+		RATE_LIMITS.put(MessageType.GET_ARBITRARY_DATA, new RateLimit(10, 2.0));
+
+		// All rate-limited requests are bulk
+		for (MessageType messageType : RATE_LIMITS.keySet())
+			PRIORITIES.put(messageType, BULK);
+	}
+
+	/** Maximum number of messages waiting for dispatch, per peer. */
+	public final int maxQueueSize;
+
+	private MessagePriority(int maxQueueSize) {
+		this.maxQueueSize = maxQueueSize;
+	}
+
+	public static MessagePriority of(MessageType messageType) {
+		return PRIORITIES.getOrDefault(messageType, NORMAL);
+	}
+
+	/** Returns rate limit for message type, or null if not rate-limited. */
+	public static RateLimit getRateLimit(MessageType messageType) {
+		return RATE_LIMITS.get(messageType);
+	}
+
+}
@@ -14,9 +14,11 @@ import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
@@ -26,7 +28,6 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
-import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.LogManager;
@@ -75,6 +76,8 @@ public class Network {
 	private static final long OLD_PEER_CONNECTION_PERIOD = 7 * 24 * 60 * 60 * 1000L; // ms
 	/** Maximum time allowed for handshake to complete, in milliseconds. */
 	private static final long HANDSHAKE_TIMEOUT = 60 * 1000L; // ms
+	/** How often to write batched peer changes to repository, in milliseconds. */
+	private static final long PEERS_SAVE_INTERVAL = 30 * 1000L; // ms
 
 	private static final byte[] MAINNET_MESSAGE_MAGIC = new byte[] { 0x51, 0x4f, 0x52, 0x54 }; // QORT
 	private static final byte[] TESTNET_MESSAGE_MAGIC = new byte[] { 0x71, 0x6f, 0x72, 0x54 }; // qorT
@@ -89,6 +92,8 @@ public class Network {
 
 	public static final int MAX_SIGNATURES_PER_REPLY = 500;
 	public static final int MAX_BLOCK_SUMMARIES_PER_REPLY = 500;
+	/** Block headers include encoded online accounts, so fewer fit into one message */
+	public static final int MAX_BLOCK_HEADERS_PER_REPLY = 100;
 
 	// Generate our node keys / ID
 	private final Ed25519PrivateKeyParameters edPrivateKeyParams = new Ed25519PrivateKeyParameters(new SecureRandom());
@@ -99,7 +104,7 @@ public class Network {
 	private final int minOutboundPeers;
 	private final int maxPeers;
 
-	private final List<PeerData> allKnownPeers = new ArrayList<>();
+	private final PeerStore knownPeers = new PeerStore();
 	private final List<Peer> connectedPeers = new ArrayList<>();
 	private final List<PeerAddress> selfPeers = new ArrayList<>();
 
@@ -117,6 +122,11 @@ public class Network {
 
 	private final Lock mergePeersLock = new ReentrantLock();
 
+	private final PeerMessageQueue.Stats messageQueueStats = new PeerMessageQueue.Stats();
+
+	// volatile because value is updated inside Controller thread
+	private volatile long nextPeersSaveTimestamp = 0L; // ms
+
 	// Constructors
 
 	private Network() {
@@ -161,9 +171,7 @@ public class Network {
 
 		// Load all known peers from repository
 		try (final Repository repository = RepositoryManager.getRepository()) {
-			synchronized (this.allKnownPeers) {
-				this.allKnownPeers.addAll(repository.getNetworkRepository().getAllPeers());
-			}
+			this.knownPeers.load(repository.getNetworkRepository().getAllPeers());
 		}
 
 		// Start up first networking thread
@@ -200,12 +208,23 @@ public class Network {
 		return this.networkEPC.getStatsSnapshot();
 	}
 
+	public HandshakePoWExecutor.StatsSnapshot getHandshakePoWStatsSnapshot() {
+		return Handshake.getPoWStatsSnapshot();
+	}
+
+	/*package*/ PeerMessageQueue.Stats getMessageQueueStats() {
+		return this.messageQueueStats;
+	}
+
+	/** Returns counts of dropped or deferred messages from peers, by message type. */
+	public List<PeerMessageQueue.StatsSnapshot> getMessageQueueStatsSnapshot() {
+		return this.messageQueueStats.getStatsSnapshot();
+	}
+
 	// Peer lists
 
 	public List<PeerData> getAllKnownPeers() {
-		synchronized (this.allKnownPeers) {
-			return new ArrayList<>(this.allKnownPeers);
-		}
+		return this.knownPeers.getAll();
 	}
 
 	public List<Peer> getConnectedPeers() {
@@ -243,28 +262,26 @@ public class Network {
 
 	// Peer list filters
 
-	/** Must be inside <tt>synchronized (this.selfPeers) {...}</tt> */
-	private final Predicate<PeerData> isSelfPeer = peerData -> {
-		PeerAddress peerAddress = peerData.getAddress();
-		return this.selfPeers.stream().anyMatch(selfPeer -> selfPeer.equals(peerAddress));
-	};
-
-	/** Must be inside <tt>synchronized (this.connectedPeers) {...}</tt> */
-	private final Predicate<PeerData> isConnectedPeer = peerData -> {
-		PeerAddress peerAddress = peerData.getAddress();
-		return this.connectedPeers.stream().anyMatch(peer -> peer.getPeerData().getAddress().equals(peerAddress));
-	};
+	/** Returns addresses of connected peers, for quick lookups. */
+	private Set<PeerAddress> getConnectedPeerAddresses() {
+		synchronized (this.connectedPeers) {
+			return this.connectedPeers.stream().map(peer -> peer.getPeerData().getAddress()).collect(Collectors.toSet());
+		}
+	}
 
-	/** Must be inside <tt>synchronized (this.connectedPeers) {...}</tt> */
-	private final Predicate<PeerData> isResolvedAsConnectedPeer = peerData -> {
+	/** Returns true if peer address resolves to an already connected peer, or can't be resolved at all. */
+	private boolean isResolvedAsConnectedPeer(PeerData peerData) {
 		try {
 			InetSocketAddress resolvedSocketAddress = peerData.getAddress().toSocketAddress();
-			return this.connectedPeers.stream().anyMatch(peer -> peer.getResolvedAddress().equals(resolvedSocketAddress));
+
+			synchronized (this.connectedPeers) {
+				return this.connectedPeers.stream().anyMatch(peer -> resolvedSocketAddress.equals(peer.getResolvedAddress()));
+			}
 		} catch (UnknownHostException e) {
 			// Can't resolve - no point even trying to connect
 			return true;
 		}
-	};
+	}
 
 	// Initial setup
 
@@ -283,6 +300,9 @@ public class Network {
 
 	class NetworkProcessor extends ExecuteProduceConsume {
 
+		/** Round-robin position in connected peers for producing message tasks. Only used while producing, which is synchronized. */
+		private int nextPeerMessageIndex = 0;
+
 		public NetworkProcessor(ExecutorService executor) {
 			super(executor);
 		}
@@ -325,11 +345,22 @@ public class Network {
 		}
 
 		private Task maybeProducePeerMessageTask() {
-			for (Peer peer : getConnectedPeers()) {
-				Task peerTask = peer.getMessageTask();
-				if (peerTask != null)
-					return peerTask;
-			}
+			List<Peer> peers = getConnectedPeers();
+			final int peerCount = peers.size();
+			final long now = System.currentTimeMillis();
+
+			// Higher priority messages from any peer are dispatched before lower priority messages
+			for (MessagePriority priority : MessagePriority.values())
+				// Start with the peer after the last one that produced a task, so one busy peer can't starve the others
+				for (int i = 0; i < peerCount; ++i) {
+					int peerIndex = (this.nextPeerMessageIndex + i) % peerCount;
+
+					Task peerTask = peers.get(peerIndex).getMessageTask(priority, now);
+					if (peerTask != null) {
+						this.nextPeerMessageIndex = (peerIndex + 1) % peerCount;
+						return peerTask;
+					}
+				}
 
 			return null;
 		}
@@ -521,63 +552,46 @@ public class Network {
 	}
 
 	private Peer getConnectablePeer(final Long now) throws InterruptedException {
-		// We can't block here so use tryRepository(). We don't NEED to connect a new peer.
-		try (final Repository repository = RepositoryManager.tryRepository()) {
-			if (repository == null)
-				return null;
+		// Find an address to connect to, ignoring peers with recent connection failures
+		final long lastAttemptedThreshold = now - CONNECT_FAILURE_BACKOFF;
+		List<PeerData> peers = this.knownPeers.getConnectablePeers(lastAttemptedThreshold);
 
-			// Find an address to connect to
-			List<PeerData> peers = this.getAllKnownPeers();
+		// Don't consider peers that we know loop back to ourself
+		Set<PeerAddress> selfPeerAddresses = new HashSet<>(this.getSelfPeers());
+		peers.removeIf(peerData -> selfPeerAddresses.contains(peerData.getAddress()));
 
-			// Don't consider peers with recent connection failures
-			final long lastAttemptedThreshold = now - CONNECT_FAILURE_BACKOFF;
-			peers.removeIf(peerData -> peerData.getLastAttempted() != null &&
-					(peerData.getLastConnected() == null || peerData.getLastConnected() < peerData.getLastAttempted()) &&
-					peerData.getLastAttempted() > lastAttemptedThreshold);
+		// Don't consider already connected peers (simple address match)
+		Set<PeerAddress> connectedPeerAddresses = this.getConnectedPeerAddresses();
+		peers.removeIf(peerData -> connectedPeerAddresses.contains(peerData.getAddress()));
 
-			// Don't consider peers that we know loop back to ourself
-			synchronized (this.selfPeers) {
-				peers.removeIf(isSelfPeer);
-			}
+		Random random = new Random();
 
-			synchronized (this.connectedPeers) {
-				// Don't consider already connected peers (simple address match)
-				peers.removeIf(isConnectedPeer);
+		while (!peers.isEmpty()) {
+			// Pick candidate, favouring peers with better connection history
+			PeerData peerData = this.knownPeers.pickPeer(peers, random);
 
-				// Don't consider already connected peers (resolved address match)
-				// XXX This might be too slow if we end up waiting a long time for hostnames to resolve via DNS
-				peers.removeIf(isResolvedAsConnectedPeer);
+			// Don't consider already connected peers (resolved address match)
+			// Only candidate is resolved, rather than all known peers, to limit waiting for DNS
+			if (isResolvedAsConnectedPeer(peerData)) {
+				peers.remove(peerData);
+				continue;
 			}
 
-			// Any left?
-			if (peers.isEmpty())
-				return null;
-
-			// Pick random peer
-			int peerIndex = new Random().nextInt(peers.size());
+			// Update connection attempt info, saved to repository later
+			this.knownPeers.update(peerData, updatedPeerData -> updatedPeerData.setLastAttempted(now));
 
-			// Pick candidate
-			PeerData peerData = peers.get(peerIndex);
-			Peer newPeer = new Peer(peerData);
-
-			// Update connection attempt info
-			peerData.setLastAttempted(now);
-			synchronized (this.allKnownPeers) {
-				repository.getNetworkRepository().save(peerData);
-				repository.saveChanges();
-			}
-
-			return newPeer;
-		} catch (DataException e) {
-			LOGGER.error("Repository issue while finding a connectable peer", e);
-			return null;
+			return new Peer(peerData);
 		}
+
+		return null;
 	}
 
 	private void connectPeer(Peer newPeer) throws InterruptedException {
 		SocketChannel socketChannel = newPeer.connect(this.channelSelector);
-		if (socketChannel == null)
+		if (socketChannel == null) {
+			this.knownPeers.recordFailure(newPeer.getPeerData().getAddress());
 			return;
+		}
 
 		if (Thread.currentThread().isInterrupted())
 			return;
@@ -629,22 +643,25 @@ public class Network {
 		synchronized (this.connectedPeers) {
 			this.connectedPeers.remove(peer);
 		}
+
+		// Update outbound peer's score, used when choosing peers to connect to
+		if (peer.isOutbound()) {
+			PeerAddress peerAddress = peer.getPeerData().getAddress();
+
+			if (peer.getHandshakeStatus() != Handshake.COMPLETED)
+				this.knownPeers.recordFailure(peerAddress);
+
+			Long lastPing = peer.getLastPing();
+			if (lastPing != null)
+				this.knownPeers.recordLatency(peerAddress, lastPing);
+		}
 	}
 
 	public void peerMisbehaved(Peer peer) {
-		PeerData peerData = peer.getPeerData();
-		peerData.setLastMisbehaved(NTP.getTime());
+		final Long now = NTP.getTime();
 
-		// Only update repository if outbound peer
-		if (peer.isOutbound())
-			try (final Repository repository = RepositoryManager.getRepository()) {
-				synchronized (this.allKnownPeers) {
-					repository.getNetworkRepository().save(peerData);
-					repository.saveChanges();
-				}
-			} catch (DataException e) {
-				LOGGER.warn("Repository issue while updating peer synchronization info", e);
-			}
+		// Only outbound peers are saved to repository
+		this.knownPeers.update(peer.getPeerData(), peerData -> peerData.setLastMisbehaved(now));
 	}
 
 	/** Called when a new message arrives for a peer. message can be null if called after connection */
@@ -689,6 +706,8 @@ public class Network {
 	}
 
 	private void onHandshakingMessage(Peer peer, Message message, Handshake handshakeStatus) {
+		boolean isVerifying = false;
+
 		try {
 			// Still handshaking
 			LOGGER.trace(() -> String.format("Handshake status %s, message %s from peer %s", handshakeStatus.name(), (message != null ? message.getType().name() : "null"), peer));
@@ -709,22 +728,53 @@ public class Network {
 				return;
 			}
 
-			if (peer.isOutbound())
-				// If we made outbound connection then we need to act first
-				newHandshakeStatus.action(peer);
-			else
-				// We have inbound connection so we need to respond in kind with what we just received
-				handshakeStatus.action(peer);
+			// PoW verification continues asynchronously, then calls onHandshakeVerified()
+			if (newHandshakeStatus == Handshake.VERIFYING) {
+				isVerifying = true;
+				return;
+			}
 
-			peer.setHandshakeStatus(newHandshakeStatus);
+			this.advanceHandshake(peer, handshakeStatus, newHandshakeStatus);
+		} finally {
+			// If verifying then further messages are held back until verification completes
+			if (!isVerifying)
+				peer.resetHandshakeMessagePending();
+		}
+	}
 
-			if (newHandshakeStatus == Handshake.COMPLETED)
-				this.onHandshakeCompleted(peer);
+	/** Called from PoW thread when peer's RESPONSE has been verified, with null <tt>newHandshakeStatus</tt> if verification failed. */
+	/*package*/ void onHandshakeVerified(Peer peer, Handshake newHandshakeStatus) {
+		try {
+			if (newHandshakeStatus == null) {
+				LOGGER.debug(() -> String.format("Handshake failure with peer %s during RESPONSE verification", peer));
+				peer.disconnect("handshake failure");
+				return;
+			}
+
+			this.advanceHandshake(peer, Handshake.RESPONSE, newHandshakeStatus);
 		} finally {
 			peer.resetHandshakeMessagePending();
+
+			// Process any messages that arrived during verification
+			this.wakeupChannelSelector();
 		}
 	}
 
+	private void advanceHandshake(Peer peer, Handshake handshakeStatus, Handshake newHandshakeStatus) {
+		// Set new status first, as action might carry on asynchronously, e.g. computing RESPONSE PoW
+		peer.setHandshakeStatus(newHandshakeStatus);
+
+		if (peer.isOutbound())
+			// If we made outbound connection then we need to act first
+			newHandshakeStatus.action(peer);
+		else
+			// We have inbound connection so we need to respond in kind with what we just received
+			handshakeStatus.action(peer);
+
+		if (newHandshakeStatus == Handshake.COMPLETED)
+			this.onHandshakeCompleted(peer);
+	}
+
 	private void onGetPeersMessage(Peer peer, Message message) {
 		// Send our known peers
 		if (!peer.sendMessage(this.buildPeersMessage(peer)))
@@ -774,18 +824,13 @@ public class Network {
 		}
 
 		// Make a note that we've successfully completed handshake (and when)
-		peer.getPeerData().setLastConnected(NTP.getTime());
+		final Long now = NTP.getTime();
+
+		// Connection info is only saved to repository for outbound peers
+		this.knownPeers.update(peer.getPeerData(), peerData -> peerData.setLastConnected(now));
 
-		// Update connection info for outbound peers only
 		if (peer.isOutbound())
-			try (final Repository repository = RepositoryManager.getRepository()) {
-				synchronized (this.allKnownPeers) {
-					repository.getNetworkRepository().save(peer.getPeerData());
-					repository.saveChanges();
-				}
-			} catch (DataException e) {
-				LOGGER.error(String.format("Repository issue while trying to update outbound peer %s", peer), e);
-			}
+			this.knownPeers.recordSuccess(peer.getPeerData().getAddress());
 
 		// Start regular pings
 		peer.startPings();
@@ -820,26 +865,9 @@ public class Network {
 
 	/** Returns PEERS message made from peers we've connected to recently, and this node's details */
 	public Message buildPeersMessage(Peer peer) {
-		List<PeerData> knownPeers = this.getAllKnownPeers();
-
-		// Filter out peers that we've not connected to ever or within X milliseconds
+		// Only peers that we've connected to within X milliseconds
 		final long connectionThreshold = NTP.getTime() - RECENT_CONNECTION_THRESHOLD;
-		Predicate<PeerData> notRecentlyConnected = peerData -> {
-			final Long lastAttempted = peerData.getLastAttempted();
-			final Long lastConnected = peerData.getLastConnected();
-
-			if (lastAttempted == null || lastConnected == null)
-				return true;
-
-			if (lastConnected < lastAttempted)
-				return true;
-
-			if (lastConnected < connectionThreshold)
-				return true;
-
-			return false;
-		};
-		knownPeers.removeIf(notRecentlyConnected);
+		List<PeerData> knownPeers = this.knownPeers.getRecentlyConnectedPeers(connectionThreshold);
 
 		List<PeerAddress> peerAddresses = new ArrayList<>();
 
@@ -886,32 +914,26 @@ public class Network {
 	}
 
 	public boolean forgetPeer(PeerAddress peerAddress) throws DataException {
-		int numDeleted;
-
-		synchronized (this.allKnownPeers) {
-			this.allKnownPeers.removeIf(peerData -> peerData.getAddress().equals(peerAddress));
+		boolean wasKnown = this.knownPeers.remove(peerAddress);
 
-			try (final Repository repository = RepositoryManager.getRepository()) {
-				numDeleted = repository.getNetworkRepository().delete(peerAddress);
-				repository.saveChanges();
-			}
+		// Save immediately, as caller expects peer to be gone from repository
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			this.knownPeers.saveChanges(repository);
 		}
 
 		disconnectPeer(peerAddress);
 
-		return numDeleted != 0;
+		return wasKnown;
 	}
 
 	public int forgetAllPeers() throws DataException {
 		int numDeleted;
 
-		synchronized (this.allKnownPeers) {
-			this.allKnownPeers.clear();
+		this.knownPeers.clear();
 
-			try (final Repository repository = RepositoryManager.getRepository()) {
-				numDeleted = repository.getNetworkRepository().deleteAllPeers();
-				repository.saveChanges();
-			}
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			numDeleted = repository.getNetworkRepository().deleteAllPeers();
+			repository.saveChanges();
 		}
 
 		for (Peer peer : this.getConnectedPeers())
@@ -951,47 +973,31 @@ public class Network {
 		for (Peer peer : handshakePeers)
 			peer.disconnect(String.format("handshake timeout at %s", peer.getHandshakeStatus().name()));
 
-		// Prune 'old' peers from repository...
-		// Pruning peers isn't critical so no need to block for a repository instance.
-		try (final Repository repository = RepositoryManager.tryRepository()) {
-			if (repository == null)
-				return;
+		// 'Old' peers:
+		// We attempted to connect within the last day
+		// but we last managed to connect over a week ago.
+		List<PeerData> oldPeers = this.knownPeers.getOldPeers(now - OLD_PEER_ATTEMPTED_PERIOD, now - OLD_PEER_CONNECTION_PERIOD);
 
-			synchronized (this.allKnownPeers) {
-				// Fetch all known peers
-				List<PeerData> peers = new ArrayList<>(this.allKnownPeers);
+		// Don't consider already connected peers (simple address match)
+		Set<PeerAddress> connectedPeerAddresses = this.getConnectedPeerAddresses();
+		oldPeers.removeIf(peerData -> connectedPeerAddresses.contains(peerData.getAddress()));
 
-				// 'Old' peers:
-				// We attempted to connect within the last day
-				// but we last managed to connect over a week ago.
-				Predicate<PeerData> isNotOldPeer = peerData -> {
-					if (peerData.getLastAttempted() == null || peerData.getLastAttempted() < now - OLD_PEER_ATTEMPTED_PERIOD)
-						return true;
-
-					if (peerData.getLastConnected() == null || peerData.getLastConnected() > now - OLD_PEER_CONNECTION_PERIOD)
-						return true;
-
-					return false;
-				};
-
-				// Disregard peers that are NOT 'old'
-				peers.removeIf(isNotOldPeer);
-
-				// Don't consider already connected peers (simple address match)
-				synchronized (this.connectedPeers) {
-					peers.removeIf(isConnectedPeer);
-				}
+		for (PeerData peerData : oldPeers) {
+			LOGGER.debug(() -> String.format("Deleting old peer %s", peerData.getAddress().toString()));
+			this.knownPeers.remove(peerData.getAddress());
+		}
 
-				for (PeerData peerData : peers) {
-					LOGGER.debug(() -> String.format("Deleting old peer %s from repository", peerData.getAddress().toString()));
-					repository.getNetworkRepository().delete(peerData.getAddress());
+		// Write batched peer changes to repository
+		if (now < this.nextPeersSaveTimestamp || !this.knownPeers.hasUnsavedChanges())
+			return;
 
-					// Delete from known peer cache too
-					this.allKnownPeers.remove(peerData);
-				}
+		// Saving peers isn't critical so no need to block for a repository instance.
+		try (final Repository repository = RepositoryManager.tryRepository()) {
+			if (repository == null)
+				return;
 
-				repository.saveChanges();
-			}
+			this.nextPeersSaveTimestamp = now + PEERS_SAVE_INTERVAL;
+			this.knownPeers.saveChanges(repository);
 		}
 	}
 
@@ -1031,37 +1037,24 @@ public class Network {
 	}
 
 	private boolean mergePeers(Repository repository, String addedBy, long addedWhen, List<PeerAddress> peerAddresses) throws DataException {
-		List<PeerData> newPeers;
-		synchronized (this.allKnownPeers) {
-			for (PeerData knownPeerData : this.allKnownPeers) {
-				// Filter out duplicates, without resolving via DNS
-				Predicate<PeerAddress> isKnownAddress = peerAddress -> knownPeerData.getAddress().equals(peerAddress);
-				peerAddresses.removeIf(isKnownAddress);
-			}
-
-			if (peerAddresses.isEmpty())
-				return false;
-
-			// Add leftover peer addresses to known peers list
-			newPeers = peerAddresses.stream().map(peerAddress -> new PeerData(peerAddress, addedWhen, addedBy)).collect(Collectors.toList());
+		// Add unknown peer addresses to known peers, filtering out duplicates without resolving via DNS
+		List<PeerData> newPeers = this.knownPeers.addNewPeers(peerAddresses, addedWhen, addedBy);
 
-			this.allKnownPeers.addAll(newPeers);
+		if (newPeers.isEmpty())
+			return false;
 
-			try {
-				// Save new peers into database
-				for (PeerData peerData : newPeers) {
-					LOGGER.info(String.format("Adding new peer %s to repository", peerData.getAddress()));
-					repository.getNetworkRepository().save(peerData);
-				}
+		for (PeerData peerData : newPeers)
+			LOGGER.info(String.format("Adding new peer %s to repository", peerData.getAddress()));
 
-				repository.saveChanges();
-			} catch (DataException e) {
-				LOGGER.error(String.format("Repository issue while merging peers list from %s", addedBy), e);
-				throw e;
-			}
-
-			return true;
+		try {
+			// Save new peers into database, along with any other pending peer changes
+			this.knownPeers.saveChanges(repository);
+		} catch (DataException e) {
+			LOGGER.error(String.format("Repository issue while merging peers list from %s", addedBy), e);
+			throw e;
 		}
+
+		return true;
 	}
 
 	public void broadcast(Function<Peer, Message> peerMessageBuilder) {
@@ -1139,6 +1132,13 @@ public class Network {
 		// Close all peer connections
 		for (Peer peer : this.getConnectedPeers())
 			peer.shutdown();
+
+		// Save any batched peer changes
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			this.knownPeers.saveChanges(repository);
+		} catch (DataException e) {
+			LOGGER.warn(String.format("Repository issue while saving peers during shutdown: %s", e.getMessage()));
+		}
 	}
 
 }
@@ -17,7 +17,6 @@ import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.logging.log4j.LogManager;
@@ -66,7 +65,7 @@ public class Peer {
 	private ByteBuffer byteBuffer;
 
 	private Map<Integer, BlockingQueue<Message>> replyQueues;
-	private LinkedBlockingQueue<Message> pendingMessages;
+	private PeerMessageQueue pendingMessages;
 
 	/** True if we created connection to peer, false if we accepted incoming connection from peer. */
 	private final boolean isOutbound;
@@ -274,7 +273,7 @@ public class Peer {
 
 	/*package*/ void queueMessage(Message message) {
 		if (!this.pendingMessages.offer(message))
-			LOGGER.info(() -> String.format("No room to queue message from peer %s - discarding", this));
+			LOGGER.debug(() -> String.format("No room to queue %s message from peer %s - discarding", message.getType().name(), this));
 	}
 
 	@Override
@@ -292,7 +291,7 @@ public class Peer {
 		this.socketChannel.register(channelSelector, SelectionKey.OP_READ);
 		this.byteBuffer = null; // Defer allocation to when we need it, to save memory. Sorry GC!
 		this.replyQueues = Collections.synchronizedMap(new HashMap<Integer, BlockingQueue<Message>>());
-		this.pendingMessages = new LinkedBlockingQueue<>();
+		this.pendingMessages = new PeerMessageQueue(Network.getInstance().getMessageQueueStats());
 
 		Random random = new SecureRandom();
 		this.ourChallenge = new byte[ChallengeMessage.CHALLENGE_LENGTH];
@@ -421,10 +420,10 @@ public class Peer {
 
 					// No thread waiting for message so we need to pass it up to network layer
 
-					// Add message to pending queue
+					// Add message to pending queue, by priority
 					if (!this.pendingMessages.offer(message)) {
-						LOGGER.info(() -> String.format("No room to queue message from peer %s - discarding", this));
-						return;
+						LOGGER.debug(() -> String.format("No room to queue %s message from peer %s - discarding", message.getType().name(), this));
+						continue;
 					}
 
 					// Prematurely end any blocking channel select so that new messages can be processed.
@@ -435,7 +434,12 @@ public class Peer {
 		}
 	}
 
-	/* package */ ExecuteProduceConsume.Task getMessageTask() {
+	/**
+	 * Returns task to process next pending message with passed priority, or null if none can be dispatched yet.
+	 *
+	 * @param now current time in milliseconds, for rate-limiting
+	 */
+	/* package */ ExecuteProduceConsume.Task getMessageTask(MessagePriority priority, long now) {
 		/*
 		 * If we are still handshaking and there is a message yet to be processed then
 		 * don't produce another message task. This allows us to process handshake
@@ -444,7 +448,7 @@ public class Peer {
 		if (this.handshakeMessagePending)
 			return null;
 
-		final Message nextMessage = this.pendingMessages.poll();
+		final Message nextMessage = this.pendingMessages.poll(priority, now);
 
 		if (nextMessage == null)
 			return null;
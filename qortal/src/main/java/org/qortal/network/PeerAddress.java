@@ -5,6 +5,7 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import java.util.Locale;
 
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
@@ -137,4 +138,21 @@ public class PeerAddress {
 		return this.host.equalsIgnoreCase(other.host);
 	}
 
+	@Override
+	public boolean equals(Object other) {
+		if (other == this)
+			return true;
+
+		if (!(other instanceof PeerAddress))
+			return false;
+
+		return this.equals((PeerAddress) other);
+	}
+
+	/** Consistent with case-insensitive {@link #equals(PeerAddress)}, so PeerAddress can be used as a map key */
+	@Override
+	public int hashCode() {
+		return this.host.toLowerCase(Locale.ROOT).hashCode() * 31 + this.port;
+	}
+
 }
@@ -0,0 +1,183 @@
+package org.qortal.network;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+
+import org.qortal.network.message.Message;
+import org.qortal.network.message.Message.MessageType;
+
+/**
+ * Messages from one peer waiting to be dispatched, queued by {@link MessagePriority}.
+ * <p>
+ * Messages are dropped if their priority's queue is full.
+ * Rate-limited message types are deferred, i.e. left in queue, while peer has no tokens left for that type,
+ * allowing other message types to be dispatched instead.
+ */
+public class PeerMessageQueue {
+
+	/** Network-wide counts of dropped and deferred messages, by message type. */
+	public static class Stats {
+		private final Map<MessageType, AtomicLong> dropped = new EnumMap<>(MessageType.class);
+		private final Map<MessageType, AtomicLong> deferred = new EnumMap<>(MessageType.class);
+
+		public Stats() {
+			for (MessageType messageType : MessageType.values()) {
+				this.dropped.put(messageType, new AtomicLong());
+				this.deferred.put(messageType, new AtomicLong());
+			}
+		}
+
+		public long getDropped(MessageType messageType) {
+			return this.dropped.get(messageType).get();
+		}
+
+		public long getDeferred(MessageType messageType) {
+			return this.deferred.get(messageType).get();
+		}
+
+		/** Returns counts for message types that have been dropped or deferred. */
+		public List<StatsSnapshot> getStatsSnapshot() {
+			List<StatsSnapshot> snapshots = new ArrayList<>();
+
+			for (MessageType messageType : MessageType.values()) {
+				StatsSnapshot snapshot = new StatsSnapshot();
+				snapshot.messageType = messageType;
+				snapshot.dropped = this.getDropped(messageType);
+				snapshot.deferred = this.getDeferred(messageType);
+
+				if (snapshot.dropped != 0 || snapshot.deferred != 0)
+					snapshots.add(snapshot);
+			}
+
+			return snapshots;
+		}
+	}
+
+	@XmlAccessorType(XmlAccessType.FIELD)
+	public static class StatsSnapshot {
+		public MessageType messageType;
+		public long dropped;
+		public long deferred;
+
+		public StatsSnapshot() {
+		}
+	}
+
+	private static class TokenBucket {
+		private final MessagePriority.RateLimit rateLimit;
+		private double tokens;
+		private long lastRefill;
+
+		public TokenBucket(MessagePriority.RateLimit rateLimit, long now) {
+			this.rateLimit = rateLimit;
+			this.tokens = rateLimit.burst;
+			this.lastRefill = now;
+		}
+
+		public boolean hasToken(long now) {
+			if (now > this.lastRefill) {
+				this.tokens = Math.min(this.rateLimit.burst, this.tokens + (now - this.lastRefill) * this.rateLimit.perSecond / 1000.0);
+				this.lastRefill = now;
+			}
+
+			return this.tokens >= 1.0;
+		}
+
+		public void consume() {
+			this.tokens -= 1.0;
+		}
+	}
+
+	private final Stats stats;
+
+	private final Map<MessagePriority, ArrayDeque<Message>> queues = new EnumMap<>(MessagePriority.class);
+	/** Earliest waiting message of each rate-limited type that has already been counted as deferred */
+	private final Map<MessageType, Message> deferredMessages = new EnumMap<>(MessageType.class);
+	private final Map<MessageType, TokenBucket> tokenBuckets = new EnumMap<>(MessageType.class);
+
+	public PeerMessageQueue(Stats stats) {
+		this.stats = stats;
+
+		for (MessagePriority priority : MessagePriority.values())
+			this.queues.put(priority, new ArrayDeque<>());
+	}
+
+	/** Queues message for dispatch, returning false if message was dropped because queue is full. */
+	public synchronized boolean offer(Message message) {
+		MessagePriority priority = MessagePriority.of(message.getType());
+		ArrayDeque<Message> queue = this.queues.get(priority);
+
+		if (queue.size() >= priority.maxQueueSize) {
+			this.stats.dropped.get(message.getType()).incrementAndGet();
+			return false;
+		}
+
+		queue.add(message);
+		return true;
+	}
+
+	/**
+	 * Returns next message with passed priority, or null if none are waiting or all waiting messages are rate-limited.
+	 * <p>
+	 * Messages of a rate-limited type that has no tokens left are skipped over, so they don't hold up
+	 * other message types with the same priority. Messages of the same type are always dispatched in order.
+	 *
+	 * @param now current time in milliseconds, used for refilling token buckets
+	 */
+	public synchronized Message poll(MessagePriority priority, long now) {
+		ArrayDeque<Message> queue = this.queues.get(priority);
+		Set<MessageType> deferredTypes = null;
+
+		Iterator<Message> iterator = queue.iterator();
+		while (iterator.hasNext()) {
+			Message message = iterator.next();
+			MessageType messageType = message.getType();
+
+			// Later messages of an already deferred type are also deferred
+			if (deferredTypes != null && deferredTypes.contains(messageType))
+				continue;
+
+			MessagePriority.RateLimit rateLimit = MessagePriority.getRateLimit(messageType);
+			if (rateLimit != null) {
+				TokenBucket tokenBucket = this.tokenBuckets.computeIfAbsent(messageType, type -> new TokenBucket(rateLimit, now));
+
+				if (!tokenBucket.hasToken(now)) {
+					// Only count each deferred message once
+					if (this.deferredMessages.get(messageType) != message) {
+						this.deferredMessages.put(messageType, message);
+						this.stats.deferred.get(messageType).incrementAndGet();
+					}
+
+					if (deferredTypes == null)
+						deferredTypes = EnumSet.noneOf(MessageType.class);
+
+					deferredTypes.add(messageType);
+					continue;
+				}
+
+				tokenBucket.consume();
+				this.deferredMessages.remove(messageType);
+			}
+
+			iterator.remove();
+			return message;
+		}
+
+		return null;
+	}
+
+	public synchronized boolean isEmpty() {
+		return this.queues.values().stream().allMatch(ArrayDeque::isEmpty);
+	}
+
+}
@@ -0,0 +1,428 @@
+package org.qortal.network;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.qortal.data.network.PeerData;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+
+/**
+ * Known peers, keyed by address, with indexes on last connection attempt and last successful connection.
+ * <p>
+ * Changes are kept in memory and written to repository in batches by {@link #saveChanges(Repository)}.
+ * <p>
+ * Also keeps connection success/failure counts and ping latency for each peer,
+ * which are combined into a score used to favour reliable, responsive peers when choosing which to connect to.
+ * These are only kept in memory.
+ */
+public class PeerStore {
+
+	private static final Logger LOGGER = LogManager.getLogger(PeerStore.class);
+
+	/** Weighting for new latency sample when updating average latency. */
+	private static final double LATENCY_SAMPLE_WEIGHT = 0.25;
+	/** Average latency at which a peer's score is halved, in milliseconds. */
+	private static final double LATENCY_HALF_SCORE = 1000.0; // ms
+
+	/** Secondary index mapping a peer timestamp to peer addresses. Missing timestamps are indexed as 0. */
+	private static class TimestampIndex {
+		private final Function<PeerData, Long> timestampExtractor;
+		private final NavigableMap<Long, Set<PeerAddress>> addressesByTimestamp = new TreeMap<>();
+
+		public TimestampIndex(Function<PeerData, Long> timestampExtractor) {
+			this.timestampExtractor = timestampExtractor;
+		}
+
+		private long getKey(PeerData peerData) {
+			Long timestamp = this.timestampExtractor.apply(peerData);
+			return timestamp != null ? timestamp : 0L;
+		}
+
+		public void add(PeerData peerData) {
+			this.addressesByTimestamp.computeIfAbsent(getKey(peerData), key -> new HashSet<>()).add(peerData.getAddress());
+		}
+
+		public void remove(PeerData peerData) {
+			long key = getKey(peerData);
+
+			Set<PeerAddress> addresses = this.addressesByTimestamp.get(key);
+			if (addresses == null)
+				return;
+
+			addresses.remove(peerData.getAddress());
+			if (addresses.isEmpty())
+				this.addressesByTimestamp.remove(key);
+		}
+
+		public void clear() {
+			this.addressesByTimestamp.clear();
+		}
+
+		/** Returns addresses with timestamp at or before <tt>timestamp</tt>, including those with no timestamp. */
+		public Collection<Set<PeerAddress>> atOrBefore(long timestamp) {
+			return this.addressesByTimestamp.headMap(timestamp, true).values();
+		}
+
+		/** Returns addresses with timestamp after <tt>timestamp</tt>. */
+		public Collection<Set<PeerAddress>> after(long timestamp) {
+			return this.addressesByTimestamp.tailMap(timestamp, false).values();
+		}
+
+		/** Returns addresses with timestamp at or after <tt>timestamp</tt>. */
+		public Collection<Set<PeerAddress>> atOrAfter(long timestamp) {
+			return this.addressesByTimestamp.tailMap(timestamp, true).values();
+		}
+	}
+
+	private static class PeerScore {
+		private int successes = 0;
+		private int failures = 0;
+		/** Exponentially weighted average ping latency, in milliseconds, or null if not known */
+		private Double averageLatency = null;
+
+		public double getScore() {
+			// Smoothed success ratio, so new peers start at 0.5
+			double score = (this.successes + 1.0) / (this.successes + this.failures + 2.0);
+
+			if (this.averageLatency != null)
+				score /= 1.0 + this.averageLatency / LATENCY_HALF_SCORE;
+
+			return score;
+		}
+	}
+
+	private final Map<PeerAddress, PeerData> peersByAddress = new HashMap<>();
+	private final TimestampIndex lastAttemptedIndex = new TimestampIndex(PeerData::getLastAttempted);
+	private final TimestampIndex lastConnectedIndex = new TimestampIndex(PeerData::getLastConnected);
+	private final Map<PeerAddress, PeerScore> scores = new HashMap<>();
+
+	/** Peers added or updated since last save */
+	private final Set<PeerAddress> unsavedPeers = new HashSet<>();
+	/** Peers removed since last save */
+	private final Set<PeerAddress> deletedPeers = new HashSet<>();
+
+	// Loading
+
+	/** Adds peers loaded from repository, e.g. at start-up, without marking them as unsaved. */
+	public synchronized void load(List<PeerData> peers) {
+		for (PeerData peerData : peers)
+			if (!this.peersByAddress.containsKey(peerData.getAddress()))
+				this.index(peerData);
+	}
+
+	// Lookups
+
+	public synchronized int size() {
+		return this.peersByAddress.size();
+	}
+
+	public synchronized boolean contains(PeerAddress peerAddress) {
+		return this.peersByAddress.containsKey(peerAddress);
+	}
+
+	public synchronized PeerData get(PeerAddress peerAddress) {
+		return this.peersByAddress.get(peerAddress);
+	}
+
+	public synchronized List<PeerData> getAll() {
+		return new ArrayList<>(this.peersByAddress.values());
+	}
+
+	/**
+	 * Returns peers that are not backing off after a failed connection attempt.
+	 * <p>
+	 * That is, peers that have never been attempted, last attempted at or before <tt>lastAttemptedThreshold</tt>,
+	 * or successfully connected since their last attempt.
+	 */
+	public synchronized List<PeerData> getConnectablePeers(long lastAttemptedThreshold) {
+		List<PeerData> peers = this.lookup(this.lastAttemptedIndex.atOrBefore(lastAttemptedThreshold));
+
+		for (Set<PeerAddress> addresses : this.lastAttemptedIndex.after(lastAttemptedThreshold))
+			for (PeerAddress peerAddress : addresses) {
+				PeerData peerData = this.peersByAddress.get(peerAddress);
+
+				if (peerData.getLastConnected() != null && peerData.getLastConnected() >= peerData.getLastAttempted())
+					peers.add(peerData);
+			}
+
+		return peers;
+	}
+
+	/** Returns peers whose last connection attempt, at or after <tt>lastConnectedThreshold</tt>, was successful. */
+	public synchronized List<PeerData> getRecentlyConnectedPeers(long lastConnectedThreshold) {
+		List<PeerData> peers = this.lookup(this.lastConnectedIndex.atOrAfter(lastConnectedThreshold));
+
+		peers.removeIf(peerData -> peerData.getLastAttempted() == null || peerData.getLastConnected() < peerData.getLastAttempted());
+
+		return peers;
+	}
+
+	/**
+	 * Returns 'old' peers: those attempted at or after <tt>lastAttemptedThreshold</tt>
+	 * but that last connected at or before <tt>lastConnectedThreshold</tt>.
+	 * <p>
+	 * Peers that have never connected are not considered old.
+	 */
+	public synchronized List<PeerData> getOldPeers(long lastAttemptedThreshold, long lastConnectedThreshold) {
+		List<PeerData> peers = this.lookup(this.lastAttemptedIndex.atOrAfter(lastAttemptedThreshold));
+
+		peers.removeIf(peerData -> peerData.getLastConnected() == null || peerData.getLastConnected() > lastConnectedThreshold);
+
+		return peers;
+	}
+
+	// Updates
+
+	/**
+	 * Adds peers with passed addresses, ignoring already known addresses and duplicates.
+	 *
+	 * @return newly added peers
+	 */
+	public synchronized List<PeerData> addNewPeers(List<PeerAddress> peerAddresses, long addedWhen, String addedBy) {
+		List<PeerData> newPeers = new ArrayList<>();
+
+		for (PeerAddress peerAddress : peerAddresses) {
+			if (this.peersByAddress.containsKey(peerAddress))
+				continue;
+
+			PeerData peerData = new PeerData(peerAddress, addedWhen, addedBy);
+			this.index(peerData);
+			this.markUnsaved(peerAddress);
+
+			newPeers.add(peerData);
+		}
+
+		return newPeers;
+	}
+
+	/**
+	 * Applies <tt>update</tt> to <tt>peerData</tt>, keeping indexes consistent.
+	 * <p>
+	 * Peer data that isn't held by this store, e.g. for inbound connections, is simply updated.
+	 *
+	 * @return true if <tt>peerData</tt> is held by this store, and so will be saved
+	 */
+	public synchronized boolean update(PeerData peerData, Consumer<PeerData> update) {
+		boolean isStored = this.peersByAddress.get(peerData.getAddress()) == peerData;
+
+		if (!isStored) {
+			update.accept(peerData);
+			return false;
+		}
+
+		this.lastAttemptedIndex.remove(peerData);
+		this.lastConnectedIndex.remove(peerData);
+
+		update.accept(peerData);
+
+		this.lastAttemptedIndex.add(peerData);
+		this.lastConnectedIndex.add(peerData);
+
+		this.markUnsaved(peerData.getAddress());
+
+		return true;
+	}
+
+	/** Removes peer with passed address, returning true if it was known. */
+	public synchronized boolean remove(PeerAddress peerAddress) {
+		PeerData peerData = this.peersByAddress.remove(peerAddress);
+		if (peerData == null)
+			return false;
+
+		this.lastAttemptedIndex.remove(peerData);
+		this.lastConnectedIndex.remove(peerData);
+		this.scores.remove(peerAddress);
+
+		this.unsavedPeers.remove(peerAddress);
+		this.deletedPeers.add(peerAddress);
+
+		return true;
+	}
+
+	/** Removes all peers, including unsaved changes. Caller is responsible for removing peers from repository. */
+	public synchronized void clear() {
+		this.peersByAddress.clear();
+		this.lastAttemptedIndex.clear();
+		this.lastConnectedIndex.clear();
+		this.scores.clear();
+
+		this.unsavedPeers.clear();
+		this.deletedPeers.clear();
+	}
+
+	// Scoring
+
+	public synchronized void recordSuccess(PeerAddress peerAddress) {
+		PeerScore peerScore = this.getPeerScore(peerAddress);
+		if (peerScore != null)
+			peerScore.successes++;
+	}
+
+	public synchronized void recordFailure(PeerAddress peerAddress) {
+		PeerScore peerScore = this.getPeerScore(peerAddress);
+		if (peerScore != null)
+			peerScore.failures++;
+	}
+
+	public synchronized void recordLatency(PeerAddress peerAddress, long latency) {
+		PeerScore peerScore = this.getPeerScore(peerAddress);
+		if (peerScore == null)
+			return;
+
+		if (peerScore.averageLatency == null)
+			peerScore.averageLatency = (double) latency;
+		else
+			peerScore.averageLatency += (latency - peerScore.averageLatency) * LATENCY_SAMPLE_WEIGHT;
+	}
+
+	/** Returns peer's score, between 0 and 1, with higher being better. Unknown peers score 0. */
+	public synchronized double getScore(PeerAddress peerAddress) {
+		if (!this.peersByAddress.containsKey(peerAddress))
+			return 0.0;
+
+		PeerScore peerScore = this.scores.get(peerAddress);
+		if (peerScore == null)
+			return new PeerScore().getScore();
+
+		return peerScore.getScore();
+	}
+
+	/**
+	 * Picks a random peer from <tt>candidates</tt>, weighted by score.
+	 *
+	 * @return chosen peer, or null if <tt>candidates</tt> is empty
+	 */
+	public synchronized PeerData pickPeer(List<PeerData> candidates, Random random) {
+		if (candidates.isEmpty())
+			return null;
+
+		double[] cumulativeScores = new double[candidates.size()];
+		double totalScore = 0.0;
+
+		for (int i = 0; i < candidates.size(); ++i) {
+			totalScore += this.getScore(candidates.get(i).getAddress());
+			cumulativeScores[i] = totalScore;
+		}
+
+		// No usable scores, e.g. all candidates have been removed since
+		if (totalScore <= 0.0)
+			return candidates.get(random.nextInt(candidates.size()));
+
+		double target = random.nextDouble() * totalScore;
+
+		for (int i = 0; i < cumulativeScores.length; ++i)
+			if (target < cumulativeScores[i])
+				return candidates.get(i);
+
+		return candidates.get(candidates.size() - 1);
+	}
+
+	// Saving
+
+	public synchronized boolean hasUnsavedChanges() {
+		return !this.unsavedPeers.isEmpty() || !this.deletedPeers.isEmpty();
+	}
+
+	/**
+	 * Writes peers added, updated or removed since last save to repository, in one transaction.
+	 * <p>
+	 * If repository write fails then changes are kept for next save.
+	 */
+	public void saveChanges(Repository repository) throws DataException {
+		List<PeerData> peersToSave;
+		List<PeerAddress> peersToDelete;
+
+		// Take copies so repository writes happen without holding lock
+		synchronized (this) {
+			if (!this.hasUnsavedChanges())
+				return;
+
+			peersToSave = this.unsavedPeers.stream().map(this.peersByAddress::get).map(PeerStore::copyOf).collect(Collectors.toList());
+			peersToDelete = new ArrayList<>(this.deletedPeers);
+
+			this.unsavedPeers.clear();
+			this.deletedPeers.clear();
+		}
+
+		try {
+			for (PeerAddress peerAddress : peersToDelete)
+				repository.getNetworkRepository().delete(peerAddress);
+
+			for (PeerData peerData : peersToSave)
+				repository.getNetworkRepository().save(peerData);
+
+			repository.saveChanges();
+		} catch (DataException e) {
+			repository.discardChanges();
+
+			// Try again next time, unless peer has been added/removed since
+			synchronized (this) {
+				for (PeerData peerData : peersToSave)
+					if (this.peersByAddress.containsKey(peerData.getAddress()))
+						this.unsavedPeers.add(peerData.getAddress());
+
+				for (PeerAddress peerAddress : peersToDelete)
+					if (!this.peersByAddress.containsKey(peerAddress))
+						this.deletedPeers.add(peerAddress);
+			}
+
+			throw e;
+		}
+
+		LOGGER.trace(() -> String.format("Saved %d, deleted %d peers", peersToSave.size(), peersToDelete.size()));
+	}
+
+	// Utilities
+
+	/** Must be called while synchronized on this */
+	private void index(PeerData peerData) {
+		this.peersByAddress.put(peerData.getAddress(), peerData);
+		this.lastAttemptedIndex.add(peerData);
+		this.lastConnectedIndex.add(peerData);
+	}
+
+	/** Must be called while synchronized on this */
+	private void markUnsaved(PeerAddress peerAddress) {
+		this.deletedPeers.remove(peerAddress);
+		this.unsavedPeers.add(peerAddress);
+	}
+
+	/** Must be called while synchronized on this */
+	private PeerScore getPeerScore(PeerAddress peerAddress) {
+		if (!this.peersByAddress.containsKey(peerAddress))
+			return null;
+
+		return this.scores.computeIfAbsent(peerAddress, key -> new PeerScore());
+	}
+
+	/** Must be called while synchronized on this */
+	private List<PeerData> lookup(Collection<Set<PeerAddress>> indexedAddresses) {
+		List<PeerData> peers = new ArrayList<>();
+
+		for (Set<PeerAddress> addresses : indexedAddresses)
+			for (PeerAddress peerAddress : addresses)
+				peers.add(this.peersByAddress.get(peerAddress));
+
+		return peers;
+	}
+
+	private static PeerData copyOf(PeerData peerData) {
+		return new PeerData(peerData.getAddress(), peerData.getLastAttempted(), peerData.getLastConnected(),
+				peerData.getLastMisbehaved(), peerData.getAddedWhen(), peerData.getAddedBy());
+	}
+
+}
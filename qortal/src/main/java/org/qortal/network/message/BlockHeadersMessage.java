@@ -0,0 +1,128 @@
+package org.qortal.network.message;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.qortal.data.block.BlockData;
+import org.qortal.transform.Transformer;
+import org.qortal.transform.block.BlockTransformer;
+
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+
+/**
+ * Minter-signed block headers, without transactions or AT states.
+ * <p>
+ * Each header carries enough to check it links to its parent, verify its minter's signature
+ * and calculate its chain weight, before we download any block bodies.
+ */
+public class BlockHeadersMessage extends Message {
+
+	private static final int MINTER_SIGNATURE_LENGTH = Transformer.SIGNATURE_LENGTH;
+	private static final int TRANSACTIONS_SIGNATURE_LENGTH = Transformer.SIGNATURE_LENGTH;
+
+	// Everything apart from encoded online accounts
+	private static final int BLOCK_HEADER_BASE_LENGTH = Transformer.INT_LENGTH + Transformer.INT_LENGTH + Transformer.TIMESTAMP_LENGTH
+			+ BlockTransformer.BLOCK_SIGNATURE_LENGTH + Transformer.INT_LENGTH + Transformer.PUBLIC_KEY_LENGTH
+			+ MINTER_SIGNATURE_LENGTH + TRANSACTIONS_SIGNATURE_LENGTH + Transformer.INT_LENGTH + Transformer.INT_LENGTH;
+
+	private List<BlockData> blockHeaders;
+
+	public BlockHeadersMessage(List<BlockData> blockHeaders) {
+		this(-1, blockHeaders);
+	}
+
+	private BlockHeadersMessage(int id, List<BlockData> blockHeaders) {
+		super(id, MessageType.BLOCK_HEADERS);
+
+		this.blockHeaders = blockHeaders;
+	}
+
+	public List<BlockData> getBlockHeaders() {
+		return this.blockHeaders;
+	}
+
+	public static Message fromByteBuffer(int id, ByteBuffer bytes) throws UnsupportedEncodingException {
+		int count = bytes.getInt();
+
+		// Compare by division so a huge count can't overflow
+		if (count < 0 || count > bytes.remaining() / BLOCK_HEADER_BASE_LENGTH)
+			return null;
+
+		List<BlockData> blockHeaders = new ArrayList<>();
+		for (int i = 0; i < count; ++i) {
+			int version = bytes.getInt();
+			int height = bytes.getInt();
+			long timestamp = bytes.getLong();
+
+			byte[] reference = new byte[BlockTransformer.BLOCK_SIGNATURE_LENGTH];
+			bytes.get(reference);
+
+			int transactionCount = bytes.getInt();
+
+			byte[] minterPublicKey = new byte[Transformer.PUBLIC_KEY_LENGTH];
+			bytes.get(minterPublicKey);
+
+			byte[] minterSignature = new byte[MINTER_SIGNATURE_LENGTH];
+			bytes.get(minterSignature);
+
+			byte[] transactionsSignature = new byte[TRANSACTIONS_SIGNATURE_LENGTH];
+			bytes.get(transactionsSignature);
+
+			int onlineAccountsCount = bytes.getInt();
+
+			int encodedOnlineAccountsLength = bytes.getInt();
+			if (encodedOnlineAccountsLength < 0 || encodedOnlineAccountsLength > bytes.remaining())
+				return null;
+
+			byte[] encodedOnlineAccounts = new byte[encodedOnlineAccountsLength];
+			bytes.get(encodedOnlineAccounts);
+
+			BlockData blockHeader = new BlockData(version, reference, transactionCount, 0L, transactionsSignature, height, timestamp,
+					minterPublicKey, minterSignature, 0, 0L, encodedOnlineAccounts, onlineAccountsCount, null, null);
+			blockHeaders.add(blockHeader);
+		}
+
+		if (bytes.hasRemaining())
+			return null;
+
+		return new BlockHeadersMessage(id, blockHeaders);
+	}
+
+	@Override
+	protected byte[] toData() {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+			bytes.write(Ints.toByteArray(this.blockHeaders.size()));
+
+			for (BlockData blockHeader : this.blockHeaders) {
+				bytes.write(Ints.toByteArray(blockHeader.getVersion()));
+				bytes.write(Ints.toByteArray(blockHeader.getHeight()));
+				bytes.write(Longs.toByteArray(blockHeader.getTimestamp()));
+				bytes.write(blockHeader.getReference());
+				bytes.write(Ints.toByteArray(blockHeader.getTransactionCount()));
+				bytes.write(blockHeader.getMinterPublicKey());
+				bytes.write(blockHeader.getMinterSignature());
+				bytes.write(blockHeader.getTransactionsSignature());
+				bytes.write(Ints.toByteArray(blockHeader.getOnlineAccountsCount()));
+
+				byte[] encodedOnlineAccounts = blockHeader.getEncodedOnlineAccounts();
+				if (encodedOnlineAccounts == null)
+					encodedOnlineAccounts = new byte[0];
+
+				bytes.write(Ints.toByteArray(encodedOnlineAccounts.length));
+				bytes.write(encodedOnlineAccounts);
+			}
+
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,88 @@
+package org.qortal.network.message;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.qortal.transform.Transformer;
+import org.qortal.transform.block.BlockTransformer;
+
+import com.google.common.primitives.Ints;
+
+/**
+ * Request for block summaries starting with the highest block, out of a sparse list of requester's block signatures,
+ * that we also have. Signatures are dense near requester's chain tip and exponentially sparser behind it,
+ * finishing with genesis block.
+ * <p>
+ * Response is a {@link BlockSummariesMessage} whose first summary is the common block,
+ * or empty if we have none of the requester's blocks.
+ */
+public class BlockLocatorMessage extends Message {
+
+	private static final int BLOCK_SIGNATURE_LENGTH = BlockTransformer.BLOCK_SIGNATURE_LENGTH;
+
+	/** Enough for a 10-block dense section, and exponential steps, back to genesis from any int height */
+	public static final int MAX_LOCATOR_SIGNATURES = 64;
+
+	private List<byte[]> locatorSignatures;
+	private int numberRequested;
+
+	public BlockLocatorMessage(List<byte[]> locatorSignatures, int numberRequested) {
+		this(-1, locatorSignatures, numberRequested);
+	}
+
+	private BlockLocatorMessage(int id, List<byte[]> locatorSignatures, int numberRequested) {
+		super(id, MessageType.BLOCK_LOCATOR);
+
+		this.locatorSignatures = locatorSignatures;
+		this.numberRequested = numberRequested;
+	}
+
+	public List<byte[]> getLocatorSignatures() {
+		return this.locatorSignatures;
+	}
+
+	public int getNumberRequested() {
+		return this.numberRequested;
+	}
+
+	public static Message fromByteBuffer(int id, ByteBuffer bytes) throws UnsupportedEncodingException {
+		int count = bytes.getInt();
+
+		if (count < 0 || count > MAX_LOCATOR_SIGNATURES || bytes.remaining() != count * BLOCK_SIGNATURE_LENGTH + Transformer.INT_LENGTH)
+			return null;
+
+		List<byte[]> locatorSignatures = new ArrayList<>();
+		for (int i = 0; i < count; ++i) {
+			byte[] signature = new byte[BLOCK_SIGNATURE_LENGTH];
+			bytes.get(signature);
+			locatorSignatures.add(signature);
+		}
+
+		int numberRequested = bytes.getInt();
+
+		return new BlockLocatorMessage(id, locatorSignatures, numberRequested);
+	}
+
+	@Override
+	protected byte[] toData() {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+			bytes.write(Ints.toByteArray(this.locatorSignatures.size()));
+
+			for (byte[] signature : this.locatorSignatures)
+				bytes.write(signature);
+
+			bytes.write(Ints.toByteArray(this.numberRequested));
+
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+}
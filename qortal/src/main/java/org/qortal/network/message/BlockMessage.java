@@ -28,6 +28,9 @@ public class BlockMessage extends Message {
 	private List<TransactionData> transactions = null;
 	private List<ATStateData> atStates = null;
 
+	/** Serialized block, e.g. from raw block store, used instead of <tt>block</tt> */
+	private byte[] blockBytes = null;
+
 	private int height;
 
 	public BlockMessage(Block block) {
@@ -38,6 +41,14 @@ public class BlockMessage extends Message {
 		this.height = block.getBlockData().getHeight();
 	}
 
+	/** Constructs BLOCK message from already serialized block, as produced by {@link BlockTransformer#toBytes(Block)}. */
+	public BlockMessage(int height, byte[] blockBytes) {
+		super(MessageType.BLOCK);
+
+		this.blockBytes = blockBytes;
+		this.height = height;
+	}
+
 	private BlockMessage(int id, BlockData blockData, List<TransactionData> transactions, List<ATStateData> atStates) {
 		super(id, MessageType.BLOCK);
 
@@ -78,7 +89,7 @@ public class BlockMessage extends Message {
 
 	@Override
 	protected byte[] toData() {
-		if (this.block == null)
+		if (this.block == null && this.blockBytes == null)
 			return null;
 
 		try {
@@ -86,7 +97,10 @@ public class BlockMessage extends Message {
 
 			bytes.write(Ints.toByteArray(this.height));
 
-			bytes.write(BlockTransformer.toBytes(this.block));
+			if (this.blockBytes != null)
+				bytes.write(this.blockBytes);
+			else
+				bytes.write(BlockTransformer.toBytes(this.block));
 
 			return bytes.toByteArray();
 		} catch (TransformationException | IOException e) {
@@ -95,7 +109,7 @@ public class BlockMessage extends Message {
 	}
 
 	public BlockMessage cloneWithNewId(int newId) {
-		BlockMessage clone = new BlockMessage(this.block);
+		BlockMessage clone = this.blockBytes != null ? new BlockMessage(this.height, this.blockBytes) : new BlockMessage(this.block);
 		clone.setId(newId);
 		return clone;
 	}
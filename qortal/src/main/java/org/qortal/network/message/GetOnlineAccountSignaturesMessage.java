@@ -0,0 +1,69 @@
+package org.qortal.network.message;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.qortal.data.network.IndexedOnlineAccountData;
+
+/**
+ * Request for signatures of online accounts, identified by reward-share index and timestamp,
+ * in response to an {@link OnlineAccountIndexesMessage}.
+ * <p>
+ * Response is one or more {@link OnlineAccountSignaturesMessage}s, containing whichever requested entries we still have.
+ */
+public class GetOnlineAccountSignaturesMessage extends Message {
+
+	public static final int MAX_ACCOUNT_COUNT = OnlineAccountIndexesMessage.MAX_ACCOUNT_COUNT;
+
+	private byte[] rewardSharesHash;
+	private List<IndexedOnlineAccountData> onlineAccounts;
+
+	public GetOnlineAccountSignaturesMessage(byte[] rewardSharesHash, List<IndexedOnlineAccountData> onlineAccounts) {
+		this(-1, rewardSharesHash, onlineAccounts);
+	}
+
+	private GetOnlineAccountSignaturesMessage(int id, byte[] rewardSharesHash, List<IndexedOnlineAccountData> onlineAccounts) {
+		super(id, MessageType.GET_ONLINE_ACCOUNT_SIGNATURES);
+
+		this.rewardSharesHash = rewardSharesHash;
+		this.onlineAccounts = onlineAccounts;
+	}
+
+	public byte[] getRewardSharesHash() {
+		return this.rewardSharesHash;
+	}
+
+	public List<IndexedOnlineAccountData> getOnlineAccounts() {
+		return this.onlineAccounts;
+	}
+
+	public static Message fromByteBuffer(int id, ByteBuffer bytes) throws UnsupportedEncodingException {
+		byte[] rewardSharesHash = new byte[OnlineAccountIndexesMessage.REWARD_SHARES_HASH_LENGTH];
+		bytes.get(rewardSharesHash);
+
+		List<IndexedOnlineAccountData> onlineAccounts = OnlineAccountIndexesMessage.readIndexedAccounts(bytes, MAX_ACCOUNT_COUNT, false);
+		if (onlineAccounts == null)
+			return null;
+
+		return new GetOnlineAccountSignaturesMessage(id, rewardSharesHash, onlineAccounts);
+	}
+
+	@Override
+	protected byte[] toData() {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+			bytes.write(this.rewardSharesHash);
+
+			OnlineAccountIndexesMessage.writeIndexedAccounts(bytes, this.onlineAccounts, false);
+
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+}
@@ -75,9 +75,15 @@ public abstract class Message {
 
 		BLOCK_SUMMARIES(70),
 		GET_BLOCK_SUMMARIES(71),
+		BLOCK_HEADERS(72),
+		GET_BLOCK_HEADERS(73),
+		BLOCK_LOCATOR(75),
 
 		ONLINE_ACCOUNTS(80),
 		GET_ONLINE_ACCOUNTS(81),
+		ONLINE_ACCOUNT_INDEXES(82),
+		GET_ONLINE_ACCOUNT_SIGNATURES(83),
+		ONLINE_ACCOUNT_SIGNATURES(84),
 
 		ARBITRARY_DATA(90),
 		GET_ARBITRARY_DATA(91);
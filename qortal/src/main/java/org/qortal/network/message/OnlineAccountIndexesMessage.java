@@ -0,0 +1,163 @@
+package org.qortal.network.message;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.qortal.data.network.IndexedOnlineAccountData;
+import org.qortal.transform.Transformer;
+import org.qortal.transform.block.BlockTransformer;
+
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+
+import io.druid.extendedset.intset.ConciseSet;
+import io.druid.extendedset.intset.IntSet.IntIterator;
+
+/**
+ * Announcement of which online accounts we have, as reward-share indexes grouped by online-accounts timestamp.
+ * <p>
+ * Each group's indexes are encoded as a {@link ConciseSet}, like a block's online accounts.
+ * Reward-share indexes are only meaningful if both peers agree on the set of reward-shares,
+ * so announcement includes a hash of all reward-share public keys, in index order.
+ * <p>
+ * Recipient requests signatures it lacks using {@link GetOnlineAccountSignaturesMessage}.
+ */
+public class OnlineAccountIndexesMessage extends Message {
+
+	public static final int REWARD_SHARES_HASH_LENGTH = Transformer.SHA256_LENGTH;
+
+	public static final int MAX_ACCOUNT_COUNT = 5000;
+
+	private byte[] rewardSharesHash;
+	private List<IndexedOnlineAccountData> onlineAccounts;
+
+	public OnlineAccountIndexesMessage(byte[] rewardSharesHash, List<IndexedOnlineAccountData> onlineAccounts) {
+		this(-1, rewardSharesHash, onlineAccounts);
+	}
+
+	private OnlineAccountIndexesMessage(int id, byte[] rewardSharesHash, List<IndexedOnlineAccountData> onlineAccounts) {
+		super(id, MessageType.ONLINE_ACCOUNT_INDEXES);
+
+		this.rewardSharesHash = rewardSharesHash;
+		this.onlineAccounts = onlineAccounts;
+	}
+
+	public byte[] getRewardSharesHash() {
+		return this.rewardSharesHash;
+	}
+
+	public List<IndexedOnlineAccountData> getOnlineAccounts() {
+		return this.onlineAccounts;
+	}
+
+	public static Message fromByteBuffer(int id, ByteBuffer bytes) throws UnsupportedEncodingException {
+		byte[] rewardSharesHash = new byte[REWARD_SHARES_HASH_LENGTH];
+		bytes.get(rewardSharesHash);
+
+		List<IndexedOnlineAccountData> onlineAccounts = readIndexedAccounts(bytes, MAX_ACCOUNT_COUNT, false);
+		if (onlineAccounts == null)
+			return null;
+
+		return new OnlineAccountIndexesMessage(id, rewardSharesHash, onlineAccounts);
+	}
+
+	@Override
+	protected byte[] toData() {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+			bytes.write(this.rewardSharesHash);
+
+			writeIndexedAccounts(bytes, this.onlineAccounts, false);
+
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Writes online accounts as groups of timestamp, encoded index set and, optionally, signatures in index order.
+	 * <p>
+	 * Duplicate timestamp/index pairs are only written once.
+	 */
+	/* package */ static void writeIndexedAccounts(ByteArrayOutputStream bytes, List<IndexedOnlineAccountData> onlineAccounts, boolean includeSignatures) throws IOException {
+		Map<Long, TreeMap<Integer, byte[]>> accountsByTimestamp = new TreeMap<>();
+		for (IndexedOnlineAccountData onlineAccountData : onlineAccounts)
+			accountsByTimestamp.computeIfAbsent(onlineAccountData.getTimestamp(), timestamp -> new TreeMap<>())
+					.put(onlineAccountData.getIndex(), onlineAccountData.getSignature());
+
+		bytes.write(Ints.toByteArray(accountsByTimestamp.size()));
+
+		for (Map.Entry<Long, TreeMap<Integer, byte[]>> entry : accountsByTimestamp.entrySet()) {
+			bytes.write(Longs.toByteArray(entry.getKey()));
+
+			ConciseSet indexes = new ConciseSet().convert(entry.getValue().keySet());
+			byte[] encodedIndexes = BlockTransformer.encodeOnlineAccounts(indexes);
+
+			bytes.write(Ints.toByteArray(encodedIndexes.length));
+			bytes.write(encodedIndexes);
+
+			if (includeSignatures)
+				for (byte[] signature : entry.getValue().values())
+					bytes.write(signature);
+		}
+	}
+
+	/**
+	 * Reads online accounts written by {@link #writeIndexedAccounts(ByteArrayOutputStream, List, boolean)}.
+	 *
+	 * @return online accounts, or null if data is malformed or has more than <tt>maxAccountCount</tt> entries
+	 */
+	/* package */ static List<IndexedOnlineAccountData> readIndexedAccounts(ByteBuffer bytes, int maxAccountCount, boolean includeSignatures) {
+		final int groupCount = bytes.getInt();
+
+		if (groupCount < 0 || groupCount > maxAccountCount)
+			return null;
+
+		List<IndexedOnlineAccountData> onlineAccounts = new ArrayList<>();
+
+		for (int g = 0; g < groupCount; ++g) {
+			long timestamp = bytes.getLong();
+
+			int encodedIndexesLength = bytes.getInt();
+			if (encodedIndexesLength < 0 || encodedIndexesLength % Transformer.INT_LENGTH != 0 || encodedIndexesLength > bytes.remaining())
+				return null;
+
+			byte[] encodedIndexes = new byte[encodedIndexesLength];
+			bytes.get(encodedIndexes);
+
+			ConciseSet indexes = BlockTransformer.decodeOnlineAccounts(encodedIndexes);
+
+			// Check size before expanding, as a few words can encode a huge range
+			int indexCount = indexes.size();
+			if (indexCount <= 0 || indexCount > maxAccountCount - onlineAccounts.size())
+				return null;
+
+			if (includeSignatures && bytes.remaining() < indexCount * Transformer.SIGNATURE_LENGTH)
+				return null;
+
+			IntIterator iterator = indexes.iterator();
+			while (iterator.hasNext()) {
+				int index = iterator.next();
+
+				byte[] signature = null;
+				if (includeSignatures) {
+					signature = new byte[Transformer.SIGNATURE_LENGTH];
+					bytes.get(signature);
+				}
+
+				onlineAccounts.add(new IndexedOnlineAccountData(timestamp, index, signature));
+			}
+		}
+
+		return onlineAccounts;
+	}
+
+}
@@ -0,0 +1,70 @@
+package org.qortal.network.message;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.qortal.data.network.IndexedOnlineAccountData;
+
+/**
+ * Signatures of online accounts, identified by reward-share index and timestamp,
+ * in response to a {@link GetOnlineAccountSignaturesMessage}.
+ * <p>
+ * Same as an {@link OnlineAccountsMessage}, but without each entry's 32-byte reward-share public key.
+ */
+public class OnlineAccountSignaturesMessage extends Message {
+
+	/** Keeps message under 64KB */
+	public static final int MAX_ACCOUNT_COUNT = 1000;
+
+	private byte[] rewardSharesHash;
+	private List<IndexedOnlineAccountData> onlineAccounts;
+
+	public OnlineAccountSignaturesMessage(byte[] rewardSharesHash, List<IndexedOnlineAccountData> onlineAccounts) {
+		this(-1, rewardSharesHash, onlineAccounts);
+	}
+
+	private OnlineAccountSignaturesMessage(int id, byte[] rewardSharesHash, List<IndexedOnlineAccountData> onlineAccounts) {
+		super(id, MessageType.ONLINE_ACCOUNT_SIGNATURES);
+
+		this.rewardSharesHash = rewardSharesHash;
+		this.onlineAccounts = onlineAccounts;
+	}
+
+	public byte[] getRewardSharesHash() {
+		return this.rewardSharesHash;
+	}
+
+	public List<IndexedOnlineAccountData> getOnlineAccounts() {
+		return this.onlineAccounts;
+	}
+
+	public static Message fromByteBuffer(int id, ByteBuffer bytes) throws UnsupportedEncodingException {
+		byte[] rewardSharesHash = new byte[OnlineAccountIndexesMessage.REWARD_SHARES_HASH_LENGTH];
+		bytes.get(rewardSharesHash);
+
+		List<IndexedOnlineAccountData> onlineAccounts = OnlineAccountIndexesMessage.readIndexedAccounts(bytes, MAX_ACCOUNT_COUNT, true);
+		if (onlineAccounts == null)
+			return null;
+
+		return new OnlineAccountSignaturesMessage(id, rewardSharesHash, onlineAccounts);
+	}
+
+	@Override
+	protected byte[] toData() {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+			bytes.write(this.rewardSharesHash);
+
+			OnlineAccountIndexesMessage.writeIndexedAccounts(bytes, this.onlineAccounts, true);
+
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+}
@@ -156,6 +156,13 @@ public interface AccountRepository {
 
 	public List<RewardShareData> getRewardShares() throws DataException;
 
+	/**
+	 * Returns all reward-share public keys, sorted by reward-share public key.
+	 * <p>
+	 * Position in list is reward-share's index, as used by {@link #getRewardShareIndex(byte[])}.
+	 */
+	public List<byte[]> getRewardSharePublicKeys() throws DataException;
+
 	public List<RewardShareData> findRewardShares(List<String> mintingAccounts, List<String> recipientAccounts, List<String> involvedAddresses, Integer limit, Integer offset, Boolean reverse) throws DataException;
 
 	/**
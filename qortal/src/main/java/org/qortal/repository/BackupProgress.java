@@ -0,0 +1,63 @@
+package org.qortal.repository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Progress of an in-flight repository backup, updated by repository and read by e.g. API.
+ */
+public class BackupProgress {
+
+	public enum Phase {
+		/** Defragmenting repository before backup (non-quick backups only) */
+		CHECKPOINTING,
+		/** Copying repository files while repository remains writable */
+		COPYING,
+		/** Unpacking copied files into usable backup */
+		UNPACKING,
+		/** Replacing previous backup with new backup */
+		SWITCHING
+	}
+
+	private volatile Phase phase;
+	/** Reports number of bytes copied so far, if known */
+	private volatile Supplier<Long> bytesCopiedSupplier;
+	private volatile long bytesExpected;
+
+	public void setPhase(Phase phase) {
+		this.phase = phase;
+	}
+
+	/** Sets phase to {@link Phase#COPYING}, with progress measured by total size of files under <tt>targetDirPath</tt>. */
+	public void setCopying(Path targetDirPath, long bytesExpected) {
+		this.bytesCopiedSupplier = () -> sizeOf(targetDirPath);
+		this.bytesExpected = bytesExpected;
+		this.setPhase(Phase.COPYING);
+	}
+
+	public Phase getPhase() {
+		return this.phase;
+	}
+
+	public Long getBytesCopied() {
+		Supplier<Long> bytesCopiedSupplier = this.bytesCopiedSupplier;
+		return bytesCopiedSupplier != null ? bytesCopiedSupplier.get() : null;
+	}
+
+	public long getBytesExpected() {
+		return this.bytesExpected;
+	}
+
+	/** Returns total size of regular files under <tt>path</tt>, or 0 if path doesn't exist (yet). */
+	public static long sizeOf(Path path) {
+		try (Stream<Path> paths = Files.walk(path)) {
+			return paths.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+		} catch (IOException e) {
+			return 0L;
+		}
+	}
+
+}
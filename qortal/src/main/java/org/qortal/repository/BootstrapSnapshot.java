@@ -0,0 +1,266 @@
+package org.qortal.repository;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.qortal.block.Block;
+import org.qortal.block.BlockChain;
+import org.qortal.block.BlockChain.Checkpoint;
+import org.qortal.data.block.BlockData;
+import org.qortal.transform.block.BlockTransformer;
+import org.qortal.utils.Base58;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * Bootstrap snapshot of chain state at a checkpointed height, so new nodes don't have to replay every block from genesis.
+ * <p>
+ * File layout:
+ * <ul>
+ * <li>magic, format version</li>
+ * <li>checkpoint height, checkpoint block signature</li>
+ * <li>gzipped chain state, as written by {@link Repository#exportChainState(OutputStream)}</li>
+ * <li>chain state hash, as returned by {@link Repository#getChainStateHash()}</li>
+ * <li>checksum: SHA-256 of everything above</li>
+ * </ul>
+ * Snapshot's own chain state hash and checksum only detect corruption, as anyone can recompute them.
+ * Importing a snapshot also requires its checkpoint, from blockchain config, to have a chain state hash.
+ * Snapshot's chain state hash must match that before repository is touched, and the imported repository's
+ * recomputed chain state hash must match it before anything is saved.
+ */
+public class BootstrapSnapshot {
+
+	private static final Logger LOGGER = LogManager.getLogger(BootstrapSnapshot.class);
+
+	private static final int MAGIC = 0x51534E50; // "QSNP"
+	private static final int FORMAT_VERSION = 1;
+
+	private static final int HASH_LENGTH = 32;
+	private static final int HEADER_LENGTH = 4 + 4 + 4 + BlockTransformer.BLOCK_SIGNATURE_LENGTH;
+	private static final int TRAILER_LENGTH = HASH_LENGTH + HASH_LENGTH;
+
+	/** Snapshot's checkpoint, as read from snapshot header */
+	public static class SnapshotInfo {
+		public final int height;
+		public final byte[] signature;
+
+		private SnapshotInfo(int height, byte[] signature) {
+			this.height = height;
+			this.signature = signature;
+		}
+	}
+
+	private BootstrapSnapshot() {
+	}
+
+	/**
+	 * Writes snapshot of <tt>repository</tt>'s chain state at <tt>checkpoint</tt> to <tt>path</tt>.
+	 * <p>
+	 * Blocks above checkpoint are orphaned, but never saved, so repository is unchanged afterwards.
+	 * As orphaning happens within one repository transaction, checkpoint should be fairly close to chain tip.
+	 * <p>
+	 * If checkpoint has a chain state hash then our chain state at checkpoint must match it.
+	 * Otherwise our chain state hash is logged, ready for adding to blockchain config.
+	 */
+	public static void exportSnapshot(Repository repository, Path path, Checkpoint checkpoint) throws DataException {
+		BlockData checkpointBlockData = repository.getBlockRepository().fromHeight(checkpoint.height);
+		if (checkpointBlockData == null || !Arrays.equals(checkpointBlockData.getSignature(), checkpoint.signature))
+			throw new DataException(String.format("Our block at height %d doesn't match checkpoint", checkpoint.height));
+
+		Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+
+		try {
+			// Roll chain back to checkpoint
+			int height = repository.getBlockRepository().getBlockchainHeight();
+			if (height > checkpoint.height)
+				LOGGER.info(() -> String.format("Orphaning back to checkpoint at height %d", checkpoint.height));
+
+			Block.orphanBlocks(repository, checkpoint.height);
+
+			// Snapshot includes online accounts signatures that state hash excludes, so hash separately
+			byte[] stateHash = repository.getChainStateHash();
+			if (checkpoint.stateHash != null && !Arrays.equals(stateHash, checkpoint.stateHash))
+				throw new DataException(String.format("Our chain state at height %d doesn't match checkpoint", checkpoint.height));
+
+			LOGGER.info(() -> String.format("Chain state hash at height %d: %s", checkpoint.height, Base58.encode(stateHash)));
+
+			MessageDigest checksumDigest = newDigest();
+
+			try (OutputStream fileOut = new BufferedOutputStream(Files.newOutputStream(tempPath));
+					DataOutputStream checksummedOut = new DataOutputStream(new DigestOutputStream(fileOut, checksumDigest))) {
+				checksummedOut.writeInt(MAGIC);
+				checksummedOut.writeInt(FORMAT_VERSION);
+				checksummedOut.writeInt(checkpoint.height);
+				checksummedOut.write(checkpoint.signature);
+
+				GZIPOutputStream gzipOut = new GZIPOutputStream(checksummedOut);
+				repository.exportChainState(gzipOut);
+				// Finish, rather than close, so we can carry on writing trailer
+				gzipOut.finish();
+
+				checksummedOut.write(stateHash);
+				checksummedOut.flush();
+
+				fileOut.write(checksumDigest.digest());
+			}
+
+			Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			throw new DataException("Unable to write bootstrap snapshot", e);
+		} finally {
+			repository.discardChanges();
+
+			try {
+				Files.deleteIfExists(tempPath);
+			} catch (IOException e) {
+				// Not much we can do
+			}
+		}
+
+		LOGGER.info(() -> String.format("Exported bootstrap snapshot at height %d to %s", checkpoint.height, path));
+	}
+
+	/** Returns checkpoint that snapshot at <tt>path</tt> claims to be at. Snapshot is not verified. */
+	public static SnapshotInfo readInfo(Path path) throws DataException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+			if (in.readInt() != MAGIC)
+				throw new DataException("Not a bootstrap snapshot");
+
+			int formatVersion = in.readInt();
+			if (formatVersion != FORMAT_VERSION)
+				throw new DataException(String.format("Unsupported bootstrap snapshot format version %d", formatVersion));
+
+			int height = in.readInt();
+			byte[] signature = new byte[BlockTransformer.BLOCK_SIGNATURE_LENGTH];
+			in.readFully(signature);
+
+			return new SnapshotInfo(height, signature);
+		} catch (IOException e) {
+			throw new DataException("Unable to read bootstrap snapshot", e);
+		}
+	}
+
+	/** Imports snapshot at <tt>path</tt>, which must be at one of blockchain config's checkpoints. */
+	public static void importSnapshot(Repository repository, Path path) throws DataException {
+		SnapshotInfo snapshotInfo = readInfo(path);
+
+		Checkpoint checkpoint = BlockChain.getInstance().getCheckpoint(snapshotInfo.height);
+		if (checkpoint == null)
+			throw new DataException(String.format("No checkpoint at bootstrap snapshot's height %d", snapshotInfo.height));
+
+		importSnapshot(repository, path, checkpoint);
+	}
+
+	/**
+	 * Imports snapshot at <tt>path</tt> into empty <tt>repository</tt>, then saves changes.
+	 * <p>
+	 * Snapshot must be at <tt>checkpoint</tt>, have a valid checksum, and both snapshot's chain state hash
+	 * and imported chain state must match checkpoint's chain state hash. Otherwise repository is left unchanged.
+	 */
+	public static void importSnapshot(Repository repository, Path path, Checkpoint checkpoint) throws DataException {
+		if (repository.getBlockRepository().getBlockchainHeight() != 0)
+			throw new DataException("Bootstrap snapshots can only be imported into an empty repository");
+
+		// Snapshot's own state hash is untrusted, so we need a known-good one
+		if (checkpoint.stateHash == null)
+			throw new DataException(String.format("Checkpoint at height %d has no chain state hash", checkpoint.height));
+
+		SnapshotInfo snapshotInfo = readInfo(path);
+		if (snapshotInfo.height != checkpoint.height || !Arrays.equals(snapshotInfo.signature, checkpoint.signature))
+			throw new DataException(String.format("Bootstrap snapshot at height %d, sig %.8s doesn't match checkpoint",
+					snapshotInfo.height, Base58.encode(snapshotInfo.signature)));
+
+		final byte[] snapshotStateHash;
+		try {
+			snapshotStateHash = verifyChecksum(path);
+		} catch (IOException e) {
+			throw new DataException("Unable to read bootstrap snapshot", e);
+		}
+
+		// Don't bother importing snapshot that doesn't even claim to have checkpoint's state
+		if (!Arrays.equals(snapshotStateHash, checkpoint.stateHash))
+			throw new DataException("Bootstrap snapshot's state hash doesn't match checkpoint");
+
+		LOGGER.info(() -> String.format("Importing bootstrap snapshot at height %d. This can take a while...", snapshotInfo.height));
+
+		try {
+			try (InputStream fileIn = new BufferedInputStream(Files.newInputStream(path))) {
+				ByteStreams.skipFully(fileIn, HEADER_LENGTH);
+
+				long stateLength = Files.size(path) - HEADER_LENGTH - TRAILER_LENGTH;
+				try (InputStream stateIn = new GZIPInputStream(ByteStreams.limit(fileIn, stateLength))) {
+					repository.importChainState(stateIn);
+				}
+			} catch (IOException e) {
+				throw new DataException("Unable to read bootstrap snapshot", e);
+			}
+
+			byte[] stateHash = repository.getChainStateHash();
+			if (!Arrays.equals(stateHash, checkpoint.stateHash))
+				throw new DataException("Imported chain state doesn't match checkpoint's state hash");
+
+			BlockData lastBlockData = repository.getBlockRepository().getLastBlock();
+			if (lastBlockData == null || lastBlockData.getHeight() != checkpoint.height || !Arrays.equals(lastBlockData.getSignature(), checkpoint.signature))
+				throw new DataException("Imported chain tip doesn't match checkpoint");
+
+			repository.saveChanges();
+		} catch (DataException e) {
+			repository.discardChanges();
+			throw e;
+		}
+
+		LOGGER.info(() -> String.format("Imported bootstrap snapshot at height %d", snapshotInfo.height));
+	}
+
+	/** Checks snapshot's checksum, returning snapshot's chain state hash. */
+	private static byte[] verifyChecksum(Path path) throws IOException, DataException {
+		long checksummedLength = Files.size(path) - HASH_LENGTH;
+		if (checksummedLength < HEADER_LENGTH + HASH_LENGTH)
+			throw new DataException("Bootstrap snapshot is truncated");
+
+		MessageDigest checksumDigest = newDigest();
+		byte[] stateHash = new byte[HASH_LENGTH];
+		byte[] checksum = new byte[HASH_LENGTH];
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+			DataInputStream checksummedIn = new DataInputStream(new DigestInputStream(ByteStreams.limit(in, checksummedLength), checksumDigest));
+
+			// Read, rather than skip, so digest sees every byte
+			ByteStreams.copy(ByteStreams.limit(checksummedIn, checksummedLength - HASH_LENGTH), ByteStreams.nullOutputStream());
+			checksummedIn.readFully(stateHash);
+
+			in.readFully(checksum);
+		}
+
+		if (!Arrays.equals(checksumDigest.digest(), checksum))
+			throw new DataException("Bootstrap snapshot checksum mismatch");
+
+		return stateHash;
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException("SHA-256 message digest not available");
+		}
+	}
+
+}
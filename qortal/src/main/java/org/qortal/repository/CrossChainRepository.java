@@ -2,6 +2,9 @@ package org.qortal.repository;
 
 import java.util.List;
 
+import org.qortal.crosschain.AcctMode;
+import org.qortal.crosschain.BitcoinyTransaction;
+import org.qortal.data.crosschain.IndexedTradeData;
 import org.qortal.data.crosschain.TradeBotData;
 
 public interface CrossChainRepository {
@@ -18,4 +21,50 @@ public interface CrossChainRepository {
 	/** Delete trade-bot states using passed private key. */
 	public int delete(byte[] tradePrivateKey) throws DataException;
 
+	// Indexed (pre-decoded) cross-chain trades
+
+	/** Returns indexed trade for given AT address, or null if not found. */
+	public IndexedTradeData getIndexedTrade(String atAddress) throws DataException;
+
+	/**
+	 * Returns indexed trades for ATs that are still executable (i.e. not finished),
+	 * optionally restricted to <tt>foreignBlockchain</tt>, ordered by AT creation timestamp.
+	 */
+	public List<IndexedTradeData> getIndexedTradeOffers(String foreignBlockchain, Integer limit, Integer offset, Boolean reverse) throws DataException;
+
+	/**
+	 * Returns indexed trades, optionally restricted to <tt>foreignBlockchain</tt>,
+	 * one of <tt>modes</tt> and AT states at or after <tt>minimumHeight</tt>,
+	 * ordered by height of latest AT state.
+	 */
+	public List<IndexedTradeData> getIndexedTrades(String foreignBlockchain, List<AcctMode> modes, Boolean isFinished,
+			Integer minimumHeight, Integer limit, Integer offset, Boolean reverse) throws DataException;
+
+	/** Returns whether indexed trades have been populated from existing ATs. */
+	public boolean isTradeIndexBuilt() throws DataException;
+
+	/** Records that indexed trades have been populated from existing ATs. Doesn't save changes. */
+	public void setTradeIndexBuilt() throws DataException;
+
+	/** Saves, or replaces, indexed trade. */
+	public void save(IndexedTradeData indexedTradeData) throws DataException;
+
+	/** Deletes indexed trade for given AT address. */
+	public void deleteIndexedTrade(String atAddress) throws DataException;
+
+	// Cached foreign blockchain data
+
+	/** Returns cached foreign transaction for given network ID (e.g. "Litecoin-TEST3"), or null if not cached. */
+	public BitcoinyTransaction getForeignTransaction(String netId, String txHash) throws DataException;
+
+	/** Saves, or replaces, cached foreign transaction for given network ID. */
+	public void saveForeignTransaction(String netId, BitcoinyTransaction transaction) throws DataException;
+
+	/** Returns public key hashes of foreign wallet keys, for given network ID, that were found to be fully spent. */
+	public List<byte[]> getSpentForeignKeys(String netId) throws DataException;
+
+	public void saveSpentForeignKey(String netId, byte[] publicKeyHash) throws DataException;
+
+	public void deleteSpentForeignKey(String netId, byte[] publicKeyHash) throws DataException;
+
 }
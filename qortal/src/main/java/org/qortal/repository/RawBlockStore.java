@@ -0,0 +1,470 @@
+package org.qortal.repository;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.qortal.block.Block;
+import org.qortal.data.block.BlockData;
+import org.qortal.transform.TransformationException;
+import org.qortal.transform.Transformer;
+import org.qortal.transform.block.BlockTransformer;
+import org.qortal.utils.DaemonThreadFactory;
+
+/**
+ * Append-only store of serialized blocks, as sent to peers in BLOCK messages, indexed by height.
+ * <p>
+ * Lets us answer peers' block requests with a single read, instead of loading block, transactions,
+ * AT states, etc. from repository and then serializing them.
+ * <p>
+ * Store is only a cache of repository. Each entry includes its block's signature, which must match
+ * the requested signature. Store is also reconciled with repository on start-up. So if store lags,
+ * or is left ahead of repository (e.g. a crash before commit), no bad data is served.
+ * <p>
+ * Files:
+ * <ul>
+ * <li><tt>blocks.dat</tt> - serialized blocks, back to back</li>
+ * <li><tt>blocks.idx</tt> - fixed-length entry per height, starting from height 1: data offset, data length, block signature</li>
+ * </ul>
+ */
+public class RawBlockStore implements AutoCloseable {
+
+	private static final Logger LOGGER = LogManager.getLogger(RawBlockStore.class);
+
+	private static final String DATA_FILENAME = "blocks.dat";
+	private static final String INDEX_FILENAME = "blocks.idx";
+
+	private static final int OFFSET_LENGTH = 8;
+	private static final int LENGTH_LENGTH = 4;
+	private static final int INDEX_ENTRY_LENGTH = OFFSET_LENGTH + LENGTH_LENGTH + BlockTransformer.BLOCK_SIGNATURE_LENGTH;
+
+	private static final int REBUILD_PROGRESS_INTERVAL = 10000; // blocks
+
+	private static RawBlockStore instance;
+	private static ExecutorService catchUpExecutor;
+
+	private static class IndexEntry {
+		final long offset;
+		final int length;
+		final byte[] signature;
+
+		IndexEntry(long offset, int length, byte[] signature) {
+			this.offset = offset;
+			this.length = length;
+			this.signature = signature;
+		}
+	}
+
+	private final FileChannel dataChannel;
+	private final FileChannel indexChannel;
+
+	/** Height of highest stored block, or 0 if store is empty */
+	private int height;
+
+	public RawBlockStore(Path directory) throws DataException {
+		try {
+			Files.createDirectories(directory);
+
+			this.dataChannel = FileChannel.open(directory.resolve(DATA_FILENAME),
+					StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			this.indexChannel = FileChannel.open(directory.resolve(INDEX_FILENAME),
+					StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+			this.recover();
+		} catch (IOException e) {
+			throw new DataException("Unable to open raw block store", e);
+		}
+	}
+
+	// Instance used by node
+
+	/** Returns raw block store in use by node, or null if raw block store isn't in use. */
+	public static synchronized RawBlockStore getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Opens raw block store for use by node, then trims any blocks that are no longer in repository.
+	 * <p>
+	 * If store is behind repository, e.g. store is new, then missing blocks are added in the background.
+	 * Until then, newly processed blocks can't be added, and peers are served blocks from repository.
+	 */
+	public static synchronized void startUp(Path directory, Repository repository) throws DataException {
+		if (instance != null)
+			return;
+
+		RawBlockStore rawBlockStore = new RawBlockStore(directory);
+		rawBlockStore.reconcile(repository);
+		instance = rawBlockStore;
+
+		if (rawBlockStore.getHeight() >= repository.getBlockRepository().getBlockchainHeight())
+			return;
+
+		catchUpExecutor = Executors.newSingleThreadExecutor(new DaemonThreadFactory("Raw block store"));
+		catchUpExecutor.execute(() -> {
+			try (final Repository catchUpRepository = RepositoryManager.getRepository()) {
+				int count = rawBlockStore.rebuild(catchUpRepository, rawBlockStore.getHeight() + 1);
+				LOGGER.info(() -> String.format("Added %d block%s to raw block store", count, (count != 1 ? "s" : "")));
+			} catch (DataException e) {
+				LOGGER.warn(() -> String.format("Unable to bring raw block store up to date: %s", e.getMessage()));
+			}
+		});
+	}
+
+	public static synchronized void shutDown() {
+		if (instance == null)
+			return;
+
+		if (catchUpExecutor != null) {
+			catchUpExecutor.shutdownNow();
+
+			try {
+				catchUpExecutor.awaitTermination(5L, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				// We tried...
+			}
+
+			catchUpExecutor = null;
+		}
+
+		instance.close();
+		instance = null;
+	}
+
+	/** Adds newly processed block to store in use by node, if any. Failures are logged, as store is only a cache. */
+	public static void onBlockProcessed(Block block) {
+		RawBlockStore rawBlockStore = getInstance();
+		if (rawBlockStore == null)
+			return;
+
+		BlockData blockData = block.getBlockData();
+
+		try {
+			rawBlockStore.append(blockData.getHeight(), blockData.getSignature(), BlockTransformer.toBytes(block));
+		} catch (TransformationException | DataException e) {
+			LOGGER.warn(() -> String.format("Unable to add block %d to raw block store: %s", blockData.getHeight(), e.getMessage()));
+		}
+	}
+
+	/** Trims store in use by node, if any, so that <tt>height</tt> is highest stored block. Failures are logged. */
+	public static void onBlockOrphaned(int height) {
+		RawBlockStore rawBlockStore = getInstance();
+		if (rawBlockStore == null)
+			return;
+
+		try {
+			rawBlockStore.truncate(height);
+		} catch (DataException e) {
+			LOGGER.warn(() -> String.format("Unable to trim raw block store to height %d: %s", height, e.getMessage()));
+		}
+	}
+
+	// Store access
+
+	/** Returns height of highest stored block, or 0 if store is empty. */
+	public synchronized int getHeight() {
+		return this.height;
+	}
+
+	/** Returns signature of block stored at <tt>height</tt>, or null if no block stored at that height. */
+	public synchronized byte[] getSignature(int height) throws DataException {
+		if (height < 1 || height > this.height)
+			return null;
+
+		try {
+			return this.readIndexEntry(height).signature;
+		} catch (IOException e) {
+			throw new DataException("Unable to read raw block store index", e);
+		}
+	}
+
+	/**
+	 * Returns serialized block at <tt>height</tt>, as produced by {@link BlockTransformer#toBytes(Block)},
+	 * but only if stored block's signature matches <tt>signature</tt>.
+	 *
+	 * @return serialized block, or null if not stored
+	 */
+	public synchronized byte[] fetch(int height, byte[] signature) throws DataException {
+		if (height < 1 || height > this.height)
+			return null;
+
+		try {
+			IndexEntry indexEntry = this.readIndexEntry(height);
+
+			if (!Arrays.equals(indexEntry.signature, signature))
+				return null;
+
+			ByteBuffer blockBuffer = ByteBuffer.allocate(indexEntry.length);
+			this.readFully(this.dataChannel, blockBuffer, indexEntry.offset);
+
+			return blockBuffer.array();
+		} catch (IOException e) {
+			throw new DataException("Unable to read from raw block store", e);
+		}
+	}
+
+	/**
+	 * Stores serialized block at <tt>height</tt>.
+	 * <p>
+	 * Any blocks already stored at, or above, <tt>height</tt> are discarded first.
+	 * If <tt>height</tt> would leave a gap in store then block is not stored.
+	 *
+	 * @return true if block was stored
+	 */
+	public synchronized boolean append(int height, byte[] signature, byte[] blockBytes) throws DataException {
+		if (height < 1 || height > this.height + 1) {
+			LOGGER.trace(() -> String.format("Not adding block %d to raw block store at height %d", height, this.height));
+			return false;
+		}
+
+		if (signature.length != BlockTransformer.BLOCK_SIGNATURE_LENGTH)
+			throw new IllegalArgumentException("Unexpected block signature length");
+
+		try {
+			if (height <= this.height)
+				this.truncateTo(height - 1);
+
+			long offset = height > 1 ? this.endOfData(height - 1) : 0L;
+
+			// Write data before index entry, so index never refers to missing data
+			this.writeFully(this.dataChannel, ByteBuffer.wrap(blockBytes), offset);
+
+			ByteBuffer indexBuffer = ByteBuffer.allocate(INDEX_ENTRY_LENGTH);
+			indexBuffer.putLong(offset).putInt(blockBytes.length).put(signature).flip();
+			this.writeFully(this.indexChannel, indexBuffer, indexPosition(height));
+
+			this.height = height;
+			return true;
+		} catch (IOException e) {
+			throw new DataException("Unable to write to raw block store", e);
+		}
+	}
+
+	/** Discards any blocks stored above <tt>height</tt>. */
+	public synchronized void truncate(int height) throws DataException {
+		if (height >= this.height)
+			return;
+
+		try {
+			this.truncateTo(Math.max(0, height));
+		} catch (IOException e) {
+			throw new DataException("Unable to truncate raw block store", e);
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		try {
+			this.dataChannel.force(false);
+			this.indexChannel.force(false);
+		} catch (IOException e) {
+			LOGGER.warn(() -> String.format("Unable to flush raw block store: %s", e.getMessage()));
+		}
+
+		try {
+			this.dataChannel.close();
+			this.indexChannel.close();
+		} catch (IOException e) {
+			LOGGER.warn(() -> String.format("Unable to close raw block store: %s", e.getMessage()));
+		}
+	}
+
+	// Consistency with repository
+
+	/**
+	 * Discards any stored blocks that don't match repository's blocks at same height,
+	 * e.g. blocks stored before a crash, but never committed to repository.
+	 */
+	public synchronized void reconcile(Repository repository) throws DataException {
+		int matchingHeight = Math.min(this.height, repository.getBlockRepository().getBlockchainHeight());
+
+		// Mismatches will be near the top, after an unclean shutdown
+		while (matchingHeight > 0) {
+			BlockData blockData = repository.getBlockRepository().fromHeight(matchingHeight);
+
+			if (blockData != null && Arrays.equals(blockData.getSignature(), this.getSignature(matchingHeight)))
+				break;
+
+			--matchingHeight;
+		}
+
+		if (matchingHeight < this.height) {
+			final int discardedCount = this.height - matchingHeight;
+			LOGGER.info(() -> String.format("Discarding %d block%s from raw block store that don't match repository",
+					discardedCount, (discardedCount != 1 ? "s" : "")));
+
+			this.truncate(matchingHeight);
+		}
+	}
+
+	/**
+	 * Checks stored blocks against repository.
+	 * <p>
+	 * Each stored block's signature is compared with repository's block at same height.
+	 * If <tt>compareBytes</tt> is true, stored bytes are also compared with block freshly serialized from repository,
+	 * which is much slower. Stored blocks can still have online accounts signatures that repository has since trimmed,
+	 * which isn't counted as inconsistent.
+	 *
+	 * @return lowest height with inconsistent block, or null if all stored blocks are consistent
+	 */
+	public Integer check(Repository repository, boolean compareBytes) throws DataException {
+		final int storeHeight = this.getHeight();
+
+		for (int height = 1; height <= storeHeight; ++height) {
+			BlockData blockData = repository.getBlockRepository().fromHeight(height);
+			if (blockData == null)
+				return height;
+
+			byte[] storedBytes = this.fetch(height, blockData.getSignature());
+			if (storedBytes == null)
+				return height;
+
+			if (!compareBytes)
+				continue;
+
+			try {
+				byte[] blockBytes = BlockTransformer.toBytes(new Block(repository, blockData));
+
+				if (!Arrays.equals(blockBytes, storedBytes)
+						&& !(blockData.getOnlineAccountsSignatures() == null && isUntrimmed(storedBytes, blockBytes)))
+					return height;
+			} catch (TransformationException e) {
+				throw new DataException(String.format("Unable to serialize block %d from repository", height), e);
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns whether <tt>storedBytes</tt> is same block as <tt>trimmedBytes</tt>, but with online accounts signatures.
+	 * <p>
+	 * Serialized blocks end with online accounts signatures count, then timestamp and signatures only if count is non-zero.
+	 */
+	private static boolean isUntrimmed(byte[] storedBytes, byte[] trimmedBytes) {
+		final int prefixLength = trimmedBytes.length - Transformer.INT_LENGTH;
+		if (prefixLength < 0 || storedBytes.length < prefixLength + Transformer.INT_LENGTH + Transformer.TIMESTAMP_LENGTH)
+			return false;
+
+		if (!Arrays.equals(storedBytes, 0, prefixLength, trimmedBytes, 0, prefixLength))
+			return false;
+
+		int signaturesCount = ByteBuffer.wrap(storedBytes, prefixLength, Transformer.INT_LENGTH).getInt();
+
+		return signaturesCount > 0
+				&& storedBytes.length == prefixLength + Transformer.INT_LENGTH + Transformer.TIMESTAMP_LENGTH + (long) signaturesCount * Transformer.SIGNATURE_LENGTH;
+	}
+
+	/**
+	 * Rebuilds store from repository, starting at <tt>fromHeight</tt>, up to repository's chain tip.
+	 * <p>
+	 * Blocks already stored below <tt>fromHeight</tt> are kept, so <tt>fromHeight</tt> is limited to one more than store's height.
+	 * <p>
+	 * Stops early, without error, if calling thread is interrupted.
+	 *
+	 * @return number of blocks stored
+	 */
+	public int rebuild(Repository repository, int fromHeight) throws DataException {
+		int height = Math.max(1, Math.min(fromHeight, this.getHeight() + 1));
+
+		this.truncate(height - 1);
+
+		int count = 0;
+		// Chain tip can move while we're rebuilding, so check repository's height each time
+		for (; height <= repository.getBlockRepository().getBlockchainHeight(); ++height) {
+			if (Thread.currentThread().isInterrupted())
+				break;
+
+			BlockData blockData = repository.getBlockRepository().fromHeight(height);
+			if (blockData == null)
+				throw new DataException(String.format("Missing block %d from repository", height));
+
+			try {
+				// Store may have been trimmed below us by an orphaning, leaving a gap
+				if (!this.append(height, blockData.getSignature(), BlockTransformer.toBytes(new Block(repository, blockData))))
+					break;
+			} catch (TransformationException e) {
+				throw new DataException(String.format("Unable to serialize block %d from repository", height), e);
+			}
+
+			++count;
+
+			if (height % REBUILD_PROGRESS_INTERVAL == 0) {
+				final int progressHeight = height;
+				LOGGER.info(() -> String.format("Rebuilt raw block store up to height %d", progressHeight));
+			}
+
+			// Drop loaded transactions, etc.
+			repository.discardChanges();
+		}
+
+		return count;
+	}
+
+	// Utility methods
+
+	private static long indexPosition(int height) {
+		return (long) (height - 1) * INDEX_ENTRY_LENGTH;
+	}
+
+	private IndexEntry readIndexEntry(int height) throws IOException {
+		ByteBuffer indexBuffer = ByteBuffer.allocate(INDEX_ENTRY_LENGTH);
+		this.readFully(this.indexChannel, indexBuffer, indexPosition(height));
+		indexBuffer.flip();
+
+		long offset = indexBuffer.getLong();
+		int length = indexBuffer.getInt();
+		byte[] signature = new byte[BlockTransformer.BLOCK_SIGNATURE_LENGTH];
+		indexBuffer.get(signature);
+
+		return new IndexEntry(offset, length, signature);
+	}
+
+	private long endOfData(int height) throws IOException {
+		if (height < 1)
+			return 0L;
+
+		IndexEntry indexEntry = this.readIndexEntry(height);
+		return indexEntry.offset + indexEntry.length;
+	}
+
+	private void truncateTo(int height) throws IOException {
+		this.indexChannel.truncate(indexPosition(height + 1));
+		this.dataChannel.truncate(this.endOfData(height));
+		this.height = height;
+	}
+
+	/** Discards any partially written entries, e.g. after a crash during an append. */
+	private void recover() throws IOException {
+		int height = (int) (this.indexChannel.size() / INDEX_ENTRY_LENGTH);
+		final long dataSize = this.dataChannel.size();
+
+		while (height > 0 && this.endOfData(height) > dataSize)
+			--height;
+
+		this.truncateTo(height);
+	}
+
+	private void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int bytesRead = channel.read(buffer, position + buffer.position());
+			if (bytesRead < 0)
+				throw new IOException("Unexpected end of raw block store file");
+		}
+	}
+
+	private void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining())
+			channel.write(buffer, position + buffer.position());
+	}
+
+}
@@ -1,5 +1,8 @@
 package org.qortal.repository;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+
 public interface Repository extends AutoCloseable {
 
 	public ATRepository getATRepository();
@@ -45,7 +48,16 @@ public interface Repository extends AutoCloseable {
 
 	public void setDebug(boolean debugState);
 
-	public void backup(boolean quick) throws DataException;
+	public default void backup(boolean quick) throws DataException {
+		backup(quick, null);
+	}
+
+	/**
+	 * Backs up repository without blocking writes, replacing any previous backup only once new backup is complete.
+	 * <p>
+	 * Progress is reported via <tt>backupProgress</tt>, if not null.
+	 */
+	public void backup(boolean quick, BackupProgress backupProgress) throws DataException;
 
 	public void checkpoint(boolean quick) throws DataException;
 
@@ -55,6 +67,22 @@ public interface Repository extends AutoCloseable {
 
 	public void importDataFromFile(String filename) throws DataException;
 
+	/**
+	 * Writes chain state, i.e. blockchain-derived data without node-local data or unconfirmed transactions, in canonical form.
+	 * <p>
+	 * Data that nodes trim on their own schedule, e.g. online accounts signatures, is included as-is.
+	 */
+	public void exportChainState(OutputStream out) throws DataException;
+
+	/** Replaces chain state with data written by {@link #exportChainState(OutputStream)}. Changes are not saved. */
+	public void importChainState(InputStream in) throws DataException;
+
+	/**
+	 * Returns SHA-256 digest of chain state, as written by {@link #exportChainState(OutputStream)},
+	 * except data that nodes trim on their own schedule is treated as fully trimmed, so hash is deterministic.
+	 */
+	public byte[] getChainStateHash() throws DataException;
+
 	public void checkConsistency() throws DataException;
 
 }
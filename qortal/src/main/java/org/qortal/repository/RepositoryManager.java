@@ -38,14 +38,6 @@ public abstract class RepositoryManager {
 		repositoryFactory = null;
 	}
 
-	public static void backup(boolean quick) {
-		try (final Repository repository = getRepository()) {
-			repository.backup(quick);
-		} catch (DataException e) {
-			// Backup is best-effort so don't complain
-		}
-	}
-
 	public static void checkpoint(boolean quick) {
 		try (final Repository repository = getRepository()) {
 			repository.checkpoint(quick);
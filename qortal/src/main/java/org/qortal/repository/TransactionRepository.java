@@ -62,6 +62,7 @@ public interface TransactionRepository {
 	 * @param service arbitrary transaction service ID
 	 * @param address
 	 * @param confirmationStatus
+	 * @param afterSignature signature of last transaction from previous page, for keyset pagination, or null
 	 * @param limit
 	 * @param offset
 	 * @param reverse
@@ -70,7 +71,14 @@ public interface TransactionRepository {
 	 */
 	public List<byte[]> getSignaturesMatchingCriteria(Integer startBlock, Integer blockLimit, Integer txGroupId,
 			List<TransactionType> txTypes, Integer service, String address,
-			ConfirmationStatus confirmationStatus, Integer limit, Integer offset, Boolean reverse) throws DataException;
+			ConfirmationStatus confirmationStatus, byte[] afterSignature, Integer limit, Integer offset, Boolean reverse) throws DataException;
+
+	/** Returns signatures for transactions that match search criteria, using limit/offset pagination only. */
+	public default List<byte[]> getSignaturesMatchingCriteria(Integer startBlock, Integer blockLimit, Integer txGroupId,
+			List<TransactionType> txTypes, Integer service, String address,
+			ConfirmationStatus confirmationStatus, Integer limit, Integer offset, Boolean reverse) throws DataException {
+		return getSignaturesMatchingCriteria(startBlock, blockLimit, txGroupId, txTypes, service, address, confirmationStatus, null, limit, offset, reverse);
+	}
 
 	/**
 	 * Returns signatures for transactions that match search criteria.
@@ -185,6 +193,17 @@ public interface TransactionRepository {
 	 */
 	public List<TransactionData> getApprovalExpiringTransactions(int blockHeight) throws DataException;
 
+	/**
+	 * Adds confirmed, approval-pending transaction to group-approval schedule.
+	 * <p>
+	 * Decision and expiry heights are based on transaction's block height and its group's current block delays,
+	 * and are recalculated if group's block delays change.
+	 */
+	public void scheduleApproval(TransactionData transactionData) throws DataException;
+
+	/** Removes transaction from group-approval schedule, e.g. once decided, expired or no longer confirmed. */
+	public void unscheduleApproval(byte[] signature) throws DataException;
+
 	/** Returns list of transactions that had group-approval decided at passed block height. */
 	public List<TransactionData> getApprovalTransactionDecidedAtHeight(int approvalHeight) throws DataException;
 
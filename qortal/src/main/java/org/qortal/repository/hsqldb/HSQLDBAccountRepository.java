@@ -767,6 +767,26 @@ public class HSQLDBAccountRepository implements AccountRepository {
 		}
 	}
 
+	@Override
+	public List<byte[]> getRewardSharePublicKeys() throws DataException {
+		String sql = "SELECT reward_share_public_key FROM RewardShares ORDER BY reward_share_public_key ASC";
+
+		List<byte[]> rewardSharePublicKeys = new ArrayList<>();
+
+		try (ResultSet resultSet = this.repository.checkedExecute(sql)) {
+			if (resultSet == null)
+				return rewardSharePublicKeys;
+
+			do {
+				rewardSharePublicKeys.add(resultSet.getBytes(1));
+			} while (resultSet.next());
+
+			return rewardSharePublicKeys;
+		} catch (SQLException e) {
+			throw new DataException("Unable to fetch reward-share public keys from repository", e);
+		}
+	}
+
 	@Override
 	public Integer getRewardShareIndex(byte[] rewardSharePublicKey) throws DataException {
 		if (!this.rewardShareExists(rewardSharePublicKey))
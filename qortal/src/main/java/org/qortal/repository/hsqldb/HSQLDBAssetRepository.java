@@ -2,9 +2,13 @@ package org.qortal.repository.hsqldb;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.qortal.data.asset.AssetData;
 import org.qortal.data.asset.OrderData;
@@ -12,11 +16,17 @@ import org.qortal.data.asset.RecentTradeData;
 import org.qortal.data.asset.TradeData;
 import org.qortal.repository.AssetRepository;
 import org.qortal.repository.DataException;
+import org.qortal.utils.ByteArray;
 
 public class HSQLDBAssetRepository implements AssetRepository {
 
 	protected HSQLDBRepository repository;
 
+	/** Orders saved/deleted during current repository transaction, by order ID, not yet applied to order book. Null value means deleted. */
+	private Map<ByteArray, OrderData> pendingOrderChanges = new HashMap<>();
+	/** Copies of <tt>pendingOrderChanges</tt> taken at each savepoint */
+	private final Deque<Map<ByteArray, OrderData>> pendingOrderChangesSavepoints = new ArrayDeque<>();
+
 	public HSQLDBAssetRepository(HSQLDBRepository repository) {
 		this.repository = repository;
 	}
@@ -214,6 +224,18 @@ public class HSQLDBAssetRepository implements AssetRepository {
 
 	@Override
 	public OrderData fromOrderId(byte[] orderId) throws DataException {
+		// Changed during this transaction?
+		ByteArray orderIdKey = ByteArray.of(orderId);
+		if (this.pendingOrderChanges.containsKey(orderIdKey)) {
+			OrderData orderData = this.pendingOrderChanges.get(orderIdKey);
+			return orderData != null ? HSQLDBOrderBook.copyOf(orderData) : null;
+		}
+
+		// Open orders are in order book
+		OrderData orderData = this.repository.getOrderBook().getOrder(orderId);
+		if (orderData != null)
+			return orderData;
+
 		String sql = "SELECT creator, have_asset_id, want_asset_id, amount, fulfilled, price, ordered_when, "
 				+ "is_closed, is_fulfilled, HaveAsset.asset_name, WantAsset.asset_name "
 				+ "FROM AssetOrders "
@@ -247,154 +269,69 @@ public class HSQLDBAssetRepository implements AssetRepository {
 	@Override
 	public List<OrderData> getOpenOrders(long haveAssetId, long wantAssetId, Integer limit, Integer offset,
 			Boolean reverse) throws DataException {
-		List<OrderData> orders = new ArrayList<>();
-
-		// Cache have & want asset names for later use, which also saves a table join
-		AssetData haveAssetData = this.fromAssetId(haveAssetId);
-		if (haveAssetData == null)
-			return orders;
-
-		AssetData wantAssetData = this.fromAssetId(wantAssetId);
-		if (wantAssetData == null)
-			return orders;
-
-		StringBuilder sql = new StringBuilder(512);
-		sql.append("SELECT creator, asset_order_id, amount, fulfilled, price, ordered_when FROM AssetOrders "
-				+ "WHERE have_asset_id = ? AND want_asset_id = ? AND NOT is_closed AND NOT is_fulfilled ");
-
-		sql.append("ORDER BY price");
-		if (reverse != null && reverse)
-			sql.append(" DESC");
-
-		sql.append(", ordered_when");
-		if (reverse != null && reverse)
-			sql.append(" DESC");
+		boolean isReversed = reverse != null && reverse;
 
-		HSQLDBRepository.limitOffsetSql(sql, limit, offset);
-
-		try (ResultSet resultSet = this.repository.checkedExecute(sql.toString(), haveAssetId, wantAssetId)) {
-			if (resultSet == null)
-				return orders;
-
-			do {
-				byte[] creatorPublicKey = resultSet.getBytes(1);
-				byte[] orderId = resultSet.getBytes(2);
-				long amount = resultSet.getLong(3);
-				long fulfilled = resultSet.getLong(4);
-				long price = resultSet.getLong(5);
-				long timestamp = resultSet.getLong(6);
-				boolean isClosed = false;
-				boolean isFulfilled = false;
-
-				OrderData order = new OrderData(orderId, creatorPublicKey, haveAssetId, wantAssetId, amount, fulfilled,
-						price, timestamp, isClosed, isFulfilled, haveAssetData.getName(), wantAssetData.getName());
-				orders.add(order);
-			} while (resultSet.next());
+		List<OrderData> orders = this.getOpenOrders(haveAssetId, wantAssetId, isReversed, isReversed, null);
 
-			return orders;
-		} catch (SQLException e) {
-			throw new DataException("Unable to fetch open asset orders from repository", e);
-		}
+		return limitOffset(orders, limit, offset);
 	}
 
 	@Override
 	public List<OrderData> getOpenOrdersForTrading(long haveAssetId, long wantAssetId, Long minimumPrice) throws DataException {
-		List<Object> bindParams = new ArrayList<>(3);
-
-		StringBuilder sql = new StringBuilder(512);
-		sql.append("SELECT creator, asset_order_id, amount, fulfilled, price, ordered_when FROM AssetOrders "
-				+ "WHERE have_asset_id = ? AND want_asset_id = ? AND NOT is_closed AND NOT is_fulfilled ");
-
-		Collections.addAll(bindParams, haveAssetId, wantAssetId);
-
-		if (minimumPrice != null) {
-			// 'new' pricing scheme implied
-			// NOTE: haveAssetId and wantAssetId are for TARGET orders, so different from Order.process() caller
-			if (haveAssetId < wantAssetId)
-				sql.append("AND price >= ? ");
-			else
-				sql.append("AND price <= ? ");
-
-			bindParams.add(minimumPrice);
-		}
-
-		sql.append("ORDER BY price");
-		if (minimumPrice != null && haveAssetId < wantAssetId)
-			sql.append(" DESC");
-
-		sql.append(", ordered_when");
-
-		List<OrderData> orders = new ArrayList<>();
-
-		try (ResultSet resultSet = this.repository.checkedExecute(sql.toString(), bindParams.toArray())) {
-			if (resultSet == null)
-				return orders;
+		// 'new' pricing scheme implied by minimumPrice
+		// NOTE: haveAssetId and wantAssetId are for TARGET orders, so different from Order.process() caller
+		boolean isDescendingPrice = minimumPrice != null && haveAssetId < wantAssetId;
 
-			do {
-				byte[] creatorPublicKey = resultSet.getBytes(1);
-				byte[] orderId = resultSet.getBytes(2);
-				long amount = resultSet.getLong(3);
-				long fulfilled = resultSet.getLong(4);
-				long price = resultSet.getLong(5);
-				long timestamp = resultSet.getLong(6);
-				boolean isClosed = false;
-				boolean isFulfilled = false;
-
-				// We don't need asset names so we can use simpler constructor
-				OrderData order = new OrderData(orderId, creatorPublicKey, haveAssetId, wantAssetId, amount, fulfilled,
-						price, timestamp, isClosed, isFulfilled);
-				orders.add(order);
-			} while (resultSet.next());
-
-			return orders;
-		} catch (SQLException e) {
-			throw new DataException("Unable to fetch open asset orders for trading from repository", e);
-		}
+		return this.getOpenOrders(haveAssetId, wantAssetId, isDescendingPrice, false, minimumPrice);
 	}
 
 	@Override
 	public List<OrderData> getAggregatedOpenOrders(long haveAssetId, long wantAssetId, Integer limit, Integer offset,
 			Boolean reverse) throws DataException {
-		List<OrderData> orders = new ArrayList<>();
+		boolean isReversed = reverse != null && reverse;
 
-		// Cache have & want asset names for later use, which also saves a table join
-		AssetData haveAssetData = this.fromAssetId(haveAssetId);
-		if (haveAssetData == null)
-			return orders;
+		// Aggregated orders are only used by API, so don't need to include uncommitted changes
+		List<OrderData> orders = this.repository.getOrderBook().getAggregatedOpenOrders(haveAssetId, wantAssetId, isReversed);
 
-		AssetData wantAssetData = this.fromAssetId(wantAssetId);
-		if (wantAssetData == null)
-			return orders;
+		return limitOffset(orders, limit, offset);
+	}
 
-		StringBuilder sql = new StringBuilder(512);
-		sql.append("SELECT price, SUM(amount - fulfilled), MAX(ordered_when) FROM AssetOrders "
-				+ "WHERE have_asset_id = ? AND want_asset_id = ? AND NOT is_closed AND NOT is_fulfilled "
-				+ "GROUP BY price ");
+	/** Returns open orders from order book, combined with any changes made during this transaction. */
+	private List<OrderData> getOpenOrders(long haveAssetId, long wantAssetId, boolean isDescendingPrice, boolean isDescendingTime, Long priceLimit) {
+		List<OrderData> orders = this.repository.getOrderBook().getOpenOrders(haveAssetId, wantAssetId, isDescendingPrice, isDescendingTime, priceLimit);
 
-		sql.append("ORDER BY price");
-		if (reverse != null && reverse)
-			sql.append(" DESC");
+		if (this.pendingOrderChanges.isEmpty())
+			return orders;
 
-		HSQLDBRepository.limitOffsetSql(sql, limit, offset);
+		// Replace order book's versions of orders with versions from this transaction
+		orders.removeIf(orderData -> this.pendingOrderChanges.containsKey(ByteArray.of(orderData.getOrderId())));
 
-		try (ResultSet resultSet = this.repository.checkedExecute(sql.toString(), haveAssetId, wantAssetId)) {
-			if (resultSet == null)
-				return orders;
+		boolean needsSorting = false;
+		for (OrderData orderData : this.pendingOrderChanges.values()) {
+			if (orderData == null || !HSQLDBOrderBook.isOpen(orderData))
+				continue;
 
-			do {
-				long price = resultSet.getLong(1);
-				long totalUnfulfilled = resultSet.getLong(2);
-				long timestamp = resultSet.getLong(3);
+			if (orderData.getHaveAssetId() != haveAssetId || orderData.getWantAssetId() != wantAssetId)
+				continue;
 
-				OrderData order = new OrderData(null, null, haveAssetId, wantAssetId, totalUnfulfilled, 0L,
-						price, timestamp, false, false, haveAssetData.getName(), wantAssetData.getName());
-				orders.add(order);
-			} while (resultSet.next());
+			if (!HSQLDBOrderBook.isWithinPriceLimit(orderData.getPrice(), isDescendingPrice, priceLimit))
+				continue;
 
-			return orders;
-		} catch (SQLException e) {
-			throw new DataException("Unable to fetch aggregated open asset orders from repository", e);
+			orders.add(HSQLDBOrderBook.copyOf(orderData));
+			needsSorting = true;
 		}
+
+		if (needsSorting)
+			orders.sort(HSQLDBOrderBook.getComparator(isDescendingPrice, isDescendingTime));
+
+		return orders;
+	}
+
+	private static <T> List<T> limitOffset(List<T> list, Integer limit, Integer offset) {
+		int fromIndex = offset != null ? Math.min(Math.max(offset, 0), list.size()) : 0;
+		int toIndex = limit != null && limit > 0 ? Math.min(fromIndex + limit, list.size()) : list.size();
+
+		return list.subList(fromIndex, toIndex);
 	}
 
 	@Override
@@ -528,6 +465,8 @@ public class HSQLDBAssetRepository implements AssetRepository {
 		} catch (SQLException e) {
 			throw new DataException("Unable to save asset order into repository", e);
 		}
+
+		this.pendingOrderChanges.put(ByteArray.of(orderData.getOrderId()), HSQLDBOrderBook.copyOf(orderData));
 	}
 
 	@Override
@@ -537,6 +476,131 @@ public class HSQLDBAssetRepository implements AssetRepository {
 		} catch (SQLException e) {
 			throw new DataException("Unable to delete asset order from repository", e);
 		}
+
+		this.pendingOrderChanges.put(ByteArray.of(orderId), null);
+	}
+
+	// Order book maintenance, called by HSQLDBRepository
+
+	/** Treats every order in repository as changed, e.g. after bulk import, so order book is updated on commit. */
+	/* package */ void trackAllOrders() throws DataException {
+		String sql = "SELECT asset_order_id, creator, have_asset_id, want_asset_id, amount, fulfilled, price, ordered_when, is_closed, is_fulfilled "
+				+ "FROM AssetOrders";
+
+		try (ResultSet resultSet = this.repository.checkedExecute(sql)) {
+			if (resultSet == null)
+				return;
+
+			do {
+				byte[] orderId = resultSet.getBytes(1);
+				byte[] creatorPublicKey = resultSet.getBytes(2);
+				long haveAssetId = resultSet.getLong(3);
+				long wantAssetId = resultSet.getLong(4);
+				long amount = resultSet.getLong(5);
+				long fulfilled = resultSet.getLong(6);
+				long price = resultSet.getLong(7);
+				long timestamp = resultSet.getLong(8);
+				boolean isClosed = resultSet.getBoolean(9);
+				boolean isFulfilled = resultSet.getBoolean(10);
+
+				this.pendingOrderChanges.put(ByteArray.of(orderId), new OrderData(orderId, creatorPublicKey, haveAssetId, wantAssetId,
+						amount, fulfilled, price, timestamp, isClosed, isFulfilled, null, null));
+			} while (resultSet.next());
+		} catch (SQLException e) {
+			throw new DataException("Unable to fetch asset orders from repository", e);
+		}
+	}
+
+	/* package */ boolean hasPendingOrderChanges() {
+		return !this.pendingOrderChanges.isEmpty();
+	}
+
+	/**
+	 * Fills in asset names and creation heights for changed orders, so order book can supply names to API
+	 * and keep orders in creation order. Called before commit, by which time creating transactions are confirmed.
+	 */
+	/* package */ void prepareOrderChanges() throws DataException {
+		Map<Long, String> assetNames = new HashMap<>();
+
+		for (Map.Entry<ByteArray, OrderData> entry : this.pendingOrderChanges.entrySet()) {
+			OrderData orderData = entry.getValue();
+			if (orderData == null || !HSQLDBOrderBook.isOpen(orderData))
+				continue;
+
+			if (orderData.getCreationHeight() == null)
+				orderData.setCreationHeight(this.getCreationHeight(orderData.getOrderId()));
+
+			if (orderData.getHaveAssetName() != null)
+				continue;
+
+			String[] pairAssetNames = this.repository.getOrderBook().getAssetNames(orderData.getHaveAssetId(), orderData.getWantAssetId());
+			if (pairAssetNames != null) {
+				assetNames.putIfAbsent(orderData.getHaveAssetId(), pairAssetNames[0]);
+				assetNames.putIfAbsent(orderData.getWantAssetId(), pairAssetNames[1]);
+			}
+
+			String haveAssetName = this.getAssetName(orderData.getHaveAssetId(), assetNames);
+			String wantAssetName = this.getAssetName(orderData.getWantAssetId(), assetNames);
+
+			OrderData namedOrderData = new OrderData(orderData.getOrderId(), orderData.getCreatorPublicKey(), orderData.getHaveAssetId(), orderData.getWantAssetId(),
+					orderData.getAmount(), orderData.getFulfilled(), orderData.getPrice(), orderData.getTimestamp(),
+					orderData.getIsClosed(), orderData.getIsFulfilled(), haveAssetName, wantAssetName);
+			namedOrderData.setCreationHeight(orderData.getCreationHeight());
+
+			entry.setValue(namedOrderData);
+		}
+	}
+
+	/** Returns height of block containing order's creating transaction, or null if unconfirmed. */
+	private Integer getCreationHeight(byte[] orderId) throws DataException {
+		// Order ID is creating transaction's signature
+		String sql = "SELECT block_height FROM Transactions WHERE signature = ?";
+
+		try (ResultSet resultSet = this.repository.checkedExecute(sql, orderId)) {
+			if (resultSet == null)
+				return null;
+
+			Integer blockHeight = resultSet.getInt(1);
+			if (blockHeight == 0 && resultSet.wasNull())
+				return null;
+
+			return blockHeight;
+		} catch (SQLException e) {
+			throw new DataException("Unable to fetch asset order's creation height from repository", e);
+		}
+	}
+
+	private String getAssetName(long assetId, Map<Long, String> assetNames) throws DataException {
+		String assetName = assetNames.get(assetId);
+		if (assetName != null)
+			return assetName;
+
+		AssetData assetData = this.fromAssetId(assetId);
+		if (assetData == null)
+			return null;
+
+		assetNames.put(assetId, assetData.getName());
+		return assetData.getName();
+	}
+
+	/** Applies this transaction's order changes to order book. Called after successful commit. */
+	/* package */ void applyOrderChanges() {
+		this.repository.getOrderBook().apply(this.pendingOrderChanges);
+	}
+
+	/* package */ void discardOrderChanges() {
+		this.pendingOrderChanges.clear();
+		this.pendingOrderChangesSavepoints.clear();
+	}
+
+	/* package */ void pushOrderChangesSavepoint() {
+		this.pendingOrderChangesSavepoints.push(new HashMap<>(this.pendingOrderChanges));
+	}
+
+	/* package */ void popOrderChangesSavepoint() {
+		Map<ByteArray, OrderData> savepointOrderChanges = this.pendingOrderChangesSavepoints.poll();
+		if (savepointOrderChanges != null)
+			this.pendingOrderChanges = savepointOrderChanges;
 	}
 
 	// Trades
@@ -0,0 +1,347 @@
+package org.qortal.repository.hsqldb;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.qortal.repository.DataException;
+
+/**
+ * Reads/writes chain state, i.e. every table that is derived from blockchain, in a canonical form.
+ * <p>
+ * Tables are written in foreign-key order, then by name. Rows are written in primary-key order.
+ * So two repositories with same chain state produce identical output, which can then be hashed.
+ * <p>
+ * Node-local tables, e.g. minting keys, peers, trade-bot states, foreign blockchain caches, are not included.
+ * Neither are unconfirmed transactions.
+ * <p>
+ * Data that each node trims on its own schedule can be written as if fully trimmed, so honest nodes at the same height
+ * produce the same output for hashing: blocks' online accounts signatures are written as NULL, and only each AT's
+ * latest state data is written. Otherwise, e.g. for bootstrap snapshots, such data is written as-is, as importing nodes
+ * still need recent blocks' online accounts signatures to validate, serve and orphan those blocks.
+ */
+/* package */ class HSQLDBChainState {
+
+	private static final Logger LOGGER = LogManager.getLogger(HSQLDBChainState.class);
+
+	/** Tables that aren't part of chain state. HSQLDB stores unquoted names in upper case. */
+	private static final Set<String> EXCLUDED_TABLES = Set.of("DATABASEINFO", "PEERS", "MINTINGACCOUNTS", "TRADEBOTSTATES",
+			"UNCONFIRMEDTRANSACTIONS", "FOREIGNTRANSACTIONS", "FOREIGNTRANSACTIONINPUTS", "FOREIGNTRANSACTIONOUTPUTS", "FOREIGNSPENTKEYS",
+			// Also cover unconfirmed chat messages, so rebuilt after import instead
+			"LATESTGROUPCHATS", "LATESTDIRECTCHATS",
+			// Cache used while trimming AT states
+			"LATESTATSTATES");
+
+	/** Columns that nodes trim on their own schedule, written as NULL unless including trimmed data, by table */
+	private static final Map<String, Set<String>> TRIMMED_COLUMNS = Map.of("BLOCKS", Set.of("ONLINE_ACCOUNTS_SIGNATURES"));
+
+	/** Conditions for rows that every node keeps, for tables whose rows nodes trim on their own schedule, unless including trimmed data */
+	private static final Map<String, String> UNTRIMMED_ROWS = Map.of("ATSTATESDATA",
+			"height = (SELECT MAX(height) FROM ATStates WHERE ATStates.AT_address = ATStatesData.AT_address)");
+
+	private static final int INSERT_BATCH_SIZE = 1000;
+
+	// Value tags
+	private static final byte NULL_VALUE = 0;
+	private static final byte BOOLEAN_VALUE = 1;
+	private static final byte INTEGER_VALUE = 2;
+	private static final byte BYTES_VALUE = 3;
+	private static final byte STRING_VALUE = 4;
+
+	private static class TableInfo {
+		final String name;
+		final List<String> columns;
+		final List<String> orderColumns;
+
+		TableInfo(String name, List<String> columns, List<String> orderColumns) {
+			this.name = name;
+			this.columns = columns;
+			this.orderColumns = orderColumns;
+		}
+	}
+
+	private HSQLDBChainState() {
+	}
+
+	/**
+	 * Writes chain state, as seen by <tt>connection</tt>, to <tt>out</tt>. Unconfirmed transactions must already be excluded.
+	 * <p>
+	 * If <tt>includeTrimmedData</tt> is false then data that nodes trim on their own schedule is written as if fully trimmed.
+	 */
+	/* package */ static void export(Connection connection, int databaseVersion, OutputStream out, boolean includeTrimmedData) throws DataException {
+		DataOutputStream dataOut = new DataOutputStream(out);
+
+		try {
+			dataOut.writeInt(databaseVersion);
+
+			for (TableInfo tableInfo : fetchTables(connection)) {
+				dataOut.writeBoolean(true);
+				dataOut.writeUTF(tableInfo.name);
+
+				dataOut.writeInt(tableInfo.columns.size());
+				for (String column : tableInfo.columns)
+					dataOut.writeUTF(column);
+
+				String untrimmedRows = includeTrimmedData ? null : UNTRIMMED_ROWS.get(tableInfo.name);
+				String sql = String.format("SELECT %s FROM %s %sORDER BY %s", quote(tableInfo.columns), quote(tableInfo.name),
+						(untrimmedRows != null ? "WHERE " + untrimmedRows + " " : ""), quote(tableInfo.orderColumns));
+
+				Set<String> trimmedColumns = includeTrimmedData ? Collections.emptySet() : TRIMMED_COLUMNS.getOrDefault(tableInfo.name, Collections.emptySet());
+
+				try (Statement stmt = connection.createStatement();
+						ResultSet resultSet = stmt.executeQuery(sql)) {
+					while (resultSet.next()) {
+						dataOut.writeBoolean(true);
+
+						for (int column = 1; column <= tableInfo.columns.size(); ++column) {
+							Object value = trimmedColumns.contains(tableInfo.columns.get(column - 1)) ? null : resultSet.getObject(column);
+							writeValue(dataOut, tableInfo.name, value);
+						}
+					}
+				}
+
+				dataOut.writeBoolean(false);
+			}
+
+			dataOut.writeBoolean(false);
+			dataOut.flush();
+		} catch (SQLException e) {
+			throw new DataException("Unable to export chain state from repository", e);
+		} catch (IOException e) {
+			throw new DataException("Unable to write chain state", e);
+		}
+	}
+
+	/** Replaces chain state, as seen by <tt>connection</tt>, with data read from <tt>in</tt>. Changes are not committed. */
+	/* package */ static void importData(Connection connection, int databaseVersion, InputStream in) throws DataException {
+		DataInputStream dataIn = new DataInputStream(in);
+
+		try {
+			int snapshotDatabaseVersion = dataIn.readInt();
+			if (snapshotDatabaseVersion != databaseVersion)
+				throw new DataException(String.format("Chain state is for repository version %d, not version %d", snapshotDatabaseVersion, databaseVersion));
+
+			List<TableInfo> tables = fetchTables(connection);
+			Map<String, TableInfo> tablesByName = tables.stream().collect(Collectors.toMap(tableInfo -> tableInfo.name, tableInfo -> tableInfo));
+
+			// Clear existing chain state, dependent tables first
+			try (Statement stmt = connection.createStatement()) {
+				for (int i = tables.size() - 1; i >= 0; --i)
+					stmt.execute("DELETE FROM " + quote(tables.get(i).name));
+			}
+
+			Set<String> importedTables = new HashSet<>();
+
+			while (dataIn.readBoolean()) {
+				String tableName = dataIn.readUTF();
+
+				TableInfo tableInfo = tablesByName.get(tableName);
+				if (tableInfo == null || !importedTables.add(tableName))
+					throw new DataException(String.format("Unexpected table %s in chain state", tableName));
+
+				int columnCount = dataIn.readInt();
+				List<String> columns = new ArrayList<>(columnCount);
+				for (int i = 0; i < columnCount; ++i)
+					columns.add(dataIn.readUTF());
+
+				if (!columns.equals(tableInfo.columns))
+					throw new DataException(String.format("Chain state columns for table %s don't match repository", tableName));
+
+				String sql = String.format("INSERT INTO %s (%s) VALUES (%s)", quote(tableName), quote(columns),
+						String.join(", ", Collections.nCopies(columnCount, "?")));
+
+				int rowCount = 0;
+				try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+					while (dataIn.readBoolean()) {
+						for (int column = 1; column <= columnCount; ++column)
+							bindValue(preparedStatement, column, dataIn);
+
+						preparedStatement.addBatch();
+
+						if (++rowCount % INSERT_BATCH_SIZE == 0)
+							preparedStatement.executeBatch();
+					}
+
+					preparedStatement.executeBatch();
+				}
+
+				final int finalRowCount = rowCount;
+				LOGGER.debug(() -> String.format("Imported %d row%s into %s", finalRowCount, (finalRowCount != 1 ? "s" : ""), tableName));
+			}
+
+			if (importedTables.size() != tables.size())
+				throw new DataException("Chain state is missing tables");
+		} catch (SQLException e) {
+			throw new DataException("Unable to import chain state into repository", e);
+		} catch (IOException e) {
+			throw new DataException("Unable to read chain state", e);
+		}
+	}
+
+	/** Returns chain-state tables, with columns, in foreign-key order (referenced tables first), then by name. */
+	private static List<TableInfo> fetchTables(Connection connection) throws SQLException, DataException {
+		Set<String> tableNames = new TreeSet<>();
+
+		String tablesSql = "SELECT table_name FROM INFORMATION_SCHEMA.TABLES WHERE table_schema = 'PUBLIC' AND table_type = 'BASE TABLE'";
+		try (Statement stmt = connection.createStatement();
+				ResultSet resultSet = stmt.executeQuery(tablesSql)) {
+			while (resultSet.next())
+				tableNames.add(resultSet.getString(1));
+		}
+
+		tableNames.removeAll(EXCLUDED_TABLES);
+
+		// Referenced tables, keyed by referencing table
+		Map<String, Set<String>> dependencies = new HashMap<>();
+		for (String tableName : tableNames)
+			dependencies.put(tableName, new HashSet<>());
+
+		String referencesSql = "SELECT pktable_name, fktable_name FROM INFORMATION_SCHEMA.SYSTEM_CROSSREFERENCE "
+				+ "WHERE pktable_schem = 'PUBLIC' AND fktable_schem = 'PUBLIC'";
+		try (Statement stmt = connection.createStatement();
+				ResultSet resultSet = stmt.executeQuery(referencesSql)) {
+			while (resultSet.next()) {
+				String referencedTable = resultSet.getString(1);
+				String referencingTable = resultSet.getString(2);
+
+				if (!referencedTable.equals(referencingTable) && tableNames.contains(referencedTable) && tableNames.contains(referencingTable))
+					dependencies.get(referencingTable).add(referencedTable);
+			}
+		}
+
+		// Repeatedly take, by name, tables whose referenced tables have all been taken
+		Set<String> orderedTableNames = new LinkedHashSet<>();
+		while (orderedTableNames.size() < tableNames.size()) {
+			String nextTableName = tableNames.stream()
+					.filter(tableName -> !orderedTableNames.contains(tableName) && orderedTableNames.containsAll(dependencies.get(tableName)))
+					.findFirst()
+					.orElseThrow(() -> new DataException("Circular foreign keys between repository tables"));
+
+			orderedTableNames.add(nextTableName);
+		}
+
+		Map<String, List<String>> columnsByTable = new TreeMap<>();
+		String columnsSql = "SELECT table_name, column_name FROM INFORMATION_SCHEMA.COLUMNS "
+				+ "WHERE table_schema = 'PUBLIC' ORDER BY table_name, ordinal_position";
+		try (Statement stmt = connection.createStatement();
+				ResultSet resultSet = stmt.executeQuery(columnsSql)) {
+			while (resultSet.next())
+				columnsByTable.computeIfAbsent(resultSet.getString(1), k -> new ArrayList<>()).add(resultSet.getString(2));
+		}
+
+		Map<String, List<String>> primaryKeysByTable = new TreeMap<>();
+		String primaryKeysSql = "SELECT table_name, column_name FROM INFORMATION_SCHEMA.SYSTEM_PRIMARYKEYS "
+				+ "WHERE table_schem = 'PUBLIC' ORDER BY table_name, key_seq";
+		try (Statement stmt = connection.createStatement();
+				ResultSet resultSet = stmt.executeQuery(primaryKeysSql)) {
+			while (resultSet.next())
+				primaryKeysByTable.computeIfAbsent(resultSet.getString(1), k -> new ArrayList<>()).add(resultSet.getString(2));
+		}
+
+		List<TableInfo> tables = new ArrayList<>(orderedTableNames.size());
+		for (String tableName : orderedTableNames) {
+			List<String> columns = columnsByTable.get(tableName);
+			// Tables without primary key are ordered by all columns
+			List<String> orderColumns = primaryKeysByTable.getOrDefault(tableName, columns);
+
+			tables.add(new TableInfo(tableName, columns, orderColumns));
+		}
+
+		return tables;
+	}
+
+	/** Returns identifier quoted, as names fetched from INFORMATION_SCHEMA might be reserved words, e.g. "timestamp". */
+	private static String quote(String identifier) {
+		return '"' + identifier + '"';
+	}
+
+	private static String quote(List<String> identifiers) {
+		return identifiers.stream().map(HSQLDBChainState::quote).collect(Collectors.joining(", "));
+	}
+
+	private static void writeValue(DataOutputStream dataOut, String tableName, Object value) throws IOException, DataException {
+		if (value == null) {
+			dataOut.writeByte(NULL_VALUE);
+		} else if (value instanceof Boolean) {
+			dataOut.writeByte(BOOLEAN_VALUE);
+			dataOut.writeBoolean((Boolean) value);
+		} else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+			dataOut.writeByte(INTEGER_VALUE);
+			dataOut.writeLong(((Number) value).longValue());
+		} else if (value instanceof byte[]) {
+			byte[] bytes = (byte[]) value;
+			dataOut.writeByte(BYTES_VALUE);
+			dataOut.writeInt(bytes.length);
+			dataOut.write(bytes);
+		} else if (value instanceof String) {
+			// Not writeUTF() as that is limited to 64KB
+			byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+			dataOut.writeByte(STRING_VALUE);
+			dataOut.writeInt(bytes.length);
+			dataOut.write(bytes);
+		} else {
+			throw new DataException(String.format("Unsupported %s value in table %s", value.getClass().getSimpleName(), tableName));
+		}
+	}
+
+	private static void bindValue(PreparedStatement preparedStatement, int column, DataInputStream dataIn) throws IOException, SQLException, DataException {
+		byte tag = dataIn.readByte();
+
+		switch (tag) {
+			case NULL_VALUE:
+				preparedStatement.setNull(column, preparedStatement.getParameterMetaData().getParameterType(column));
+				break;
+
+			case BOOLEAN_VALUE:
+				preparedStatement.setBoolean(column, dataIn.readBoolean());
+				break;
+
+			case INTEGER_VALUE:
+				preparedStatement.setLong(column, dataIn.readLong());
+				break;
+
+			case BYTES_VALUE:
+				preparedStatement.setBytes(column, readBytes(dataIn));
+				break;
+
+			case STRING_VALUE:
+				preparedStatement.setString(column, new String(readBytes(dataIn), StandardCharsets.UTF_8));
+				break;
+
+			default:
+				throw new DataException(String.format("Unexpected value tag %d in chain state", tag));
+		}
+	}
+
+	private static byte[] readBytes(DataInputStream dataIn) throws IOException {
+		int length = dataIn.readInt();
+		if (length < 0)
+			throw new IOException("Negative length in chain state");
+
+		byte[] bytes = new byte[length];
+		dataIn.readFully(bytes);
+		return bytes;
+	}
+
+}
@@ -12,7 +12,7 @@ import org.qortal.data.chat.ChatMessage;
 import org.qortal.data.transaction.ChatTransactionData;
 import org.qortal.repository.ChatRepository;
 import org.qortal.repository.DataException;
-import org.qortal.transaction.Transaction.TransactionType;
+import org.qortal.repository.hsqldb.transaction.HSQLDBChatTransactionRepository;
 
 public class HSQLDBChatRepository implements ChatRepository {
 
@@ -33,7 +33,7 @@ public class HSQLDBChatRepository implements ChatRepository {
 
 		StringBuilder sql = new StringBuilder(1024);
 
-		sql.append("SELECT created_when, tx_group_id, Transactions.reference, creator, "
+		sql.append("SELECT ChatTransactions.created_when, ChatTransactions.tx_group_id, Transactions.reference, creator, "
 				+ "sender, SenderNames.name, recipient, RecipientNames.name, "
 				+ "data, is_text, is_encrypted, signature "
 				+ "FROM ChatTransactions "
@@ -48,22 +48,22 @@ public class HSQLDBChatRepository implements ChatRepository {
 
 		// Timestamp range
 		if (before != null) {
-			whereClauses.add("created_when < ?");
+			whereClauses.add("ChatTransactions.created_when < ?");
 			bindParams.add(before);
 		}
 
 		if (after != null) {
-			whereClauses.add("created_when > ?");
+			whereClauses.add("ChatTransactions.created_when > ?");
 			bindParams.add(after);
 		}
 
+		// Both cases use ChatTransactions' own indexes, which include timestamp for ordering
 		if (txGroupId != null) {
-			whereClauses.add("tx_group_id = " + txGroupId); // int safe to use literally
+			whereClauses.add("ChatTransactions.tx_group_id = " + txGroupId); // int safe to use literally
 			whereClauses.add("recipient IS NULL");
 		} else {
-			whereClauses.add("((sender = ? AND recipient = ?) OR (recipient = ? AND sender = ?))");
-			bindParams.addAll(involving);
-			bindParams.addAll(involving);
+			whereClauses.add("direct_chat_pair = ?");
+			bindParams.add(HSQLDBChatTransactionRepository.getDirectChatPair(involving.get(0), involving.get(1)));
 		}
 
 		if (!whereClauses.isEmpty()) {
@@ -78,7 +78,7 @@ public class HSQLDBChatRepository implements ChatRepository {
 			}
 		}
 
-		sql.append(" ORDER BY Transactions.created_when");
+		sql.append(" ORDER BY ChatTransactions.created_when");
 		sql.append((reverse == null || !reverse) ? " ASC" : " DESC");
 
 		HSQLDBRepository.limitOffsetSql(sql, limit, offset);
@@ -158,19 +158,11 @@ public class HSQLDBChatRepository implements ChatRepository {
 
 	private List<GroupChat> getActiveGroupChats(String address) throws DataException {
 		// Find groups where address is a member and potential latest message details
-		String groupsSql = "SELECT group_id, group_name, latest_timestamp, sender, sender_name "
+		String groupsSql = "SELECT group_id, group_name, created_when, sender, SenderNames.name "
 				+ "FROM GroupMembers "
 				+ "JOIN Groups USING (group_id) "
-				+ "LEFT OUTER JOIN LATERAL("
-					+ "SELECT created_when AS latest_timestamp, sender, name AS sender_name "
-					+ "FROM ChatTransactions "
-					+ "JOIN Transactions USING (signature) "
-					+ "LEFT OUTER JOIN Names AS SenderNames ON SenderNames.owner = sender "
-					// NOTE: We need to qualify "Groups.group_id" here to avoid "General error" bug in HSQLDB v2.5.0
-					+ "WHERE tx_group_id = Groups.group_id AND type = " + TransactionType.CHAT.value + " "
-					+ "ORDER BY created_when DESC "
-					+ "LIMIT 1"
-				+ ") AS LatestMessages ON TRUE "
+				+ "LEFT OUTER JOIN LatestGroupChats ON LatestGroupChats.tx_group_id = Groups.group_id "
+				+ "LEFT OUTER JOIN Names AS SenderNames ON SenderNames.owner = sender "
 				+ "WHERE address = ?";
 
 		List<GroupChat> groupChats = new ArrayList<>();
@@ -195,15 +187,11 @@ public class HSQLDBChatRepository implements ChatRepository {
 			throw new DataException("Unable to fetch active group chats from repository", e);
 		}
 
-		// We need different SQL to handle group-less chat
+		// Group-less chat has no group membership
 		String grouplessSql = "SELECT created_when, sender, SenderNames.name "
-				+ "FROM ChatTransactions "
-				+ "JOIN Transactions USING (signature) "
+				+ "FROM LatestGroupChats "
 				+ "LEFT OUTER JOIN Names AS SenderNames ON SenderNames.owner = sender "
-				+ "WHERE tx_group_id = 0 "
-				+ "AND recipient IS NULL "
-				+ "ORDER BY created_when DESC "
-				+ "LIMIT 1";
+				+ "WHERE tx_group_id = 0";
 
 		try (ResultSet resultSet = this.repository.checkedExecute(grouplessSql)) {
 			Long timestamp = null;
@@ -227,31 +215,15 @@ public class HSQLDBChatRepository implements ChatRepository {
 	}
 
 	private List<DirectChat> getActiveDirectChats(String address) throws DataException {
-		// Find chat messages involving address
-		String directSql = "SELECT other_address, name, latest_timestamp, sender, sender_name "
-				+ "FROM ("
-					+ "SELECT recipient FROM ChatTransactions "
-					+ "WHERE sender = ? AND recipient IS NOT NULL "
-					+ "UNION "
-					+ "SELECT sender FROM ChatTransactions "
-					+ "WHERE recipient = ?"
-				+ ") AS OtherParties (other_address) "
-				+ "CROSS JOIN LATERAL("
-					+ "SELECT created_when AS latest_timestamp, sender, name AS sender_name "
-					+ "FROM ChatTransactions "
-					+ "NATURAL JOIN Transactions "
-					+ "LEFT OUTER JOIN Names AS SenderNames ON SenderNames.owner = sender "
-					+ "WHERE (sender = other_address AND recipient = ?) "
-					+ "OR (sender = ? AND recipient = other_address) "
-					+ "ORDER BY created_when DESC "
-					+ "LIMIT 1"
-				+ ") AS LatestMessages "
-				+ "LEFT OUTER JOIN Names ON owner = other_address";
-
-		Object[] bindParams = new Object[] { address, address, address, address };
+		// Latest message with each other party is maintained as chat messages are saved/deleted
+		String directSql = "SELECT other_address, OtherNames.name, created_when, sender, SenderNames.name "
+				+ "FROM LatestDirectChats "
+				+ "LEFT OUTER JOIN Names AS OtherNames ON OtherNames.owner = other_address "
+				+ "LEFT OUTER JOIN Names AS SenderNames ON SenderNames.owner = sender "
+				+ "WHERE address = ?";
 
 		List<DirectChat> directChats = new ArrayList<>();
-		try (ResultSet resultSet = this.repository.checkedExecute(directSql, bindParams)) {
+		try (ResultSet resultSet = this.repository.checkedExecute(directSql, address)) {
 			if (resultSet == null)
 				return directChats;
 
@@ -3,9 +3,15 @@ package org.qortal.repository.hsqldb;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
+import org.qortal.asset.Asset;
+import org.qortal.crosschain.AcctMode;
+import org.qortal.crosschain.BitcoinyTransaction;
+import org.qortal.data.crosschain.CrossChainTradeData;
+import org.qortal.data.crosschain.IndexedTradeData;
 import org.qortal.data.crosschain.TradeBotData;
 import org.qortal.repository.CrossChainRepository;
 import org.qortal.repository.DataException;
@@ -199,4 +205,384 @@ public class HSQLDBCrossChainRepository implements CrossChainRepository {
 		}
 	}
 
-}
\ No newline at end of file
+	// Indexed (pre-decoded) cross-chain trades
+
+	private static final String INDEXED_TRADE_COLUMNS = "AT_address, acct_name, foreign_blockchain, mode, is_finished, height, updated_when, "
+			+ "qortal_creator, creator_trade_address, creator_foreign_pkh, created_when, trade_timeout, "
+			+ "hash_of_secret_a, hash_of_secret_b, qort_amount, partner_address, refund_timeout, trade_refund_height, "
+			+ "expected_foreign_amount, lock_time_a, lock_time_b, partner_foreign_pkh, partner_receiving_address, "
+			+ "IFNULL(balance, 0) ";
+
+	private static final String INDEXED_TRADE_FROM = "FROM CrossChainTrades "
+			// AT's balance changes independently of AT state (e.g. payments to AT) so we always use latest
+			+ "LEFT OUTER JOIN AccountBalances ON account = AT_address AND asset_id = " + Asset.QORT + " ";
+
+	@Override
+	public IndexedTradeData getIndexedTrade(String atAddress) throws DataException {
+		String sql = "SELECT " + INDEXED_TRADE_COLUMNS + INDEXED_TRADE_FROM + "WHERE AT_address = ?";
+
+		try (ResultSet resultSet = this.repository.checkedExecute(sql, atAddress)) {
+			if (resultSet == null)
+				return null;
+
+			return indexedTradeFromResultSet(resultSet);
+		} catch (SQLException e) {
+			throw new DataException("Unable to fetch indexed cross-chain trade from repository", e);
+		}
+	}
+
+	@Override
+	public List<IndexedTradeData> getIndexedTradeOffers(String foreignBlockchain, Integer limit, Integer offset, Boolean reverse) throws DataException {
+		StringBuilder sql = new StringBuilder(1024);
+		List<Object> bindParams = new ArrayList<>();
+
+		sql.append("SELECT ").append(INDEXED_TRADE_COLUMNS).append(INDEXED_TRADE_FROM);
+		sql.append("WHERE is_finished = FALSE ");
+
+		if (foreignBlockchain != null) {
+			sql.append("AND foreign_blockchain = ? ");
+			bindParams.add(foreignBlockchain);
+		}
+
+		sql.append("ORDER BY created_when ");
+		if (reverse != null && reverse)
+			sql.append("DESC");
+
+		HSQLDBRepository.limitOffsetSql(sql, limit, offset);
+
+		return fetchIndexedTrades(sql.toString(), bindParams);
+	}
+
+	@Override
+	public List<IndexedTradeData> getIndexedTrades(String foreignBlockchain, List<AcctMode> modes, Boolean isFinished,
+			Integer minimumHeight, Integer limit, Integer offset, Boolean reverse) throws DataException {
+		StringBuilder sql = new StringBuilder(1024);
+		List<Object> bindParams = new ArrayList<>();
+
+		sql.append("SELECT ").append(INDEXED_TRADE_COLUMNS).append(INDEXED_TRADE_FROM);
+
+		List<String> whereClauses = new ArrayList<>();
+
+		if (foreignBlockchain != null) {
+			whereClauses.add("foreign_blockchain = ?");
+			bindParams.add(foreignBlockchain);
+		}
+
+		if (modes != null && !modes.isEmpty()) {
+			StringBuilder modesClause = new StringBuilder(64);
+			modesClause.append("mode IN (");
+
+			for (int i = 0; i < modes.size(); ++i) {
+				if (i != 0)
+					modesClause.append(", ");
+
+				modesClause.append("?");
+				bindParams.add(modes.get(i).value);
+			}
+
+			modesClause.append(")");
+			whereClauses.add(modesClause.toString());
+		}
+
+		if (isFinished != null) {
+			whereClauses.add("is_finished = ?");
+			bindParams.add(isFinished);
+		}
+
+		if (minimumHeight != null) {
+			whereClauses.add("height >= ?");
+			bindParams.add(minimumHeight);
+		}
+
+		if (!whereClauses.isEmpty()) {
+			sql.append("WHERE ");
+			sql.append(String.join(" AND ", whereClauses));
+			sql.append(" ");
+		}
+
+		sql.append("ORDER BY height ");
+		if (reverse != null && reverse)
+			sql.append("DESC");
+
+		HSQLDBRepository.limitOffsetSql(sql, limit, offset);
+
+		return fetchIndexedTrades(sql.toString(), bindParams);
+	}
+
+	@Override
+	public boolean isTradeIndexBuilt() throws DataException {
+		try (ResultSet resultSet = this.repository.checkedExecute("SELECT cross_chain_trades_indexed FROM DatabaseInfo")) {
+			if (resultSet == null)
+				return false;
+
+			return resultSet.getBoolean(1);
+		} catch (SQLException e) {
+			throw new DataException("Unable to fetch cross-chain trade index status from repository", e);
+		}
+	}
+
+	@Override
+	public void setTradeIndexBuilt() throws DataException {
+		try {
+			this.repository.executeCheckedUpdate("UPDATE DatabaseInfo SET cross_chain_trades_indexed = TRUE");
+		} catch (SQLException e) {
+			throw new DataException("Unable to set cross-chain trade index status in repository", e);
+		}
+	}
+
+	@Override
+	public void save(IndexedTradeData indexedTradeData) throws DataException {
+		CrossChainTradeData tradeData = indexedTradeData.getTradeData();
+
+		HSQLDBSaver saveHelper = new HSQLDBSaver("CrossChainTrades");
+
+		saveHelper.bind("AT_address", tradeData.qortalAtAddress)
+				.bind("acct_name", tradeData.acctName)
+				.bind("foreign_blockchain", tradeData.foreignBlockchain)
+				.bind("mode", tradeData.mode.value)
+				.bind("is_finished", indexedTradeData.isFinished())
+				.bind("height", indexedTradeData.getHeight())
+				.bind("updated_when", indexedTradeData.getUpdatedTimestamp())
+				.bind("qortal_creator", tradeData.qortalCreator)
+				.bind("creator_trade_address", tradeData.qortalCreatorTradeAddress)
+				.bind("creator_foreign_pkh", tradeData.creatorForeignPKH)
+				.bind("created_when", tradeData.creationTimestamp)
+				.bind("trade_timeout", tradeData.tradeTimeout)
+				.bind("hash_of_secret_a", tradeData.hashOfSecretA)
+				.bind("hash_of_secret_b", tradeData.hashOfSecretB)
+				.bind("qort_amount", tradeData.qortAmount)
+				.bind("partner_address", tradeData.qortalPartnerAddress)
+				.bind("refund_timeout", tradeData.refundTimeout)
+				.bind("trade_refund_height", tradeData.tradeRefundHeight)
+				.bind("expected_foreign_amount", tradeData.expectedForeignAmount)
+				.bind("lock_time_a", tradeData.lockTimeA)
+				.bind("lock_time_b", tradeData.lockTimeB)
+				.bind("partner_foreign_pkh", tradeData.partnerForeignPKH)
+				.bind("partner_receiving_address", tradeData.qortalPartnerReceivingAddress);
+
+		try {
+			saveHelper.execute(this.repository);
+		} catch (SQLException e) {
+			throw new DataException("Unable to save indexed cross-chain trade into repository", e);
+		}
+	}
+
+	@Override
+	public void deleteIndexedTrade(String atAddress) throws DataException {
+		try {
+			this.repository.delete("CrossChainTrades", "AT_address = ?", atAddress);
+		} catch (SQLException e) {
+			throw new DataException("Unable to delete indexed cross-chain trade from repository", e);
+		}
+	}
+
+	private List<IndexedTradeData> fetchIndexedTrades(String sql, List<Object> bindParams) throws DataException {
+		List<IndexedTradeData> indexedTrades = new ArrayList<>();
+
+		try (ResultSet resultSet = this.repository.checkedExecute(sql, bindParams.toArray())) {
+			if (resultSet == null)
+				return indexedTrades;
+
+			do {
+				indexedTrades.add(indexedTradeFromResultSet(resultSet));
+			} while (resultSet.next());
+
+			return indexedTrades;
+		} catch (SQLException e) {
+			throw new DataException("Unable to fetch indexed cross-chain trades from repository", e);
+		}
+	}
+
+	private static IndexedTradeData indexedTradeFromResultSet(ResultSet resultSet) throws SQLException {
+		CrossChainTradeData tradeData = new CrossChainTradeData();
+
+		tradeData.qortalAtAddress = resultSet.getString(1);
+		tradeData.acctName = resultSet.getString(2);
+		tradeData.foreignBlockchain = resultSet.getString(3);
+		tradeData.mode = AcctMode.valueOf(resultSet.getInt(4));
+		boolean isFinished = resultSet.getBoolean(5);
+		int height = resultSet.getInt(6);
+		long updatedTimestamp = resultSet.getLong(7);
+
+		tradeData.qortalCreator = resultSet.getString(8);
+		tradeData.qortalCreatorTradeAddress = resultSet.getString(9);
+		tradeData.creatorForeignPKH = resultSet.getBytes(10);
+		tradeData.creationTimestamp = resultSet.getLong(11);
+		tradeData.tradeTimeout = resultSet.getInt(12);
+		tradeData.hashOfSecretA = resultSet.getBytes(13);
+		tradeData.hashOfSecretB = resultSet.getBytes(14);
+		tradeData.qortAmount = resultSet.getLong(15);
+		tradeData.qortalPartnerAddress = resultSet.getString(16);
+
+		tradeData.refundTimeout = resultSet.getInt(17);
+		if (tradeData.refundTimeout == 0 && resultSet.wasNull())
+			tradeData.refundTimeout = null;
+
+		tradeData.tradeRefundHeight = resultSet.getInt(18);
+		if (tradeData.tradeRefundHeight == 0 && resultSet.wasNull())
+			tradeData.tradeRefundHeight = null;
+
+		tradeData.expectedForeignAmount = resultSet.getLong(19);
+
+		tradeData.lockTimeA = resultSet.getInt(20);
+		if (tradeData.lockTimeA == 0 && resultSet.wasNull())
+			tradeData.lockTimeA = null;
+
+		tradeData.lockTimeB = resultSet.getInt(21);
+		if (tradeData.lockTimeB == 0 && resultSet.wasNull())
+			tradeData.lockTimeB = null;
+
+		tradeData.partnerForeignPKH = resultSet.getBytes(22);
+		tradeData.qortalPartnerReceivingAddress = resultSet.getString(23);
+		tradeData.qortBalance = resultSet.getLong(24);
+
+		tradeData.duplicateDeprecated();
+
+		return new IndexedTradeData(tradeData, isFinished, height, updatedTimestamp);
+	}
+
+	// Cached foreign blockchain data
+
+	@Override
+	public BitcoinyTransaction getForeignTransaction(String netId, String txHash) throws DataException {
+		String sql = "SELECT tx_size, lock_time, tx_timestamp FROM ForeignTransactions WHERE net_id = ? AND tx_hash = ?";
+
+		try (ResultSet resultSet = this.repository.checkedExecute(sql, netId, txHash)) {
+			if (resultSet == null)
+				return null;
+
+			int size = resultSet.getInt(1);
+			int locktime = resultSet.getInt(2);
+
+			Integer timestamp = resultSet.getInt(3);
+			if (timestamp == 0 && resultSet.wasNull())
+				timestamp = null;
+
+			List<BitcoinyTransaction.Input> inputs = new ArrayList<>();
+			String inputsSql = "SELECT script_sig, sequence, output_tx_hash, output_vout FROM ForeignTransactionInputs "
+					+ "WHERE net_id = ? AND tx_hash = ? ORDER BY input_index";
+
+			try (ResultSet inputsResultSet = this.repository.checkedExecute(inputsSql, netId, txHash)) {
+				if (inputsResultSet != null)
+					do {
+						inputs.add(new BitcoinyTransaction.Input(inputsResultSet.getString(1), inputsResultSet.getInt(2),
+								inputsResultSet.getString(3), inputsResultSet.getInt(4)));
+					} while (inputsResultSet.next());
+			}
+
+			List<BitcoinyTransaction.Output> outputs = new ArrayList<>();
+			String outputsSql = "SELECT script_pub_key, output_value, addresses FROM ForeignTransactionOutputs "
+					+ "WHERE net_id = ? AND tx_hash = ? ORDER BY output_index";
+
+			try (ResultSet outputsResultSet = this.repository.checkedExecute(outputsSql, netId, txHash)) {
+				if (outputsResultSet != null)
+					do {
+						String addressesString = outputsResultSet.getString(3);
+						List<String> addresses = addressesString != null ? Arrays.asList(addressesString.split(",")) : null;
+
+						outputs.add(new BitcoinyTransaction.Output(outputsResultSet.getString(1), outputsResultSet.getLong(2), addresses));
+					} while (outputsResultSet.next());
+			}
+
+			return new BitcoinyTransaction(txHash, size, locktime, timestamp, inputs, outputs);
+		} catch (SQLException e) {
+			throw new DataException("Unable to fetch cached foreign transaction from repository", e);
+		}
+	}
+
+	@Override
+	public void saveForeignTransaction(String netId, BitcoinyTransaction transaction) throws DataException {
+		HSQLDBSaver saveHelper = new HSQLDBSaver("ForeignTransactions");
+
+		saveHelper.bind("net_id", netId)
+				.bind("tx_hash", transaction.txHash)
+				.bind("tx_size", transaction.size)
+				.bind("lock_time", transaction.locktime)
+				.bind("tx_timestamp", transaction.timestamp);
+
+		try {
+			saveHelper.execute(this.repository);
+
+			// Replace any previous inputs/outputs
+			this.repository.delete("ForeignTransactionInputs", "net_id = ? AND tx_hash = ?", netId, transaction.txHash);
+			this.repository.delete("ForeignTransactionOutputs", "net_id = ? AND tx_hash = ?", netId, transaction.txHash);
+
+			for (int i = 0; i < transaction.inputs.size(); ++i) {
+				BitcoinyTransaction.Input input = transaction.inputs.get(i);
+
+				HSQLDBSaver inputSaveHelper = new HSQLDBSaver("ForeignTransactionInputs");
+
+				inputSaveHelper.bind("net_id", netId)
+						.bind("tx_hash", transaction.txHash)
+						.bind("input_index", i)
+						.bind("script_sig", input.scriptSig)
+						.bind("sequence", input.sequence)
+						.bind("output_tx_hash", input.outputTxHash)
+						.bind("output_vout", input.outputVout);
+
+				inputSaveHelper.execute(this.repository);
+			}
+
+			for (int i = 0; i < transaction.outputs.size(); ++i) {
+				BitcoinyTransaction.Output output = transaction.outputs.get(i);
+
+				HSQLDBSaver outputSaveHelper = new HSQLDBSaver("ForeignTransactionOutputs");
+
+				outputSaveHelper.bind("net_id", netId)
+						.bind("tx_hash", transaction.txHash)
+						.bind("output_index", i)
+						.bind("script_pub_key", output.scriptPubKey)
+						.bind("output_value", output.value)
+						.bind("addresses", output.addresses != null ? String.join(",", output.addresses) : null);
+
+				outputSaveHelper.execute(this.repository);
+			}
+		} catch (SQLException e) {
+			throw new DataException("Unable to save cached foreign transaction into repository", e);
+		}
+	}
+
+	@Override
+	public List<byte[]> getSpentForeignKeys(String netId) throws DataException {
+		String sql = "SELECT public_key_hash FROM ForeignSpentKeys WHERE net_id = ?";
+
+		List<byte[]> publicKeyHashes = new ArrayList<>();
+
+		try (ResultSet resultSet = this.repository.checkedExecute(sql, netId)) {
+			if (resultSet == null)
+				return publicKeyHashes;
+
+			do {
+				publicKeyHashes.add(resultSet.getBytes(1));
+			} while (resultSet.next());
+
+			return publicKeyHashes;
+		} catch (SQLException e) {
+			throw new DataException("Unable to fetch spent foreign keys from repository", e);
+		}
+	}
+
+	@Override
+	public void saveSpentForeignKey(String netId, byte[] publicKeyHash) throws DataException {
+		HSQLDBSaver saveHelper = new HSQLDBSaver("ForeignSpentKeys");
+
+		saveHelper.bind("net_id", netId)
+				.bind("public_key_hash", publicKeyHash);
+
+		try {
+			saveHelper.execute(this.repository);
+		} catch (SQLException e) {
+			throw new DataException("Unable to save spent foreign key into repository", e);
+		}
+	}
+
+	@Override
+	public void deleteSpentForeignKey(String netId, byte[] publicKeyHash) throws DataException {
+		try {
+			this.repository.delete("ForeignSpentKeys", "net_id = ? AND public_key_hash = ?", netId, publicKeyHash);
+		} catch (SQLException e) {
+			throw new DataException("Unable to delete spent foreign key from repository", e);
+		}
+	}
+
+}
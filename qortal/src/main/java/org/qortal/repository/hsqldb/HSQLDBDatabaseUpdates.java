@@ -10,6 +10,8 @@ import java.util.stream.Collectors;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.qortal.controller.tradebot.BitcoinACCTv1TradeBot;
+import org.qortal.repository.hsqldb.transaction.HSQLDBChatTransactionRepository;
+import org.qortal.transaction.Transaction.ApprovalStatus;
 
 public class HSQLDBDatabaseUpdates {
 
@@ -51,7 +53,7 @@ public class HSQLDBDatabaseUpdates {
 	 * @return database version, or 0 if no schema yet
 	 * @throws SQLException
 	 */
-	private static int fetchDatabaseVersion(Connection connection) throws SQLException {
+	/* package */ static int fetchDatabaseVersion(Connection connection) throws SQLException {
 		try (Statement stmt = connection.createStatement()) {
 			if (stmt.execute("SELECT version FROM DatabaseInfo"))
 				try (ResultSet resultSet = stmt.getResultSet()) {
@@ -822,6 +824,110 @@ public class HSQLDBDatabaseUpdates {
 							+ "timestamp_signature Signature NOT NULL, " + TRANSACTION_KEYS + ")");
 					break;
 
+				case 34:
+					// Pre-decoded cross-chain trade info, maintained by block processing/orphaning
+					stmt.execute("CREATE TABLE IF NOT EXISTS CrossChainTrades (AT_address QortalAddress, "
+							+ "acct_name VARCHAR(40) NOT NULL, foreign_blockchain VARCHAR(40) NOT NULL, mode TINYINT NOT NULL, "
+							+ "is_finished BOOLEAN NOT NULL, height INT NOT NULL, updated_when EpochMillis NOT NULL, "
+							+ "qortal_creator QortalAddress NOT NULL, creator_trade_address QortalAddress NOT NULL, "
+							+ "creator_foreign_pkh VARBINARY(32), created_when EpochMillis NOT NULL, trade_timeout INT NOT NULL, "
+							+ "hash_of_secret_a VARBINARY(32), hash_of_secret_b VARBINARY(32), qort_amount QortalAmount NOT NULL, "
+							+ "partner_address QortalAddress, refund_timeout INT, trade_refund_height INT, "
+							+ "expected_foreign_amount BIGINT NOT NULL, lock_time_a INT, lock_time_b INT, "
+							+ "partner_foreign_pkh VARBINARY(32), partner_receiving_address QortalAddress, "
+							+ "PRIMARY KEY (AT_address), FOREIGN KEY (AT_address) REFERENCES ATs (AT_address) ON DELETE CASCADE)");
+					stmt.execute("CREATE INDEX IF NOT EXISTS CrossChainTradesOfferIndex ON CrossChainTrades (is_finished, foreign_blockchain, created_when)");
+					stmt.execute("CREATE INDEX IF NOT EXISTS CrossChainTradesHeightIndex ON CrossChainTrades (foreign_blockchain, mode, height)");
+					// Table is populated from existing ATs on next startup by CrossChainTradeIndex.rebuildIfNeeded(), see case 39
+					break;
+
+				case 35:
+					// Disk-backed cache of confirmed foreign blockchain transactions and wallet key-usage, keyed by network ID
+					stmt.execute("CREATE TABLE IF NOT EXISTS ForeignTransactions (net_id VARCHAR(40) NOT NULL, tx_hash VARCHAR(64) NOT NULL, "
+							+ "tx_size INT NOT NULL, lock_time INT NOT NULL, tx_timestamp INT, "
+							+ "PRIMARY KEY (net_id, tx_hash))");
+					stmt.execute("CREATE TABLE IF NOT EXISTS ForeignTransactionInputs (net_id VARCHAR(40) NOT NULL, tx_hash VARCHAR(64) NOT NULL, "
+							+ "input_index INT NOT NULL, script_sig VARCHAR(20K), sequence INT NOT NULL, "
+							+ "output_tx_hash VARCHAR(64), output_vout INT NOT NULL, "
+							+ "PRIMARY KEY (net_id, tx_hash, input_index), "
+							+ "FOREIGN KEY (net_id, tx_hash) REFERENCES ForeignTransactions (net_id, tx_hash) ON DELETE CASCADE)");
+					stmt.execute("CREATE TABLE IF NOT EXISTS ForeignTransactionOutputs (net_id VARCHAR(40) NOT NULL, tx_hash VARCHAR(64) NOT NULL, "
+							+ "output_index INT NOT NULL, script_pub_key VARCHAR(20K), output_value BIGINT NOT NULL, addresses VARCHAR(4000), "
+							+ "PRIMARY KEY (net_id, tx_hash, output_index), "
+							+ "FOREIGN KEY (net_id, tx_hash) REFERENCES ForeignTransactions (net_id, tx_hash) ON DELETE CASCADE)");
+					stmt.execute("CREATE TABLE IF NOT EXISTS ForeignSpentKeys (net_id VARCHAR(40) NOT NULL, public_key_hash VARBINARY(20) NOT NULL, "
+							+ "PRIMARY KEY (net_id, public_key_hash))");
+					break;
+
+				case 36:
+					// Chat history by group or by pair of addresses, using only ChatTransactions' indexes
+					stmt.execute("ALTER TABLE ChatTransactions ADD COLUMN tx_group_id GroupID");
+					stmt.execute("ALTER TABLE ChatTransactions ADD COLUMN created_when EpochMillis");
+					// Both addresses, in order, separated by space, or null if not a direct chat
+					stmt.execute("ALTER TABLE ChatTransactions ADD COLUMN direct_chat_pair VARCHAR(80)");
+					stmt.execute("UPDATE ChatTransactions SET (tx_group_id, created_when) = ("
+							+ "SELECT tx_group_id, created_when FROM Transactions WHERE Transactions.signature = ChatTransactions.signature)");
+					stmt.execute("UPDATE ChatTransactions SET direct_chat_pair = "
+							+ "CASE WHEN sender < recipient THEN sender || ' ' || recipient ELSE recipient || ' ' || sender END "
+							+ "WHERE recipient IS NOT NULL");
+					stmt.execute("ALTER TABLE ChatTransactions ALTER COLUMN tx_group_id SET NOT NULL");
+					stmt.execute("ALTER TABLE ChatTransactions ALTER COLUMN created_when SET NOT NULL");
+					stmt.execute("CREATE INDEX IF NOT EXISTS ChatTransactionsGroupIndex ON ChatTransactions (tx_group_id, created_when)");
+					stmt.execute("CREATE INDEX IF NOT EXISTS ChatTransactionsDirectIndex ON ChatTransactions (direct_chat_pair, created_when)");
+
+					// Latest chat message for each group, and for each address with each other party, for active chats
+					stmt.execute("CREATE TABLE IF NOT EXISTS LatestGroupChats (tx_group_id GroupID, created_when EpochMillis NOT NULL, "
+							+ "sender QortalAddress NOT NULL, signature Signature NOT NULL, PRIMARY KEY (tx_group_id))");
+					stmt.execute("CREATE TABLE IF NOT EXISTS LatestDirectChats (address QortalAddress, other_address QortalAddress, "
+							+ "created_when EpochMillis NOT NULL, sender QortalAddress NOT NULL, signature Signature NOT NULL, "
+							+ "PRIMARY KEY (address, other_address))");
+					HSQLDBChatTransactionRepository.rebuildLatestChats(stmt);
+					break;
+
+				case 37:
+					// Confirmed transactions awaiting group-approval, by height at which they can be decided or will expire.
+					// A transaction can be decided once block_height < height - min_block_delay, and expires once block_height < height - max_block_delay
+					stmt.execute("CREATE TABLE IF NOT EXISTS GroupApprovalSchedule (signature Signature, tx_group_id GroupID NOT NULL, "
+							+ "block_height INTEGER NOT NULL, decidable_height INTEGER NOT NULL, expiry_height INTEGER NOT NULL, "
+							+ "PRIMARY KEY (signature), FOREIGN KEY (signature) REFERENCES Transactions (signature) ON DELETE CASCADE)");
+					stmt.execute("CREATE INDEX IF NOT EXISTS GroupApprovalScheduleDecidableIndex ON GroupApprovalSchedule (decidable_height)");
+					stmt.execute("CREATE INDEX IF NOT EXISTS GroupApprovalScheduleExpiryIndex ON GroupApprovalSchedule (expiry_height)");
+					stmt.execute("CREATE INDEX IF NOT EXISTS GroupApprovalScheduleGroupIndex ON GroupApprovalSchedule (tx_group_id)");
+					stmt.execute("INSERT INTO GroupApprovalSchedule (signature, tx_group_id, block_height, decidable_height, expiry_height) "
+							+ "SELECT signature, tx_group_id, block_height, block_height + min_block_delay + 1, block_height + max_block_delay + 1 "
+							+ "FROM Transactions JOIN Groups ON Groups.group_id = Transactions.tx_group_id "
+							+ "WHERE approval_status = " + ApprovalStatus.PENDING.value + " AND block_height IS NOT NULL");
+					break;
+
+				case 38:
+					// Transaction search by participant or type, in timestamp order, with keyset pagination
+					// Participants table rebuilt with timestamp, and primary key that also drops duplicate participants
+					stmt.execute("CREATE TABLE TransactionParticipantsNew (signature Signature NOT NULL, participant QortalAddress NOT NULL, "
+							+ "created_when EpochMillis NOT NULL, PRIMARY KEY (participant, created_when, signature), "
+							+ "FOREIGN KEY (signature) REFERENCES Transactions (signature) ON DELETE CASCADE)");
+					stmt.execute("SET TABLE TransactionParticipantsNew NEW SPACE");
+					stmt.execute("CHECKPOINT");
+
+					LOGGER.info("Rebuilding transaction participants in repository - this might take a while...");
+					stmt.execute("INSERT INTO TransactionParticipantsNew (signature, participant, created_when) "
+							+ "SELECT DISTINCT TransactionParticipants.signature, participant, created_when "
+							+ "FROM TransactionParticipants JOIN Transactions ON Transactions.signature = TransactionParticipants.signature");
+					stmt.execute("CHECKPOINT");
+
+					stmt.execute("DROP TABLE TransactionParticipants");
+					stmt.execute("ALTER TABLE TransactionParticipantsNew RENAME TO TransactionParticipants");
+
+					// Replaces type-only index
+					stmt.execute("CREATE INDEX IF NOT EXISTS TransactionTypeTimestampIndex ON Transactions (type, created_when, signature)");
+					stmt.execute("DROP INDEX TransactionTypeIndex IF EXISTS");
+					stmt.execute("CHECKPOINT");
+					break;
+
+				case 39:
+					// Whether CrossChainTrades has been populated from existing ATs, so nodes without any trades don't rescan every startup
+					stmt.execute("ALTER TABLE DatabaseInfo ADD cross_chain_trades_indexed BOOLEAN NOT NULL DEFAULT FALSE");
+					break;
+
 				default:
 					// nothing to do
 					return false;
@@ -313,6 +313,12 @@ public class HSQLDBGroupRepository implements GroupRepository {
 
 					groupData.setGroupId(resultSet.getInt(1));
 				}
+			} else {
+				// Block delays might have changed, so reschedule group's pending transactions to match
+				String rescheduleSql = "UPDATE GroupApprovalSchedule SET decidable_height = block_height + ? + 1, expiry_height = block_height + ? + 1 "
+						+ "WHERE tx_group_id = ?";
+
+				this.repository.executeCheckedUpdate(rescheduleSql, groupData.getMinimumBlockDelay(), groupData.getMaximumBlockDelay(), groupData.getGroupId());
 			}
 		} catch (SQLException e) {
 			throw new DataException("Unable to save group info into repository", e);
@@ -0,0 +1,277 @@
+package org.qortal.repository.hsqldb;
+
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.qortal.data.asset.OrderData;
+import org.qortal.repository.DataException;
+import org.qortal.utils.ByteArray;
+
+/**
+ * In-memory book of open asset orders, as committed to repository, indexed by asset pair, then price, then time.
+ * <p>
+ * Loaded when repository is opened. Kept in sync by {@link HSQLDBAssetRepository}, which records order changes made
+ * during a repository transaction and only applies them here once that transaction commits. So changes that are
+ * rolled back, e.g. test-processing transactions during block validation, never reach the book.
+ * <p>
+ * Orders returned by the book are copies, so callers are free to modify them.
+ */
+public class HSQLDBOrderBook {
+
+	private static class AssetPair {
+		private final long haveAssetId;
+		private final long wantAssetId;
+
+		AssetPair(long haveAssetId, long wantAssetId) {
+			this.haveAssetId = haveAssetId;
+			this.wantAssetId = wantAssetId;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other)
+				return true;
+
+			if (!(other instanceof AssetPair))
+				return false;
+
+			AssetPair otherPair = (AssetPair) other;
+			return this.haveAssetId == otherPair.haveAssetId && this.wantAssetId == otherPair.wantAssetId;
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(this.haveAssetId) * 31 + Long.hashCode(this.wantAssetId);
+		}
+	}
+
+	/**
+	 * Within the same price, earlier orders first.
+	 * <p>
+	 * Orders with the same timestamp are kept in the order they were created, as with the index previously used by SQL,
+	 * which is by height of block containing creating transaction, then position within that block. Transactions with the same
+	 * type and timestamp are positioned by (signed) signature, which is also the order ID. Orders with unknown creation height
+	 * were created by the block currently being processed, so come last.
+	 */
+	private static final Comparator<OrderData> TIME_COMPARATOR = Comparator.comparingLong(OrderData::getTimestamp)
+			.thenComparing(OrderData::getCreationHeight, Comparator.nullsLast(Comparator.naturalOrder()))
+			.thenComparing(orderData -> new BigInteger(orderData.getOrderId()));
+
+	/** Open orders for one asset pair, by ascending price. Each price level holds orders in time order. */
+	private final Map<AssetPair, TreeMap<Long, TreeSet<OrderData>>> priceLevelsByPair = new HashMap<>();
+	private final Map<ByteArray, OrderData> ordersById = new HashMap<>();
+
+	private HSQLDBOrderBook() {
+	}
+
+	/** Builds order book from all open orders in repository. */
+	/* package */ static HSQLDBOrderBook load(Connection connection) throws DataException {
+		HSQLDBOrderBook orderBook = new HSQLDBOrderBook();
+
+		String sql = "SELECT asset_order_id, creator, have_asset_id, want_asset_id, amount, fulfilled, price, ordered_when, "
+				+ "HaveAsset.asset_name, WantAsset.asset_name, Transactions.block_height "
+				+ "FROM AssetOrders "
+				+ "JOIN Assets AS HaveAsset ON HaveAsset.asset_id = have_asset_id "
+				+ "JOIN Assets AS WantAsset ON WantAsset.asset_id = want_asset_id "
+				+ "LEFT OUTER JOIN Transactions ON Transactions.signature = asset_order_id "
+				+ "WHERE NOT is_closed AND NOT is_fulfilled";
+
+		try (Statement stmt = connection.createStatement();
+				ResultSet resultSet = stmt.executeQuery(sql)) {
+			while (resultSet.next()) {
+				byte[] orderId = resultSet.getBytes(1);
+				byte[] creatorPublicKey = resultSet.getBytes(2);
+				long haveAssetId = resultSet.getLong(3);
+				long wantAssetId = resultSet.getLong(4);
+				long amount = resultSet.getLong(5);
+				long fulfilled = resultSet.getLong(6);
+				long price = resultSet.getLong(7);
+				long timestamp = resultSet.getLong(8);
+				String haveAssetName = resultSet.getString(9);
+				String wantAssetName = resultSet.getString(10);
+
+				Integer creationHeight = resultSet.getInt(11);
+				if (creationHeight == 0 && resultSet.wasNull())
+					creationHeight = null;
+
+				OrderData orderData = new OrderData(orderId, creatorPublicKey, haveAssetId, wantAssetId, amount, fulfilled, price,
+						timestamp, false, false, haveAssetName, wantAssetName);
+				orderData.setCreationHeight(creationHeight);
+
+				orderBook.add(orderData);
+			}
+		} catch (SQLException e) {
+			throw new DataException("Unable to load open asset orders from repository", e);
+		}
+
+		return orderBook;
+	}
+
+	public static boolean isOpen(OrderData orderData) {
+		return !orderData.getIsClosed() && !orderData.getIsFulfilled();
+	}
+
+	/**
+	 * Returns whether <tt>price</tt> is within <tt>priceLimit</tt>, if any.
+	 * <p>
+	 * When iterating by descending price, prices must be at least <tt>priceLimit</tt>, otherwise at most <tt>priceLimit</tt>.
+	 */
+	public static boolean isWithinPriceLimit(long price, boolean isDescendingPrice, Long priceLimit) {
+		if (priceLimit == null)
+			return true;
+
+		return isDescendingPrice ? price >= priceLimit : price <= priceLimit;
+	}
+
+	public static Comparator<OrderData> getComparator(boolean isDescendingPrice, boolean isDescendingTime) {
+		Comparator<OrderData> priceComparator = Comparator.comparingLong(OrderData::getPrice);
+
+		return (isDescendingPrice ? priceComparator.reversed() : priceComparator)
+				.thenComparing(isDescendingTime ? TIME_COMPARATOR.reversed() : TIME_COMPARATOR);
+	}
+
+	public static OrderData copyOf(OrderData orderData) {
+		OrderData copy = new OrderData(orderData.getOrderId(), orderData.getCreatorPublicKey(), orderData.getHaveAssetId(), orderData.getWantAssetId(),
+				orderData.getAmount(), orderData.getFulfilled(), orderData.getPrice(), orderData.getTimestamp(),
+				orderData.getIsClosed(), orderData.getIsFulfilled(), orderData.getHaveAssetName(), orderData.getWantAssetName());
+		copy.setCreationHeight(orderData.getCreationHeight());
+		return copy;
+	}
+
+	/** Returns copy of open order, or null if order isn't open (or doesn't exist). */
+	public synchronized OrderData getOrder(byte[] orderId) {
+		OrderData orderData = this.ordersById.get(ByteArray.of(orderId));
+		return orderData != null ? copyOf(orderData) : null;
+	}
+
+	/**
+	 * Returns copies of open orders for asset pair, sorted by price, then time.
+	 * <p>
+	 * Only orders with prices within <tt>priceLimit</tt> are returned, if <tt>priceLimit</tt> not null.
+	 * See {@link #isWithinPriceLimit(long, boolean, Long)}.
+	 */
+	public synchronized List<OrderData> getOpenOrders(long haveAssetId, long wantAssetId, boolean isDescendingPrice, boolean isDescendingTime, Long priceLimit) {
+		List<OrderData> orders = new ArrayList<>();
+
+		NavigableMap<Long, TreeSet<OrderData>> priceLevels = this.getPriceLevels(haveAssetId, wantAssetId, isDescendingPrice, priceLimit);
+		if (priceLevels == null)
+			return orders;
+
+		for (TreeSet<OrderData> priceLevel : priceLevels.values()) {
+			NavigableSet<OrderData> levelOrders = isDescendingTime ? priceLevel.descendingSet() : priceLevel;
+
+			for (OrderData orderData : levelOrders)
+				orders.add(copyOf(orderData));
+		}
+
+		return orders;
+	}
+
+	/**
+	 * Returns open orders for asset pair, aggregated by price.
+	 * <p>
+	 * Each entry's <tt>amount</tt> is total unfulfilled amount at that price, and <tt>timestamp</tt> is latest order timestamp.
+	 */
+	public synchronized List<OrderData> getAggregatedOpenOrders(long haveAssetId, long wantAssetId, boolean isDescendingPrice) {
+		List<OrderData> orders = new ArrayList<>();
+
+		NavigableMap<Long, TreeSet<OrderData>> priceLevels = this.getPriceLevels(haveAssetId, wantAssetId, isDescendingPrice, null);
+		if (priceLevels == null)
+			return orders;
+
+		for (Map.Entry<Long, TreeSet<OrderData>> priceLevel : priceLevels.entrySet()) {
+			long totalUnfulfilled = 0L;
+			long latestTimestamp = 0L;
+
+			for (OrderData orderData : priceLevel.getValue()) {
+				totalUnfulfilled += orderData.getAmount() - orderData.getFulfilled();
+				latestTimestamp = Math.max(latestTimestamp, orderData.getTimestamp());
+			}
+
+			OrderData firstOrder = priceLevel.getValue().first();
+			orders.add(new OrderData(null, null, haveAssetId, wantAssetId, totalUnfulfilled, 0L, priceLevel.getKey(), latestTimestamp,
+					false, false, firstOrder.getHaveAssetName(), firstOrder.getWantAssetName()));
+		}
+
+		return orders;
+	}
+
+	/** Returns have-asset and want-asset names for asset pair, if book has any open orders for that pair, or null otherwise. */
+	public synchronized String[] getAssetNames(long haveAssetId, long wantAssetId) {
+		TreeMap<Long, TreeSet<OrderData>> priceLevels = this.priceLevelsByPair.get(new AssetPair(haveAssetId, wantAssetId));
+		if (priceLevels == null)
+			return null;
+
+		OrderData orderData = priceLevels.firstEntry().getValue().first();
+		return new String[] { orderData.getHaveAssetName(), orderData.getWantAssetName() };
+	}
+
+	/**
+	 * Applies committed order changes to book.
+	 * <p>
+	 * <tt>changedOrders</tt> maps order ID to latest order state, or to null if order was deleted.
+	 */
+	/* package */ synchronized void apply(Map<ByteArray, OrderData> changedOrders) {
+		for (Map.Entry<ByteArray, OrderData> entry : changedOrders.entrySet()) {
+			this.remove(entry.getKey());
+
+			OrderData orderData = entry.getValue();
+			if (orderData != null && isOpen(orderData))
+				this.add(copyOf(orderData));
+		}
+	}
+
+	private NavigableMap<Long, TreeSet<OrderData>> getPriceLevels(long haveAssetId, long wantAssetId, boolean isDescendingPrice, Long priceLimit) {
+		TreeMap<Long, TreeSet<OrderData>> priceLevels = this.priceLevelsByPair.get(new AssetPair(haveAssetId, wantAssetId));
+		if (priceLevels == null)
+			return null;
+
+		if (isDescendingPrice)
+			return (priceLimit != null ? priceLevels.tailMap(priceLimit, true) : priceLevels).descendingMap();
+
+		return priceLimit != null ? priceLevels.headMap(priceLimit, true) : priceLevels;
+	}
+
+	private void add(OrderData orderData) {
+		AssetPair assetPair = new AssetPair(orderData.getHaveAssetId(), orderData.getWantAssetId());
+
+		this.priceLevelsByPair.computeIfAbsent(assetPair, k -> new TreeMap<>())
+			.computeIfAbsent(orderData.getPrice(), k -> new TreeSet<>(TIME_COMPARATOR))
+			.add(orderData);
+
+		this.ordersById.put(ByteArray.of(orderData.getOrderId()), orderData);
+	}
+
+	private void remove(ByteArray orderId) {
+		OrderData orderData = this.ordersById.remove(orderId);
+		if (orderData == null)
+			return;
+
+		AssetPair assetPair = new AssetPair(orderData.getHaveAssetId(), orderData.getWantAssetId());
+		TreeMap<Long, TreeSet<OrderData>> priceLevels = this.priceLevelsByPair.get(assetPair);
+
+		TreeSet<OrderData> priceLevel = priceLevels.get(orderData.getPrice());
+		priceLevel.remove(orderData);
+
+		// Tidy up empty price levels and pairs
+		if (priceLevel.isEmpty()) {
+			priceLevels.remove(orderData.getPrice());
+
+			if (priceLevels.isEmpty())
+				this.priceLevelsByPair.remove(assetPair);
+		}
+	}
+
+}
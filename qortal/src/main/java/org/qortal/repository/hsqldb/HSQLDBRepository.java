@@ -2,11 +2,17 @@ package org.qortal.repository.hsqldb;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
@@ -25,16 +31,21 @@ import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.hsqldb.lib.tar.TarMalformatException;
+import org.hsqldb.lib.tar.TarReader;
 import org.qortal.account.PrivateKeyAccount;
+import org.qortal.controller.ProcessingStats;
 import org.qortal.crypto.Crypto;
 import org.qortal.repository.ATRepository;
 import org.qortal.repository.AccountRepository;
 import org.qortal.repository.ArbitraryRepository;
 import org.qortal.repository.AssetRepository;
+import org.qortal.repository.BackupProgress;
 import org.qortal.repository.BlockRepository;
 import org.qortal.repository.ChatRepository;
 import org.qortal.repository.CrossChainRepository;
@@ -47,6 +58,7 @@ import org.qortal.repository.Repository;
 import org.qortal.repository.RepositoryManager;
 import org.qortal.repository.TransactionRepository;
 import org.qortal.repository.VotingRepository;
+import org.qortal.repository.hsqldb.transaction.HSQLDBChatTransactionRepository;
 import org.qortal.repository.hsqldb.transaction.HSQLDBTransactionRepository;
 import org.qortal.settings.Settings;
 
@@ -54,6 +66,11 @@ public class HSQLDBRepository implements Repository {
 
 	private static final Logger LOGGER = LogManager.getLogger(HSQLDBRepository.class);
 
+	/** Where new backup is built, relative to repository, before replacing previous backup */
+	private static final String BACKUP_STAGING_DIRNAME = "backup-new";
+	/** Where previous backup is moved while being replaced */
+	private static final String BACKUP_OLD_DIRNAME = "backup-old";
+
 	protected Connection connection;
 	protected final Deque<Savepoint> savepoints = new ArrayDeque<>(3);
 	protected boolean debugState = false;
@@ -63,11 +80,13 @@ public class HSQLDBRepository implements Repository {
 	protected final Map<String, PreparedStatement> preparedStatementCache = new HashMap<>();
 	// We want the same object corresponding to the actual DB
 	protected final Object trimHeightsLock = RepositoryManager.getRepositoryFactory();
+	/** Committed open asset orders, shared by all repository sessions */
+	protected final HSQLDBOrderBook orderBook;
 
 	private final ATRepository atRepository = new HSQLDBATRepository(this);
 	private final AccountRepository accountRepository = new HSQLDBAccountRepository(this);
 	private final ArbitraryRepository arbitraryRepository = new HSQLDBArbitraryRepository(this);
-	private final AssetRepository assetRepository = new HSQLDBAssetRepository(this);
+	private final HSQLDBAssetRepository assetRepository = new HSQLDBAssetRepository(this);
 	private final BlockRepository blockRepository = new HSQLDBBlockRepository(this);
 	private final ChatRepository chatRepository = new HSQLDBChatRepository(this);
 	private final CrossChainRepository crossChainRepository = new HSQLDBCrossChainRepository(this);
@@ -81,8 +100,9 @@ public class HSQLDBRepository implements Repository {
 	// Constructors
 
 	// NB: no visibility modifier so only callable from within same package
-	/* package */ HSQLDBRepository(Connection connection) throws DataException {
+	/* package */ HSQLDBRepository(Connection connection, HSQLDBOrderBook orderBook) throws DataException {
 		this.connection = connection;
+		this.orderBook = orderBook;
 
 		this.slowQueryThreshold = Settings.getInstance().getSlowQueryThreshold();
 		if (this.slowQueryThreshold != null)
@@ -128,6 +148,10 @@ public class HSQLDBRepository implements Repository {
 		return this.assetRepository;
 	}
 
+	/* package */ HSQLDBOrderBook getOrderBook() {
+		return this.orderBook;
+	}
+
 	@Override
 	public BlockRepository getBlockRepository() {
 		return this.blockRepository;
@@ -190,13 +214,24 @@ public class HSQLDBRepository implements Repository {
 		long beforeQuery = this.slowQueryThreshold == null ? 0 : System.currentTimeMillis();
 
 		try {
-			this.connection.commit();
+			if (this.assetRepository.hasPendingOrderChanges()) {
+				this.assetRepository.prepareOrderChanges();
+
+				// Commit and update order book together, so concurrent commits can't apply order changes out of order
+				synchronized (this.orderBook) {
+					this.connection.commit();
+					this.assetRepository.applyOrderChanges();
+				}
+			} else {
+				this.connection.commit();
+			}
 
 			if (this.slowQueryThreshold != null) {
 				long queryTime = System.currentTimeMillis() - beforeQuery;
 
 				if (queryTime > this.slowQueryThreshold) {
 					LOGGER.info(() -> String.format("[Session %d] HSQLDB COMMIT took %d ms", this.sessionId, queryTime), new SQLException("slow commit"));
+					ProcessingStats.recordSlowQuery("COMMIT", queryTime);
 
 					logStatements();
 				}
@@ -205,6 +240,7 @@ public class HSQLDBRepository implements Repository {
 			throw new DataException("commit error", e);
 		} finally {
 			this.savepoints.clear();
+			this.assetRepository.discardOrderChanges();
 
 			// Before clearing statements so we can log what led to assertion error
 			assertEmptyTransaction("transaction commit");
@@ -222,6 +258,7 @@ public class HSQLDBRepository implements Repository {
 			throw new DataException("rollback error", e);
 		} finally {
 			this.savepoints.clear();
+			this.assetRepository.discardOrderChanges();
 
 			// Before clearing statements so we can log what led to assertion error
 			assertEmptyTransaction("transaction rollback");
@@ -240,6 +277,7 @@ public class HSQLDBRepository implements Repository {
 
 			Savepoint savepoint = this.connection.setSavepoint();
 			this.savepoints.push(savepoint);
+			this.assetRepository.pushOrderChangesSavepoint();
 
 			// Update query log with savepoint ID
 			if (this.sqlStatements != null)
@@ -263,6 +301,8 @@ public class HSQLDBRepository implements Repository {
 			this.connection.rollback(savepoint);
 		} catch (SQLException e) {
 			throw new DataException("savepoint rollback error", e);
+		} finally {
+			this.assetRepository.popOrderChangesSavepoint();
 		}
 	}
 
@@ -283,6 +323,7 @@ public class HSQLDBRepository implements Repository {
 			this.preparedStatementCache.clear();
 			this.sqlStatements = null;
 			this.savepoints.clear();
+			this.assetRepository.discardOrderChanges();
 
 			// Give connection back to the pool
 			this.connection.close();
@@ -329,53 +370,112 @@ public class HSQLDBRepository implements Repository {
 	}
 
 	@Override
-	public void backup(boolean quick) throws DataException {
-		if (!quick)
+	public void backup(boolean quick, BackupProgress backupProgress) throws DataException {
+		if (backupProgress == null)
+			backupProgress = new BackupProgress();
+
+		if (!quick) {
+			backupProgress.setPhase(BackupProgress.Phase.CHECKPOINTING);
+
 			// First perform a CHECKPOINT
 			try (Statement stmt = this.connection.createStatement()) {
 				stmt.execute("CHECKPOINT DEFRAG");
 			} catch (SQLException e) {
 				throw new DataException("Unable to prepare repository for backup");
 			}
+		}
 
-		// Clean out any previous backup
+		String dbPathname;
 		try {
 			String connectionUrl = this.connection.getMetaData().getURL();
-			String dbPathname = getDbPathname(connectionUrl);
+			dbPathname = getDbPathname(connectionUrl);
 			if (dbPathname == null)
 				throw new DataException("Unable to locate repository for backup?");
+		} catch (SQLException e) {
+			throw new DataException("Unable to locate repository for backup", e);
+		}
 
-			// Doesn't really make sense to backup an in-memory database...
-			if (dbPathname.equals("mem")) {
-				LOGGER.debug("Ignoring request to backup in-memory repository!");
-				return;
-			}
+		// Doesn't really make sense to backup an in-memory database...
+		if (dbPathname.equals("mem")) {
+			LOGGER.debug("Ignoring request to backup in-memory repository!");
+			return;
+		}
 
-			String backupUrl = buildBackupUrl(dbPathname);
-			String backupPathname = getDbPathname(backupUrl);
-			if (backupPathname == null)
-				throw new DataException("Unable to determine location for repository backup?");
+		String backupPathname = getDbPathname(buildBackupUrl(dbPathname));
+		if (backupPathname == null)
+			throw new DataException("Unable to determine location for repository backup?");
 
-			Path backupDirPath = Paths.get(backupPathname).getParent();
-			String backupDirPathname = backupDirPath.toString();
+		Path dbPath = Paths.get(dbPathname);
+		Path repoDirPath = dbPath.getParent();
+		Path backupDirPath = Paths.get(backupPathname).getParent();
+		Path stagingDirPath = repoDirPath.resolve(BACKUP_STAGING_DIRNAME);
+		Path oldBackupDirPath = repoDirPath.resolve(BACKUP_OLD_DIRNAME);
 
-			try (Stream<Path> paths = Files.walk(backupDirPath)) {
-				paths.sorted(Comparator.reverseOrder())
-					.map(Path::toFile)
-					.filter(file -> file.getPath().startsWith(backupDirPathname))
-					.forEach(File::delete);
-			}
-		} catch (NoSuchFileException e) {
-			// Nothing to remove
-		} catch (SQLException | IOException e) {
-			throw new DataException("Unable to remove previous repository backup");
+		// Clean out any leftovers from a previous, interrupted backup
+		try {
+			deleteDirectory(stagingDirPath);
+			deleteDirectory(oldBackupDirPath);
+		} catch (IOException e) {
+			throw new DataException("Unable to remove previous, incomplete repository backup", e);
 		}
 
-		// Actually create backup
+		// Rough estimate of how much will be copied, for progress reporting
+		String dbFilenamePrefix = dbPath.getFileName().toString() + ".";
+		long bytesExpected;
+		try (Stream<Path> paths = Files.list(repoDirPath)) {
+			bytesExpected = paths.filter(path -> path.getFileName().toString().startsWith(dbFilenamePrefix))
+					.mapToLong(BackupProgress::sizeOf)
+					.sum();
+		} catch (IOException e) {
+			bytesExpected = 0L;
+		}
+
+		// Hot backup into tar archive in staging dir. Repository remains writable while this happens.
+		backupProgress.setCopying(stagingDirPath, bytesExpected);
+
 		try (Statement stmt = this.connection.createStatement()) {
-			stmt.execute("BACKUP DATABASE TO 'backup/' BLOCKING AS FILES");
+			stmt.execute(String.format("BACKUP DATABASE TO '%s/' NOT COMPRESSED NOT BLOCKING", BACKUP_STAGING_DIRNAME));
 		} catch (SQLException e) {
-			throw new DataException("Unable to backup repository");
+			throw new DataException("Unable to backup repository", e);
+		}
+
+		// Unpack archive so backup is usable as-is, e.g. by attemptRecovery()
+		backupProgress.setPhase(BackupProgress.Phase.UNPACKING);
+
+		try (Stream<Path> paths = Files.list(stagingDirPath)) {
+			List<Path> archivePaths = paths.filter(path -> path.getFileName().toString().endsWith(".tar")).collect(Collectors.toList());
+			if (archivePaths.size() != 1)
+				throw new DataException(String.format("Expected one repository backup archive, found %d", archivePaths.size()));
+
+			Path archivePath = archivePaths.get(0);
+			new TarReader(archivePath.toFile(), TarReader.EXTRACT_MODE, null, null, stagingDirPath.toFile()).read();
+			Files.delete(archivePath);
+		} catch (IOException | TarMalformatException e) {
+			throw new DataException("Unable to unpack repository backup", e);
+		}
+
+		// Switch to new backup, keeping old backup until new backup is in place
+		backupProgress.setPhase(BackupProgress.Phase.SWITCHING);
+
+		try {
+			if (Files.exists(backupDirPath))
+				Files.move(backupDirPath, oldBackupDirPath, StandardCopyOption.ATOMIC_MOVE);
+
+			Files.move(stagingDirPath, backupDirPath, StandardCopyOption.ATOMIC_MOVE);
+
+			deleteDirectory(oldBackupDirPath);
+		} catch (IOException e) {
+			throw new DataException("Unable to replace previous repository backup", e);
+		}
+	}
+
+	private static void deleteDirectory(Path dirPath) throws IOException {
+		try (Stream<Path> paths = Files.walk(dirPath)) {
+			paths.sorted(Comparator.reverseOrder())
+				.map(Path::toFile)
+				.forEach(File::delete);
+		} catch (NoSuchFileException e) {
+			// Nothing to remove
 		}
 	}
 
@@ -427,6 +527,72 @@ public class HSQLDBRepository implements Repository {
 		}
 	}
 
+	@Override
+	public void exportChainState(OutputStream out) throws DataException {
+		this.exportChainState(out, true);
+	}
+
+	private void exportChainState(OutputStream out, boolean includeTrimmedData) throws DataException {
+		// Temporarily remove unconfirmed transactions, as they're not part of chain state
+		this.setSavepoint();
+
+		try {
+			try (Statement stmt = this.connection.createStatement()) {
+				// Type-specific rows and participants are deleted by cascade
+				stmt.execute("DELETE FROM Transactions WHERE signature IN (SELECT signature FROM UnconfirmedTransactions)");
+				stmt.execute("DELETE FROM UnconfirmedTransactions");
+			} catch (SQLException e) {
+				throw new DataException("Unable to exclude unconfirmed transactions from chain state", e);
+			}
+
+			HSQLDBChainState.export(this.connection, this.fetchDatabaseVersion(), out, includeTrimmedData);
+		} finally {
+			this.rollbackToSavepoint();
+		}
+	}
+
+	@Override
+	public void importChainState(InputStream in) throws DataException {
+		HSQLDBChainState.importData(this.connection, this.fetchDatabaseVersion(), in);
+
+		// Latest chat messages aren't part of chain state
+		try (Statement stmt = this.connection.createStatement()) {
+			HSQLDBChatTransactionRepository.rebuildLatestChats(stmt);
+		} catch (SQLException e) {
+			throw new DataException("Unable to rebuild latest chat messages", e);
+		}
+
+		// Imported open orders need adding to order book on commit
+		this.assetRepository.trackAllOrders();
+	}
+
+	@Override
+	public byte[] getChainStateHash() throws DataException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException("SHA-256 message digest not available");
+		}
+
+		try (OutputStream digestOut = new DigestOutputStream(OutputStream.nullOutputStream(), digest)) {
+			// Nodes trim on their own schedules, so exclude trimmable data to keep hash deterministic
+			this.exportChainState(digestOut, false);
+		} catch (IOException e) {
+			throw new DataException("Unable to hash chain state", e);
+		}
+
+		return digest.digest();
+	}
+
+	private int fetchDatabaseVersion() throws DataException {
+		try {
+			return HSQLDBDatabaseUpdates.fetchDatabaseVersion(this.connection);
+		} catch (SQLException e) {
+			throw new DataException("Unable to fetch repository version", e);
+		}
+	}
+
 	@Override
 	public void checkConsistency() throws DataException {
 		this.getATRepository().checkConsistency();
@@ -568,6 +734,7 @@ public class HSQLDBRepository implements Repository {
 
 			if (queryTime > this.slowQueryThreshold) {
 				LOGGER.info(() -> String.format("[Session %d] HSQLDB query took %d ms: %s", this.sessionId, queryTime, sql), new SQLException("slow query"));
+				ProcessingStats.recordSlowQuery(sql, queryTime);
 
 				logStatements();
 			}
@@ -661,6 +828,7 @@ public class HSQLDBRepository implements Repository {
 
 			if (queryTime > this.slowQueryThreshold) {
 				LOGGER.info(() -> String.format("[Session %d] HSQLDB query took %d ms: %s", this.sessionId, queryTime, sql), new SQLException("slow query"));
+				ProcessingStats.recordSlowQuery(sql, queryTime);
 
 				logStatements();
 			}
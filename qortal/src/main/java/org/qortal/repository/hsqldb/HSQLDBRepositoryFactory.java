@@ -26,6 +26,7 @@ public class HSQLDBRepositoryFactory implements RepositoryFactory {
 	private String connectionUrl;
 	private HSQLDBPool connectionPool;
 	private final boolean wasPristine;
+	private final HSQLDBOrderBook orderBook;
 
 	/**
 	 * Constructs new RepositoryFactory using passed <tt>connectionUrl</tt>.
@@ -67,6 +68,9 @@ public class HSQLDBRepositoryFactory implements RepositoryFactory {
 		// Perform DB updates?
 		try (final Connection connection = this.connectionPool.getConnection()) {
 			this.wasPristine = HSQLDBDatabaseUpdates.updateDatabase(connection);
+
+			// Load open asset orders into memory
+			this.orderBook = HSQLDBOrderBook.load(connection);
 		} catch (SQLException e) {
 			throw new DataException("Repository initialization error", e);
 		}
@@ -85,7 +89,7 @@ public class HSQLDBRepositoryFactory implements RepositoryFactory {
 	@Override
 	public Repository getRepository() throws DataException {
 		try {
-			return new HSQLDBRepository(this.getConnection());
+			return new HSQLDBRepository(this.getConnection(), this.orderBook);
 		} catch (SQLException e) {
 			throw new DataException("Repository instantiation error", e);
 		}
@@ -94,7 +98,7 @@ public class HSQLDBRepositoryFactory implements RepositoryFactory {
 	@Override
 	public Repository tryRepository() throws DataException {
 		try {
-			return new HSQLDBRepository(this.tryConnection());
+			return new HSQLDBRepository(this.tryConnection(), this.orderBook);
 		} catch (SQLException e) {
 			throw new DataException("Repository instantiation error", e);
 		}
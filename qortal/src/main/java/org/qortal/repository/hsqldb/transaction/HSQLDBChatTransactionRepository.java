@@ -2,6 +2,8 @@ package org.qortal.repository.hsqldb.transaction;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
 
 import org.qortal.data.transaction.BaseTransactionData;
 import org.qortal.data.transaction.ChatTransactionData;
@@ -42,16 +44,183 @@ public class HSQLDBChatTransactionRepository extends HSQLDBTransactionRepository
 
 		HSQLDBSaver saveHelper = new HSQLDBSaver("ChatTransactions");
 
+		// Group ID and timestamp are duplicated from Transactions so chat history can be read using only ChatTransactions' indexes
 		saveHelper.bind("signature", chatTransactionData.getSignature()).bind("nonce", chatTransactionData.getNonce())
 				.bind("sender", chatTransactionData.getSender()).bind("recipient", chatTransactionData.getRecipient())
 				.bind("is_text", chatTransactionData.getIsText()).bind("is_encrypted", chatTransactionData.getIsEncrypted())
-				.bind("data", chatTransactionData.getData());
+				.bind("data", chatTransactionData.getData()).bind("tx_group_id", chatTransactionData.getTxGroupId())
+				.bind("created_when", chatTransactionData.getTimestamp())
+				.bind("direct_chat_pair", getDirectChatPair(chatTransactionData.getSender(), chatTransactionData.getRecipient()));
 
 		try {
 			saveHelper.execute(this.repository);
 		} catch (SQLException e) {
 			throw new DataException("Unable to save chat transaction into repository", e);
 		}
+
+		this.saveIfLatest(chatTransactionData);
+	}
+
+	@Override
+	void deleteTypeSpecific(TransactionData transactionData) throws DataException {
+		ChatTransactionData chatTransactionData = (ChatTransactionData) transactionData;
+
+		// Chat row has already gone, by cascade, so if it was latest message then find new latest message
+		try {
+			String sender = chatTransactionData.getSender();
+			String recipient = chatTransactionData.getRecipient();
+
+			if (recipient == null) {
+				if (this.isLatest("LatestGroupChats", "tx_group_id = ?", chatTransactionData.getSignature(), chatTransactionData.getTxGroupId())) {
+					this.repository.delete("LatestGroupChats", "tx_group_id = ?", chatTransactionData.getTxGroupId());
+
+					String latestSql = "SELECT created_when, sender, signature FROM ChatTransactions "
+							+ "WHERE tx_group_id = ? AND recipient IS NULL "
+							+ "ORDER BY created_when DESC, signature DESC "
+							+ "LIMIT 1";
+
+					try (ResultSet resultSet = this.repository.checkedExecute(latestSql, chatTransactionData.getTxGroupId())) {
+						if (resultSet == null)
+							return;
+
+						this.saveLatestGroupChat(chatTransactionData.getTxGroupId(), resultSet.getLong(1), resultSet.getString(2), resultSet.getBytes(3));
+					}
+				}
+
+				return;
+			}
+
+			if (this.isLatest("LatestDirectChats", "address = ? AND other_address = ?", chatTransactionData.getSignature(), sender, recipient)) {
+				this.repository.delete("LatestDirectChats", "(address = ? AND other_address = ?) OR (address = ? AND other_address = ?)",
+						sender, recipient, recipient, sender);
+
+				String latestSql = "SELECT created_when, sender, signature FROM ChatTransactions "
+						+ "WHERE direct_chat_pair = ? "
+						+ "ORDER BY created_when DESC, signature DESC "
+						+ "LIMIT 1";
+
+				try (ResultSet resultSet = this.repository.checkedExecute(latestSql, getDirectChatPair(sender, recipient))) {
+					if (resultSet == null)
+						return;
+
+					long timestamp = resultSet.getLong(1);
+					String latestSender = resultSet.getString(2);
+					byte[] signature = resultSet.getBytes(3);
+
+					this.saveLatestDirectChat(sender, recipient, timestamp, latestSender, signature);
+					if (!recipient.equals(sender))
+						this.saveLatestDirectChat(recipient, sender, timestamp, latestSender, signature);
+				}
+			}
+		} catch (SQLException e) {
+			throw new DataException("Unable to update latest chat messages in repository", e);
+		}
+	}
+
+	/** Records chat message as latest message for its group, or for both parties, if it is newer than current latest message. */
+	private void saveIfLatest(ChatTransactionData chatTransactionData) throws DataException {
+		String sender = chatTransactionData.getSender();
+		String recipient = chatTransactionData.getRecipient();
+		long timestamp = chatTransactionData.getTimestamp();
+		byte[] signature = chatTransactionData.getSignature();
+
+		try {
+			if (recipient == null) {
+				if (!this.isLaterThanLatest("LatestGroupChats", "tx_group_id = ?", timestamp, signature, chatTransactionData.getTxGroupId()))
+					return;
+
+				this.saveLatestGroupChat(chatTransactionData.getTxGroupId(), timestamp, sender, signature);
+				return;
+			}
+
+			// Both parties' entries always refer to same message
+			if (!this.isLaterThanLatest("LatestDirectChats", "address = ? AND other_address = ?", timestamp, signature, sender, recipient))
+				return;
+
+			this.saveLatestDirectChat(sender, recipient, timestamp, sender, signature);
+			if (!recipient.equals(sender))
+				this.saveLatestDirectChat(recipient, sender, timestamp, sender, signature);
+		} catch (SQLException e) {
+			throw new DataException("Unable to update latest chat messages in repository", e);
+		}
+	}
+
+	private void saveLatestGroupChat(int txGroupId, long timestamp, String sender, byte[] signature) throws SQLException {
+		HSQLDBSaver saveHelper = new HSQLDBSaver("LatestGroupChats");
+		saveHelper.bind("tx_group_id", txGroupId).bind("created_when", timestamp)
+				.bind("sender", sender).bind("signature", signature);
+		saveHelper.execute(this.repository);
+	}
+
+	private void saveLatestDirectChat(String address, String otherAddress, long timestamp, String sender, byte[] signature) throws SQLException {
+		HSQLDBSaver saveHelper = new HSQLDBSaver("LatestDirectChats");
+		saveHelper.bind("address", address).bind("other_address", otherAddress).bind("created_when", timestamp)
+				.bind("sender", sender).bind("signature", signature);
+		saveHelper.execute(this.repository);
+	}
+
+	/** Returns whether message with <tt>timestamp</tt> and <tt>signature</tt> is later than latest message in <tt>table</tt>'s matching row, if any. */
+	private boolean isLaterThanLatest(String table, String whereClause, long timestamp, byte[] signature, Object... bindParams) throws SQLException {
+		String sql = "SELECT created_when, signature FROM " + table + " WHERE " + whereClause;
+
+		try (ResultSet resultSet = this.repository.checkedExecute(sql, bindParams)) {
+			if (resultSet == null)
+				return true;
+
+			long latestTimestamp = resultSet.getLong(1);
+			byte[] latestSignature = resultSet.getBytes(2);
+
+			// Same ordering as "ORDER BY created_when, signature"
+			return timestamp > latestTimestamp
+					|| (timestamp == latestTimestamp && Arrays.compareUnsigned(signature, latestSignature) >= 0);
+		}
+	}
+
+	private boolean isLatest(String table, String whereClause, byte[] signature, Object... bindParams) throws SQLException {
+		String sql = "SELECT signature FROM " + table + " WHERE " + whereClause;
+
+		try (ResultSet resultSet = this.repository.checkedExecute(sql, bindParams)) {
+			return resultSet != null && Arrays.equals(signature, resultSet.getBytes(1));
+		}
+	}
+
+	/**
+	 * Returns key for chat between <tt>sender</tt> and <tt>recipient</tt>, regardless of message direction, or null if not a direct chat.
+	 * <p>
+	 * Addresses are ordered as HSQLDB compares them, so key can also be generated in SQL.
+	 */
+	public static String getDirectChatPair(String sender, String recipient) {
+		if (recipient == null)
+			return null;
+
+		return sender.compareTo(recipient) < 0 ? sender + " " + recipient : recipient + " " + sender;
+	}
+
+	/** Rebuilds latest chat message tables from ChatTransactions, e.g. after schema update or bulk import. */
+	public static void rebuildLatestChats(Statement stmt) throws SQLException {
+		stmt.execute("DELETE FROM LatestGroupChats");
+		stmt.execute("INSERT INTO LatestGroupChats (tx_group_id, created_when, sender, signature) "
+				+ "SELECT tx_group_id, created_when, sender, signature FROM ChatTransactions AS Chats "
+				+ "WHERE recipient IS NULL AND NOT EXISTS ("
+					+ "SELECT TRUE FROM ChatTransactions AS LaterChats "
+					+ "WHERE LaterChats.tx_group_id = Chats.tx_group_id AND LaterChats.recipient IS NULL "
+					+ "AND (LaterChats.created_when > Chats.created_when "
+						+ "OR (LaterChats.created_when = Chats.created_when AND LaterChats.signature > Chats.signature))"
+				+ ")");
+
+		stmt.execute("DELETE FROM LatestDirectChats");
+
+		String latestDirectChatsSql = "INSERT INTO LatestDirectChats (address, other_address, created_when, sender, signature) "
+				+ "SELECT %s, %s, created_when, sender, signature FROM ChatTransactions AS Chats "
+				+ "WHERE direct_chat_pair IS NOT NULL %s AND NOT EXISTS ("
+					+ "SELECT TRUE FROM ChatTransactions AS LaterChats "
+					+ "WHERE LaterChats.direct_chat_pair = Chats.direct_chat_pair "
+					+ "AND (LaterChats.created_when > Chats.created_when "
+						+ "OR (LaterChats.created_when = Chats.created_when AND LaterChats.signature > Chats.signature))"
+				+ ")";
+		stmt.execute(String.format(latestDirectChatsSql, "sender", "recipient", ""));
+		// Messages to self only need one entry
+		stmt.execute(String.format(latestDirectChatsSql, "recipient", "sender", "AND sender <> recipient"));
 	}
 
 }
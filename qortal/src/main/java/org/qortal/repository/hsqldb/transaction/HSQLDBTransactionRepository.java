@@ -2,9 +2,6 @@ package org.qortal.repository.hsqldb.transaction;
 
 import static org.qortal.transaction.Transaction.TransactionType.*;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
@@ -33,63 +30,57 @@ public class HSQLDBTransactionRepository implements TransactionRepository {
 
 	private static final Logger LOGGER = LogManager.getLogger(HSQLDBTransactionRepository.class);
 
-	public static class RepositorySubclassInfo {
-		public Class<?> clazz;
-		public Constructor<?> constructor;
-		public Method fromBaseMethod;
-		public Method saveMethod;
-		public Method deleteMethod;
+	/** Constructor of a transaction-type-specific subclass, e.g. <tt>HSQLDBPaymentTransactionRepository::new</tt> */
+	@FunctionalInterface
+	public interface SubrepositoryFactory {
+		HSQLDBTransactionRepository create(HSQLDBRepository repository);
 	}
 
-	private static final RepositorySubclassInfo[] subclassInfos;
+	/** Transaction-type-specific subclasses. Transaction types without an entry are unsupported. */
+	private static final Map<TransactionType, SubrepositoryFactory> SUBREPOSITORY_FACTORIES = new EnumMap<>(TransactionType.class);
 	static {
-		subclassInfos = new RepositorySubclassInfo[TransactionType.values().length + 1];
-
-		for (TransactionType txType : TransactionType.values()) {
-			RepositorySubclassInfo subclassInfo = new RepositorySubclassInfo();
-
-			try {
-				subclassInfo.clazz = Class.forName(
-						String.join("", HSQLDBTransactionRepository.class.getPackage().getName(), ".", "HSQLDB", txType.className, "TransactionRepository"));
-			} catch (ClassNotFoundException e) {
-				LOGGER.trace(String.format("HSQLDBTransactionRepository subclass not found for transaction type \"%s\"", txType.name()));
-				continue;
-			}
-
-			try {
-				subclassInfo.constructor = subclassInfo.clazz.getConstructor(HSQLDBRepository.class);
-			} catch (NoSuchMethodException | IllegalArgumentException e) {
-				LOGGER.debug(String.format("HSQLDBTransactionRepository subclass constructor not found for transaction type \"%s\"", txType.name()));
-				continue;
-			}
-
-			try {
-				subclassInfo.fromBaseMethod = subclassInfo.clazz.getDeclaredMethod("fromBase", BaseTransactionData.class);
-			} catch (IllegalArgumentException | SecurityException | NoSuchMethodException e) {
-				LOGGER.debug(String.format("HSQLDBTransactionRepository subclass's \"fromBase\" method not found for transaction type \"%s\"", txType.name()));
-			}
-
-			try {
-				subclassInfo.saveMethod = subclassInfo.clazz.getDeclaredMethod("save", TransactionData.class);
-			} catch (IllegalArgumentException | SecurityException | NoSuchMethodException e) {
-				LOGGER.debug(String.format("HSQLDBTransactionRepository subclass's \"save\" method not found for transaction type \"%s\"", txType.name()));
-			}
-
-			try {
-				subclassInfo.deleteMethod = subclassInfo.clazz.getDeclaredMethod("delete", TransactionData.class);
-			} catch (NoSuchMethodException e) {
-				// Subclass has no "delete" method - this is OK
-				subclassInfo.deleteMethod = null;
-			} catch (IllegalArgumentException | SecurityException e) {
-				LOGGER.debug(String.format("HSQLDBTransactionRepository subclass's \"save\" method not found for transaction type \"%s\"", txType.name()));
-			}
-
-			subclassInfos[txType.value] = subclassInfo;
-		}
-
-		LOGGER.trace("Static init reflection completed");
+		SUBREPOSITORY_FACTORIES.put(GENESIS, HSQLDBGenesisTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(PAYMENT, HSQLDBPaymentTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(REGISTER_NAME, HSQLDBRegisterNameTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(UPDATE_NAME, HSQLDBUpdateNameTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(SELL_NAME, HSQLDBSellNameTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(CANCEL_SELL_NAME, HSQLDBCancelSellNameTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(BUY_NAME, HSQLDBBuyNameTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(CREATE_POLL, HSQLDBCreatePollTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(VOTE_ON_POLL, HSQLDBVoteOnPollTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(ARBITRARY, HSQLDBArbitraryTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(ISSUE_ASSET, HSQLDBIssueAssetTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(TRANSFER_ASSET, HSQLDBTransferAssetTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(CREATE_ASSET_ORDER, HSQLDBCreateAssetOrderTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(CANCEL_ASSET_ORDER, HSQLDBCancelAssetOrderTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(MULTI_PAYMENT, HSQLDBMultiPaymentTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(DEPLOY_AT, HSQLDBDeployAtTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(MESSAGE, HSQLDBMessageTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(CHAT, HSQLDBChatTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(PUBLICIZE, HSQLDBPublicizeTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(AT, HSQLDBAtTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(CREATE_GROUP, HSQLDBCreateGroupTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(UPDATE_GROUP, HSQLDBUpdateGroupTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(ADD_GROUP_ADMIN, HSQLDBAddGroupAdminTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(REMOVE_GROUP_ADMIN, HSQLDBRemoveGroupAdminTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(GROUP_BAN, HSQLDBGroupBanTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(CANCEL_GROUP_BAN, HSQLDBCancelGroupBanTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(GROUP_KICK, HSQLDBGroupKickTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(GROUP_INVITE, HSQLDBGroupInviteTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(CANCEL_GROUP_INVITE, HSQLDBCancelGroupInviteTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(JOIN_GROUP, HSQLDBJoinGroupTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(LEAVE_GROUP, HSQLDBLeaveGroupTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(GROUP_APPROVAL, HSQLDBGroupApprovalTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(SET_GROUP, HSQLDBSetGroupTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(UPDATE_ASSET, HSQLDBUpdateAssetTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(ACCOUNT_FLAGS, HSQLDBAccountFlagsTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(REWARD_SHARE, HSQLDBRewardShareTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(ACCOUNT_LEVEL, HSQLDBAccountLevelTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(TRANSFER_PRIVS, HSQLDBTransferPrivsTransactionRepository::new);
+		SUBREPOSITORY_FACTORIES.put(PRESENCE, HSQLDBPresenceTransactionRepository::new);
 	}
 
+	/** Transaction-type-specific subclasses, indexed by transaction type value, constructed on first use */
 	private HSQLDBTransactionRepository[] repositoryByTxType;
 
 	protected HSQLDBRepository repository;
@@ -98,19 +89,37 @@ public class HSQLDBTransactionRepository implements TransactionRepository {
 		this.repository = repository;
 
 		this.repositoryByTxType = new HSQLDBTransactionRepository[TransactionType.values().length + 1];
+	}
 
-		for (TransactionType txType : TransactionType.values()) {
-			RepositorySubclassInfo subclassInfo = subclassInfos[txType.value];
+	/** Returns whether <tt>transactionType</tt> has a type-specific subclass. */
+	public static boolean isSupported(TransactionType transactionType) {
+		return SUBREPOSITORY_FACTORIES.containsKey(transactionType);
+	}
 
-			if (subclassInfo == null || subclassInfo.constructor == null)
-				continue;
+	private HSQLDBTransactionRepository getSubrepository(TransactionType type, String action) throws DataException {
+		HSQLDBTransactionRepository txRepository = this.repositoryByTxType[type.value];
+		if (txRepository != null)
+			return txRepository;
 
-			try {
-				this.repositoryByTxType[txType.value] = (HSQLDBTransactionRepository) subclassInfo.constructor.newInstance(repository);
-			} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException | InstantiationException e) {
-				LOGGER.debug(String.format("HSQLDBTransactionRepository subclass constructor failed for transaction type \"%s\"", txType.name()));
-			}
-		}
+		SubrepositoryFactory factory = SUBREPOSITORY_FACTORIES.get(type);
+		if (factory == null)
+			throw new DataException("Unsupported transaction type [" + type.name() + "] during " + action + " HSQLDB repository");
+
+		txRepository = factory.create(this.repository);
+		this.repositoryByTxType[type.value] = txRepository;
+		return txRepository;
+	}
+
+	// Transaction-type-specific methods, overridden by subclasses
+
+	/** Returns type-specific transaction data for <tt>baseTransactionData</tt>, or null if not found. */
+	TransactionData fromBase(BaseTransactionData baseTransactionData) throws DataException {
+		throw new DataException("Transaction-type-specific fetch not implemented by " + this.getClass().getSimpleName());
+	}
+
+	/** Deletes type-specific data not already removed by "ON DELETE CASCADE". Does nothing by default. */
+	void deleteTypeSpecific(TransactionData transactionData) throws DataException {
+		/* Nothing to do */
 	}
 
 	// Never called
@@ -211,21 +220,7 @@ public class HSQLDBTransactionRepository implements TransactionRepository {
 	}
 
 	private TransactionData fromBase(TransactionType type, BaseTransactionData baseTransactionData) throws DataException {
-		HSQLDBTransactionRepository txRepository = repositoryByTxType[type.value];
-
-		if (txRepository == null)
-			throw new DataException("Unsupported transaction type [" + type.name() + "] during fetch from HSQLDB repository");
-
-		try {
-			return (TransactionData) subclassInfos[type.value].fromBaseMethod.invoke(txRepository, baseTransactionData);
-		} catch (InvocationTargetException e) {
-			if (e.getCause() instanceof DataException)
-				throw (DataException) e.getCause();
-
-			throw new DataException("Unsupported transaction type [" + type.name() + "] during fetch from HSQLDB repository");
-		} catch (IllegalArgumentException | IllegalAccessException e) {
-			throw new DataException("Unsupported transaction type [" + type.name() + "] during fetch from HSQLDB repository");
-		}
+		return this.getSubrepository(type, "fetch from").fromBase(baseTransactionData);
 	}
 
 	/**
@@ -338,7 +333,8 @@ public class HSQLDBTransactionRepository implements TransactionRepository {
 			for (String participant : participants) {
 				HSQLDBSaver saver = new HSQLDBSaver("TransactionParticipants");
 
-				saver.bind("signature", signature).bind("participant", participant);
+				// Duplicate participants, e.g. sender and recipient, collapse onto same primary key
+				saver.bind("signature", signature).bind("participant", participant).bind("created_when", transactionData.getTimestamp());
 
 				saver.execute(this.repository);
 			}
@@ -386,9 +382,22 @@ public class HSQLDBTransactionRepository implements TransactionRepository {
 	@Override
 	public List<byte[]> getSignaturesMatchingCriteria(Integer startBlock, Integer blockLimit, Integer txGroupId,
 			List<TransactionType> txTypes, Integer service, String address,
-			ConfirmationStatus confirmationStatus, Integer limit, Integer offset, Boolean reverse) throws DataException {
+			ConfirmationStatus confirmationStatus, byte[] afterSignature, Integer limit, Integer offset, Boolean reverse) throws DataException {
 		List<byte[]> signatures = new ArrayList<>();
 
+		Long afterTimestamp = null;
+		if (afterSignature != null) {
+			try (ResultSet resultSet = this.repository.checkedExecute("SELECT created_when FROM Transactions WHERE signature = ?", afterSignature)) {
+				if (resultSet == null)
+					// Unknown cursor, so nothing after it
+					return signatures;
+
+				afterTimestamp = resultSet.getLong(1);
+			} catch (SQLException e) {
+				throw new DataException("Unable to fetch matching transaction signatures from repository", e);
+			}
+		}
+
 		boolean hasAddress = address != null && !address.isEmpty();
 		boolean hasTxTypes = txTypes != null && !txTypes.isEmpty();
 		boolean hasHeightRange = startBlock != null || blockLimit != null;
@@ -396,20 +405,19 @@ public class HSQLDBTransactionRepository implements TransactionRepository {
 		if (hasHeightRange && startBlock == null)
 			startBlock = (reverse == null || !reverse) ? 1 : this.repository.getBlockRepository().getBlockchainHeight() - blockLimit;
 
-		String signatureColumn = "Transactions.signature";
+		// Ordering/cursor columns from same table as search criteria, so (participant|type, created_when, signature) indexes can be used
+		String tableName = hasAddress ? "TransactionParticipants" : "Transactions";
+		String signatureColumn = tableName + ".signature";
+		String timestampColumn = tableName + ".created_when";
 		List<String> whereClauses = new ArrayList<>();
-		String groupBy = null;
 		List<Object> bindParams = new ArrayList<>();
 
 		// Tables, starting with Transactions
 		StringBuilder tables = new StringBuilder(256);
 		tables.append("Transactions");
 
-		if (hasAddress) {
+		if (hasAddress)
 			tables.append(" JOIN TransactionParticipants ON TransactionParticipants.signature = Transactions.signature");
-			groupBy = " GROUP BY TransactionParticipants.signature, Transactions.created_when";
-			signatureColumn = "TransactionParticipants.signature";
-		}
 
 		if (service != null) {
 			// This is for ARBITRARY transactions
@@ -473,6 +481,18 @@ public class HSQLDBTransactionRepository implements TransactionRepository {
 			bindParams.add(address);
 		}
 
+		// Keyset pagination: only transactions after cursor, in (created_when, signature) order
+		if (afterTimestamp != null) {
+			String comparison = (reverse == null || !reverse) ? ">" : "<";
+
+			// Leading timestamp-only clause allows index range scan
+			whereClauses.add(String.format("%s %s= ?", timestampColumn, comparison));
+			whereClauses.add(String.format("(%s %s ? OR %s %s ?)", timestampColumn, comparison, signatureColumn, comparison));
+			bindParams.add(afterTimestamp);
+			bindParams.add(afterTimestamp);
+			bindParams.add(afterSignature);
+		}
+
 		StringBuilder sql = new StringBuilder(1024);
 		sql.append("SELECT ");
 		sql.append(signatureColumn);
@@ -491,11 +511,13 @@ public class HSQLDBTransactionRepository implements TransactionRepository {
 			}
 		}
 
-		if (groupBy != null)
-			sql.append(groupBy);
-
-		sql.append(" ORDER BY Transactions.created_when");
-		sql.append((reverse == null || !reverse) ? " ASC" : " DESC");
+		String direction = (reverse == null || !reverse) ? " ASC" : " DESC";
+		sql.append(" ORDER BY ");
+		sql.append(timestampColumn);
+		sql.append(direction);
+		sql.append(", ");
+		sql.append(signatureColumn);
+		sql.append(direction);
 
 		HSQLDBRepository.limitOffsetSql(sql, limit, offset);
 
@@ -894,18 +916,36 @@ public class HSQLDBTransactionRepository implements TransactionRepository {
 
 	@Override
 	public List<TransactionData> getApprovalPendingTransactions(int blockHeight) throws DataException {
-		StringBuilder sql = new StringBuilder(512);
-		sql.append("SELECT signature FROM Transactions "
-			+ "JOIN Groups on Groups.group_id = Transactions.tx_group_id "
-			+ "WHERE Transactions.approval_status = ");
-		// Enum int value safe to use literally
-		sql.append(ApprovalStatus.PENDING.value);
+		// Only pending, confirmed transactions are in schedule. Process in block order, as dependent approvals can be decided in same block
+		String sql = "SELECT signature FROM GroupApprovalSchedule "
+				+ "JOIN BlockTransactions ON BlockTransactions.transaction_signature = GroupApprovalSchedule.signature "
+				+ "WHERE decidable_height <= ? ORDER BY block_height, sequence";
 
-		sql.append(" AND Transactions.block_height < ? - Groups.min_block_delay");
+		try {
+			return this.getScheduledApprovalTransactions(sql, blockHeight);
+		} catch (SQLException | DataException e) {
+			throw new DataException("Unable to fetch approval-pending transactions from repository", e);
+		}
+	}
+
+	@Override
+	public List<TransactionData> getApprovalExpiringTransactions(int blockHeight) throws DataException {
+		// Only pending, confirmed transactions are in schedule. Process in block order, as dependent approvals can be decided in same block
+		String sql = "SELECT signature FROM GroupApprovalSchedule "
+				+ "JOIN BlockTransactions ON BlockTransactions.transaction_signature = GroupApprovalSchedule.signature "
+				+ "WHERE expiry_height <= ? ORDER BY block_height, sequence";
+
+		try {
+			return this.getScheduledApprovalTransactions(sql, blockHeight);
+		} catch (SQLException | DataException e) {
+			throw new DataException("Unable to fetch approval-expiring transactions from repository", e);
+		}
+	}
 
+	private List<TransactionData> getScheduledApprovalTransactions(String sql, int blockHeight) throws SQLException, DataException {
 		List<TransactionData> transactions = new ArrayList<>();
 
-		try (ResultSet resultSet = this.repository.checkedExecute(sql.toString(), blockHeight)) {
+		try (ResultSet resultSet = this.repository.checkedExecute(sql, blockHeight)) {
 			if (resultSet == null)
 				return transactions;
 
@@ -916,49 +956,47 @@ public class HSQLDBTransactionRepository implements TransactionRepository {
 
 				if (transactionData == null)
 					// Something inconsistent with the repository
-					throw new DataException("Unable to fetch approval-expiring transaction from repository?");
+					throw new DataException("Unable to fetch scheduled group-approval transaction from repository?");
 
 				transactions.add(transactionData);
 			} while (resultSet.next());
-
-			return transactions;
-		} catch (SQLException | DataException e) {
-			throw new DataException("Unable to fetch approval-expiring transactions from repository", e);
 		}
+
+		return transactions;
 	}
 
 	@Override
-	public List<TransactionData> getApprovalExpiringTransactions(int blockHeight) throws DataException {
-		StringBuilder sql = new StringBuilder(512);
-		sql.append("SELECT signature FROM Transactions "
-			+ "JOIN Groups on Groups.group_id = Transactions.tx_group_id "
-			+ "WHERE Transactions.approval_status = ");
-		// Enum int value safe to use literally
-		sql.append(ApprovalStatus.PENDING.value);
-
-		sql.append(" AND Transactions.block_height < ? - Groups.max_block_delay");
+	public void scheduleApproval(TransactionData transactionData) throws DataException {
+		String sql = "SELECT min_block_delay, max_block_delay FROM Groups WHERE group_id = ?";
 
-		List<TransactionData> transactions = new ArrayList<>();
-
-		try (ResultSet resultSet = this.repository.checkedExecute(sql.toString(), blockHeight)) {
+		try (ResultSet resultSet = this.repository.checkedExecute(sql, transactionData.getTxGroupId())) {
 			if (resultSet == null)
-				return transactions;
+				throw new DataException("Unable to fetch transaction's group from repository?");
 
-			do {
-				byte[] signature = resultSet.getBytes(1);
+			int minBlockDelay = resultSet.getInt(1);
+			int maxBlockDelay = resultSet.getInt(2);
 
-				TransactionData transactionData = this.fromSignature(signature);
+			// Decidable once block_height < height - min_block_delay, expired once block_height < height - max_block_delay
+			int blockHeight = transactionData.getBlockHeight();
 
-				if (transactionData == null)
-					// Something inconsistent with the repository
-					throw new DataException("Unable to fetch approval-expiring transaction from repository?");
+			HSQLDBSaver saver = new HSQLDBSaver("GroupApprovalSchedule");
 
-				transactions.add(transactionData);
-			} while (resultSet.next());
+			saver.bind("signature", transactionData.getSignature()).bind("tx_group_id", transactionData.getTxGroupId())
+				.bind("block_height", blockHeight).bind("decidable_height", blockHeight + minBlockDelay + 1)
+				.bind("expiry_height", blockHeight + maxBlockDelay + 1);
 
-			return transactions;
-		} catch (SQLException | DataException e) {
-			throw new DataException("Unable to fetch approval-expiring transactions from repository", e);
+			saver.execute(this.repository);
+		} catch (SQLException e) {
+			throw new DataException("Unable to schedule transaction's group-approval in repository", e);
+		}
+	}
+
+	@Override
+	public void unscheduleApproval(byte[] signature) throws DataException {
+		try {
+			this.repository.delete("GroupApprovalSchedule", "signature = ?", signature);
+		} catch (SQLException e) {
+			throw new DataException("Unable to unschedule transaction's group-approval in repository", e);
 		}
 	}
 
@@ -1248,21 +1286,7 @@ public class HSQLDBTransactionRepository implements TransactionRepository {
 		}
 
 		// Now call transaction-type-specific save() method
-		TransactionType type = transactionData.getType();
-		HSQLDBTransactionRepository txRepository = repositoryByTxType[type.value];
-		if (txRepository == null)
-			throw new DataException("Unsupported transaction type [" + type.name() + "] during save into HSQLDB repository");
-
-		try {
-			subclassInfos[type.value].saveMethod.invoke(txRepository, transactionData);
-		} catch (InvocationTargetException e) {
-			if (e.getCause() instanceof DataException)
-				throw (DataException) e.getCause();
-
-			throw new DataException("Exception during save of transaction type [" + type.name() + "] into HSQLDB repository");
-		} catch (IllegalAccessException | IllegalArgumentException e) {
-			throw new DataException("Unsupported transaction type [" + type.name() + "] during save into HSQLDB repository");
-		}
+		this.getSubrepository(transactionData.getType(), "save into").save(transactionData);
 	}
 
 	@Override
@@ -1280,22 +1304,8 @@ public class HSQLDBTransactionRepository implements TransactionRepository {
 			throw new DataException("Unable to remove transaction from unconfirmed transactions repository", e);
 		}
 
-		// If transaction subclass has a "delete" method - call that now
-		TransactionType type = transactionData.getType();
-		if (subclassInfos[type.value].deleteMethod != null) {
-			HSQLDBTransactionRepository txRepository = repositoryByTxType[type.value];
-
-			try {
-				subclassInfos[type.value].deleteMethod.invoke(txRepository, transactionData);
-			} catch (InvocationTargetException e) {
-				if (e.getCause() instanceof DataException)
-					throw (DataException) e.getCause();
-
-				throw new DataException("Exception during delete of transaction type [" + type.name() + "] from HSQLDB repository");
-			} catch (IllegalAccessException | IllegalArgumentException e) {
-				throw new DataException("Unsupported transaction type [" + type.name() + "] during delete from HSQLDB repository");
-			}
-		}
+		// Now call transaction-type-specific delete, if any
+		this.getSubrepository(transactionData.getType(), "delete from").deleteTypeSpecific(transactionData);
 	}
 
 }
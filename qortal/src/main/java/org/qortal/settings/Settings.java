@@ -5,6 +5,7 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.nio.file.Paths;
 import java.util.Locale;
 
 import javax.xml.bind.JAXBContext;
@@ -120,6 +121,10 @@ public class Settings {
 	private int maxNetworkThreadPoolSize = 20;
 	/** Maximum number of threads for network proof-of-work compute, used during handshaking. */
 	private int networkPoWComputePoolSize = 2;
+	/** Maximum number of network proof-of-work tasks waiting for a thread. Further handshakes are refused. */
+	private int networkPoWMaxQueueSize = 16;
+	/** Maximum number of network proof-of-work tasks, waiting or running, per remote host. */
+	private int networkPoWMaxPendingPerHost = 2;
 
 	// Which blockchains this node is running
 	private String blockchainConfig = null; // use default from resources
@@ -128,12 +133,18 @@ public class Settings {
 	// Also crosschain-related:
 	/** Whether to show SysTray pop-up notifications when trade-bot entries change state */
 	private boolean tradebotSystrayEnabled = false;
+	/** Maximum number of threads used to progress trade-bot entries in parallel */
+	private int tradeBotProgressPoolSize = 4;
 
 	// Repository related
 	/** Queries that take longer than this are logged. (milliseconds) */
 	private Long slowQueryThreshold = null;
 	/** Repository storage path. */
 	private String repositoryPath = "db";
+	/** Whether to keep serialized blocks on disk, for serving to peers without rebuilding them from repository. */
+	private boolean rawBlockStoreEnabled = true;
+	/** Raw block store path. Defaults to subdirectory of repository path. */
+	private String rawBlockStorePath = null;
 
 	// Auto-update sources
 	private String[] autoUpdateRepos = new String[] {
@@ -400,6 +411,14 @@ public class Settings {
 		return this.networkPoWComputePoolSize;
 	}
 
+	public int getNetworkPoWMaxQueueSize() {
+		return this.networkPoWMaxQueueSize;
+	}
+
+	public int getNetworkPoWMaxPendingPerHost() {
+		return this.networkPoWMaxPendingPerHost;
+	}
+
 	public String getBlockchainConfig() {
 		return this.blockchainConfig;
 	}
@@ -416,6 +435,10 @@ public class Settings {
 		return this.tradebotSystrayEnabled;
 	}
 
+	public int getTradeBotProgressPoolSize() {
+		return this.tradeBotProgressPoolSize;
+	}
+
 	public Long getSlowQueryThreshold() {
 		return this.slowQueryThreshold;
 	}
@@ -424,6 +447,17 @@ public class Settings {
 		return this.repositoryPath;
 	}
 
+	public boolean isRawBlockStoreEnabled() {
+		return this.rawBlockStoreEnabled;
+	}
+
+	public String getRawBlockStorePath() {
+		if (this.rawBlockStorePath != null)
+			return this.rawBlockStorePath;
+
+		return Paths.get(this.repositoryPath, "blockstore").toString();
+	}
+
 	public boolean isAutoUpdateEnabled() {
 		return this.autoUpdateEnabled;
 	}
@@ -79,7 +79,7 @@ public class ChatTransaction extends Transaction {
 		int difficulty = this.getSender().getConfirmedBalance(Asset.QORT) > 0 ? POW_DIFFICULTY_WITH_QORT : POW_DIFFICULTY_NO_QORT;
 
 		// Calculate nonce
-		this.chatTransactionData.setNonce(MemoryPoW.compute2(transactionBytes, POW_BUFFER_SIZE, difficulty));
+		this.chatTransactionData.setNonce(MemoryPoW.compute2(transactionBytes, POW_BUFFER_SIZE, difficulty, MemoryPoW.DEFAULT_COMPUTE_THREADS));
 	}
 
 	/**
@@ -156,38 +156,38 @@ public class ChatTransaction extends Transaction {
 	}
 
 	@Override
-	public boolean isSignatureValid() {
+	protected boolean isSignatureStateIndependentValid() {
 		byte[] signature = this.transactionData.getSignature();
 		if (signature == null)
 			return false;
 
-		byte[] transactionBytes;
-
-		try {
-			transactionBytes = ChatTransactionTransformer.toBytesForSigning(this.transactionData);
-		} catch (TransformationException e) {
-			throw new RuntimeException("Unable to transform transaction to byte array for verification", e);
-		}
+		return Crypto.verify(this.transactionData.getCreatorPublicKey(), signature, this.getBytesForSigning());
+	}
 
-		if (!Crypto.verify(this.transactionData.getCreatorPublicKey(), signature, transactionBytes))
-			return false;
+	/** Checks nonce, as proof-of-work difficulty depends on whether sender has any QORT. */
+	@Override
+	public boolean isSignatureStateDependentValid() throws DataException {
+		byte[] transactionBytes = this.getBytesForSigning();
 
 		int nonce = this.chatTransactionData.getNonce();
 
 		// Clear nonce from transactionBytes
 		ChatTransactionTransformer.clearNonce(transactionBytes);
 
-		int difficulty;
-		try {
-			difficulty = this.getSender().getConfirmedBalance(Asset.QORT) > 0 ? POW_DIFFICULTY_WITH_QORT : POW_DIFFICULTY_NO_QORT;
-		} catch (DataException e) {
-			return false;
-		}
+		int difficulty = this.getSender().getConfirmedBalance(Asset.QORT) > 0 ? POW_DIFFICULTY_WITH_QORT : POW_DIFFICULTY_NO_QORT;
 
 		// Check nonce
 		return MemoryPoW.verify2(transactionBytes, POW_BUFFER_SIZE, difficulty, nonce);
 	}
 
+	private byte[] getBytesForSigning() {
+		try {
+			return ChatTransactionTransformer.toBytesForSigning(this.transactionData);
+		} catch (TransformationException e) {
+			throw new RuntimeException("Unable to transform transaction to byte array for verification", e);
+		}
+	}
+
 	/**
 	 * Ensure there's at least a skeleton account so people
 	 * can retrieve sender's public key using address, even if all their messages
@@ -83,7 +83,7 @@ public class GenesisTransaction extends Transaction {
 	 * @return boolean
 	 */
 	@Override
-	public boolean isSignatureValid() {
+	protected boolean isSignatureStateIndependentValid() {
 		return Arrays.equals(this.transactionData.getSignature(), this.calcSignature());
 	}
 
@@ -107,7 +107,7 @@ public class MessageTransaction extends Transaction {
 		MessageTransactionTransformer.clearNonce(transactionBytes);
 
 		// Calculate nonce
-		this.messageTransactionData.setNonce(MemoryPoW.compute2(transactionBytes, POW_BUFFER_SIZE, POW_DIFFICULTY));
+		this.messageTransactionData.setNonce(MemoryPoW.compute2(transactionBytes, POW_BUFFER_SIZE, POW_DIFFICULTY, MemoryPoW.DEFAULT_COMPUTE_THREADS));
 	}
 
 	/**
@@ -199,7 +199,7 @@ public class MessageTransaction extends Transaction {
 	}
 
 	@Override
-	public boolean isSignatureValid() {
+	protected boolean isSignatureStateIndependentValid() {
 		byte[] signature = this.transactionData.getSignature();
 		if (signature == null)
 			return false;
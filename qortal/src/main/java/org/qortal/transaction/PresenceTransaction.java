@@ -121,7 +121,7 @@ public class PresenceTransaction extends Transaction {
 		PresenceTransactionTransformer.clearNonce(transactionBytes);
 
 		// Calculate nonce
-		this.presenceTransactionData.setNonce(MemoryPoW.compute2(transactionBytes, POW_BUFFER_SIZE, POW_DIFFICULTY));
+		this.presenceTransactionData.setNonce(MemoryPoW.compute2(transactionBytes, POW_BUFFER_SIZE, POW_DIFFICULTY, MemoryPoW.DEFAULT_COMPUTE_THREADS));
 	}
 
 	/**
@@ -198,7 +198,7 @@ public class PresenceTransaction extends Transaction {
 	}
 
 	@Override
-	public boolean isSignatureValid() {
+	protected boolean isSignatureStateIndependentValid() {
 		byte[] signature = this.transactionData.getSignature();
 		if (signature == null)
 			return false;
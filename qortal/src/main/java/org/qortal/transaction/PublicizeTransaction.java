@@ -64,7 +64,7 @@ public class PublicizeTransaction extends Transaction {
 		PublicizeTransactionTransformer.clearNonce(transactionBytes);
 
 		// Calculate nonce
-		this.publicizeTransactionData.setNonce(MemoryPoW.compute2(transactionBytes, POW_BUFFER_SIZE, POW_DIFFICULTY));
+		this.publicizeTransactionData.setNonce(MemoryPoW.compute2(transactionBytes, POW_BUFFER_SIZE, POW_DIFFICULTY, MemoryPoW.DEFAULT_COMPUTE_THREADS));
 	}
 
 	@Override
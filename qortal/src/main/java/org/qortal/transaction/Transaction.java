@@ -36,69 +36,68 @@ import org.qortal.utils.NTP;
 import static java.util.Arrays.stream;
 import static java.util.stream.Collectors.toMap;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
-
 public abstract class Transaction {
 
 	// Transaction types
 	public enum TransactionType {
-		// NOTE: must be contiguous or reflection fails
-		GENESIS(1, false),
-		PAYMENT(2, false),
-		REGISTER_NAME(3, true),
-		UPDATE_NAME(4, true),
-		SELL_NAME(5, false),
-		CANCEL_SELL_NAME(6, false),
-		BUY_NAME(7, false),
-		CREATE_POLL(8, true),
-		VOTE_ON_POLL(9, false),
-		ARBITRARY(10, true),
-		ISSUE_ASSET(11, true),
-		TRANSFER_ASSET(12, false),
-		CREATE_ASSET_ORDER(13, false),
-		CANCEL_ASSET_ORDER(14, false),
-		MULTI_PAYMENT(15, false),
-		DEPLOY_AT(16, true),
-		MESSAGE(17, true),
-		CHAT(18, false),
-		PUBLICIZE(19, false),
-		AIRDROP(20, false),
-		AT(21, false),
-		CREATE_GROUP(22, true),
-		UPDATE_GROUP(23, true),
-		ADD_GROUP_ADMIN(24, false),
-		REMOVE_GROUP_ADMIN(25, false),
-		GROUP_BAN(26, false),
-		CANCEL_GROUP_BAN(27, false),
-		GROUP_KICK(28, false),
-		GROUP_INVITE(29, false),
-		CANCEL_GROUP_INVITE(30, false),
-		JOIN_GROUP(31, false),
-		LEAVE_GROUP(32, false),
-		GROUP_APPROVAL(33, false),
-		SET_GROUP(34, false),
-		UPDATE_ASSET(35, true),
-		ACCOUNT_FLAGS(36, false),
-		ENABLE_FORGING(37, false),
-		REWARD_SHARE(38, false),
-		ACCOUNT_LEVEL(39, false),
-		TRANSFER_PRIVS(40, false),
-		PRESENCE(41, false);
+		// NOTE: must be contiguous as values are used as array indexes
+		// NOTE: null factory means transaction type is not supported
+		GENESIS(1, false, GenesisTransaction::new),
+		PAYMENT(2, false, PaymentTransaction::new),
+		REGISTER_NAME(3, true, RegisterNameTransaction::new),
+		UPDATE_NAME(4, true, UpdateNameTransaction::new),
+		SELL_NAME(5, false, SellNameTransaction::new),
+		CANCEL_SELL_NAME(6, false, CancelSellNameTransaction::new),
+		BUY_NAME(7, false, BuyNameTransaction::new),
+		CREATE_POLL(8, true, CreatePollTransaction::new),
+		VOTE_ON_POLL(9, false, VoteOnPollTransaction::new),
+		ARBITRARY(10, true, ArbitraryTransaction::new),
+		ISSUE_ASSET(11, true, IssueAssetTransaction::new),
+		TRANSFER_ASSET(12, false, TransferAssetTransaction::new),
+		CREATE_ASSET_ORDER(13, false, CreateAssetOrderTransaction::new),
+		CANCEL_ASSET_ORDER(14, false, CancelAssetOrderTransaction::new),
+		MULTI_PAYMENT(15, false, MultiPaymentTransaction::new),
+		DEPLOY_AT(16, true, DeployAtTransaction::new),
+		MESSAGE(17, true, MessageTransaction::new),
+		CHAT(18, false, ChatTransaction::new),
+		PUBLICIZE(19, false, PublicizeTransaction::new),
+		AIRDROP(20, false, null),
+		AT(21, false, AtTransaction::new),
+		CREATE_GROUP(22, true, CreateGroupTransaction::new),
+		UPDATE_GROUP(23, true, UpdateGroupTransaction::new),
+		ADD_GROUP_ADMIN(24, false, AddGroupAdminTransaction::new),
+		REMOVE_GROUP_ADMIN(25, false, RemoveGroupAdminTransaction::new),
+		GROUP_BAN(26, false, GroupBanTransaction::new),
+		CANCEL_GROUP_BAN(27, false, CancelGroupBanTransaction::new),
+		GROUP_KICK(28, false, GroupKickTransaction::new),
+		GROUP_INVITE(29, false, GroupInviteTransaction::new),
+		CANCEL_GROUP_INVITE(30, false, CancelGroupInviteTransaction::new),
+		JOIN_GROUP(31, false, JoinGroupTransaction::new),
+		LEAVE_GROUP(32, false, LeaveGroupTransaction::new),
+		GROUP_APPROVAL(33, false, GroupApprovalTransaction::new),
+		SET_GROUP(34, false, SetGroupTransaction::new),
+		UPDATE_ASSET(35, true, UpdateAssetTransaction::new),
+		ACCOUNT_FLAGS(36, false, AccountFlagsTransaction::new),
+		ENABLE_FORGING(37, false, null),
+		REWARD_SHARE(38, false, RewardShareTransaction::new),
+		ACCOUNT_LEVEL(39, false, AccountLevelTransaction::new),
+		TRANSFER_PRIVS(40, false, TransferPrivsTransaction::new),
+		PRESENCE(41, false, PresenceTransaction::new);
 
 		public final int value;
 		public final boolean needsApproval;
 		public final String valueString;
 		public final String className;
-		public final Class<?> clazz;
-		public final Constructor<?> constructor;
+		/** Builds <tt>Transaction</tt> subclass for this type, or null if type is unsupported */
+		public final TransactionFactory factory;
 
 		private static final Map<Integer, TransactionType> map = stream(TransactionType.values()).collect(toMap(type -> type.value, type -> type));
 
-		TransactionType(int value, boolean needsApproval) {
+		TransactionType(int value, boolean needsApproval, TransactionFactory factory) {
 			this.value = value;
 			this.needsApproval = needsApproval;
 			this.valueString = String.valueOf(value);
+			this.factory = factory;
 
 			String[] classNameParts = this.name().toLowerCase().split("_");
 
@@ -106,24 +105,6 @@ public abstract class Transaction {
 				classNameParts[i] = classNameParts[i].substring(0, 1).toUpperCase().concat(classNameParts[i].substring(1));
 
 			this.className = String.join("", classNameParts);
-
-			Class<?> subClazz = null;
-			Constructor<?> subConstructor = null;
-
-			try {
-				subClazz = Class.forName(String.join("", Transaction.class.getPackage().getName(), ".", this.className, "Transaction"));
-
-				try {
-					subConstructor = subClazz.getConstructor(Repository.class, TransactionData.class);
-				} catch (NoSuchMethodException | SecurityException e) {
-					LOGGER.debug(String.format("Transaction subclass constructor not found for transaction type \"%s\"", this.name()));
-				}
-			} catch (ClassNotFoundException e) {
-				LOGGER.debug(String.format("Transaction subclass not found for transaction type \"%s\"", this.name()));
-			}
-
-			this.clazz = subClazz;
-			this.constructor = subConstructor;
 		}
 
 		public static TransactionType valueOf(int value) {
@@ -131,6 +112,12 @@ public abstract class Transaction {
 		}
 	}
 
+	/** Constructor of a <tt>Transaction</tt> subclass, e.g. <tt>PaymentTransaction::new</tt> */
+	@FunctionalInterface
+	public interface TransactionFactory {
+		Transaction create(Repository repository, TransactionData transactionData);
+	}
+
 	// Group-approval status
 	public enum ApprovalStatus {
 		NOT_REQUIRED(0),
@@ -270,6 +257,8 @@ public abstract class Transaction {
 	protected TransactionData transactionData;
 	/** Cached creator account. Use <tt>getCreator()</tt> to access. */
 	private PublicKeyAccount creator = null;
+	/** Whether signature has already been found valid. Use <tt>verifySignature()</tt> to access. */
+	private volatile boolean isSignatureVerified = false;
 
 	// Constructors
 
@@ -296,16 +285,11 @@ public abstract class Transaction {
 	public static Transaction fromData(Repository repository, TransactionData transactionData) {
 		TransactionType type = transactionData.getType();
 
-		try {
-			Constructor<?> constructor = type.constructor;
-
-			if (constructor == null)
-				throw new IllegalStateException("Unsupported transaction type [" + type.value + "] during fetch from repository");
+		TransactionFactory factory = type.factory;
+		if (factory == null)
+			throw new IllegalStateException("Unsupported transaction type [" + type.value + "] during fetch from repository");
 
-			return (Transaction) constructor.newInstance(repository, transactionData);
-		} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException | InstantiationException e) {
-			throw new IllegalStateException("Internal error with transaction type [" + type.value + "] during fetch from repository");
-		}
+		return factory.create(repository, transactionData);
 	}
 
 	// Getters / Setters
@@ -473,12 +457,54 @@ public abstract class Transaction {
 	public void sign(PrivateKeyAccount signer) {
 		try {
 			this.transactionData.setSignature(signer.sign(TransactionTransformer.toBytesForSigning(transactionData)));
+			this.isSignatureVerified = false;
 		} catch (TransformationException e) {
 			throw new RuntimeException("Unable to transform transaction to byte array for signing", e);
 		}
 	}
 
+	/**
+	 * Returns whether transaction's signature is valid, as per {@link #isSignatureStateIndependentValid()},
+	 * but remembers a valid result so signature is only verified once.
+	 * <p>
+	 * Allows signatures to be verified ahead of time, possibly on another thread,
+	 * e.g. by {@link org.qortal.controller.Synchronizer} while it applies earlier blocks.
+	 * Any checks that depend on repository state are left to {@link #isSignatureStateDependentValid()}.
+	 */
+	public boolean verifySignature() {
+		if (this.isSignatureVerified)
+			return true;
+
+		if (!this.isSignatureStateIndependentValid())
+			return false;
+
+		this.isSignatureVerified = true;
+		return true;
+	}
+
+	/**
+	 * Returns whether transaction's signature, and any proof-of-work, is valid.
+	 * <p>
+	 * Equivalent to {@link #isSignatureStateIndependentValid()} and {@link #isSignatureStateDependentValid()},
+	 * using current repository state.
+	 */
 	public boolean isSignatureValid() {
+		if (!this.isSignatureStateIndependentValid())
+			return false;
+
+		try {
+			return this.isSignatureStateDependentValid();
+		} catch (DataException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Returns whether transaction's signature is valid, only using transaction's data.
+	 * <p>
+	 * Doesn't access repository, so is safe to call from any thread, ahead of processing earlier blocks.
+	 */
+	protected boolean isSignatureStateIndependentValid() {
 		byte[] signature = this.transactionData.getSignature();
 		if (signature == null)
 			return false;
@@ -490,6 +516,16 @@ public abstract class Transaction {
 		}
 	}
 
+	/**
+	 * Returns whether any parts of transaction's signature checks that depend on repository state are valid,
+	 * e.g. proof-of-work difficulty based on creator's balance.
+	 * <p>
+	 * Must be called serially, once all preceding blocks have been processed.
+	 */
+	public boolean isSignatureStateDependentValid() throws DataException {
+		return true;
+	}
+
 	/**
 	 * Returns whether transaction can be added to unconfirmed transactions.
 	 * 
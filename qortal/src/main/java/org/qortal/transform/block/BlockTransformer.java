@@ -361,7 +361,7 @@ public class BlockTransformer extends Transformer {
 				if (transaction.getTransactionData().getType() == TransactionType.AT)
 					continue;
 
-				if (!transaction.isSignatureValid())
+				if (!transaction.verifySignature())
 					throw new TransformationException("Transaction signature invalid when building block's transactions signature");
 
 				bytes.write(transaction.getTransactionData().getSignature());
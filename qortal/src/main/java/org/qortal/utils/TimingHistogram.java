@@ -0,0 +1,93 @@
+package org.qortal.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+
+/**
+ * Thread-safe histogram of durations, with power-of-two millisecond buckets.
+ * <p>
+ * Bucket <i>n</i> counts durations under 2<sup>n</sup> ms that weren't counted by bucket <i>n</i>-1.
+ * Final bucket counts everything longer.
+ */
+public class TimingHistogram {
+
+	/** 0ms, 1ms, 2-3ms, 4-7ms ... 32-65s, then over 65s */
+	private static final int BUCKET_COUNT = 18;
+
+	@XmlAccessorType(XmlAccessType.FIELD)
+	public static class Bucket {
+		/** Upper bound (exclusive) of durations in this bucket, or null for final bucket */
+		public Long lessThanMillis;
+		public long count;
+
+		protected Bucket() {
+			/* For JAXB */
+		}
+
+		public Bucket(Long lessThanMillis, long count) {
+			this.lessThanMillis = lessThanMillis;
+			this.count = count;
+		}
+	}
+
+	@XmlAccessorType(XmlAccessType.FIELD)
+	public static class StatsSnapshot {
+		public String name;
+		public long count;
+		public long totalMillis;
+		public long maxMillis;
+		/** Non-empty buckets only */
+		public List<Bucket> buckets = new ArrayList<>();
+
+		public StatsSnapshot() {
+		}
+	}
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong totalNanos = new AtomicLong();
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	public void record(long durationNanos) {
+		if (durationNanos < 0)
+			durationNanos = 0;
+
+		long durationMillis = durationNanos / 1_000_000L;
+		int bucketIndex = durationMillis == 0 ? 0 : Math.min(64 - Long.numberOfLeadingZeros(durationMillis), BUCKET_COUNT - 1);
+
+		this.buckets.incrementAndGet(bucketIndex);
+		this.count.incrementAndGet();
+		this.totalNanos.addAndGet(durationNanos);
+		this.maxNanos.accumulateAndGet(durationNanos, Math::max);
+	}
+
+	public void recordMillis(long durationMillis) {
+		this.record(durationMillis * 1_000_000L);
+	}
+
+	/** Returns snapshot of histogram. Counts are read individually, so may be slightly inconsistent during concurrent updates. */
+	public StatsSnapshot getStatsSnapshot(String name) {
+		StatsSnapshot snapshot = new StatsSnapshot();
+		snapshot.name = name;
+		snapshot.count = this.count.get();
+		snapshot.totalMillis = this.totalNanos.get() / 1_000_000L;
+		snapshot.maxMillis = this.maxNanos.get() / 1_000_000L;
+
+		for (int i = 0; i < BUCKET_COUNT; ++i) {
+			long bucketCount = this.buckets.get(i);
+			if (bucketCount == 0)
+				continue;
+
+			Long lessThanMillis = i < BUCKET_COUNT - 1 ? 1L << i : null;
+			snapshot.buckets.add(new Bucket(lessThanMillis, bucketCount));
+		}
+
+		return snapshot;
+	}
+
+}
@@ -0,0 +1,126 @@
+package org.qortal.test;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.account.PrivateKeyAccount;
+import org.qortal.block.Block;
+import org.qortal.data.transaction.BaseTransactionData;
+import org.qortal.data.transaction.PaymentTransactionData;
+import org.qortal.data.transaction.TransactionData;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryManager;
+import org.qortal.test.common.AccountUtils;
+import org.qortal.test.common.BlockUtils;
+import org.qortal.test.common.Common;
+import org.qortal.test.common.TestAccount;
+import org.qortal.test.common.TransactionUtils;
+import org.qortal.utils.Amounts;
+import org.qortal.utils.Base58;
+
+/** Compares orphaning several blocks at once with orphaning one block at a time, on randomly generated chains. */
+public class BatchOrphanTests extends Common {
+
+	private static final int ROUNDS = 5;
+	private static final int MAX_BLOCKS = 12;
+	private static final int MAX_TRANSACTIONS_PER_BLOCK = 4;
+
+	@Before
+	public void beforeTest() throws DataException {
+		Common.useDefaultSettings();
+	}
+
+	@After
+	public void afterTest() throws DataException {
+		Common.orphanCheck();
+	}
+
+	@Test
+	public void testBatchOrphanMatchesPerBlockOrphan() throws DataException {
+		long seed = new Random().nextLong();
+		Random random = new Random(seed);
+		System.out.println(String.format("Random seed: %d", seed));
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			for (int round = 0; round < ROUNDS; ++round) {
+				final int targetHeight = repository.getBlockRepository().getBlockchainHeight();
+				final byte[] targetStateHash = repository.getChainStateHash();
+
+				mintRandomBlocks(repository, random, 1 + random.nextInt(MAX_BLOCKS));
+				final int height = repository.getBlockRepository().getBlockchainHeight();
+
+				// Per-block orphaning, but discarded afterwards
+				for (int h = height; h > targetHeight; --h)
+					new Block(repository, repository.getBlockRepository().fromHeight(h)).orphan();
+
+				byte[] perBlockStateHash = repository.getChainStateHash();
+				repository.discardChanges();
+
+				assertEquals(height, repository.getBlockRepository().getBlockchainHeight());
+
+				// Batched orphaning
+				int orphanedCount = Block.orphanBlocks(repository, targetHeight);
+				assertEquals(height - targetHeight, orphanedCount);
+				assertEquals(targetHeight, repository.getBlockRepository().getBlockchainHeight());
+
+				byte[] batchStateHash = repository.getChainStateHash();
+
+				assertEquals(Base58.encode(perBlockStateHash), Base58.encode(batchStateHash));
+				assertEquals(Base58.encode(targetStateHash), Base58.encode(batchStateHash));
+
+				repository.saveChanges();
+
+				// Chain carries on afterwards, giving next round a different starting point
+				mintRandomBlocks(repository, random, 1 + random.nextInt(3));
+			}
+		}
+	}
+
+	@Test
+	public void testNothingToOrphan() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			BlockUtils.mintBlock(repository);
+
+			final int height = repository.getBlockRepository().getBlockchainHeight();
+			assertEquals(0, Block.orphanBlocks(repository, height));
+			assertEquals(0, Block.orphanBlocks(repository, height + 5));
+			assertEquals(height, repository.getBlockRepository().getBlockchainHeight());
+		}
+	}
+
+	private static void mintRandomBlocks(Repository repository, Random random, int blockCount) throws DataException {
+		List<TestAccount> testAccounts = Common.getTestAccounts(repository);
+		testAccounts.removeIf(testAccount -> testAccount.isRewardShare);
+
+		for (int b = 0; b < blockCount; ++b) {
+			int transactionCount = random.nextInt(MAX_TRANSACTIONS_PER_BLOCK + 1);
+
+			// Each sender only sends once per block so their last reference is simple to follow
+			Collections.shuffle(testAccounts, random);
+
+			for (int t = 0; t < transactionCount && t < testAccounts.size(); ++t) {
+				PrivateKeyAccount sender = testAccounts.get(t);
+				TestAccount recipient = testAccounts.get((t + 1 + random.nextInt(testAccounts.size() - 1)) % testAccounts.size());
+				long amount = (1 + random.nextInt(1000)) * Amounts.MULTIPLIER / 100;
+
+				byte[] reference = sender.getLastReference();
+				long timestamp = repository.getTransactionRepository().fromSignature(reference).getTimestamp() + 1;
+
+				BaseTransactionData baseTransactionData = new BaseTransactionData(timestamp, AccountUtils.txGroupId, reference, sender.getPublicKey(), AccountUtils.fee, null);
+				TransactionData transactionData = new PaymentTransactionData(baseTransactionData, recipient.getAddress(), amount);
+
+				TransactionUtils.signAndImportValid(repository, transactionData, sender);
+			}
+
+			BlockUtils.mintBlock(repository);
+		}
+	}
+
+}
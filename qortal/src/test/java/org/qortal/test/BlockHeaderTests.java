@@ -0,0 +1,128 @@
+package org.qortal.test;
+
+import static org.junit.Assert.*;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.controller.Synchronizer;
+import org.qortal.data.block.BlockData;
+import org.qortal.network.message.BlockHeadersMessage;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryManager;
+import org.qortal.test.common.BlockUtils;
+import org.qortal.test.common.Common;
+
+public class BlockHeaderTests extends Common {
+
+	private static final int HEADER_COUNT = 5;
+
+	@Before
+	public void beforeTest() throws DataException {
+		Common.useDefaultSettings();
+	}
+
+	@After
+	public void afterTest() throws DataException {
+		Common.orphanCheck();
+	}
+
+	@Test
+	public void testValidHeaders() throws DataException, InterruptedException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			BlockData commonBlockData = repository.getBlockRepository().getLastBlock();
+			List<BlockData> blockHeaders = mintBlockHeaders(repository);
+
+			assertTrue(Synchronizer.getInstance().areBlockHeadersValid(commonBlockData, blockHeaders));
+
+			// No headers is trivially valid
+			assertTrue(Synchronizer.getInstance().areBlockHeadersValid(commonBlockData, Collections.emptyList()));
+		}
+	}
+
+	@Test
+	public void testUnlinkedHeaders() throws DataException, InterruptedException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			// So common block has a parent
+			BlockUtils.mintBlock(repository);
+
+			BlockData commonBlockData = repository.getBlockRepository().getLastBlock();
+			List<BlockData> blockHeaders = mintBlockHeaders(repository);
+
+			// Missing header
+			List<BlockData> gappedHeaders = new ArrayList<>(blockHeaders);
+			gappedHeaders.remove(2);
+			assertFalse(Synchronizer.getInstance().areBlockHeadersValid(commonBlockData, gappedHeaders));
+
+			// Headers don't follow on from common block
+			BlockData otherBlockData = repository.getBlockRepository().fromHeight(commonBlockData.getHeight() - 1);
+			assertFalse(Synchronizer.getInstance().areBlockHeadersValid(otherBlockData, blockHeaders));
+		}
+	}
+
+	@Test
+	public void testForgedHeaders() throws DataException, InterruptedException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			BlockData commonBlockData = repository.getBlockRepository().getLastBlock();
+			List<BlockData> blockHeaders = mintBlockHeaders(repository);
+
+			// Inflated online accounts count, e.g. to increase chain weight
+			List<BlockData> forgedHeaders = new ArrayList<>(blockHeaders);
+			BlockData blockHeader = blockHeaders.get(1);
+			forgedHeaders.set(1, new BlockData(blockHeader.getVersion(), blockHeader.getReference(), blockHeader.getTransactionCount(), 0L,
+					blockHeader.getTransactionsSignature(), blockHeader.getHeight(), blockHeader.getTimestamp(),
+					blockHeader.getMinterPublicKey(), blockHeader.getMinterSignature(), 0, 0L,
+					blockHeader.getEncodedOnlineAccounts(), blockHeader.getOnlineAccountsCount() + 100, null, null));
+			assertFalse(Synchronizer.getInstance().areBlockHeadersValid(commonBlockData, forgedHeaders));
+
+			// Minter signature doesn't match header, so neither does block signature (or following header's reference)
+			byte[] forgedMinterSignature = new byte[blockHeader.getMinterSignature().length];
+			new Random().nextBytes(forgedMinterSignature);
+
+			forgedHeaders = new ArrayList<>(blockHeaders.subList(0, 2));
+			forgedHeaders.set(1, new BlockData(blockHeader.getVersion(), blockHeader.getReference(), blockHeader.getTransactionCount(), 0L,
+					blockHeader.getTransactionsSignature(), blockHeader.getHeight(), blockHeader.getTimestamp(),
+					blockHeader.getMinterPublicKey(), forgedMinterSignature, 0, 0L,
+					blockHeader.getEncodedOnlineAccounts(), blockHeader.getOnlineAccountsCount(), null, null));
+			assertFalse(Synchronizer.getInstance().areBlockHeadersValid(commonBlockData, forgedHeaders));
+		}
+	}
+
+	@Test
+	public void testOversizedHeaderCount() throws UnsupportedEncodingException {
+		// Header count that overflows int when multiplied by header length
+		ByteBuffer bytes = ByteBuffer.allocate(64);
+		bytes.putInt(1 << 30);
+		bytes.flip();
+
+		assertNull(BlockHeadersMessage.fromByteBuffer(-1, bytes));
+	}
+
+	/** Mints blocks, returning their headers as a peer would send them, then orphans them again. */
+	private static List<BlockData> mintBlockHeaders(Repository repository) throws DataException {
+		int commonBlockHeight = repository.getBlockRepository().getBlockchainHeight();
+
+		List<BlockData> blockHeaders = new ArrayList<>();
+		for (int i = 0; i < HEADER_COUNT; ++i) {
+			BlockData blockData = BlockUtils.mintBlock(repository).getBlockData();
+
+			blockHeaders.add(new BlockData(blockData.getVersion(), blockData.getReference(), blockData.getTransactionCount(), 0L,
+					blockData.getTransactionsSignature(), blockData.getHeight(), blockData.getTimestamp(),
+					blockData.getMinterPublicKey(), blockData.getMinterSignature(), 0, 0L,
+					blockData.getEncodedOnlineAccounts(), blockData.getOnlineAccountsCount(), null, null));
+		}
+
+		BlockUtils.orphanToBlock(repository, commonBlockHeight);
+
+		return blockHeaders;
+	}
+
+}
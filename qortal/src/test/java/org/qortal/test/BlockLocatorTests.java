@@ -0,0 +1,134 @@
+package org.qortal.test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.controller.Synchronizer;
+import org.qortal.data.block.BlockData;
+import org.qortal.data.block.BlockSummaryData;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryManager;
+import org.qortal.test.common.AccountUtils;
+import org.qortal.test.common.BlockUtils;
+import org.qortal.test.common.Common;
+import org.qortal.transform.block.BlockTransformer;
+
+/** Simulates a peer on a fork of our chain, using block locator to find common block. */
+public class BlockLocatorTests extends Common {
+
+	private static final int COMMON_BLOCK_COUNT = 30;
+	private static final int PEER_FORK_LENGTH = 20;
+	private static final int OUR_FORK_LENGTH = 5;
+
+	@Before
+	public void beforeTest() throws DataException {
+		Common.useDefaultSettings();
+	}
+
+	@After
+	public void afterTest() throws DataException {
+		Common.orphanCheck();
+	}
+
+	@Test
+	public void testBlockLocator() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			for (int i = 0; i < COMMON_BLOCK_COUNT; ++i)
+				BlockUtils.mintBlock(repository);
+
+			final int height = repository.getBlockRepository().getBlockchainHeight();
+			List<byte[]> locatorSignatures = Synchronizer.getInstance().buildBlockLocator(repository, height);
+
+			// Dense near tip
+			for (int i = 0; i < 10; ++i)
+				assertArrayEquals(repository.getBlockRepository().fromHeight(height - i).getSignature(), locatorSignatures.get(i));
+
+			// Sparser, with strictly decreasing heights, finishing with genesis block
+			int previousHeight = Integer.MAX_VALUE;
+			for (byte[] locatorSignature : locatorSignatures) {
+				int locatorHeight = repository.getBlockRepository().getHeightFromSignature(locatorSignature);
+				assertTrue(locatorHeight < previousHeight);
+				previousHeight = locatorHeight;
+			}
+			assertEquals(1, previousHeight);
+			assertTrue(locatorSignatures.size() < height);
+
+			// Genesis only
+			assertEquals(1, Synchronizer.getInstance().buildBlockLocator(repository, 1).size());
+		}
+	}
+
+	@Test
+	public void testCommonBlockOnFork() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			for (int i = 0; i < COMMON_BLOCK_COUNT; ++i)
+				BlockUtils.mintBlock(repository);
+
+			final int commonBlockHeight = repository.getBlockRepository().getBlockchainHeight();
+			final byte[] commonBlockSignature = repository.getBlockRepository().getLastBlock().getSignature();
+
+			// Peer's fork
+			for (int i = 0; i < PEER_FORK_LENGTH; ++i)
+				BlockUtils.mintBlock(repository);
+
+			List<byte[]> peerLocatorSignatures = Synchronizer.getInstance().buildBlockLocator(repository, repository.getBlockRepository().getBlockchainHeight());
+
+			// Our fork, starting with a payment so our blocks differ from peer's
+			BlockUtils.orphanToBlock(repository, commonBlockHeight);
+			AccountUtils.pay(repository, "alice", "bob", 1234L);
+			for (int i = 1; i < OUR_FORK_LENGTH; ++i)
+				BlockUtils.mintBlock(repository);
+
+			BlockData ourForkBlockData = repository.getBlockRepository().fromHeight(commonBlockHeight + 1);
+			assertFalse(peerLocatorSignatures.stream().anyMatch(signature -> Arrays.equals(signature, ourForkBlockData.getSignature())));
+
+			// Peer's locator is sparse, so highest block in common that we find might be below fork point
+			List<BlockSummaryData> blockSummaries = Synchronizer.getInstance().getBlockSummariesFromLocator(repository, peerLocatorSignatures, OUR_FORK_LENGTH + PEER_FORK_LENGTH);
+			assertFalse(blockSummaries.isEmpty());
+
+			BlockSummaryData locatorCommonBlockSummary = blockSummaries.get(0);
+			assertTrue(locatorCommonBlockSummary.getHeight() <= commonBlockHeight);
+			assertTrue(peerLocatorSignatures.stream().anyMatch(signature -> Arrays.equals(signature, locatorCommonBlockSummary.getSignature())));
+
+			// Heights are consecutive, covering fork point and our fork
+			for (int i = 0; i < blockSummaries.size(); ++i)
+				assertEquals(locatorCommonBlockSummary.getHeight() + i, blockSummaries.get(i).getHeight());
+
+			BlockSummaryData forkPointSummary = blockSummaries.get(commonBlockHeight - locatorCommonBlockSummary.getHeight());
+			assertArrayEquals(commonBlockSignature, forkPointSummary.getSignature());
+			assertArrayEquals(ourForkBlockData.getSignature(), blockSummaries.get(commonBlockHeight - locatorCommonBlockSummary.getHeight() + 1).getSignature());
+
+			// Peer with same chain as us finds our tip
+			BlockData ourLastBlockData = repository.getBlockRepository().getLastBlock();
+			List<byte[]> ourLocatorSignatures = Synchronizer.getInstance().buildBlockLocator(repository, ourLastBlockData.getHeight());
+			blockSummaries = Synchronizer.getInstance().getBlockSummariesFromLocator(repository, ourLocatorSignatures, 8);
+			assertEquals(1, blockSummaries.size());
+			assertArrayEquals(ourLastBlockData.getSignature(), blockSummaries.get(0).getSignature());
+		}
+	}
+
+	@Test
+	public void testNoCommonBlock() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			Random random = new Random();
+
+			List<byte[]> locatorSignatures = new ArrayList<>();
+			for (int i = 0; i < 5; ++i) {
+				byte[] signature = new byte[BlockTransformer.BLOCK_SIGNATURE_LENGTH];
+				random.nextBytes(signature);
+				locatorSignatures.add(signature);
+			}
+
+			assertTrue(Synchronizer.getInstance().getBlockSummariesFromLocator(repository, locatorSignatures, 8).isEmpty());
+		}
+	}
+
+}
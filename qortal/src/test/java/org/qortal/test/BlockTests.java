@@ -1,25 +1,33 @@
 package org.qortal.test;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
 import java.util.stream.Collectors;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.qortal.account.PrivateKeyAccount;
+import org.qortal.asset.Asset;
 import org.qortal.block.Block;
 import org.qortal.block.GenesisBlock;
 import org.qortal.data.at.ATStateData;
 import org.qortal.data.block.BlockData;
+import org.qortal.data.transaction.BaseTransactionData;
+import org.qortal.data.transaction.ChatTransactionData;
+import org.qortal.data.transaction.PaymentTransactionData;
 import org.qortal.data.transaction.TransactionData;
+import org.qortal.group.Group;
 import org.qortal.repository.DataException;
 import org.qortal.repository.Repository;
 import org.qortal.repository.RepositoryManager;
 import org.qortal.test.common.BlockUtils;
 import org.qortal.test.common.Common;
 import org.qortal.test.common.TransactionUtils;
+import org.qortal.transaction.ChatTransaction;
 import org.qortal.transaction.Transaction;
 import org.qortal.transaction.Transaction.TransactionType;
 import org.qortal.transform.TransformationException;
@@ -137,6 +145,111 @@ public class BlockTests extends Common {
 		}
 	}
 
+	@Test
+	public void testPreVerifiedSignatures() throws DataException, TransformationException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount signingAccount = Common.getTestAccount(repository, "alice");
+
+			TransactionData transactionData = TransactionUtils.randomTransaction(repository, signingAccount, TransactionType.PAYMENT, true);
+			TransactionUtils.signAndMint(repository, transactionData, signingAccount);
+
+			Block mintedBlock = new Block(repository, repository.getBlockRepository().getLastBlock());
+			byte[] blockBytes = BlockTransformer.toBytes(mintedBlock);
+
+			// As if received from peer
+			Triple<BlockData, List<TransactionData>, List<ATStateData>> blockInfo = BlockTransformer.fromBytes(blockBytes);
+			Block block = new Block(repository, blockInfo.getA(), blockInfo.getB(), blockInfo.getC());
+
+			// Verify transaction signatures on other threads, as Synchronizer does
+			block.getTransactions().parallelStream().forEach(transaction -> assertTrue(transaction.verifySignature()));
+			assertTrue(block.isSignatureValid());
+
+			// Same block, but with a tampered transaction signature
+			blockInfo = BlockTransformer.fromBytes(blockBytes);
+			byte[] tamperedSignature = blockInfo.getB().get(0).getSignature();
+			tamperedSignature[0] ^= 0x01;
+			Block tamperedBlock = new Block(repository, blockInfo.getA(), blockInfo.getB(), blockInfo.getC());
+
+			assertFalse(tamperedBlock.getTransactions().get(0).verifySignature());
+			assertFalse(tamperedBlock.isSignatureValid());
+		}
+	}
+
+	@Test
+	public void testPreVerifiedSignaturesWithNewlyFundedChatSender() throws DataException, TransformationException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount alice = Common.getTestAccount(repository, "alice");
+			PrivateKeyAccount bob = Common.getTestAccount(repository, "bob");
+			PrivateKeyAccount mintingAccount = Common.getTestAccount(repository, "alice-reward-share");
+
+			byte[] privateKey = new byte[32];
+			new Random().nextBytes(privateKey);
+			PrivateKeyAccount chatSender = new PrivateKeyAccount(repository, privateKey);
+
+			final int initialHeight = repository.getBlockRepository().getBlockchainHeight();
+
+			// First block funds CHAT sender
+			BaseTransactionData baseTransactionData = new BaseTransactionData(System.currentTimeMillis(), Group.NO_GROUP, alice.getLastReference(), alice.getPublicKey(), null, null);
+			TransactionData paymentTransactionData = new PaymentTransactionData(baseTransactionData, chatSender.getAddress(), 1_00000000L);
+			paymentTransactionData.setFee(Transaction.fromData(repository, paymentTransactionData).calcRecommendedFee());
+			TransactionUtils.signAndMint(repository, paymentTransactionData, alice);
+
+			// Second block has CHAT, with proof-of-work difficulty that relies on sender now having QORT
+			Block chatBlock = Block.mint(repository, repository.getBlockRepository().getLastBlock(), mintingAccount);
+
+			byte[] chatReference = new byte[64];
+			new Random().nextBytes(chatReference);
+			baseTransactionData = new BaseTransactionData(chatBlock.getBlockData().getTimestamp() - 1, Group.NO_GROUP, chatReference, chatSender.getPublicKey(), 0L, null);
+			ChatTransactionData chatTransactionData = new ChatTransactionData(baseTransactionData, chatSender.getAddress(), 0, bob.getAddress(), "hello".getBytes(), true, false);
+			ChatTransaction chatTransaction = new ChatTransaction(repository, chatTransactionData);
+			chatTransaction.computeNonce();
+			chatTransaction.sign(chatSender);
+
+			assertTrue(chatBlock.addTransaction(chatTransactionData));
+			chatBlock.sign();
+			assertEquals(Block.ValidationResult.OK, chatBlock.isValid());
+			chatBlock.process();
+			repository.saveChanges();
+
+			List<byte[]> blocksBytes = Arrays.asList(
+					BlockTransformer.toBytes(new Block(repository, repository.getBlockRepository().fromHeight(initialHeight + 1))),
+					BlockTransformer.toBytes(new Block(repository, repository.getBlockRepository().fromHeight(initialHeight + 2))));
+
+			// Roll back, so we can sync both blocks again, as if received from peer
+			BlockUtils.orphanBlocks(repository, 2);
+			TransactionUtils.deleteUnconfirmedTransactions(repository);
+			repository.saveChanges();
+			assertEquals(0L, chatSender.getConfirmedBalance(Asset.QORT));
+
+			List<Block> blocks = new ArrayList<>();
+			for (byte[] blockBytes : blocksBytes) {
+				Triple<BlockData, List<TransactionData>, List<ATStateData>> blockInfo = BlockTransformer.fromBytes(blockBytes);
+				blocks.add(new Block(repository, blockInfo.getA(), blockInfo.getB(), blockInfo.getC()));
+			}
+
+			// Verify signatures of both blocks on other threads, ahead of processing either, as Synchronizer does
+			blocks.parallelStream().forEach(block -> assertTrue(block.isSignatureValid()));
+
+			// Apply blocks serially, checking state-dependent signatures once previous block has been processed
+			for (Block block : blocks) {
+				for (Transaction transaction : block.getTransactions())
+					transaction.setInitialApprovalStatus();
+
+				assertTrue(block.areStateDependentSignaturesValid());
+				assertEquals(Block.ValidationResult.OK, block.isValid());
+
+				for (Transaction transaction : block.getTransactions())
+					repository.getTransactionRepository().save(transaction.getTransactionData());
+
+				block.process();
+				repository.saveChanges();
+			}
+
+			assertEquals(initialHeight + 2, repository.getBlockRepository().getBlockchainHeight());
+			assertTrue(chatSender.getConfirmedBalance(Asset.QORT) > 0);
+		}
+	}
+
 	@Test
 	public void testLatestBlockCacheWithLatestBlock() throws DataException {
 		try (final Repository repository = RepositoryManager.getRepository()) {
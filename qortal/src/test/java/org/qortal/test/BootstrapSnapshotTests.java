@@ -0,0 +1,305 @@
+package org.qortal.test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.block.Block;
+import org.qortal.block.BlockChain.Checkpoint;
+import org.qortal.data.asset.OrderData;
+import org.qortal.data.at.ATStateData;
+import org.qortal.data.block.BlockData;
+import org.qortal.data.transaction.TransactionData;
+import org.qortal.repository.BootstrapSnapshot;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryManager;
+import org.qortal.repository.hsqldb.HSQLDBRepositoryFactory;
+import org.qortal.test.common.AssetUtils;
+import org.qortal.test.common.BlockUtils;
+import org.qortal.test.common.Common;
+import org.qortal.transform.TransformationException;
+import org.qortal.transform.block.BlockTransformer;
+import org.qortal.utils.Amounts;
+import org.qortal.utils.Triple;
+
+/** Exports snapshot from a locally minted test chain, then imports it into a new repository. */
+public class BootstrapSnapshotTests extends Common {
+
+	private static final String BOOTSTRAP_CONNECTION_URL = "jdbc:hsqldb:mem:bootstrapdb";
+
+	private Path tempDir;
+	private Path snapshotPath;
+
+	@Before
+	public void beforeTest() throws DataException, IOException {
+		Common.useDefaultSettings();
+
+		this.tempDir = Files.createTempDirectory("qortal-bootstrap");
+		this.snapshotPath = this.tempDir.resolve("bootstrap.snapshot");
+	}
+
+	@After
+	public void afterTest() throws DataException, IOException {
+		try (Stream<Path> paths = Files.walk(this.tempDir)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+
+		// Back to usual test repository
+		Common.useDefaultSettings();
+	}
+
+	@Test
+	public void testExportAndImport() throws DataException {
+		Checkpoint checkpoint;
+		byte[] checkpointStateHash;
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			checkpoint = buildTestChain(repository);
+
+			int height = repository.getBlockRepository().getBlockchainHeight();
+			byte[] stateHash = repository.getChainStateHash();
+
+			BootstrapSnapshot.exportSnapshot(repository, this.snapshotPath, checkpoint);
+
+			// Export must leave repository unchanged
+			assertEquals(height, repository.getBlockRepository().getBlockchainHeight());
+			assertArrayEquals(stateHash, repository.getChainStateHash());
+
+			// Expected state after import
+			BlockUtils.orphanToBlock(repository, checkpoint.height);
+			checkpointStateHash = repository.getChainStateHash();
+		}
+
+		useEmptyRepository();
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			BootstrapSnapshot.importSnapshot(repository, this.snapshotPath, checkpoint);
+
+			BlockData lastBlockData = repository.getBlockRepository().getLastBlock();
+			assertEquals(checkpoint.height, lastBlockData.getHeight().intValue());
+			assertArrayEquals(checkpoint.signature, lastBlockData.getSignature());
+
+			assertArrayEquals(checkpointStateHash, repository.getChainStateHash());
+		}
+
+		// Imported open orders should be in order book, as seen by other sessions
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			List<OrderData> openOrders = repository.getAssetRepository().getOpenOrders(AssetUtils.goldAssetId, AssetUtils.otherAssetId, null, null, null);
+			assertEquals(1, openOrders.size());
+
+			// Chain carries on from checkpoint
+			BlockUtils.mintBlock(repository);
+			assertEquals(checkpoint.height + 1, repository.getBlockRepository().getBlockchainHeight());
+		}
+	}
+
+	@Test
+	public void testImportedRecentBlock() throws DataException, TransformationException {
+		Checkpoint checkpoint;
+		byte[] onlineAccountsSignatures;
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			checkpoint = buildTestChain(repository);
+
+			onlineAccountsSignatures = repository.getBlockRepository().fromHeight(checkpoint.height).getOnlineAccountsSignatures();
+			assertNotNull(onlineAccountsSignatures);
+
+			BootstrapSnapshot.exportSnapshot(repository, this.snapshotPath, checkpoint);
+		}
+
+		useEmptyRepository();
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			BootstrapSnapshot.importSnapshot(repository, this.snapshotPath, checkpoint);
+
+			// Checkpoint block is recent, so still needs its online accounts signatures
+			BlockData lastBlockData = repository.getBlockRepository().getLastBlock();
+			assertArrayEquals(onlineAccountsSignatures, lastBlockData.getOnlineAccountsSignatures());
+
+			// Serve block, as if to peer
+			byte[] blockBytes = BlockTransformer.toBytes(new Block(repository, lastBlockData));
+			Triple<BlockData, List<TransactionData>, List<ATStateData>> blockInfo = BlockTransformer.fromBytes(blockBytes);
+			assertArrayEquals(onlineAccountsSignatures, blockInfo.getA().getOnlineAccountsSignatures());
+
+			// Orphan block, then validate it again, as if received from peer
+			BlockUtils.orphanLastBlock(repository);
+
+			Block block = new Block(repository, blockInfo.getA(), blockInfo.getB(), blockInfo.getC());
+			assertEquals(Block.ValidationResult.OK, block.isValid());
+
+			block.process();
+			repository.saveChanges();
+
+			assertEquals(checkpoint.height, repository.getBlockRepository().getBlockchainHeight());
+		}
+	}
+
+	@Test
+	public void testCorruptSnapshot() throws DataException, IOException {
+		Checkpoint checkpoint;
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			checkpoint = buildTestChain(repository);
+			BootstrapSnapshot.exportSnapshot(repository, this.snapshotPath, checkpoint);
+		}
+
+		// Flip a bit in the middle of chain state
+		try (RandomAccessFile snapshotFile = new RandomAccessFile(this.snapshotPath.toFile(), "rw")) {
+			long position = snapshotFile.length() / 2;
+			snapshotFile.seek(position);
+			int value = snapshotFile.read();
+			snapshotFile.seek(position);
+			snapshotFile.write(value ^ 0x01);
+		}
+
+		useEmptyRepository();
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			try {
+				BootstrapSnapshot.importSnapshot(repository, this.snapshotPath, checkpoint);
+				fail("Corrupt snapshot shouldn't import");
+			} catch (DataException e) {
+				// Expected
+			}
+
+			assertEquals(0, repository.getBlockRepository().getBlockchainHeight());
+		}
+	}
+
+	@Test
+	public void testWrongCheckpoint() throws DataException {
+		Checkpoint checkpoint;
+		byte[] otherSignature;
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			checkpoint = buildTestChain(repository);
+			otherSignature = repository.getBlockRepository().fromHeight(checkpoint.height - 1).getSignature();
+
+			// Our chain doesn't have this block at checkpoint's height
+			try {
+				BootstrapSnapshot.exportSnapshot(repository, this.snapshotPath, new Checkpoint(checkpoint.height, otherSignature, checkpoint.stateHash));
+				fail("Shouldn't export snapshot for checkpoint not on our chain");
+			} catch (DataException e) {
+				// Expected
+			}
+
+			BootstrapSnapshot.exportSnapshot(repository, this.snapshotPath, checkpoint);
+
+			// Only empty repositories can be bootstrapped
+			try {
+				BootstrapSnapshot.importSnapshot(repository, this.snapshotPath, checkpoint);
+				fail("Shouldn't import snapshot into non-empty repository");
+			} catch (DataException e) {
+				// Expected
+			}
+		}
+
+		useEmptyRepository();
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			try {
+				BootstrapSnapshot.importSnapshot(repository, this.snapshotPath, new Checkpoint(checkpoint.height, otherSignature, checkpoint.stateHash));
+				fail("Shouldn't import snapshot that doesn't match checkpoint");
+			} catch (DataException e) {
+				// Expected
+			}
+
+			assertEquals(0, repository.getBlockRepository().getBlockchainHeight());
+		}
+	}
+
+	@Test
+	public void testUntrustedStateHash() throws DataException {
+		Checkpoint checkpoint;
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			checkpoint = buildTestChain(repository);
+
+			// Export still works without checkpoint's state hash, e.g. to find out what it is
+			BootstrapSnapshot.exportSnapshot(repository, this.snapshotPath, new Checkpoint(checkpoint.height, checkpoint.signature, null));
+		}
+
+		useEmptyRepository();
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			// Snapshot's own state hash isn't enough
+			try {
+				BootstrapSnapshot.importSnapshot(repository, this.snapshotPath, new Checkpoint(checkpoint.height, checkpoint.signature, null));
+				fail("Shouldn't import snapshot without checkpoint's state hash");
+			} catch (DataException e) {
+				// Expected
+			}
+
+			// Self-consistent snapshot, e.g. with altered balances and recomputed hashes, that doesn't match checkpoint's state
+			byte[] otherStateHash = new byte[32];
+			new Random().nextBytes(otherStateHash);
+
+			try {
+				BootstrapSnapshot.importSnapshot(repository, this.snapshotPath, new Checkpoint(checkpoint.height, checkpoint.signature, otherStateHash));
+				fail("Shouldn't import snapshot whose state doesn't match checkpoint");
+			} catch (DataException e) {
+				// Expected
+			}
+
+			assertEquals(0, repository.getBlockRepository().getBlockchainHeight());
+
+			BootstrapSnapshot.importSnapshot(repository, this.snapshotPath, checkpoint);
+			assertEquals(checkpoint.height, repository.getBlockRepository().getBlockchainHeight());
+		}
+	}
+
+	@Test
+	public void testStateHashIgnoresTrimming() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			buildTestChain(repository);
+
+			byte[] stateHash = repository.getChainStateHash();
+
+			// Nodes trim on their own schedules, but chain state should be the same
+			int height = repository.getBlockRepository().getBlockchainHeight();
+			repository.getBlockRepository().trimOldOnlineAccountsSignatures(1, height);
+
+			repository.getATRepository().prepareForAtStateTrimming();
+			repository.getATRepository().trimAtStates(1, height, Integer.MAX_VALUE);
+
+			assertArrayEquals(stateHash, repository.getChainStateHash());
+
+			repository.discardChanges();
+		}
+	}
+
+	/** Builds chain with an open asset order, returning checkpoint a couple of blocks below chain tip. */
+	private static Checkpoint buildTestChain(Repository repository) throws DataException {
+		AssetUtils.createOrder(repository, "alice", AssetUtils.goldAssetId, AssetUtils.otherAssetId,
+				10L * Amounts.MULTIPLIER, 2L * Amounts.MULTIPLIER);
+
+		BlockUtils.mintBlock(repository);
+
+		BlockData checkpointBlockData = repository.getBlockRepository().getLastBlock();
+		byte[] checkpointStateHash = repository.getChainStateHash();
+
+		// Blocks after checkpoint, including one that fills Alice's order, which export will need to orphan
+		AssetUtils.createOrder(repository, "bob", AssetUtils.otherAssetId, AssetUtils.goldAssetId,
+				20L * Amounts.MULTIPLIER, 1L * Amounts.MULTIPLIER);
+		BlockUtils.mintBlock(repository);
+
+		return new Checkpoint(checkpointBlockData.getHeight(), checkpointBlockData.getSignature(), checkpointStateHash);
+	}
+
+	private static void useEmptyRepository() throws DataException {
+		Common.closeRepository();
+		RepositoryManager.setRepositoryFactory(new HSQLDBRepositoryFactory(BOOTSTRAP_CONNECTION_URL));
+	}
+
+}
@@ -4,6 +4,7 @@ import static org.junit.Assert.*;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 
@@ -112,6 +113,31 @@ public class ChainWeightTests extends Common {
 		}
 	}
 
+	// Check that cached key distances match freshly calculated ones, regardless of minter level
+	@Test
+	public void testKeyDistanceCache() {
+		byte[] maxValue = new byte[Transformer.PUBLIC_KEY_LENGTH];
+		Arrays.fill(maxValue, (byte) 0xFF);
+		BigInteger maxDistance = new BigInteger(1, maxValue);
+
+		for (int i = 0; i < 100; ++i) {
+			int parentHeight = 1 + RANDOM.nextInt(1000000);
+
+			byte[] parentSignature = new byte[BlockTransformer.BLOCK_SIGNATURE_LENGTH];
+			RANDOM.nextBytes(parentSignature);
+
+			byte[] publicKey = new byte[Transformer.PUBLIC_KEY_LENGTH];
+			RANDOM.nextBytes(publicKey);
+
+			byte[] idealKey = Block.calcIdealMinterPublicKey(parentHeight, parentSignature);
+			byte[] perturbedKey = Block.calcHeightPerturbedPublicKey(parentHeight + 1, publicKey);
+			BigInteger distance = maxDistance.subtract(new BigInteger(idealKey).subtract(new BigInteger(perturbedKey)).abs());
+
+			for (int level = 1; level <= 10; ++level)
+				assertEquals(distance.divide(BigInteger.valueOf(level)), Block.calcKeyDistance(parentHeight, parentSignature, publicKey, level));
+		}
+	}
+
 	// Check that a higher level account wins more blocks
 	@Test
 	public void testMinterLevel() throws DataException {
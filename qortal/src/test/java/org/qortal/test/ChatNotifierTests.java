@@ -0,0 +1,209 @@
+package org.qortal.test;
+
+import static org.junit.Assert.*;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.controller.ChatNotifier;
+import org.qortal.data.transaction.BaseTransactionData;
+import org.qortal.data.transaction.ChatTransactionData;
+import org.qortal.group.Group;
+
+public class ChatNotifierTests {
+
+	private static final String ALICE = "QaliceAddressXXXXXXXXXXXXXXXXXXXXX";
+	private static final String BOB = "QbobAddressXXXXXXXXXXXXXXXXXXXXXXX";
+	private static final String CHLOE = "QchloeAddressXXXXXXXXXXXXXXXXXXXXX";
+
+	private static final int GROUP_ID = 2;
+	private static final int OTHER_GROUP_ID = 3;
+
+	private static final Random RANDOM = new Random();
+
+	private static class RecordingListener implements ChatNotifier.Listener {
+		private final List<ChatTransactionData> notifications = new ArrayList<>();
+
+		@Override
+		public void notify(ChatTransactionData chatTransactionData) {
+			this.notifications.add(chatTransactionData);
+		}
+	}
+
+	private final List<Session> sessions = new ArrayList<>();
+
+	@Before
+	public void beforeTest() {
+		assertEquals(0, ChatNotifier.getInstance().getSubscriptionCount());
+	}
+
+	@After
+	public void afterTest() {
+		// ChatNotifier is a singleton so don't leave subscriptions behind for other tests
+		for (Session session : this.sessions)
+			ChatNotifier.getInstance().deregister(session);
+
+		assertEquals(0, ChatNotifier.getInstance().getSubscriptionCount());
+	}
+
+	@Test
+	public void testGroupSubscription() {
+		RecordingListener listener = new RecordingListener();
+		ChatNotifier.getInstance().registerGroup(newSession(), GROUP_ID, listener);
+
+		ChatTransactionData groupChat = buildChat(ALICE, null, GROUP_ID);
+		ChatNotifier.getInstance().onNewChatTransaction(groupChat);
+
+		// Other groups, direct chat and group-membership changes aren't delivered
+		ChatNotifier.getInstance().onNewChatTransaction(buildChat(ALICE, null, OTHER_GROUP_ID));
+		ChatNotifier.getInstance().onNewChatTransaction(buildChat(ALICE, BOB, GROUP_ID));
+		ChatNotifier.getInstance().onGroupMembershipChange(Arrays.asList(ALICE, BOB));
+
+		assertEquals(Collections.singletonList(groupChat), listener.notifications);
+	}
+
+	@Test
+	public void testAddressPairSubscription() {
+		RecordingListener listener = new RecordingListener();
+		ChatNotifier.getInstance().registerAddressPair(newSession(), ALICE, BOB, listener);
+
+		ChatTransactionData aliceToBob = buildChat(ALICE, BOB, Group.NO_GROUP);
+		ChatTransactionData bobToAlice = buildChat(BOB, ALICE, Group.NO_GROUP);
+		ChatNotifier.getInstance().onNewChatTransaction(aliceToBob);
+		ChatNotifier.getInstance().onNewChatTransaction(bobToAlice);
+
+		// Chats with other parties, group chat and group-membership changes aren't delivered
+		ChatNotifier.getInstance().onNewChatTransaction(buildChat(ALICE, CHLOE, Group.NO_GROUP));
+		ChatNotifier.getInstance().onNewChatTransaction(buildChat(CHLOE, BOB, Group.NO_GROUP));
+		ChatNotifier.getInstance().onNewChatTransaction(buildChat(ALICE, null, Group.NO_GROUP));
+		ChatNotifier.getInstance().onGroupMembershipChange(Arrays.asList(ALICE, BOB));
+
+		assertEquals(Arrays.asList(aliceToBob, bobToAlice), listener.notifications);
+	}
+
+	@Test
+	public void testAddressSubscription() {
+		RecordingListener listener = new RecordingListener();
+		ChatNotifier.getInstance().registerAddress(newSession(), ALICE, listener);
+
+		ChatTransactionData fromAlice = buildChat(ALICE, BOB, Group.NO_GROUP);
+		ChatTransactionData toAlice = buildChat(CHLOE, ALICE, Group.NO_GROUP);
+		ChatTransactionData groupChat = buildChat(BOB, null, OTHER_GROUP_ID);
+		ChatNotifier.getInstance().onNewChatTransaction(fromAlice);
+		ChatNotifier.getInstance().onNewChatTransaction(toAlice);
+		ChatNotifier.getInstance().onNewChatTransaction(groupChat);
+
+		// Direct chat not involving Alice isn't delivered
+		ChatNotifier.getInstance().onNewChatTransaction(buildChat(BOB, CHLOE, Group.NO_GROUP));
+
+		assertEquals(Arrays.asList(fromAlice, toAlice, groupChat), listener.notifications);
+
+		// Group-membership changes are delivered, as null, only if they involve Alice
+		ChatNotifier.getInstance().onGroupMembershipChange(Arrays.asList(BOB, CHLOE));
+		assertEquals(3, listener.notifications.size());
+
+		ChatNotifier.getInstance().onGroupMembershipChange(Arrays.asList(BOB, ALICE));
+		assertEquals(4, listener.notifications.size());
+		assertNull(listener.notifications.get(3));
+	}
+
+	@Test
+	public void testOnlyMatchingSubscribersNotified() {
+		RecordingListener groupListener = new RecordingListener();
+		RecordingListener otherGroupListener = new RecordingListener();
+		RecordingListener pairListener = new RecordingListener();
+		RecordingListener otherPairListener = new RecordingListener();
+		RecordingListener bobListener = new RecordingListener();
+		RecordingListener chloeListener = new RecordingListener();
+
+		ChatNotifier.getInstance().registerGroup(newSession(), GROUP_ID, groupListener);
+		ChatNotifier.getInstance().registerGroup(newSession(), OTHER_GROUP_ID, otherGroupListener);
+		ChatNotifier.getInstance().registerAddressPair(newSession(), ALICE, BOB, pairListener);
+		ChatNotifier.getInstance().registerAddressPair(newSession(), ALICE, CHLOE, otherPairListener);
+		ChatNotifier.getInstance().registerAddress(newSession(), BOB, bobListener);
+		ChatNotifier.getInstance().registerAddress(newSession(), CHLOE, chloeListener);
+
+		ChatTransactionData directChat = buildChat(BOB, ALICE, Group.NO_GROUP);
+		ChatNotifier.getInstance().onNewChatTransaction(directChat);
+
+		assertTrue(groupListener.notifications.isEmpty());
+		assertTrue(otherGroupListener.notifications.isEmpty());
+		assertEquals(Collections.singletonList(directChat), pairListener.notifications);
+		assertTrue(otherPairListener.notifications.isEmpty());
+		assertEquals(Collections.singletonList(directChat), bobListener.notifications);
+		assertTrue(chloeListener.notifications.isEmpty());
+	}
+
+	@Test
+	public void testReregistrationAndDeregistration() {
+		Session session = newSession();
+		RecordingListener listener = new RecordingListener();
+
+		ChatNotifier.getInstance().registerGroup(session, GROUP_ID, listener);
+		assertEquals(1, ChatNotifier.getInstance().getSubscriptionCount());
+
+		// Re-registering same session replaces previous subscription
+		ChatNotifier.getInstance().registerAddressPair(session, ALICE, BOB, listener);
+		assertEquals(1, ChatNotifier.getInstance().getSubscriptionCount());
+
+		ChatNotifier.getInstance().onNewChatTransaction(buildChat(ALICE, null, GROUP_ID));
+		assertTrue(listener.notifications.isEmpty());
+
+		ChatTransactionData directChat = buildChat(ALICE, BOB, Group.NO_GROUP);
+		ChatNotifier.getInstance().onNewChatTransaction(directChat);
+		assertEquals(Collections.singletonList(directChat), listener.notifications);
+
+		// No more notifications after deregistration
+		ChatNotifier.getInstance().deregister(session);
+		assertEquals(0, ChatNotifier.getInstance().getSubscriptionCount());
+
+		ChatNotifier.getInstance().onNewChatTransaction(buildChat(ALICE, BOB, Group.NO_GROUP));
+		assertEquals(1, listener.notifications.size());
+
+		// Deregistering again is harmless
+		ChatNotifier.getInstance().deregister(session);
+	}
+
+	/** Returns stand-in websocket session, as ChatNotifier only uses sessions as keys. */
+	private Session newSession() {
+		Session session = (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[] { Session.class },
+				(proxy, method, args) -> {
+					switch (method.getName()) {
+						case "equals":
+							return proxy == args[0];
+
+						case "hashCode":
+							return System.identityHashCode(proxy);
+
+						case "toString":
+							return "test session " + System.identityHashCode(proxy);
+
+						default:
+							throw new UnsupportedOperationException(method.getName());
+					}
+				});
+
+		this.sessions.add(session);
+		return session;
+	}
+
+	private static ChatTransactionData buildChat(String sender, String recipient, int txGroupId) {
+		// Unique signature, as transaction data equality is based on signature
+		byte[] signature = new byte[64];
+		RANDOM.nextBytes(signature);
+
+		BaseTransactionData baseTransactionData = new BaseTransactionData(System.currentTimeMillis(), txGroupId, new byte[64],
+				new byte[32], 0L, signature);
+
+		return new ChatTransactionData(baseTransactionData, sender, 0, recipient, "hello".getBytes(), true, false);
+	}
+
+}
@@ -0,0 +1,147 @@
+package org.qortal.test;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.account.PrivateKeyAccount;
+import org.qortal.data.chat.ActiveChats;
+import org.qortal.data.chat.ActiveChats.DirectChat;
+import org.qortal.data.chat.ActiveChats.GroupChat;
+import org.qortal.data.chat.ChatMessage;
+import org.qortal.data.transaction.BaseTransactionData;
+import org.qortal.data.transaction.ChatTransactionData;
+import org.qortal.group.Group;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryManager;
+import org.qortal.test.common.Common;
+
+public class ChatTests extends Common {
+
+	@Before
+	public void beforeTest() throws DataException {
+		Common.useDefaultSettings();
+	}
+
+	@After
+	public void afterTest() throws DataException {
+		Common.orphanCheck();
+	}
+
+	@Test
+	public void testGroupChat() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount alice = Common.getTestAccount(repository, "alice");
+			PrivateKeyAccount bob = Common.getTestAccount(repository, "bob");
+
+			long timestamp = System.currentTimeMillis();
+
+			ChatTransactionData firstChat = saveChat(repository, alice, null, timestamp);
+			ChatTransactionData secondChat = saveChat(repository, bob, null, timestamp + 1000L);
+
+			List<ChatMessage> messages = repository.getChatRepository().getMessagesMatchingCriteria(null, null, Group.NO_GROUP, null, null, null, null);
+			assertEquals(2, messages.size());
+			assertArrayEquals(firstChat.getSignature(), messages.get(0).getSignature());
+			assertArrayEquals(secondChat.getSignature(), messages.get(1).getSignature());
+
+			assertLatestGroupChat(repository, alice.getAddress(), secondChat);
+
+			// Deleting latest message falls back to previous message
+			repository.getTransactionRepository().delete(secondChat);
+			assertLatestGroupChat(repository, alice.getAddress(), firstChat);
+
+			// No messages at all
+			repository.getTransactionRepository().delete(firstChat);
+			assertLatestGroupChat(repository, alice.getAddress(), null);
+
+			repository.discardChanges();
+		}
+	}
+
+	@Test
+	public void testDirectChat() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount alice = Common.getTestAccount(repository, "alice");
+			PrivateKeyAccount bob = Common.getTestAccount(repository, "bob");
+			PrivateKeyAccount chloe = Common.getTestAccount(repository, "chloe");
+
+			long timestamp = System.currentTimeMillis();
+
+			ChatTransactionData aliceToBob = saveChat(repository, alice, bob.getAddress(), timestamp);
+			ChatTransactionData bobToAlice = saveChat(repository, bob, alice.getAddress(), timestamp + 1000L);
+			ChatTransactionData chloeToAlice = saveChat(repository, chloe, alice.getAddress(), timestamp + 2000L);
+			// Group messages aren't direct messages
+			saveChat(repository, bob, null, timestamp + 3000L);
+
+			// Either way round
+			List<String> involving = Arrays.asList(bob.getAddress(), alice.getAddress());
+			List<ChatMessage> messages = repository.getChatRepository().getMessagesMatchingCriteria(null, null, null, involving, null, null, true);
+			assertEquals(2, messages.size());
+			assertArrayEquals(bobToAlice.getSignature(), messages.get(0).getSignature());
+			assertArrayEquals(aliceToBob.getSignature(), messages.get(1).getSignature());
+
+			List<DirectChat> aliceChats = repository.getChatRepository().getActiveChats(alice.getAddress()).getDirect();
+			assertEquals(2, aliceChats.size());
+			assertLatestDirectChat(aliceChats, bob.getAddress(), bobToAlice);
+			assertLatestDirectChat(aliceChats, chloe.getAddress(), chloeToAlice);
+
+			List<DirectChat> bobChats = repository.getChatRepository().getActiveChats(bob.getAddress()).getDirect();
+			assertEquals(1, bobChats.size());
+			assertLatestDirectChat(bobChats, alice.getAddress(), bobToAlice);
+
+			// Deleting latest message falls back to previous message, for both parties
+			repository.getTransactionRepository().delete(bobToAlice);
+			assertLatestDirectChat(repository.getChatRepository().getActiveChats(alice.getAddress()).getDirect(), bob.getAddress(), aliceToBob);
+			assertLatestDirectChat(repository.getChatRepository().getActiveChats(bob.getAddress()).getDirect(), alice.getAddress(), aliceToBob);
+
+			// No more messages between Alice and Chloe
+			repository.getTransactionRepository().delete(chloeToAlice);
+			assertEquals(0, repository.getChatRepository().getActiveChats(chloe.getAddress()).getDirect().size());
+			assertEquals(1, repository.getChatRepository().getActiveChats(alice.getAddress()).getDirect().size());
+
+			repository.discardChanges();
+		}
+	}
+
+	private static ChatTransactionData saveChat(Repository repository, PrivateKeyAccount sender, String recipient, long timestamp) throws DataException {
+		byte[] signature = new byte[64];
+		new Random().nextBytes(signature);
+
+		BaseTransactionData baseTransactionData = new BaseTransactionData(timestamp, Group.NO_GROUP, sender.getLastReference(),
+				sender.getPublicKey(), 0L, signature);
+		ChatTransactionData chatTransactionData = new ChatTransactionData(baseTransactionData, sender.getAddress(), 0, recipient,
+				"hello".getBytes(), true, false);
+
+		repository.getTransactionRepository().save(chatTransactionData);
+
+		return chatTransactionData;
+	}
+
+	private static void assertLatestGroupChat(Repository repository, String address, ChatTransactionData expectedChat) throws DataException {
+		ActiveChats activeChats = repository.getChatRepository().getActiveChats(address);
+
+		GroupChat groupChat = activeChats.getGroups().stream().filter(chat -> chat.getGroupId() == Group.NO_GROUP).findFirst().get();
+
+		if (expectedChat == null) {
+			assertNull(groupChat.getTimestamp());
+			return;
+		}
+
+		assertEquals(expectedChat.getTimestamp(), groupChat.getTimestamp().longValue());
+		assertEquals(expectedChat.getSender(), groupChat.getSender());
+	}
+
+	private static void assertLatestDirectChat(List<DirectChat> directChats, String otherAddress, ChatTransactionData expectedChat) {
+		DirectChat directChat = directChats.stream().filter(chat -> chat.getAddress().equals(otherAddress)).findFirst().get();
+
+		assertEquals(expectedChat.getTimestamp(), directChat.getTimestamp());
+		assertEquals(expectedChat.getSender(), directChat.getSender());
+	}
+
+}
@@ -0,0 +1,179 @@
+package org.qortal.test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.controller.ProcessingStats;
+import org.qortal.crypto.MemoryPoW;
+import org.qortal.network.HandshakePoWExecutor;
+import org.qortal.utils.TimingHistogram;
+
+public class HandshakePoWTests {
+
+	// Same as Handshake for peers running v1.3.1 or later
+	private static final int POW_BUFFER_SIZE = 2 * 1024 * 1024; // bytes
+	private static final int POW_DIFFICULTY = 2; // leading zero bits
+
+	private HandshakePoWExecutor powExecutor;
+
+	/** Simulates remote peer handshaking with us: we compute our RESPONSE, then verify theirs. */
+	private class SimulatedPeer {
+		private final String host;
+		private final byte[] data = new byte[32];
+		private final CountDownLatch doneLatch;
+
+		private volatile boolean isAccepted = true;
+		private volatile boolean isVerified = false;
+		private long startNanos;
+		private long finishNanos;
+
+		public SimulatedPeer(String host, Random random, CountDownLatch doneLatch) {
+			this.host = host;
+			random.nextBytes(this.data);
+			this.doneLatch = doneLatch;
+		}
+
+		public void connect() {
+			this.startNanos = System.nanoTime();
+
+			this.isAccepted = powExecutor.submit(this.host, "compute", () -> {
+				int nonce = MemoryPoW.compute2(this.data, POW_BUFFER_SIZE, POW_DIFFICULTY);
+
+				// Handshake continues with verification, like Network.onHandshakeVerified()
+				this.isAccepted = powExecutor.submit(this.host, "verify", () -> {
+					this.isVerified = MemoryPoW.verify2(this.data, POW_BUFFER_SIZE, POW_DIFFICULTY, nonce);
+					this.finishNanos = System.nanoTime();
+					this.doneLatch.countDown();
+				});
+
+				if (!this.isAccepted)
+					this.doneLatch.countDown();
+			});
+
+			if (!this.isAccepted)
+				this.doneLatch.countDown();
+		}
+
+		public long getLatencyMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(this.finishNanos - this.startNanos);
+		}
+	}
+
+	@Before
+	public void beforeTest() {
+		ProcessingStats.getInstance().reset();
+	}
+
+	@After
+	public void afterTest() {
+		if (this.powExecutor != null)
+			this.powExecutor.shutdown();
+	}
+
+	@Test
+	public void testHandshakeThroughput() throws InterruptedException {
+		final int peerCount = 32;
+		this.powExecutor = new HandshakePoWExecutor(2, peerCount * 2, 2);
+
+		Random random = new Random();
+		CountDownLatch doneLatch = new CountDownLatch(peerCount);
+
+		List<SimulatedPeer> peers = new ArrayList<>();
+		for (int i = 0; i < peerCount; ++i)
+			peers.add(new SimulatedPeer(String.format("192.0.2.%d", i + 1), random, doneLatch));
+
+		final long startNanos = System.nanoTime();
+
+		// Burst of inbound connections
+		for (SimulatedPeer peer : peers)
+			peer.connect();
+
+		assertTrue(doneLatch.await(60, TimeUnit.SECONDS));
+
+		final long elapsedMillis = Math.max(1L, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+
+		long totalLatency = 0;
+		long maxLatency = 0;
+		for (SimulatedPeer peer : peers) {
+			assertTrue(peer.isAccepted);
+			assertTrue(peer.isVerified);
+
+			totalLatency += peer.getLatencyMillis();
+			maxLatency = Math.max(maxLatency, peer.getLatencyMillis());
+		}
+
+		System.out.println(String.format("%d handshakes in %dms: %.1f handshakes/s, latency mean %dms, max %dms",
+				peerCount, elapsedMillis, peerCount * 1000.0 / elapsedMillis, totalLatency / peerCount, maxLatency));
+
+		HandshakePoWExecutor.StatsSnapshot snapshot = this.powExecutor.getStatsSnapshot();
+		assertEquals(peerCount * 2, snapshot.accepted);
+		assertEquals(0, snapshot.rejectedQueueFull + snapshot.rejectedHostLimit);
+
+		for (TimingHistogram.StatsSnapshot phaseSnapshot : ProcessingStats.getInstance().getStatsSnapshot().phases) {
+			if (!phaseSnapshot.name.startsWith("Handshake.PoW."))
+				continue;
+
+			System.out.println(String.format("%s: count %d, total %dms, max %dms",
+					phaseSnapshot.name, phaseSnapshot.count, phaseSnapshot.totalMillis, phaseSnapshot.maxMillis));
+		}
+	}
+
+	@Test
+	public void testAdmissionControl() throws InterruptedException {
+		// 2 threads, 3 waiting tasks, 2 pending tasks per host
+		this.powExecutor = new HandshakePoWExecutor(2, 3, 2);
+
+		CountDownLatch releaseLatch = new CountDownLatch(1);
+		AtomicInteger completedCount = new AtomicInteger();
+
+		Runnable blockedTask = () -> {
+			try {
+				releaseLatch.await();
+			} catch (InterruptedException e) {
+				return;
+			}
+
+			completedCount.incrementAndGet();
+		};
+
+		// Flooding host is limited
+		assertTrue(this.powExecutor.submit("192.0.2.1", "test", blockedTask));
+		assertTrue(this.powExecutor.submit("192.0.2.1", "test", blockedTask));
+		assertFalse(this.powExecutor.submit("192.0.2.1", "test", blockedTask));
+
+		// Other hosts can still handshake, until queue is full
+		assertTrue(this.powExecutor.submit("192.0.2.2", "test", blockedTask));
+		assertTrue(this.powExecutor.submit("192.0.2.3", "test", blockedTask));
+		assertTrue(this.powExecutor.submit("192.0.2.4", "test", blockedTask));
+		assertFalse(this.powExecutor.submit("192.0.2.5", "test", blockedTask));
+
+		HandshakePoWExecutor.StatsSnapshot snapshot = this.powExecutor.getStatsSnapshot();
+		assertEquals(5, snapshot.accepted);
+		assertEquals(1, snapshot.rejectedHostLimit);
+		assertEquals(1, snapshot.rejectedQueueFull);
+		assertEquals(3, snapshot.waiting);
+
+		releaseLatch.countDown();
+
+		long timeout = System.currentTimeMillis() + 10_000L;
+		while (this.powExecutor.getStatsSnapshot().completed < 5 && System.currentTimeMillis() < timeout)
+			Thread.sleep(10L);
+
+		assertEquals(5, completedCount.get());
+		assertEquals(5, this.powExecutor.getStatsSnapshot().completed);
+
+		// Limits are released once tasks complete
+		assertTrue(this.powExecutor.submit("192.0.2.1", "test", blockedTask));
+		assertTrue(this.powExecutor.submit("192.0.2.5", "test", blockedTask));
+	}
+
+}
@@ -109,4 +109,37 @@ public class MemoryPoWTests {
 		assertTrue(MemoryPoW.verify2(data, workBufferLength, difficulty, expectedNonce));
 	}
 
+	@Test
+	public void testKnownParallelCompute2() {
+		byte[] data = new byte[] { (byte) 0xaa, (byte) 0xbb, (byte) 0xcc };
+
+		// Multi-threaded search should still find lowest nonce
+		for (int threadCount = 1; threadCount <= 4; ++threadCount) {
+			int difficulty = 8;
+			int expectedNonce = 326;
+			int nonce = MemoryPoW.compute2(data, workBufferLength, difficulty, threadCount);
+			assertEquals(expectedNonce, nonce);
+
+			difficulty = 14;
+			expectedNonce = 11032;
+			nonce = MemoryPoW.compute2(data, workBufferLength, difficulty, threadCount);
+			assertEquals(expectedNonce, nonce);
+		}
+	}
+
+	@Test
+	public void testInvalidVerify() {
+		byte[] data = new byte[] { (byte) 0xaa, (byte) 0xbb, (byte) 0xcc };
+
+		int difficulty = 8;
+		// 326 is the lowest valid nonce, so lower nonces must fail
+		for (int nonce = 320; nonce < 326; ++nonce)
+			assertFalse(MemoryPoW.verify2(data, workBufferLength, difficulty, nonce));
+
+		// Different buffer size reuses pooled buffers, but must give independent results
+		assertTrue(MemoryPoW.verify2(data, workBufferLength, difficulty, 326));
+		MemoryPoW.verify2(data, workBufferLength / 4, difficulty, 326);
+		assertTrue(MemoryPoW.verify2(data, workBufferLength, difficulty, 326));
+	}
+
 }
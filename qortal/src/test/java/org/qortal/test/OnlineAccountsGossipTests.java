@@ -0,0 +1,303 @@
+package org.qortal.test;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.controller.Controller;
+import org.qortal.controller.RewardShareIndex;
+import org.qortal.data.network.IndexedOnlineAccountData;
+import org.qortal.data.network.OnlineAccountData;
+import org.qortal.network.message.GetOnlineAccountSignaturesMessage;
+import org.qortal.network.message.GetOnlineAccountsMessage;
+import org.qortal.network.message.Message;
+import org.qortal.network.message.Message.MessageException;
+import org.qortal.network.message.OnlineAccountIndexesMessage;
+import org.qortal.network.message.OnlineAccountSignaturesMessage;
+import org.qortal.network.message.OnlineAccountsMessage;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryManager;
+import org.qortal.test.common.Common;
+import org.qortal.utils.ByteArray;
+
+public class OnlineAccountsGossipTests extends Common {
+
+	private static final int REWARD_SHARE_COUNT = 500;
+	private static final int NODE_COUNT = 5;
+	private static final int MAX_ROUNDS = 5;
+
+	/** Simulated node, keeping latest online account per reward-share public key, like Controller. */
+	private static class SimulatedNode {
+		private final Map<ByteArray, OnlineAccountData> onlineAccounts = new HashMap<>();
+
+		public List<OnlineAccountData> getOnlineAccounts() {
+			return new ArrayList<>(this.onlineAccounts.values());
+		}
+
+		public void addAccount(OnlineAccountData onlineAccountData) {
+			ByteArray publicKey = ByteArray.of(onlineAccountData.getPublicKey());
+
+			OnlineAccountData existingAccountData = this.onlineAccounts.get(publicKey);
+			if (existingAccountData == null || existingAccountData.getTimestamp() < onlineAccountData.getTimestamp())
+				this.onlineAccounts.put(publicKey, onlineAccountData);
+		}
+	}
+
+	private long bytesSent;
+	private int messagesSent;
+
+	@Before
+	public void beforeTest() throws DataException {
+		Common.useDefaultSettings();
+
+		this.bytesSent = 0;
+		this.messagesSent = 0;
+	}
+
+	@After
+	public void afterTest() throws DataException {
+		Common.orphanCheck();
+	}
+
+	@Test
+	public void testRewardShareIndex() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			RewardShareIndex rewardShareIndex = RewardShareIndex.fromRepository(repository, null);
+			assertTrue(rewardShareIndex.size() > 0);
+
+			for (int index = 0; index < rewardShareIndex.size(); ++index) {
+				byte[] publicKey = rewardShareIndex.getPublicKey(index);
+
+				assertEquals(repository.getAccountRepository().getRewardShareIndex(publicKey), rewardShareIndex.getIndex(publicKey));
+				assertEquals(index, (int) rewardShareIndex.getIndex(publicKey));
+			}
+
+			assertNull(rewardShareIndex.getPublicKey(rewardShareIndex.size()));
+			assertNull(rewardShareIndex.getIndex(new byte[32]));
+
+			// Same reward-shares give same hash
+			RewardShareIndex otherRewardShareIndex = RewardShareIndex.fromRepository(repository, null);
+			assertArrayEquals(rewardShareIndex.getHash(), otherRewardShareIndex.getHash());
+		}
+	}
+
+	@Test
+	public void testSerialization() throws MessageException {
+		Random random = new Random();
+		RewardShareIndex rewardShareIndex = new RewardShareIndex(null, randomPublicKeys(random));
+		long timestamp = Controller.toOnlineAccountTimestamp(System.currentTimeMillis());
+
+		List<IndexedOnlineAccountData> onlineAccounts = new ArrayList<>();
+		for (int index = 0; index < REWARD_SHARE_COUNT; index += 1 + random.nextInt(4))
+			onlineAccounts.add(new IndexedOnlineAccountData(timestamp - (index % 2) * Controller.ONLINE_TIMESTAMP_MODULUS, index, randomSignature(random)));
+
+		OnlineAccountSignaturesMessage message = (OnlineAccountSignaturesMessage) this.transmit(new OnlineAccountSignaturesMessage(rewardShareIndex.getHash(), onlineAccounts));
+
+		assertArrayEquals(rewardShareIndex.getHash(), message.getRewardSharesHash());
+		assertEquals(onlineAccounts.size(), message.getOnlineAccounts().size());
+
+		Map<Integer, IndexedOnlineAccountData> receivedByIndex = new HashMap<>();
+		for (IndexedOnlineAccountData onlineAccountData : message.getOnlineAccounts())
+			receivedByIndex.put(onlineAccountData.getIndex(), onlineAccountData);
+
+		for (IndexedOnlineAccountData onlineAccountData : onlineAccounts) {
+			IndexedOnlineAccountData receivedAccountData = receivedByIndex.get(onlineAccountData.getIndex());
+
+			assertNotNull(receivedAccountData);
+			assertEquals(onlineAccountData.getTimestamp(), receivedAccountData.getTimestamp());
+			assertArrayEquals(onlineAccountData.getSignature(), receivedAccountData.getSignature());
+		}
+	}
+
+	@Test
+	public void testGossipSimulation() throws MessageException {
+		Random random = new Random();
+		List<byte[]> publicKeys = randomPublicKeys(random);
+		RewardShareIndex rewardShareIndex = new RewardShareIndex(null, publicKeys);
+
+		List<SimulatedNode> initialNodes = buildNodes(random, publicKeys);
+
+		// Legacy exchange
+		List<SimulatedNode> legacyNodes = copyNodes(initialNodes);
+		int legacyRounds = 0;
+		while (!isConverged(legacyNodes) && legacyRounds < MAX_ROUNDS) {
+			for (SimulatedNode node : legacyNodes)
+				for (SimulatedNode peer : legacyNodes)
+					if (peer != node)
+						this.legacyExchange(node, peer);
+
+			++legacyRounds;
+		}
+		assertTrue(isConverged(legacyNodes));
+
+		long legacyBytes = this.bytesSent;
+		int legacyMessages = this.messagesSent;
+		this.bytesSent = 0;
+		this.messagesSent = 0;
+
+		// Compact exchange, starting from same state
+		List<SimulatedNode> compactNodes = copyNodes(initialNodes);
+		int compactRounds = 0;
+		while (!isConverged(compactNodes) && compactRounds < MAX_ROUNDS) {
+			for (SimulatedNode node : compactNodes)
+				for (SimulatedNode peer : compactNodes)
+					if (peer != node)
+						this.compactExchange(rewardShareIndex, node, peer);
+
+			++compactRounds;
+		}
+		assertTrue(isConverged(compactNodes));
+
+		long compactBytes = this.bytesSent;
+		int compactMessages = this.messagesSent;
+
+		// Both exchanges end with same online accounts
+		assertEquals(legacyNodes.get(0).onlineAccounts.keySet(), compactNodes.get(0).onlineAccounts.keySet());
+		for (ByteArray publicKey : legacyNodes.get(0).onlineAccounts.keySet())
+			assertEquals(legacyNodes.get(0).onlineAccounts.get(publicKey), compactNodes.get(0).onlineAccounts.get(publicKey));
+
+		System.out.println(String.format("%d nodes, %d reward-shares, %d online accounts", NODE_COUNT, REWARD_SHARE_COUNT, legacyNodes.get(0).onlineAccounts.size()));
+		System.out.println(String.format("Legacy: %d rounds, %d messages, %d bytes", legacyRounds, legacyMessages, legacyBytes));
+		System.out.println(String.format("Compact: %d rounds, %d messages, %d bytes (%.1f%% of legacy)", compactRounds, compactMessages, compactBytes, compactBytes * 100.0 / legacyBytes));
+
+		assertTrue(compactBytes < legacyBytes / 2);
+	}
+
+	/** Node sends what it has, peer replies with what node lacks. */
+	private void legacyExchange(SimulatedNode node, SimulatedNode peer) throws MessageException {
+		GetOnlineAccountsMessage getMessage = (GetOnlineAccountsMessage) this.transmit(new GetOnlineAccountsMessage(node.getOnlineAccounts()));
+
+		Map<ByteArray, Long> excludeTimestamps = new HashMap<>();
+		for (OnlineAccountData excludeAccountData : getMessage.getOnlineAccounts())
+			excludeTimestamps.put(ByteArray.of(excludeAccountData.getPublicKey()), excludeAccountData.getTimestamp());
+
+		List<OnlineAccountData> accountsToSend = peer.getOnlineAccounts();
+		accountsToSend.removeIf(onlineAccountData -> {
+			Long excludeTimestamp = excludeTimestamps.get(ByteArray.of(onlineAccountData.getPublicKey()));
+			return excludeTimestamp != null && excludeTimestamp == onlineAccountData.getTimestamp();
+		});
+
+		OnlineAccountsMessage reply = (OnlineAccountsMessage) this.transmit(new OnlineAccountsMessage(accountsToSend));
+		for (OnlineAccountData onlineAccountData : reply.getOnlineAccounts())
+			node.addAccount(onlineAccountData);
+	}
+
+	/** Node announces indexes, peer requests signatures it lacks, node replies with signatures. */
+	private void compactExchange(RewardShareIndex rewardShareIndex, SimulatedNode node, SimulatedNode peer) throws MessageException {
+		OnlineAccountIndexesMessage indexesMessage = (OnlineAccountIndexesMessage) this.transmit(
+				new OnlineAccountIndexesMessage(rewardShareIndex.getHash(), rewardShareIndex.toIndexed(node.getOnlineAccounts(), false)));
+
+		assertArrayEquals(rewardShareIndex.getHash(), indexesMessage.getRewardSharesHash());
+
+		List<IndexedOnlineAccountData> missingOnlineAccounts = rewardShareIndex.getMissing(peer.getOnlineAccounts(), indexesMessage.getOnlineAccounts());
+		if (missingOnlineAccounts.isEmpty())
+			return;
+
+		GetOnlineAccountSignaturesMessage getMessage = (GetOnlineAccountSignaturesMessage) this.transmit(
+				new GetOnlineAccountSignaturesMessage(rewardShareIndex.getHash(), missingOnlineAccounts));
+
+		List<IndexedOnlineAccountData> accountsToSend = rewardShareIndex.getRequested(node.getOnlineAccounts(), getMessage.getOnlineAccounts());
+		assertEquals(missingOnlineAccounts.size(), accountsToSend.size());
+
+		for (int i = 0; i < accountsToSend.size(); i += OnlineAccountSignaturesMessage.MAX_ACCOUNT_COUNT) {
+			List<IndexedOnlineAccountData> batch = accountsToSend.subList(i, Math.min(accountsToSend.size(), i + OnlineAccountSignaturesMessage.MAX_ACCOUNT_COUNT));
+
+			OnlineAccountSignaturesMessage reply = (OnlineAccountSignaturesMessage) this.transmit(new OnlineAccountSignaturesMessage(rewardShareIndex.getHash(), batch));
+			for (IndexedOnlineAccountData indexedOnlineAccountData : reply.getOnlineAccounts())
+				peer.addAccount(rewardShareIndex.fromIndexed(indexedOnlineAccountData));
+		}
+	}
+
+	/** Serializes and deserializes message, like sending to a peer, counting bytes. */
+	private Message transmit(Message message) throws MessageException {
+		byte[] bytes = message.toBytes();
+
+		this.bytesSent += bytes.length;
+		++this.messagesSent;
+
+		Message receivedMessage = Message.fromByteBuffer(ByteBuffer.wrap(bytes).asReadOnlyBuffer());
+		assertNotNull(receivedMessage);
+		assertEquals(message.getType(), receivedMessage.getType());
+
+		return receivedMessage;
+	}
+
+	/** Each node knows a random subset of online accounts, some with current timestamp, some with previous. */
+	private static List<SimulatedNode> buildNodes(Random random, List<byte[]> publicKeys) {
+		List<SimulatedNode> nodes = new ArrayList<>();
+		for (int i = 0; i < NODE_COUNT; ++i)
+			nodes.add(new SimulatedNode());
+
+		long timestamp = Controller.toOnlineAccountTimestamp(System.currentTimeMillis());
+
+		for (byte[] publicKey : publicKeys) {
+			// 80% of reward-shares online
+			if (random.nextInt(100) >= 80)
+				continue;
+
+			OnlineAccountData previousAccountData = new OnlineAccountData(timestamp - Controller.ONLINE_TIMESTAMP_MODULUS, randomSignature(random), publicKey);
+			OnlineAccountData currentAccountData = new OnlineAccountData(timestamp, randomSignature(random), publicKey);
+
+			for (SimulatedNode node : nodes) {
+				int chance = random.nextInt(100);
+
+				if (chance < 50)
+					node.addAccount(currentAccountData);
+				else if (chance < 80)
+					node.addAccount(previousAccountData);
+			}
+		}
+
+		return nodes;
+	}
+
+	private static List<SimulatedNode> copyNodes(List<SimulatedNode> nodes) {
+		List<SimulatedNode> copiedNodes = new ArrayList<>();
+
+		for (SimulatedNode node : nodes) {
+			SimulatedNode copiedNode = new SimulatedNode();
+			copiedNode.onlineAccounts.putAll(node.onlineAccounts);
+			copiedNodes.add(copiedNode);
+		}
+
+		return copiedNodes;
+	}
+
+	private static boolean isConverged(List<SimulatedNode> nodes) {
+		Map<ByteArray, OnlineAccountData> firstOnlineAccounts = nodes.get(0).onlineAccounts;
+
+		for (SimulatedNode node : nodes)
+			if (!node.onlineAccounts.equals(firstOnlineAccounts))
+				return false;
+
+		return true;
+	}
+
+	private static List<byte[]> randomPublicKeys(Random random) {
+		List<byte[]> publicKeys = new ArrayList<>();
+
+		for (int i = 0; i < REWARD_SHARE_COUNT; ++i) {
+			byte[] publicKey = new byte[32];
+			random.nextBytes(publicKey);
+			publicKeys.add(publicKey);
+		}
+
+		return publicKeys;
+	}
+
+	private static byte[] randomSignature(Random random) {
+		byte[] signature = new byte[64];
+		random.nextBytes(signature);
+		return signature;
+	}
+
+}
@@ -0,0 +1,155 @@
+package org.qortal.test;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.network.MessagePriority;
+import org.qortal.network.PeerMessageQueue;
+import org.qortal.network.message.GetArbitraryDataMessage;
+import org.qortal.network.message.GetBlockMessage;
+import org.qortal.network.message.GetPeersMessage;
+import org.qortal.network.message.Message;
+import org.qortal.network.message.Message.MessageType;
+import org.qortal.network.message.PingMessage;
+import org.qortal.network.message.TransactionSignaturesMessage;
+
+public class PeerMessageQueueTests {
+
+	private static final long NOW = 1_600_000_000_000L;
+
+	private PeerMessageQueue.Stats stats;
+	private PeerMessageQueue messageQueue;
+
+	@Before
+	public void beforeTest() {
+		this.stats = new PeerMessageQueue.Stats();
+		this.messageQueue = new PeerMessageQueue(this.stats);
+	}
+
+	@Test
+	public void testPriorities() {
+		assertTrue(this.messageQueue.offer(new GetBlockMessage(new byte[64])));
+		assertTrue(this.messageQueue.offer(new TransactionSignaturesMessage(Collections.singletonList(new byte[64]))));
+		assertTrue(this.messageQueue.offer(new PingMessage()));
+
+		assertEquals(MessageType.PING, this.messageQueue.poll(MessagePriority.CONSENSUS, NOW).getType());
+		assertNull(this.messageQueue.poll(MessagePriority.CONSENSUS, NOW));
+
+		assertEquals(MessageType.TRANSACTION_SIGNATURES, this.messageQueue.poll(MessagePriority.NORMAL, NOW).getType());
+		assertEquals(MessageType.GET_BLOCK, this.messageQueue.poll(MessagePriority.BULK, NOW).getType());
+
+		assertTrue(this.messageQueue.isEmpty());
+	}
+
+	@Test
+	public void testRateLimit() {
+		MessagePriority.RateLimit rateLimit = MessagePriority.getRateLimit(MessageType.GET_PEERS);
+		final int messageCount = rateLimit.burst * 2;
+
+		for (int i = 0; i < messageCount; ++i)
+			assertTrue(this.messageQueue.offer(new GetPeersMessage()));
+
+		// Burst allowed
+		for (int i = 0; i < rateLimit.burst; ++i)
+			assertNotNull(this.messageQueue.poll(MessagePriority.BULK, NOW));
+
+		// Then deferred, but only counted once
+		assertNull(this.messageQueue.poll(MessagePriority.BULK, NOW));
+		assertNull(this.messageQueue.poll(MessagePriority.BULK, NOW + 1));
+		assertEquals(1, this.stats.getDeferred(MessageType.GET_PEERS));
+
+		// Consensus-critical messages aren't held up
+		this.messageQueue.offer(new PingMessage());
+		assertNotNull(this.messageQueue.poll(MessagePriority.CONSENSUS, NOW + 1));
+
+		// Tokens refill over time
+		long later = NOW + (long) (1500 / rateLimit.perSecond);
+		assertNotNull(this.messageQueue.poll(MessagePriority.BULK, later));
+		assertNull(this.messageQueue.poll(MessagePriority.BULK, later));
+		assertEquals(2, this.stats.getDeferred(MessageType.GET_PEERS));
+
+		// Bucket doesn't refill beyond burst
+		long muchLater = NOW + 1000L * 1000L;
+		int polledCount = 0;
+		while (this.messageQueue.poll(MessagePriority.BULK, muchLater) != null)
+			++polledCount;
+
+		assertEquals(messageCount - rateLimit.burst - 1, polledCount);
+		assertTrue(this.messageQueue.isEmpty());
+		assertEquals(0, this.stats.getDropped(MessageType.GET_PEERS));
+	}
+
+	@Test
+	public void testDeferredTypeDoesNotBlockOthers() {
+		MessagePriority.RateLimit rateLimit = MessagePriority.getRateLimit(MessageType.GET_PEERS);
+
+		// Use up GET_PEERS burst
+		for (int i = 0; i < rateLimit.burst; ++i) {
+			assertTrue(this.messageQueue.offer(new GetPeersMessage()));
+			assertNotNull(this.messageQueue.poll(MessagePriority.BULK, NOW));
+		}
+
+		// Deferred GET_PEERS messages now at head of BULK queue, with other types behind them
+		Message firstGetPeersMessage = new GetPeersMessage();
+		Message secondGetPeersMessage = new GetPeersMessage();
+		Message getBlockMessage = new GetBlockMessage(new byte[64]);
+		Message getArbitraryDataMessage = new GetArbitraryDataMessage(new byte[64]);
+
+		assertTrue(this.messageQueue.offer(firstGetPeersMessage));
+		assertTrue(this.messageQueue.offer(secondGetPeersMessage));
+		assertTrue(this.messageQueue.offer(getBlockMessage));
+		assertTrue(this.messageQueue.offer(getArbitraryDataMessage));
+
+		// Other types, which still have tokens, are dispatched in order
+		assertSame(getBlockMessage, this.messageQueue.poll(MessagePriority.BULK, NOW));
+		assertSame(getArbitraryDataMessage, this.messageQueue.poll(MessagePriority.BULK, NOW));
+		assertNull(this.messageQueue.poll(MessagePriority.BULK, NOW));
+
+		// Only first waiting GET_PEERS message counted as deferred, despite repeated polls
+		assertEquals(1, this.stats.getDeferred(MessageType.GET_PEERS));
+		assertEquals(0, this.stats.getDeferred(MessageType.GET_BLOCK));
+
+		// Deferred messages are dispatched in order once tokens refill
+		long later = NOW + (long) (1500 / rateLimit.perSecond);
+		assertSame(firstGetPeersMessage, this.messageQueue.poll(MessagePriority.BULK, later));
+		assertNull(this.messageQueue.poll(MessagePriority.BULK, later));
+		assertEquals(2, this.stats.getDeferred(MessageType.GET_PEERS));
+
+		long muchLater = later + (long) (1500 / rateLimit.perSecond);
+		assertSame(secondGetPeersMessage, this.messageQueue.poll(MessagePriority.BULK, muchLater));
+		assertTrue(this.messageQueue.isEmpty());
+	}
+
+	@Test
+	public void testFlood() {
+		final int floodCount = MessagePriority.BULK.maxQueueSize + 50;
+
+		for (int i = 0; i < floodCount; ++i)
+			this.messageQueue.offer(new GetArbitraryDataMessage(new byte[64]));
+
+		assertEquals(50, this.stats.getDropped(MessageType.GET_ARBITRARY_DATA));
+
+		// Other priorities still have room
+		Message pingMessage = new PingMessage();
+		assertTrue(this.messageQueue.offer(pingMessage));
+		assertSame(pingMessage, this.messageQueue.poll(MessagePriority.CONSENSUS, NOW));
+
+		// Only burst is dispatched straight away
+		int polledCount = 0;
+		while (this.messageQueue.poll(MessagePriority.BULK, NOW) != null)
+			++polledCount;
+
+		assertEquals(MessagePriority.getRateLimit(MessageType.GET_ARBITRARY_DATA).burst, polledCount);
+
+		// Only message types with non-zero counts
+		assertEquals(1, this.stats.getStatsSnapshot().size());
+		PeerMessageQueue.StatsSnapshot snapshot = this.stats.getStatsSnapshot().get(0);
+		assertEquals(MessageType.GET_ARBITRARY_DATA, snapshot.messageType);
+		assertEquals(50, snapshot.dropped);
+		assertEquals(1, snapshot.deferred);
+	}
+
+}
@@ -0,0 +1,190 @@
+package org.qortal.test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.data.network.PeerData;
+import org.qortal.network.PeerAddress;
+import org.qortal.network.PeerStore;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryManager;
+import org.qortal.test.common.Common;
+
+public class PeerStoreTests extends Common {
+
+	private static final long NOW = 1_600_000_000_000L;
+	private static final long HOUR = 60 * 60 * 1000L;
+
+	@Before
+	public void beforeTest() throws DataException {
+		Common.useDefaultSettings();
+	}
+
+	@After
+	public void afterTest() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			repository.getNetworkRepository().deleteAllPeers();
+			repository.saveChanges();
+		}
+	}
+
+	@Test
+	public void testDuplicates() {
+		PeerStore peerStore = new PeerStore();
+
+		List<PeerData> newPeers = peerStore.addNewPeers(addresses("node1.example.com:9084", "NODE1.example.com:9084", "node1.example.com:9085"), NOW, "test");
+		assertEquals(2, newPeers.size());
+
+		// Already known, ignoring case
+		newPeers = peerStore.addNewPeers(addresses("Node1.Example.com:9084", "node2.example.com:9084"), NOW, "test");
+		assertEquals(1, newPeers.size());
+		assertEquals(PeerAddress.fromString("node2.example.com:9084"), newPeers.get(0).getAddress());
+
+		assertEquals(3, peerStore.size());
+		assertTrue(peerStore.contains(PeerAddress.fromString("node1.EXAMPLE.com:9084")));
+	}
+
+	@Test
+	public void testIndexes() {
+		PeerStore peerStore = new PeerStore();
+		List<PeerData> peers = peerStore.addNewPeers(addresses("192.0.2.1", "192.0.2.2", "192.0.2.3", "192.0.2.4"), NOW, "test");
+
+		PeerData neverAttempted = peers.get(0);
+		PeerData failedRecently = peers.get(1);
+		PeerData connectedRecently = peers.get(2);
+		PeerData failedLongAgo = peers.get(3);
+
+		peerStore.update(failedRecently, peerData -> peerData.setLastAttempted(NOW - 1000L));
+		peerStore.update(connectedRecently, peerData -> {
+			peerData.setLastAttempted(NOW - 2000L);
+			peerData.setLastConnected(NOW - 1000L);
+		});
+		peerStore.update(failedLongAgo, peerData -> {
+			peerData.setLastConnected(NOW - 10 * 24 * HOUR);
+			peerData.setLastAttempted(NOW - 2 * HOUR);
+		});
+
+		// Peers backing off after recent failure aren't connectable
+		List<PeerData> connectablePeers = peerStore.getConnectablePeers(NOW - HOUR);
+		assertEquals(3, connectablePeers.size());
+		assertTrue(connectablePeers.containsAll(Arrays.asList(neverAttempted, connectedRecently, failedLongAgo)));
+
+		// Backoff expires
+		assertEquals(4, peerStore.getConnectablePeers(NOW).size());
+
+		List<PeerData> recentPeers = peerStore.getRecentlyConnectedPeers(NOW - 24 * HOUR);
+		assertEquals(Collections.singletonList(connectedRecently), recentPeers);
+
+		List<PeerData> oldPeers = peerStore.getOldPeers(NOW - 24 * HOUR, NOW - 7 * 24 * HOUR);
+		assertEquals(Collections.singletonList(failedLongAgo), oldPeers);
+
+		// Updates are reflected in indexes
+		peerStore.update(failedRecently, peerData -> peerData.setLastConnected(NOW - 500L));
+		assertEquals(2, peerStore.getRecentlyConnectedPeers(NOW - 24 * HOUR).size());
+		assertEquals(4, peerStore.getConnectablePeers(NOW - HOUR).size());
+
+		assertTrue(peerStore.remove(failedLongAgo.getAddress()));
+		assertFalse(peerStore.remove(failedLongAgo.getAddress()));
+		assertTrue(peerStore.getOldPeers(NOW - 24 * HOUR, NOW - 7 * 24 * HOUR).isEmpty());
+		assertEquals(3, peerStore.getConnectablePeers(NOW).size());
+
+		// Peer data not held by store, e.g. inbound peer, is updated but not indexed
+		PeerData inboundPeer = new PeerData(PeerAddress.fromString("192.0.2.5:12345"));
+		assertFalse(peerStore.update(inboundPeer, peerData -> peerData.setLastConnected(NOW)));
+		assertEquals(NOW, inboundPeer.getLastConnected().longValue());
+		assertEquals(3, peerStore.size());
+	}
+
+	@Test
+	public void testScoring() {
+		PeerStore peerStore = new PeerStore();
+		List<PeerData> peers = peerStore.addNewPeers(addresses("192.0.2.1", "192.0.2.2", "192.0.2.3"), NOW, "test");
+
+		PeerAddress reliablePeer = peers.get(0).getAddress();
+		PeerAddress unreliablePeer = peers.get(1).getAddress();
+		PeerAddress slowPeer = peers.get(2).getAddress();
+
+		for (int i = 0; i < 10; ++i) {
+			peerStore.recordSuccess(reliablePeer);
+			peerStore.recordFailure(unreliablePeer);
+			peerStore.recordSuccess(slowPeer);
+		}
+
+		peerStore.recordLatency(reliablePeer, 50L);
+		peerStore.recordLatency(slowPeer, 5000L);
+
+		assertTrue(peerStore.getScore(reliablePeer) > peerStore.getScore(slowPeer));
+		assertTrue(peerStore.getScore(reliablePeer) > peerStore.getScore(unreliablePeer));
+		assertEquals(0.0, peerStore.getScore(PeerAddress.fromString("192.0.2.99")), 0.0);
+
+		// Better scoring peer is chosen more often
+		Random random = new Random();
+		int reliableCount = 0;
+		int unreliableCount = 0;
+		for (int i = 0; i < 1000; ++i) {
+			PeerAddress chosenPeer = peerStore.pickPeer(peers, random).getAddress();
+
+			if (chosenPeer.equals(reliablePeer))
+				++reliableCount;
+			else if (chosenPeer.equals(unreliablePeer))
+				++unreliableCount;
+		}
+		assertTrue(reliableCount > unreliableCount);
+
+		assertNull(peerStore.pickPeer(Collections.emptyList(), random));
+	}
+
+	@Test
+	public void testBatchedSaves() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			repository.getNetworkRepository().deleteAllPeers();
+			repository.saveChanges();
+
+			PeerStore peerStore = new PeerStore();
+			List<PeerData> peers = peerStore.addNewPeers(addresses("192.0.2.1", "192.0.2.2", "192.0.2.3"), NOW, "test");
+			peerStore.update(peers.get(0), peerData -> peerData.setLastAttempted(NOW));
+
+			// Nothing written until saved
+			assertTrue(peerStore.hasUnsavedChanges());
+			assertTrue(repository.getNetworkRepository().getAllPeers().isEmpty());
+
+			peerStore.saveChanges(repository);
+			assertFalse(peerStore.hasUnsavedChanges());
+			assertEquals(3, repository.getNetworkRepository().getAllPeers().size());
+
+			// Updates and removals are written together
+			peerStore.update(peers.get(1), peerData -> peerData.setLastConnected(NOW));
+			peerStore.remove(peers.get(2).getAddress());
+			peerStore.saveChanges(repository);
+
+			List<PeerData> savedPeers = repository.getNetworkRepository().getAllPeers();
+			assertEquals(2, savedPeers.size());
+
+			PeerStore reloadedPeerStore = new PeerStore();
+			reloadedPeerStore.load(savedPeers);
+			assertFalse(reloadedPeerStore.hasUnsavedChanges());
+			assertEquals(NOW, reloadedPeerStore.get(peers.get(0).getAddress()).getLastAttempted().longValue());
+			assertEquals(NOW, reloadedPeerStore.get(peers.get(1).getAddress()).getLastConnected().longValue());
+			assertFalse(reloadedPeerStore.contains(peers.get(2).getAddress()));
+		}
+	}
+
+	private static List<PeerAddress> addresses(String... addressStrings) {
+		List<PeerAddress> peerAddresses = new ArrayList<>();
+
+		for (String addressString : addressStrings)
+			peerAddresses.add(PeerAddress.fromString(addressString));
+
+		return peerAddresses;
+	}
+
+}
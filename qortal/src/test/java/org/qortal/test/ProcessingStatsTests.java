@@ -0,0 +1,83 @@
+package org.qortal.test;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.controller.ProcessingStats;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryManager;
+import org.qortal.test.common.BlockUtils;
+import org.qortal.test.common.Common;
+import org.qortal.utils.TimingHistogram;
+
+public class ProcessingStatsTests extends Common {
+
+	@Before
+	public void beforeTest() throws DataException {
+		Common.useDefaultSettings();
+		ProcessingStats.getInstance().reset();
+	}
+
+	@After
+	public void afterTest() throws DataException {
+		Common.orphanCheck();
+	}
+
+	@Test
+	public void testHistogramBuckets() {
+		TimingHistogram histogram = new TimingHistogram();
+
+		histogram.recordMillis(0L);
+		histogram.recordMillis(1L);
+		histogram.recordMillis(3L);
+		histogram.recordMillis(3L);
+		histogram.recordMillis(1000L * 1000L);
+
+		TimingHistogram.StatsSnapshot snapshot = histogram.getStatsSnapshot("test");
+		assertEquals(5, snapshot.count);
+		assertEquals(1000L * 1000L + 7L, snapshot.totalMillis);
+		assertEquals(1000L * 1000L, snapshot.maxMillis);
+
+		// Only non-empty buckets
+		assertEquals(4, snapshot.buckets.size());
+		assertBucket(snapshot.buckets.get(0), 1L, 1);
+		assertBucket(snapshot.buckets.get(1), 2L, 1);
+		assertBucket(snapshot.buckets.get(2), 4L, 2);
+		// Open-ended final bucket
+		assertBucket(snapshot.buckets.get(3), null, 1);
+	}
+
+	@Test
+	public void testBlockPhases() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			BlockUtils.mintBlock(repository);
+			BlockUtils.orphanLastBlock(repository);
+		}
+
+		List<TimingHistogram.StatsSnapshot> phases = ProcessingStats.getInstance().getStatsSnapshot().phases;
+
+		assertPhaseCount(phases, "Block.isValid", 1);
+		assertPhaseCount(phases, "Block.process", 1);
+		assertPhaseCount(phases, "Block.process.transactions", 1);
+		assertPhaseCount(phases, "Block.orphan", 1);
+		assertPhaseCount(phases, "Block.orphan.transactions", 1);
+	}
+
+	private static void assertBucket(TimingHistogram.Bucket bucket, Long expectedLessThanMillis, long expectedCount) {
+		assertEquals(expectedLessThanMillis, bucket.lessThanMillis);
+		assertEquals(expectedCount, bucket.count);
+	}
+
+	private static void assertPhaseCount(List<TimingHistogram.StatsSnapshot> phases, String phaseName, long expectedCount) {
+		TimingHistogram.StatsSnapshot phase = phases.stream().filter(p -> p.name.equals(phaseName)).findFirst().orElse(null);
+
+		assertNotNull(String.format("Missing timings for phase %s", phaseName), phase);
+		assertEquals(expectedCount, phase.count);
+	}
+
+}
@@ -0,0 +1,173 @@
+package org.qortal.test;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.block.Block;
+import org.qortal.data.block.BlockData;
+import org.qortal.network.message.BlockMessage;
+import org.qortal.network.message.Message;
+import org.qortal.network.message.Message.MessageException;
+import org.qortal.repository.DataException;
+import org.qortal.repository.RawBlockStore;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryManager;
+import org.qortal.test.common.BlockUtils;
+import org.qortal.test.common.Common;
+import org.qortal.transform.TransformationException;
+import org.qortal.transform.block.BlockTransformer;
+
+public class RawBlockStoreTests extends Common {
+
+	private Path storePath;
+
+	@Before
+	public void beforeTest() throws DataException, IOException {
+		Common.useDefaultSettings();
+
+		this.storePath = Files.createTempDirectory("qortal-blockstore");
+	}
+
+	@After
+	public void afterTest() throws IOException {
+		try (Stream<Path> paths = Files.walk(this.storePath)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	@Test
+	public void testAppendAndFetch() throws DataException, TransformationException {
+		try (final Repository repository = RepositoryManager.getRepository();
+				final RawBlockStore rawBlockStore = new RawBlockStore(this.storePath)) {
+			BlockUtils.mintBlock(repository);
+			BlockUtils.mintBlock(repository);
+
+			assertEquals(3, rawBlockStore.rebuild(repository, 1));
+			assertEquals(3, rawBlockStore.getHeight());
+
+			for (int height = 1; height <= 3; ++height) {
+				BlockData blockData = repository.getBlockRepository().fromHeight(height);
+				byte[] expectedBytes = BlockTransformer.toBytes(new Block(repository, blockData));
+
+				assertArrayEquals(expectedBytes, rawBlockStore.fetch(height, blockData.getSignature()));
+			}
+
+			// Wrong signature for height
+			byte[] otherSignature = repository.getBlockRepository().fromHeight(2).getSignature();
+			assertNull(rawBlockStore.fetch(3, otherSignature));
+
+			// Beyond store
+			assertNull(rawBlockStore.fetch(4, otherSignature));
+
+			// Gaps not allowed
+			assertFalse(rawBlockStore.append(5, otherSignature, new byte[10]));
+			assertEquals(3, rawBlockStore.getHeight());
+		}
+	}
+
+	@Test
+	public void testOrphanAndReplace() throws DataException, TransformationException {
+		try (final Repository repository = RepositoryManager.getRepository();
+				final RawBlockStore rawBlockStore = new RawBlockStore(this.storePath)) {
+			BlockUtils.mintBlock(repository);
+			BlockUtils.mintBlock(repository);
+			rawBlockStore.rebuild(repository, 1);
+
+			byte[] orphanedSignature = repository.getBlockRepository().getLastBlock().getSignature();
+
+			BlockUtils.orphanLastBlock(repository);
+			rawBlockStore.truncate(repository.getBlockRepository().getBlockchainHeight());
+			assertEquals(2, rawBlockStore.getHeight());
+			assertNull(rawBlockStore.fetch(3, orphanedSignature));
+
+			// Replacement block
+			Block newBlock = BlockUtils.mintBlock(repository);
+			assertTrue(rawBlockStore.append(3, newBlock.getSignature(), BlockTransformer.toBytes(newBlock)));
+
+			assertNull(rawBlockStore.check(repository, true));
+		}
+	}
+
+	@Test
+	public void testReopenAndReconcile() throws DataException, IOException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			BlockUtils.mintBlock(repository);
+			BlockUtils.mintBlock(repository);
+
+			try (final RawBlockStore rawBlockStore = new RawBlockStore(this.storePath)) {
+				rawBlockStore.rebuild(repository, 1);
+			}
+
+			// Store now ahead of repository, e.g. crash before commit
+			BlockUtils.orphanLastBlock(repository);
+
+			try (final RawBlockStore rawBlockStore = new RawBlockStore(this.storePath)) {
+				assertEquals(3, rawBlockStore.getHeight());
+				assertEquals(Integer.valueOf(3), rawBlockStore.check(repository, false));
+
+				rawBlockStore.reconcile(repository);
+				assertEquals(2, rawBlockStore.getHeight());
+				assertNull(rawBlockStore.check(repository, true));
+			}
+
+			// Partially written last block, e.g. crash during append
+			try (RandomAccessFile dataFile = new RandomAccessFile(this.storePath.resolve("blocks.dat").toFile(), "rw")) {
+				dataFile.setLength(dataFile.length() - 1);
+			}
+
+			try (final RawBlockStore rawBlockStore = new RawBlockStore(this.storePath)) {
+				assertEquals(1, rawBlockStore.getHeight());
+
+				assertEquals(1, rawBlockStore.rebuild(repository, 10));
+				assertNull(rawBlockStore.check(repository, true));
+			}
+		}
+	}
+
+	@Test
+	public void testCheckAfterTrimming() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository();
+				final RawBlockStore rawBlockStore = new RawBlockStore(this.storePath)) {
+			BlockUtils.mintBlock(repository);
+			BlockUtils.mintBlock(repository);
+			rawBlockStore.rebuild(repository, 1);
+
+			final int height = repository.getBlockRepository().getBlockchainHeight();
+			assertNotNull(repository.getBlockRepository().fromHeight(height).getOnlineAccountsSignatures());
+
+			// Repository trims online accounts signatures, but store still has them
+			assertTrue(repository.getBlockRepository().trimOldOnlineAccountsSignatures(1, height) > 0);
+			repository.saveChanges();
+			assertNull(repository.getBlockRepository().fromHeight(height).getOnlineAccountsSignatures());
+
+			assertNull(rawBlockStore.check(repository, true));
+		}
+	}
+
+	@Test
+	public void testBlockMessageFromStore() throws DataException, MessageException, TransformationException {
+		try (final Repository repository = RepositoryManager.getRepository();
+				final RawBlockStore rawBlockStore = new RawBlockStore(this.storePath)) {
+			Block block = BlockUtils.mintBlock(repository);
+			rawBlockStore.rebuild(repository, 1);
+
+			BlockData blockData = block.getBlockData();
+			byte[] blockBytes = rawBlockStore.fetch(blockData.getHeight(), blockData.getSignature());
+
+			Message rawBlockMessage = new BlockMessage(blockData.getHeight(), blockBytes);
+			Message blockMessage = new BlockMessage(new Block(repository, blockData));
+
+			assertArrayEquals(blockMessage.toBytes(), rawBlockMessage.toBytes());
+		}
+	}
+
+}
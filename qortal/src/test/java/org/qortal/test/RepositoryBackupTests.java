@@ -0,0 +1,71 @@
+package org.qortal.test;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.api.model.BackupStatus;
+import org.qortal.controller.RepositoryBackup;
+import org.qortal.repository.DataException;
+import org.qortal.test.common.Common;
+
+public class RepositoryBackupTests extends Common {
+
+	@Before
+	public void beforeTest() throws DataException {
+		Common.useDefaultSettings();
+	}
+
+	@Test
+	public void testBackupStatus() throws InterruptedException {
+		long beforeTimestamp = System.currentTimeMillis();
+
+		assertTrue(RepositoryBackup.getInstance().backupAndWait(true));
+
+		BackupStatus status = RepositoryBackup.getInstance().getStatus();
+		assertFalse(status.isRunning);
+		assertNull(status.phase);
+		assertNull(status.lastError);
+		assertNotNull(status.lastSuccessTimestamp);
+		assertTrue(status.lastSuccessTimestamp >= beforeTimestamp);
+		assertNotNull(status.lastDuration);
+	}
+
+	@Test
+	public void testConcurrentBackups() throws InterruptedException, ExecutionException {
+		final int threadCount = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+
+		try {
+			List<Future<Boolean>> results = new ArrayList<>();
+
+			// Mix of requested backups, which give up if one is in progress, and waited-for backups, which queue
+			for (int i = 0; i < threadCount; ++i)
+				if (i % 2 == 0)
+					results.add(executor.submit(() -> RepositoryBackup.getInstance().backupAndWait(true)));
+				else
+					executor.submit(() -> RepositoryBackup.getInstance().requestBackup(true));
+
+			// Every waited-for backup should have run, and succeeded
+			for (Future<Boolean> result : results)
+				assertTrue(result.get());
+		} finally {
+			executor.shutdown();
+			executor.awaitTermination(10L, TimeUnit.SECONDS);
+		}
+
+		// Requested backups might still be running, but must finish and release guard
+		assertTrue(RepositoryBackup.getInstance().backupAndWait(true));
+		assertFalse(RepositoryBackup.getInstance().getStatus().isRunning);
+		assertNull(RepositoryBackup.getInstance().getStatus().lastError);
+	}
+
+}
@@ -0,0 +1,112 @@
+package org.qortal.test;
+
+import static org.junit.Assert.*;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.account.PrivateKeyAccount;
+import org.qortal.data.transaction.TransactionData;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryManager;
+import org.qortal.repository.hsqldb.transaction.HSQLDBTransactionRepository;
+import org.qortal.test.common.Common;
+import org.qortal.test.common.TransactionUtils;
+import org.qortal.transaction.Transaction;
+import org.qortal.transaction.Transaction.TransactionType;
+import org.qortal.utils.Base58;
+
+/** Checks every transaction type is registered with both transaction factory and HSQLDB repository. */
+public class TransactionFactoryTests extends Common {
+
+	/** Transaction types that are deliberately unsupported */
+	private static final Set<TransactionType> UNSUPPORTED_TYPES = EnumSet.of(TransactionType.AIRDROP, TransactionType.ENABLE_FORGING);
+
+	/** Supported transaction types that have no random test transaction generator */
+	private static final Set<TransactionType> NO_TEST_TRANSACTION_TYPES = EnumSet.of(TransactionType.CHAT, TransactionType.PUBLICIZE, TransactionType.PRESENCE);
+
+	@Before
+	public void beforeTest() throws DataException {
+		Common.useDefaultSettings();
+	}
+
+	@Test
+	public void testEveryTypeRegistered() {
+		for (TransactionType txType : TransactionType.values()) {
+			if (UNSUPPORTED_TYPES.contains(txType)) {
+				assertNull(String.format("%s should have no transaction factory", txType.name()), txType.factory);
+				assertFalse(String.format("%s should have no HSQLDB repository", txType.name()), HSQLDBTransactionRepository.isSupported(txType));
+				continue;
+			}
+
+			assertNotNull(String.format("%s has no transaction factory", txType.name()), txType.factory);
+			assertTrue(String.format("%s has no HSQLDB repository", txType.name()), HSQLDBTransactionRepository.isSupported(txType));
+		}
+	}
+
+	@Test
+	public void testTransactionValuesContiguous() {
+		TransactionType[] txTypes = TransactionType.values();
+
+		for (int i = 0; i < txTypes.length; ++i)
+			assertEquals(txTypes[i], TransactionType.valueOf(i + 1));
+	}
+
+	@Test
+	public void testFactoryAndRepositoryRoundTrip() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount signingAccount = Common.getTestAccount(repository, "alice");
+
+			for (TransactionType txType : TransactionType.values()) {
+				if (UNSUPPORTED_TYPES.contains(txType) || NO_TEST_TRANSACTION_TYPES.contains(txType))
+					continue;
+
+				TransactionData transactionData = TransactionUtils.randomTransaction(repository, signingAccount, txType, true);
+
+				Transaction transaction = Transaction.fromData(repository, transactionData);
+				assertEquals(String.format("Wrong subclass for %s", txType.name()), txType.className + "Transaction", transaction.getClass().getSimpleName());
+
+				transaction.sign(signingAccount);
+
+				repository.getTransactionRepository().save(transactionData);
+
+				TransactionData fetchedTransactionData = repository.getTransactionRepository().fromSignature(transactionData.getSignature());
+				assertNotNull(String.format("Couldn't fetch %s transaction", txType.name()), fetchedTransactionData);
+				assertEquals(txType, fetchedTransactionData.getType());
+				assertEquals(transactionData.getClass(), fetchedTransactionData.getClass());
+				assertEquals(Base58.encode(transactionData.getSignature()), Base58.encode(fetchedTransactionData.getSignature()));
+
+				repository.getTransactionRepository().delete(transactionData);
+				assertFalse(String.format("%s transaction not deleted", txType.name()), repository.getTransactionRepository().exists(transactionData.getSignature()));
+			}
+
+			repository.discardChanges();
+		}
+	}
+
+	@Test
+	public void testUnsupportedTypes() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			for (TransactionType txType : UNSUPPORTED_TYPES) {
+				TransactionData unsupportedTransactionData = new UnsupportedTransactionData(txType);
+
+				try {
+					Transaction.fromData(repository, unsupportedTransactionData);
+					fail(String.format("%s transaction shouldn't be buildable", txType.name()));
+				} catch (IllegalStateException e) {
+					// Expected
+				}
+			}
+		}
+	}
+
+	private static class UnsupportedTransactionData extends TransactionData {
+		UnsupportedTransactionData(TransactionType txType) {
+			super(txType);
+		}
+	}
+
+}
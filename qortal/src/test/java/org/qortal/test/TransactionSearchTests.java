@@ -2,11 +2,14 @@ package org.qortal.test;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.qortal.account.PrivateKeyAccount;
+import org.qortal.api.resource.TransactionsResource.ConfirmationStatus;
 import org.qortal.repository.DataException;
 import org.qortal.repository.Repository;
 import org.qortal.repository.RepositoryManager;
@@ -14,6 +17,7 @@ import org.qortal.test.common.AccountUtils;
 import org.qortal.test.common.BlockUtils;
 import org.qortal.test.common.Common;
 import org.qortal.transaction.Transaction.TransactionType;
+import org.qortal.utils.Base58;
 
 public class TransactionSearchTests extends Common {
 
@@ -73,4 +77,60 @@ public class TransactionSearchTests extends Common {
 
 	}
 
+	@Test
+	public void testKeysetPagination() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount alice = Common.getTestAccount(repository, "alice");
+			PrivateKeyAccount bob = Common.getTestAccount(repository, "bob");
+
+			for (int i = 0; i < 3; ++i) {
+				AccountUtils.pay(repository, alice, bob.getAddress(), 1234L);
+				AccountUtils.pay(repository, bob, alice.getAddress(), 5678L);
+			}
+
+			// Alice is both sender and recipient, but should only appear once
+			AccountUtils.pay(repository, alice, alice.getAddress(), 1000L);
+
+			List<TransactionType> paymentType = List.of(TransactionType.PAYMENT);
+
+			for (Boolean reverse : new Boolean[] { null, true }) {
+				// By participant, which includes genesis transactions with identical timestamps
+				List<byte[]> allSignatures = repository.getTransactionRepository().getSignaturesMatchingCriteria(null, null, null,
+						null, null, alice.getAddress(), ConfirmationStatus.BOTH, null, null, reverse);
+				assertNoDuplicates(allSignatures);
+				assertEquals(encode(allSignatures), encode(fetchAllPages(repository, null, alice.getAddress(), reverse)));
+
+				// By type
+				allSignatures = repository.getTransactionRepository().getSignaturesMatchingCriteria(null, null, null,
+						paymentType, null, null, ConfirmationStatus.BOTH, null, null, reverse);
+				assertEquals(7, allSignatures.size());
+				assertEquals(encode(allSignatures), encode(fetchAllPages(repository, paymentType, null, reverse)));
+			}
+		}
+	}
+
+	private static List<byte[]> fetchAllPages(Repository repository, List<TransactionType> txTypes, String address, Boolean reverse) throws DataException {
+		List<byte[]> signatures = new ArrayList<>();
+		byte[] afterSignature = null;
+
+		while (true) {
+			List<byte[]> page = repository.getTransactionRepository().getSignaturesMatchingCriteria(null, null, null,
+					txTypes, null, address, ConfirmationStatus.BOTH, afterSignature, 2, null, reverse);
+
+			if (page.isEmpty())
+				return signatures;
+
+			signatures.addAll(page);
+			afterSignature = page.get(page.size() - 1);
+		}
+	}
+
+	private static void assertNoDuplicates(List<byte[]> signatures) {
+		assertEquals(signatures.size(), encode(signatures).stream().distinct().count());
+	}
+
+	private static List<String> encode(List<byte[]> signatures) {
+		return signatures.stream().map(Base58::encode).collect(Collectors.toList());
+	}
+
 }
@@ -31,4 +31,9 @@ public class AdminApiTests extends ApiCommon {
 		assertNotNull(this.adminResource.getMintingAccounts());
 	}
 
+	@Test
+	public void testGetProcessingStats() {
+		assertNotNull(this.adminResource.getProcessingStats());
+	}
+
 }
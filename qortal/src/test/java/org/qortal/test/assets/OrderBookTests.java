@@ -0,0 +1,247 @@
+package org.qortal.test.assets;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.data.asset.OrderData;
+import org.qortal.data.transaction.BaseTransactionData;
+import org.qortal.data.transaction.CreateAssetOrderTransactionData;
+import org.qortal.data.transaction.TransactionData;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryManager;
+import org.qortal.test.common.AssetUtils;
+import org.qortal.test.common.BlockUtils;
+import org.qortal.test.common.Common;
+import org.qortal.test.common.TestAccount;
+import org.qortal.test.common.TransactionUtils;
+import org.qortal.transaction.Transaction;
+import org.qortal.utils.Amounts;
+
+/** Checks in-memory order book stays consistent with repository as orders are traded, orphaned and rolled back. */
+public class OrderBookTests extends Common {
+
+	@Before
+	public void beforeTest() throws DataException {
+		Common.useDefaultSettings();
+	}
+
+	@After
+	public void afterTest() throws DataException {
+		Common.orphanCheck();
+	}
+
+	@Test
+	public void testOrdersVisibleToOtherSessions() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			byte[] orderId = AssetUtils.createOrder(repository, "alice", AssetUtils.goldAssetId, AssetUtils.otherAssetId,
+					10L * Amounts.MULTIPLIER, 2L * Amounts.MULTIPLIER);
+
+			try (final Repository otherRepository = RepositoryManager.getRepository()) {
+				List<OrderData> openOrders = otherRepository.getAssetRepository().getOpenOrders(AssetUtils.goldAssetId, AssetUtils.otherAssetId, null, null, null);
+				assertEquals(1, openOrders.size());
+				assertArrayEquals(orderId, openOrders.get(0).getOrderId());
+				assertNotNull("Order book should supply asset names", openOrders.get(0).getHaveAssetName());
+
+				List<OrderData> aggregatedOrders = otherRepository.getAssetRepository().getAggregatedOpenOrders(AssetUtils.goldAssetId, AssetUtils.otherAssetId, null, null, null);
+				assertEquals(1, aggregatedOrders.size());
+				assertEquals(10L * Amounts.MULTIPLIER, aggregatedOrders.get(0).getAmount());
+			}
+		}
+	}
+
+	@Test
+	public void testTradeAndOrphan() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			byte[] aliceOrderId = AssetUtils.createOrder(repository, "alice", AssetUtils.goldAssetId, AssetUtils.otherAssetId,
+					10L * Amounts.MULTIPLIER, 2L * Amounts.MULTIPLIER);
+
+			// Bob's order partially fulfils Alice's order and is itself fully fulfilled
+			AssetUtils.createOrder(repository, "bob", AssetUtils.otherAssetId, AssetUtils.goldAssetId,
+					4L * Amounts.MULTIPLIER, 2L * Amounts.MULTIPLIER);
+
+			assertOrderBookMatchesRepository(repository);
+
+			List<OrderData> openOrders = repository.getAssetRepository().getOpenOrders(AssetUtils.goldAssetId, AssetUtils.otherAssetId, null, null, null);
+			assertEquals(1, openOrders.size());
+			assertEquals(4L * Amounts.MULTIPLIER, openOrders.get(0).getFulfilled());
+
+			assertTrue(repository.getAssetRepository().getOpenOrders(AssetUtils.otherAssetId, AssetUtils.goldAssetId, null, null, null).isEmpty());
+
+			// Orphan Bob's order
+			BlockUtils.orphanLastBlock(repository);
+
+			assertOrderBookMatchesRepository(repository);
+
+			OrderData aliceOrderData = repository.getAssetRepository().fromOrderId(aliceOrderId);
+			assertEquals(0L, aliceOrderData.getFulfilled());
+
+			// Orphan Alice's order
+			BlockUtils.orphanLastBlock(repository);
+
+			assertNull(repository.getAssetRepository().fromOrderId(aliceOrderId));
+			assertTrue(repository.getAssetRepository().getOpenOrders(AssetUtils.goldAssetId, AssetUtils.otherAssetId, null, null, null).isEmpty());
+		}
+	}
+
+	@Test
+	public void testSavepointRollback() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			byte[] aliceOrderId = AssetUtils.createOrder(repository, "alice", AssetUtils.goldAssetId, AssetUtils.otherAssetId,
+					10L * Amounts.MULTIPLIER, 2L * Amounts.MULTIPLIER);
+
+			repository.setSavepoint();
+
+			// Close Alice's order within savepoint
+			OrderData aliceOrderData = repository.getAssetRepository().fromOrderId(aliceOrderId);
+			aliceOrderData.setIsClosed(true);
+			repository.getAssetRepository().save(aliceOrderData);
+
+			// Same session sees uncommitted change
+			assertTrue(repository.getAssetRepository().getOpenOrdersForTrading(AssetUtils.goldAssetId, AssetUtils.otherAssetId, null).isEmpty());
+
+			// Other sessions don't
+			try (final Repository otherRepository = RepositoryManager.getRepository()) {
+				assertEquals(1, otherRepository.getAssetRepository().getOpenOrdersForTrading(AssetUtils.goldAssetId, AssetUtils.otherAssetId, null).size());
+			}
+
+			repository.rollbackToSavepoint();
+
+			assertEquals(1, repository.getAssetRepository().getOpenOrdersForTrading(AssetUtils.goldAssetId, AssetUtils.otherAssetId, null).size());
+			assertFalse(repository.getAssetRepository().fromOrderId(aliceOrderId).getIsClosed());
+
+			repository.discardChanges();
+		}
+	}
+
+	@Test
+	public void testPriceTimeOrdering() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			// Alice's GOLD at increasing prices, with two orders at the same price
+			long[] prices = new long[] { 3L, 2L, 2L, 4L };
+			for (long price : prices)
+				AssetUtils.createOrder(repository, "alice", AssetUtils.goldAssetId, AssetUtils.otherAssetId,
+						1L * Amounts.MULTIPLIER, price * Amounts.MULTIPLIER);
+
+			// Target orders have higher asset ID so matching uses ascending price, up to price limit
+			List<OrderData> orders = repository.getAssetRepository().getOpenOrdersForTrading(AssetUtils.goldAssetId, AssetUtils.otherAssetId, 3L * Amounts.MULTIPLIER);
+			assertEquals(3, orders.size());
+			assertEquals(2L * Amounts.MULTIPLIER, orders.get(0).getPrice());
+			assertTrue(orders.get(0).getTimestamp() <= orders.get(1).getTimestamp());
+			assertEquals(3L * Amounts.MULTIPLIER, orders.get(2).getPrice());
+
+			orders = repository.getAssetRepository().getOpenOrders(AssetUtils.goldAssetId, AssetUtils.otherAssetId, null, null, null);
+			assertEquals(prices.length, orders.size());
+			for (int i = 1; i < orders.size(); ++i) {
+				OrderData previous = orders.get(i - 1);
+				OrderData current = orders.get(i);
+				assertTrue(previous.getPrice() < current.getPrice()
+						|| (previous.getPrice() == current.getPrice() && previous.getTimestamp() <= current.getTimestamp()));
+			}
+
+			// Offset and limit
+			orders = repository.getAssetRepository().getOpenOrders(AssetUtils.goldAssetId, AssetUtils.otherAssetId, 2, 1, null);
+			assertEquals(2, orders.size());
+			assertEquals(2L * Amounts.MULTIPLIER, orders.get(0).getPrice());
+			assertEquals(3L * Amounts.MULTIPLIER, orders.get(1).getPrice());
+
+			List<OrderData> aggregatedOrders = repository.getAssetRepository().getAggregatedOpenOrders(AssetUtils.goldAssetId, AssetUtils.otherAssetId, null, null, true);
+			assertEquals(3, aggregatedOrders.size());
+			assertEquals(4L * Amounts.MULTIPLIER, aggregatedOrders.get(0).getPrice());
+			assertEquals(2L * Amounts.MULTIPLIER, aggregatedOrders.get(2).getAmount());
+		}
+	}
+
+	@Test
+	public void testEqualPriceAndTimestampOrdering() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			AssetUtils.transferAsset(repository, "alice", "bob", AssetUtils.goldAssetId, 10L * Amounts.MULTIPLIER);
+			AssetUtils.transferAsset(repository, "alice", "chloe", AssetUtils.goldAssetId, 10L * Amounts.MULTIPLIER);
+
+			// All orders have same price and timestamp
+			long timestamp = 0L;
+			for (String accountName : new String[] { "alice", "bob", "chloe" }) {
+				byte[] reference = Common.getTestAccount(repository, accountName).getLastReference();
+				timestamp = Math.max(timestamp, repository.getTransactionRepository().fromSignature(reference).getTimestamp() + 1);
+			}
+
+			// Alice's and Bob's orders in one block
+			TransactionData aliceOrderTransactionData = buildOrder(repository, "alice", timestamp);
+			TransactionUtils.signAndImportValid(repository, aliceOrderTransactionData, Common.getTestAccount(repository, "alice"));
+
+			TransactionData bobOrderTransactionData = buildOrder(repository, "bob", timestamp);
+			TransactionUtils.signAndImportValid(repository, bobOrderTransactionData, Common.getTestAccount(repository, "bob"));
+
+			BlockUtils.mintBlock(repository);
+
+			// Chloe's order in next block
+			TransactionData chloeOrderTransactionData = buildOrder(repository, "chloe", timestamp);
+			TransactionUtils.signAndMint(repository, chloeOrderTransactionData, Common.getTestAccount(repository, "chloe"));
+
+			// Expect orders in creation order: by block, then position within block
+			List<byte[]> expectedOrderIds = new ArrayList<>();
+			if (Transaction.getDataComparator().compare(aliceOrderTransactionData, bobOrderTransactionData) < 0) {
+				expectedOrderIds.add(aliceOrderTransactionData.getSignature());
+				expectedOrderIds.add(bobOrderTransactionData.getSignature());
+			} else {
+				expectedOrderIds.add(bobOrderTransactionData.getSignature());
+				expectedOrderIds.add(aliceOrderTransactionData.getSignature());
+			}
+			expectedOrderIds.add(chloeOrderTransactionData.getSignature());
+
+			assertOrderIds(expectedOrderIds, repository.getAssetRepository().getOpenOrdersForTrading(AssetUtils.goldAssetId, AssetUtils.otherAssetId, null));
+			assertOrderIds(expectedOrderIds, repository.getAssetRepository().getOpenOrders(AssetUtils.goldAssetId, AssetUtils.otherAssetId, null, null, null));
+
+			// Other sessions see same order
+			try (final Repository otherRepository = RepositoryManager.getRepository()) {
+				assertOrderIds(expectedOrderIds, otherRepository.getAssetRepository().getOpenOrdersForTrading(AssetUtils.goldAssetId, AssetUtils.otherAssetId, null));
+			}
+
+			// Reversed
+			Collections.reverse(expectedOrderIds);
+			assertOrderIds(expectedOrderIds, repository.getAssetRepository().getOpenOrders(AssetUtils.goldAssetId, AssetUtils.otherAssetId, null, null, true));
+		}
+	}
+
+	private static TransactionData buildOrder(Repository repository, String accountName, long timestamp) throws DataException {
+		TestAccount account = Common.getTestAccount(repository, accountName);
+
+		BaseTransactionData baseTransactionData = new BaseTransactionData(timestamp, AssetUtils.txGroupId, account.getLastReference(), account.getPublicKey(), AssetUtils.fee, null);
+		return new CreateAssetOrderTransactionData(baseTransactionData, AssetUtils.goldAssetId, AssetUtils.otherAssetId,
+				1L * Amounts.MULTIPLIER, 2L * Amounts.MULTIPLIER);
+	}
+
+	private static void assertOrderIds(List<byte[]> expectedOrderIds, List<OrderData> orders) {
+		assertEquals(expectedOrderIds.size(), orders.size());
+
+		for (int i = 0; i < orders.size(); ++i)
+			assertArrayEquals(expectedOrderIds.get(i), orders.get(i).getOrderId());
+	}
+
+	private static void assertOrderBookMatchesRepository(Repository repository) throws DataException {
+		for (String accountName : new String[] { "alice", "bob" }) {
+			TestAccount account = Common.getTestAccount(repository, accountName);
+
+			// Account's orders come straight from repository
+			List<OrderData> accountsOrders = repository.getAssetRepository().getAccountsOrders(account.getPublicKey(), false, false, null, null, null);
+
+			for (OrderData orderData : accountsOrders) {
+				OrderData bookOrderData = repository.getAssetRepository().fromOrderId(orderData.getOrderId());
+				assertNotNull(bookOrderData);
+				assertEquals(orderData.getFulfilled(), bookOrderData.getFulfilled());
+
+				boolean isInBook = repository.getAssetRepository().getOpenOrders(orderData.getHaveAssetId(), orderData.getWantAssetId(), null, null, null)
+						.stream().anyMatch(openOrderData -> Arrays.equals(openOrderData.getOrderId(), orderData.getOrderId()));
+				assertTrue(isInBook);
+			}
+		}
+	}
+
+}
@@ -3,9 +3,14 @@ package org.qortal.test.crosschain;
 import static org.junit.Assert.*;
 
 import java.security.Security;
+import java.util.ArrayList;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.bitcoinj.core.Address;
 import org.bitcoinj.params.TestNet3Params;
@@ -198,4 +203,41 @@ public class ElectrumXTests {
 		assertFalse(transactionHashes.isEmpty());
 	}
 
+	@Test
+	public void testBatchedGetAddressTransactions() throws ForeignBlockchainException {
+		ElectrumX electrumX = getInstance();
+
+		List<byte[]> scripts = new ArrayList<>();
+		for (String base58Address : new String[] { "2N8WCg52ULCtDSMjkgVTm5mtPdCsUptkHWE", "2N4szZUfigj7fSBCEX4PaC8TVbC5EvidaVF" }) {
+			Address address = Address.fromString(TestNet3Params.get(), base58Address);
+			scripts.add(ScriptBuilder.createOutputScript(address).getProgram());
+		}
+
+		List<List<TransactionHash>> transactionHashesList = electrumX.getAddressTransactions(scripts, false);
+		assertEquals(scripts.size(), transactionHashesList.size());
+
+		// Batched results should match individual results
+		for (int i = 0; i < scripts.size(); ++i) {
+			List<TransactionHash> transactionHashes = electrumX.getAddressTransactions(scripts.get(i), false);
+			assertEquals(transactionHashes.size(), transactionHashesList.get(i).size());
+		}
+	}
+
+	@Test
+	public void testConcurrentRequests() throws InterruptedException, ExecutionException {
+		ElectrumX electrumX = getInstance();
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Integer>> futures = new ArrayList<>();
+			for (int i = 0; i < 32; ++i)
+				futures.add(executor.submit(electrumX::getCurrentHeight));
+
+			for (Future<Integer> future : futures)
+				assertTrue(future.get() > 10000);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
 }
@@ -0,0 +1,102 @@
+package org.qortal.test.crosschain;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.bitcoinj.core.ECKey;
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.crosschain.BitcoinyTransaction;
+import org.qortal.crosschain.ForeignChainCache;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryManager;
+import org.qortal.test.common.Common;
+
+public class ForeignChainCacheTests extends Common {
+
+	private static final String NET_ID = "Bitcoin-TEST3";
+
+	@Before
+	public void beforeTest() throws DataException {
+		Common.useDefaultSettings();
+	}
+
+	@Test
+	public void testConfirmedTransaction() throws DataException {
+		BitcoinyTransaction transaction = buildTransaction("aa".repeat(32), 1600000000);
+
+		ForeignChainCache.getInstance(NET_ID).saveTransaction(transaction);
+
+		BitcoinyTransaction cachedTransaction = ForeignChainCache.getInstance(NET_ID).getTransaction(transaction.txHash);
+		assertNotNull(cachedTransaction);
+
+		assertEquals(transaction.txHash, cachedTransaction.txHash);
+		assertEquals(transaction.size, cachedTransaction.size);
+		assertEquals(transaction.locktime, cachedTransaction.locktime);
+		assertEquals(transaction.timestamp, cachedTransaction.timestamp);
+		assertEquals(transaction.totalAmount, cachedTransaction.totalAmount);
+
+		assertEquals(transaction.inputs.size(), cachedTransaction.inputs.size());
+		assertEquals(transaction.inputs.get(0).outputTxHash, cachedTransaction.inputs.get(0).outputTxHash);
+		assertEquals(transaction.inputs.get(0).outputVout, cachedTransaction.inputs.get(0).outputVout);
+
+		assertEquals(transaction.outputs.size(), cachedTransaction.outputs.size());
+		for (int i = 0; i < transaction.outputs.size(); ++i) {
+			assertEquals(transaction.outputs.get(i).scriptPubKey, cachedTransaction.outputs.get(i).scriptPubKey);
+			assertEquals(transaction.outputs.get(i).value, cachedTransaction.outputs.get(i).value);
+			assertEquals(transaction.outputs.get(i).addresses, cachedTransaction.outputs.get(i).addresses);
+		}
+
+		// Different network shouldn't see it
+		assertNull(ForeignChainCache.getInstance("Litecoin-TEST3").getTransaction(transaction.txHash));
+	}
+
+	@Test
+	public void testUnconfirmedTransaction() {
+		BitcoinyTransaction transaction = buildTransaction("bb".repeat(32), null);
+
+		ForeignChainCache.getInstance(NET_ID).saveTransaction(transaction);
+
+		// Unconfirmed transactions should not be persisted
+		assertNull(ForeignChainCache.getInstance(NET_ID).getTransaction(transaction.txHash));
+	}
+
+	@Test
+	public void testSpentKeys() throws DataException {
+		ECKey key = new ECKey();
+		ForeignChainCache foreignChainCache = ForeignChainCache.getInstance(NET_ID);
+
+		assertFalse(foreignChainCache.isKeySpent(key));
+
+		foreignChainCache.markKeySpent(key);
+		assertTrue(foreignChainCache.isKeySpent(key));
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			List<byte[]> publicKeyHashes = repository.getCrossChainRepository().getSpentForeignKeys(NET_ID);
+			assertTrue(publicKeyHashes.stream().anyMatch(publicKeyHash -> Arrays.equals(key.getPubKeyHash(), publicKeyHash)));
+		}
+
+		foreignChainCache.markKeyUnspent(key);
+		assertFalse(foreignChainCache.isKeySpent(key));
+
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			List<byte[]> publicKeyHashes = repository.getCrossChainRepository().getSpentForeignKeys(NET_ID);
+			assertFalse(publicKeyHashes.stream().anyMatch(publicKeyHash -> Arrays.equals(key.getPubKeyHash(), publicKeyHash)));
+		}
+	}
+
+	private static BitcoinyTransaction buildTransaction(String txHash, Integer timestamp) {
+		List<BitcoinyTransaction.Input> inputs = Arrays.asList(
+				new BitcoinyTransaction.Input("00", 0xffffffff, "cc".repeat(32), 1));
+
+		List<BitcoinyTransaction.Output> outputs = Arrays.asList(
+				new BitcoinyTransaction.Output("76a914" + "dd".repeat(20) + "88ac", 12345L, Arrays.asList("mzBc4XEFSdzCDcTxAgf6EZXgsZWpztRhef")),
+				new BitcoinyTransaction.Output("6a", 0L));
+
+		return new BitcoinyTransaction(txHash, 200, 0, timestamp, inputs, outputs);
+	}
+
+}
@@ -0,0 +1,117 @@
+package org.qortal.test.crosschain;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.qortal.api.model.crosschain.TradeBotProgressStats;
+import org.qortal.controller.tradebot.AcctTradeBot;
+import org.qortal.controller.tradebot.BitcoinACCTv1TradeBot;
+import org.qortal.controller.tradebot.LitecoinACCTv1TradeBot;
+import org.qortal.controller.tradebot.TradeBot;
+import org.qortal.controller.tradebot.TradeBot.StateNameAndValueSupplier;
+import org.qortal.crosschain.BitcoinACCTv1;
+import org.qortal.crosschain.SupportedBlockchain;
+import org.qortal.data.crosschain.TradeBotData;
+import org.qortal.repository.DataException;
+import org.qortal.repository.Repository;
+import org.qortal.repository.RepositoryManager;
+import org.qortal.test.common.Common;
+
+public class TradeBotTests extends Common {
+
+	private static final Random RANDOM = new Random();
+
+	@Before
+	public void beforeTest() throws DataException {
+		Common.useDefaultSettings();
+	}
+
+	@Test
+	public void testCanProgress() {
+		checkCanProgress(BitcoinACCTv1TradeBot.getInstance(), BitcoinACCTv1TradeBot.State.values());
+		checkCanProgress(LitecoinACCTv1TradeBot.getInstance(), LitecoinACCTv1TradeBot.State.values());
+	}
+
+	@Test
+	public void testProgressStats() {
+		TradeBotProgressStats stats = new TradeBotProgressStats("Aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa");
+
+		stats.record("BOB_WAITING_FOR_MESSAGE", 1000L, 1300L);
+		stats.record("BOB_WAITING_FOR_AT_REDEEM", 2000L, 2100L);
+
+		TradeBotProgressStats copy = stats.copy();
+		assertEquals(stats.atAddress, copy.atAddress);
+		assertEquals("BOB_WAITING_FOR_AT_REDEEM", copy.lastState);
+		assertEquals(2, copy.runs);
+		assertEquals(2000L, copy.lastRun);
+		assertEquals(100L, copy.lastDuration);
+		assertEquals(300L, copy.maxDuration);
+		assertEquals(400L, copy.totalDuration);
+
+		// Copy is a snapshot
+		stats.record("BOB_DONE", 3000L, 3010L);
+		assertEquals(2, copy.runs);
+		assertEquals(3, stats.runs);
+	}
+
+	@Test
+	public void testDeleteEntry() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			TradeBotData doneTradeBotData = buildTradeBotData(BitcoinACCTv1TradeBot.State.BOB_DONE);
+			TradeBotData activeTradeBotData = buildTradeBotData(BitcoinACCTv1TradeBot.State.ALICE_WAITING_FOR_AT_LOCK);
+
+			repository.getCrossChainRepository().save(doneTradeBotData);
+			repository.getCrossChainRepository().save(activeTradeBotData);
+			repository.saveChanges();
+
+			assertTrue(TradeBot.getInstance().deleteEntry(repository, doneTradeBotData.getTradePrivateKey()));
+			assertNull(repository.getCrossChainRepository().getTradeBotData(doneTradeBotData.getTradePrivateKey()));
+
+			// Can't delete again
+			assertFalse(TradeBot.getInstance().deleteEntry(repository, doneTradeBotData.getTradePrivateKey()));
+
+			// Active trade isn't deleted
+			assertFalse(TradeBot.getInstance().deleteEntry(repository, activeTradeBotData.getTradePrivateKey()));
+			assertNotNull(repository.getCrossChainRepository().getTradeBotData(activeTradeBotData.getTradePrivateKey()));
+		}
+	}
+
+	private static void checkCanProgress(AcctTradeBot acctTradeBot, StateNameAndValueSupplier[] states) {
+		// All final states must exist for this trade-bot, as they are matched by name
+		for (String finalState : AcctTradeBot.FINAL_STATES)
+			assertTrue(String.format("Missing state %s", finalState),
+					Arrays.stream(states).anyMatch(state -> state.getState().equals(finalState)));
+
+		for (StateNameAndValueSupplier state : states) {
+			TradeBotData tradeBotData = buildTradeBotData(state);
+
+			boolean isFinal = state.getState().endsWith("_DONE") || state.getState().endsWith("_REFUNDED");
+			assertEquals(String.format("canProgress for state %s", state.getState()), !isFinal, acctTradeBot.canProgress(tradeBotData));
+		}
+	}
+
+	private static TradeBotData buildTradeBotData(StateNameAndValueSupplier state) {
+		byte[] tradePrivateKey = randomBytes(32);
+		String atAddress = "A" + Long.toHexString(RANDOM.nextLong());
+
+		return new TradeBotData(tradePrivateKey, BitcoinACCTv1.NAME,
+				state.getState(), state.getStateValue(),
+				"Qcreator", atAddress, System.currentTimeMillis(), 1_00000000L,
+				randomBytes(33), randomBytes(20), "Qtrade",
+				randomBytes(32), randomBytes(20),
+				SupportedBlockchain.BITCOIN.name(),
+				randomBytes(33), randomBytes(20),
+				1_000000L, null, null, null, randomBytes(20));
+	}
+
+	private static byte[] randomBytes(int length) {
+		byte[] bytes = new byte[length];
+		RANDOM.nextBytes(bytes);
+		return bytes;
+	}
+
+}
@@ -20,10 +20,12 @@ import org.qortal.asset.Asset;
 import org.qortal.block.Block;
 import org.qortal.crosschain.BitcoinACCTv1;
 import org.qortal.crosschain.AcctMode;
+import org.qortal.crosschain.CrossChainTradeIndex;
 import org.qortal.crypto.Crypto;
 import org.qortal.data.at.ATData;
 import org.qortal.data.at.ATStateData;
 import org.qortal.data.crosschain.CrossChainTradeData;
+import org.qortal.data.crosschain.IndexedTradeData;
 import org.qortal.data.transaction.BaseTransactionData;
 import org.qortal.data.transaction.DeployAtTransactionData;
 import org.qortal.data.transaction.MessageTransactionData;
@@ -629,6 +631,71 @@ public class BitcoinACCTv1Tests extends Common {
 		}
 	}
 
+	@Test
+	public void testTradeIndex() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount deployer = Common.getTestAccount(repository, "chloe");
+			PrivateKeyAccount tradeAccount = createTradeAccount(repository);
+
+			DeployAtTransaction deployAtTransaction = doDeploy(repository, deployer, tradeAccount.getAddress());
+			Account at = deployAtTransaction.getATAccount();
+			String atAddress = at.getAddress();
+
+			// Newly deployed AT should be indexed as an offer
+			assertIndexedTradeMatches(repository, atAddress, AcctMode.OFFERING, false);
+
+			// Indexed using timestamp of block containing DEPLOY_AT, not transaction's timestamp
+			long deployBlockTimestamp = repository.getBlockRepository().getLastBlock().getTimestamp();
+			assertEquals(deployBlockTimestamp, repository.getCrossChainRepository().getIndexedTrade(atAddress).getUpdatedTimestamp());
+
+			byte[] messageData = BitcoinACCTv1.getInstance().buildCancelMessage(deployer.getAddress());
+			sendMessage(repository, deployer, messageData, atAddress);
+
+			// AT should process 'cancel' message in next block
+			BlockUtils.mintBlock(repository);
+
+			assertIndexedTradeMatches(repository, atAddress, AcctMode.CANCELLED, true);
+
+			// Test orphaning
+			BlockUtils.orphanLastBlock(repository);
+
+			assertIndexedTradeMatches(repository, atAddress, AcctMode.OFFERING, false);
+
+			// Orphan MESSAGE and DEPLOY_AT blocks
+			BlockUtils.orphanLastBlock(repository);
+			BlockUtils.orphanLastBlock(repository);
+
+			assertNull(repository.getCrossChainRepository().getIndexedTrade(atAddress));
+		}
+	}
+
+	@Test
+	public void testTradeIndexRebuild() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount deployer = Common.getTestAccount(repository, "chloe");
+			PrivateKeyAccount tradeAccount = createTradeAccount(repository);
+
+			DeployAtTransaction deployAtTransaction = doDeploy(repository, deployer, tradeAccount.getAddress());
+			String atAddress = deployAtTransaction.getATAccount().getAddress();
+			long deployBlockTimestamp = repository.getBlockRepository().getLastBlock().getTimestamp();
+
+			// Simulate repository from before index existed
+			repository.getCrossChainRepository().deleteIndexedTrade(atAddress);
+			assertFalse(repository.getCrossChainRepository().isTradeIndexBuilt());
+
+			CrossChainTradeIndex.rebuildIfNeeded(repository);
+			assertTrue(repository.getCrossChainRepository().isTradeIndexBuilt());
+
+			assertIndexedTradeMatches(repository, atAddress, AcctMode.OFFERING, false);
+			assertEquals(deployBlockTimestamp, repository.getCrossChainRepository().getIndexedTrade(atAddress).getUpdatedTimestamp());
+
+			// Already built, so ATs aren't rescanned
+			repository.getCrossChainRepository().deleteIndexedTrade(atAddress);
+			CrossChainTradeIndex.rebuildIfNeeded(repository);
+			assertNull(repository.getCrossChainRepository().getIndexedTrade(atAddress));
+		}
+	}
+
 	@SuppressWarnings("unused")
 	@Test
 	public void testDescribeDeployed() throws DataException {
@@ -745,6 +812,24 @@ public class BitcoinACCTv1Tests extends Common {
 		assertTrue(String.format("Deployer's balance %s should be below maximum %s", actualBalance, expectedMaximumBalance), actualBalance < expectedMaximumBalance);
 	}
 
+	private void assertIndexedTradeMatches(Repository repository, String atAddress, AcctMode expectedMode, boolean expectedIsFinished) throws DataException {
+		ATData atData = repository.getATRepository().fromATAddress(atAddress);
+		CrossChainTradeData tradeData = BitcoinACCTv1.getInstance().populateTradeData(repository, atData);
+
+		IndexedTradeData indexedTrade = repository.getCrossChainRepository().getIndexedTrade(atAddress);
+		assertNotNull(indexedTrade);
+
+		CrossChainTradeData indexedTradeData = indexedTrade.getTradeData();
+		assertEquals(expectedMode, indexedTradeData.mode);
+		assertEquals(tradeData.mode, indexedTradeData.mode);
+		assertEquals(expectedIsFinished, indexedTrade.isFinished());
+		assertEquals(tradeData.qortBalance, indexedTradeData.qortBalance);
+		assertEquals(tradeData.qortAmount, indexedTradeData.qortAmount);
+		assertEquals(tradeData.expectedForeignAmount, indexedTradeData.expectedForeignAmount);
+		assertArrayEquals(tradeData.hashOfSecretB, indexedTradeData.hashOfSecretB);
+		assertEquals(tradeData.creationTimestamp, indexedTradeData.creationTimestamp);
+	}
+
 	private void describeAt(Repository repository, String atAddress) throws DataException {
 		ATData atData = repository.getATRepository().fromATAddress(atAddress);
 		CrossChainTradeData tradeData = BitcoinACCTv1.getInstance().populateTradeData(repository, atData);
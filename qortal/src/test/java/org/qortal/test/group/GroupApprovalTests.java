@@ -9,6 +9,7 @@ import org.qortal.data.transaction.BaseTransactionData;
 import org.qortal.data.transaction.IssueAssetTransactionData;
 import org.qortal.data.transaction.PaymentTransactionData;
 import org.qortal.data.transaction.TransactionData;
+import org.qortal.data.transaction.UpdateGroupTransactionData;
 import org.qortal.group.Group;
 import org.qortal.group.Group.ApprovalThreshold;
 import org.qortal.repository.DataException;
@@ -340,6 +341,118 @@ public class GroupApprovalTests extends Common {
 		}
 	}
 
+	@Test
+	/** Test expiry follows changes to group's block delays. */
+	public void testExpiryAfterGroupUpdate() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			PrivateKeyAccount aliceAccount = Common.getTestAccount(repository, "alice");
+			int groupId = GroupUtils.createGroup(repository, "alice", "test", true, ApprovalThreshold.ONE, minBlockDelay, maxBlockDelay);
+
+			PrivateKeyAccount bobAccount = Common.getTestAccount(repository, "bob");
+			GroupUtils.joinGroup(repository, "bob", groupId);
+
+			// Bob's issue-asset transaction needs group-approval
+			Transaction bobAssetTransaction = buildIssueAssetTransaction(repository, "bob", groupId);
+			TransactionUtils.signAndMint(repository, bobAssetTransaction.getTransactionData(), bobAccount);
+			byte[] bobAssetSignature = bobAssetTransaction.getTransactionData().getSignature();
+
+			// Alice shortens group's maximum block delay, in next block
+			final int newMaxBlockDelay = minBlockDelay + 1;
+			byte[] reference = aliceAccount.getLastReference();
+			long timestamp = repository.getTransactionRepository().fromSignature(reference).getTimestamp() + 1;
+			BaseTransactionData baseTransactionData = new BaseTransactionData(timestamp, Group.NO_GROUP, reference, aliceAccount.getPublicKey(), fee, null);
+			TransactionData updateGroupTransactionData = new UpdateGroupTransactionData(baseTransactionData, groupId, aliceAccount.getAddress(),
+					"updated", true, ApprovalThreshold.ONE, minBlockDelay, newMaxBlockDelay);
+			TransactionUtils.signAndMint(repository, updateGroupTransactionData, aliceAccount);
+
+			// Mint blocks until just before shortened expiry
+			for (int blockCount = 1; blockCount < newMaxBlockDelay; ++blockCount)
+				BlockUtils.mintBlock(repository);
+
+			ApprovalStatus approvalStatus = GroupUtils.getApprovalStatus(repository, bobAssetSignature);
+			assertEquals("incorrect transaction approval status", ApprovalStatus.PENDING, approvalStatus);
+
+			// Transaction expires well before original maximum block delay
+			BlockUtils.mintBlock(repository);
+
+			approvalStatus = GroupUtils.getApprovalStatus(repository, bobAssetSignature);
+			assertEquals("incorrect transaction approval status", ApprovalStatus.EXPIRED, approvalStatus);
+
+			// Orphan back to before group update
+			for (int blockCount = 0; blockCount <= newMaxBlockDelay; ++blockCount)
+				BlockUtils.orphanLastBlock(repository);
+
+			approvalStatus = GroupUtils.getApprovalStatus(repository, bobAssetSignature);
+			assertEquals("incorrect transaction approval status", ApprovalStatus.PENDING, approvalStatus);
+
+			// Transaction should now follow original maximum block delay
+			for (int blockCount = 0; blockCount < maxBlockDelay; ++blockCount)
+				BlockUtils.mintBlock(repository);
+
+			approvalStatus = GroupUtils.getApprovalStatus(repository, bobAssetSignature);
+			assertEquals("incorrect transaction approval status", ApprovalStatus.PENDING, approvalStatus);
+
+			BlockUtils.mintBlock(repository);
+
+			approvalStatus = GroupUtils.getApprovalStatus(repository, bobAssetSignature);
+			assertEquals("incorrect transaction approval status", ApprovalStatus.EXPIRED, approvalStatus);
+		}
+	}
+
+	@Test
+	/** Test conflicting approvals decided in same block are processed in block order. */
+	public void testConflictingApprovalsInSameBlock() throws DataException {
+		try (final Repository repository = RepositoryManager.getRepository()) {
+			int groupId = GroupUtils.createGroup(repository, "alice", "test", true, ApprovalThreshold.ONE, minBlockDelay, maxBlockDelay);
+
+			PrivateKeyAccount bobAccount = Common.getTestAccount(repository, "bob");
+			GroupUtils.joinGroup(repository, "bob", groupId);
+
+			PrivateKeyAccount chloeAccount = Common.getTestAccount(repository, "chloe");
+			GroupUtils.joinGroup(repository, "chloe", groupId);
+
+			// Bob and Chloe both issue asset with same name, in same block, both needing group-approval
+			TransactionData bobAssetTransactionData = buildIssueAssetTransaction(repository, "bob", groupId).getTransactionData();
+			TransactionUtils.signAndImportValid(repository, bobAssetTransactionData, bobAccount);
+
+			TransactionData chloeAssetTransactionData = buildIssueAssetTransaction(repository, "chloe", groupId).getTransactionData();
+			TransactionUtils.signAndImportValid(repository, chloeAssetTransactionData, chloeAccount);
+
+			BlockUtils.mintBlock(repository);
+
+			byte[] bobAssetSignature = bobAssetTransactionData.getSignature();
+			byte[] chloeAssetSignature = chloeAssetTransactionData.getSignature();
+
+			// Have Alice approve both
+			GroupUtils.approveTransaction(repository, "alice", bobAssetSignature, true);
+			GroupUtils.approveTransaction(repository, "alice", chloeAssetSignature, true);
+
+			// Mint blocks until just before both become decidable
+			for (int blockCount = 1; blockCount < minBlockDelay; ++blockCount)
+				BlockUtils.mintBlock(repository);
+
+			assertEquals("incorrect transaction approval status", ApprovalStatus.PENDING, GroupUtils.getApprovalStatus(repository, bobAssetSignature));
+			assertEquals("incorrect transaction approval status", ApprovalStatus.PENDING, GroupUtils.getApprovalStatus(repository, chloeAssetSignature));
+
+			// Both decided in next block
+			BlockUtils.mintBlock(repository);
+
+			// Whichever came first in block issues asset, leaving other unprocessable
+			boolean bobFirst = Transaction.getDataComparator().compare(bobAssetTransactionData, chloeAssetTransactionData) < 0;
+			byte[] firstSignature = bobFirst ? bobAssetSignature : chloeAssetSignature;
+			byte[] secondSignature = bobFirst ? chloeAssetSignature : bobAssetSignature;
+
+			assertEquals("incorrect transaction approval status", ApprovalStatus.APPROVED, GroupUtils.getApprovalStatus(repository, firstSignature));
+			assertEquals("incorrect transaction approval status", ApprovalStatus.INVALID, GroupUtils.getApprovalStatus(repository, secondSignature));
+
+			// Orphan block that decided both
+			BlockUtils.orphanLastBlock(repository);
+
+			assertEquals("incorrect transaction approval status", ApprovalStatus.PENDING, GroupUtils.getApprovalStatus(repository, firstSignature));
+			assertEquals("incorrect transaction approval status", ApprovalStatus.PENDING, GroupUtils.getApprovalStatus(repository, secondSignature));
+		}
+	}
+
 	@Test
 	/** Test generic invalid. */
 	public void testInvalid() throws DataException {